@@ -0,0 +1,117 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the dispatch throughput of {@link AsyncButOrdered} with 1, 8 and 64 dispatching threads. One benchmark
+ * operation dispatches {@link #RUNNABLES_PER_OPERATION} runnables, spread over the keys, and waits until all of them
+ * have been run. Hence the dispatched runnables per second are the operations per second multiplied by
+ * {@link #RUNNABLES_PER_OPERATION}.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class AsyncButOrderedJmh {
+
+    private static final int RUNNABLES_PER_OPERATION = 256;
+
+    @Param({"1", "64", "4096"})
+    private int keyCount;
+
+    private ExecutorService executor;
+
+    private AsyncButOrdered<Integer> asyncButOrdered;
+
+    private Integer[] keys;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        asyncButOrdered = new AsyncButOrdered<>(executor);
+        keys = new Integer[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @State(Scope.Thread)
+    public static class Dispatcher {
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private final Runnable runnable = pending::decrementAndGet;
+
+        private int nextKey;
+
+        private void dispatch(AsyncButOrderedJmh benchmark) {
+            pending.addAndGet(RUNNABLES_PER_OPERATION);
+            Integer[] keys = benchmark.keys;
+            for (int i = 0; i < RUNNABLES_PER_OPERATION; i++) {
+                nextKey = (nextKey + 1) % keys.length;
+                benchmark.asyncButOrdered.performAsyncButOrdered(keys[nextKey], runnable);
+            }
+            while (pending.get() > 0) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void dispatch1Thread(Dispatcher dispatcher) {
+        dispatcher.dispatch(this);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void dispatch8Threads(Dispatcher dispatcher) {
+        dispatcher.dispatch(this);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void dispatch64Threads(Dispatcher dispatcher) {
+        dispatcher.dispatch(this);
+    }
+}
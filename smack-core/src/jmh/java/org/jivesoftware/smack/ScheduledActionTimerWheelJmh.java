@@ -0,0 +1,121 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import java.util.Random;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the schedule and cancel churn of scheduled actions with one million pending timers, resembling a large
+ * number of outstanding reply timeouts where every reply cancels its timeout and a new request schedules another one.
+ * The {@link DelayQueue}, which was used by the reactor before, serves as baseline.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ScheduledActionTimerWheelJmh {
+
+    private static final int PENDING_TIMERS = 1_000_000;
+
+    private static final long MIN_DELAY_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private static final int DELAY_SPREAD_MILLIS = (int) TimeUnit.MINUTES.toMillis(50);
+
+    private static void noop() {
+    }
+
+    @State(Scope.Thread)
+    public static class PendingTimers {
+        final Random random = new Random(42);
+
+        final ScheduledAction[] pendingActions = new ScheduledAction[PENDING_TIMERS];
+
+        ScheduledAction newScheduledAction() {
+            long releaseTimeNanos = System.nanoTime() + MIN_DELAY_NANOS
+                            + TimeUnit.MILLISECONDS.toNanos(random.nextInt(DELAY_SPREAD_MILLIS));
+            return new ScheduledAction(ScheduledActionTimerWheelJmh::noop, releaseTimeNanos, null,
+                            ScheduledAction.Kind.NonBlocking);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class TimerWheelState extends PendingTimers {
+        ScheduledActionTimerWheel timerWheel;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            timerWheel = new ScheduledActionTimerWheel(Thread.currentThread(),
+                            ScheduledActionTimerWheelJmh::noop);
+            for (int i = 0; i < PENDING_TIMERS; i++) {
+                pendingActions[i] = newScheduledAction();
+                timerWheel.schedule(pendingActions[i]);
+            }
+            timerWheel.advance(System.nanoTime());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class DelayQueueState extends PendingTimers {
+        DelayQueue<ScheduledAction> delayQueue;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            delayQueue = new DelayQueue<>();
+            for (int i = 0; i < PENDING_TIMERS; i++) {
+                pendingActions[i] = newScheduledAction();
+                delayQueue.add(pendingActions[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean timerWheelScheduleAndCancel(TimerWheelState state) {
+        int index = state.random.nextInt(PENDING_TIMERS);
+        boolean cancelled = state.timerWheel.cancel(state.pendingActions[index]);
+
+        ScheduledAction scheduledAction = state.newScheduledAction();
+        state.timerWheel.schedule(scheduledAction);
+        state.pendingActions[index] = scheduledAction;
+        return cancelled;
+    }
+
+    @Benchmark
+    public boolean delayQueueScheduleAndCancel(DelayQueueState state) {
+        int index = state.random.nextInt(PENDING_TIMERS);
+        boolean cancelled = state.delayQueue.remove(state.pendingActions[index]);
+
+        ScheduledAction scheduledAction = state.newScheduledAction();
+        state.delayQueue.add(scheduledAction);
+        state.pendingActions[index] = scheduledAction;
+        return cancelled;
+    }
+}
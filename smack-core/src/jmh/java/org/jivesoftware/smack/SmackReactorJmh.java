@@ -0,0 +1,172 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+
+import org.jxmpp.JxmppContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the stanza capacity of the {@link SmackReactor} depending on its number of reactor threads. Every simulated
+ * connection is a {@link Pipe}, whose source channel is registered with the reactor. The channel selected callback
+ * reads fixed sized records and parses each of them as stanza, which resembles the work a connection performs on the
+ * reactor thread. One benchmark operation writes one stanza to every connection and waits until all of them got
+ * parsed, hence the stanzas per second are the operations per second multiplied by the connection count.
+ * <p>
+ * Note that the benchmark requires at least as many cores as reactor threads, plus one for the benchmark thread, to
+ * show the scaling.
+ * </p>
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class SmackReactorJmh {
+
+    private static final int STANZA_RECORD_SIZE = 256;
+
+    private static final int CONNECTION_COUNT = 256;
+
+    @Param({"1", "2", "4"})
+    private int reactorThreadCount;
+
+    private SmackReactor reactor;
+
+    private final List<SimulatedConnection> connections = new ArrayList<>(CONNECTION_COUNT);
+
+    private final AtomicLong parsedStanzas = new AtomicLong();
+
+    private long expectedParsedStanzas;
+
+    private ByteBuffer stanzaRecord;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        reactor = new SmackReactor("SmackReactorJmh");
+        reactor.setReactorThreadCount(reactorThreadCount);
+
+        String stanza = "<message xmlns='jabber:client' to='juliet@example.org/balcony' from='romeo@example.net/orchard'"
+                        + " id='reactor-jmh' type='chat'><body>Wherefore art thou, Romeo?</body></message>";
+        StringBuilder record = new StringBuilder(STANZA_RECORD_SIZE);
+        record.append(stanza);
+        while (record.length() < STANZA_RECORD_SIZE) {
+            record.append(' ');
+        }
+        stanzaRecord = ByteBuffer.wrap(record.toString().getBytes(StandardCharsets.UTF_8));
+
+        for (int i = 0; i < CONNECTION_COUNT; i++) {
+            connections.add(new SimulatedConnection());
+        }
+        parsedStanzas.set(0);
+        expectedParsedStanzas = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        for (SimulatedConnection connection : connections) {
+            connection.close();
+        }
+        connections.clear();
+        // Let the reactor threads terminate once they noticed that their channels got closed.
+        reactor.setReactorThreadCount(1);
+    }
+
+    @Benchmark
+    public void parseStanzaOnEveryConnection() throws IOException {
+        for (SimulatedConnection connection : connections) {
+            ByteBuffer record = stanzaRecord.duplicate();
+            while (record.hasRemaining()) {
+                connection.pipe.sink().write(record);
+            }
+        }
+
+        expectedParsedStanzas += CONNECTION_COUNT;
+        while (parsedStanzas.get() < expectedParsedStanzas) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private final class SimulatedConnection implements SmackReactor.ChannelSelectedCallback {
+        private final Pipe pipe;
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(16 * STANZA_RECORD_SIZE);
+        private final SelectionKey selectionKey;
+
+        private SimulatedConnection() throws IOException {
+            pipe = Pipe.open();
+            pipe.source().configureBlocking(false);
+            selectionKey = reactor.registerWithSelector(pipe.source(), SelectionKey.OP_READ, this, this);
+        }
+
+        @Override
+        public void onChannelSelected(SelectableChannel channel, SelectionKey selectionKey) {
+            try {
+                while (pipe.source().read(readBuffer) > 0) {
+                    readBuffer.flip();
+                    while (readBuffer.remaining() >= STANZA_RECORD_SIZE) {
+                        String record = new String(readBuffer.array(), readBuffer.arrayOffset() + readBuffer.position(),
+                                        STANZA_RECORD_SIZE, StandardCharsets.UTF_8);
+                        readBuffer.position(readBuffer.position() + STANZA_RECORD_SIZE);
+                        XmlPullParser parser = PacketParserUtils.getParserFor(record.trim());
+                        PacketParserUtils.parseStanza(parser, XmlEnvironment.EMPTY, JxmppContext.getDefaultContext());
+                        parsedStanzas.incrementAndGet();
+                    }
+                    readBuffer.compact();
+                }
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+
+            SmackReactor.SelectionKeyAttachment attachment = (SmackReactor.SelectionKeyAttachment) selectionKey.attachment();
+            attachment.resetReactorThreadRacing();
+            reactor.setInterestOps(selectionKey, SelectionKey.OP_READ);
+        }
+
+        private void close() throws IOException {
+            selectionKey.cancel();
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.filter.AndFilter;
+import org.jivesoftware.smack.filter.MessageTypeFilter;
+import org.jivesoftware.smack.filter.PresenceTypeFilter;
+import org.jivesoftware.smack.filter.StanzaExtensionFilter;
+import org.jivesoftware.smack.filter.StanzaFilter;
+import org.jivesoftware.smack.filter.StanzaTypeFilter;
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.StandardExtensionElement;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the dispatch of incoming stanzas to stanza listeners. The "linear" benchmark resembles the previous
+ * approach, where every listener's filter was evaluated for every stanza while holding a lock. Run with
+ * <code>-prof gc</code> to obtain the bytes allocated per dispatched stanza.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class StanzaDispatchJmh {
+
+    @Param({"10", "100"})
+    private int listenerCount;
+
+    private IndexedStanzaListeners indexedListeners;
+
+    private final Map<StanzaListener, AbstractXMPPConnection.ListenerWrapper> linearListeners = new LinkedHashMap<>();
+
+    private DummyConnection connection;
+
+    private Stanza stanza;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        indexedListeners = new IndexedStanzaListeners();
+        linearListeners.clear();
+        connection = DummyConnection.newConnectedDummyConnection();
+
+        for (int i = 0; i < listenerCount; i++) {
+            final StanzaFilter filter;
+            switch (i % 4) {
+            case 0:
+                filter = new StanzaExtensionFilter("x" + i, "urn:example:" + i);
+                break;
+            case 1:
+                filter = new AndFilter(StanzaTypeFilter.MESSAGE, new StanzaExtensionFilter("y" + i, "urn:example:" + i));
+                break;
+            case 2:
+                filter = PresenceTypeFilter.AVAILABLE;
+                break;
+            default:
+                filter = MessageTypeFilter.GROUPCHAT;
+                break;
+            }
+            // Use distinct listener instances, as listeners are keyed by identity. Note that a non-capturing lambda
+            // would always yield the same instance.
+            StanzaListener listener = new StanzaListener() {
+                @Override
+                public void processStanza(Stanza packet) {
+                }
+            };
+            indexedListeners.add(listener, filter);
+            linearListeners.put(listener, new AbstractXMPPConnection.ListenerWrapper(listener, filter));
+            connection.addAsyncStanzaListener(listener, filter);
+        }
+
+        stanza = StanzaBuilder.buildMessage()
+                        .ofType(Message.Type.chat)
+                        .addExtension(StandardExtensionElement.builder("x0", "urn:example:0").build())
+                        .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        connection.disconnect();
+    }
+
+    @Benchmark
+    public void indexedMatching(Blackhole blackhole) {
+        blackhole.consume(indexedListeners.getMatchingListeners(stanza));
+    }
+
+    @Benchmark
+    public void linearMatching(Blackhole blackhole) {
+        List<StanzaListener> listenersToNotify = new ArrayList<>();
+        synchronized (linearListeners) {
+            for (AbstractXMPPConnection.ListenerWrapper listenerWrapper : linearListeners.values()) {
+                if (listenerWrapper.filterMatches(stanza)) {
+                    listenersToNotify.add(listenerWrapper.getListener());
+                }
+            }
+        }
+        blackhole.consume(listenersToNotify);
+    }
+
+    @Benchmark
+    public void connectionDispatch() {
+        connection.processStanza(stanza);
+    }
+}
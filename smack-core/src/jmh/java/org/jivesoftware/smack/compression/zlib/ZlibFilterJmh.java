@@ -0,0 +1,89 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.compression.zlib;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import org.jivesoftware.smack.XmppInputOutputFilter.OutputResult;
+import org.jivesoftware.smack.compression.XMPPInputOutputStream.FlushMethod;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of {@link ZlibXmppInputOutputFilter}. One benchmark operation compresses a stanza, as the
+ * transport does when the stanza is the last element to send, and decompresses the result with the filter of the
+ * receiving side. Both filters keep their state between the operations, like the filters of an established stream.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class ZlibFilterJmh {
+
+    private static final byte[] STANZA = ("<message to='juliet@example.org/balcony' from='romeo@example.net/orchard'"
+                    + " id='zlib-jmh' type='chat'><body>Wherefore art thou, Romeo? Deny thy father and refuse thy"
+                    + " name; or, if thou wilt not, be but sworn my love, and I'll no longer be a Capulet.</body>"
+                    + "<thread>e0ffe42b28561960c6b12b944a092794b9683a38</thread>"
+                    + "<active xmlns='http://jabber.org/protocol/chatstates'/></message>").getBytes(StandardCharsets.UTF_8);
+
+    @Param({"1", "6", "9"})
+    private int compressionLevel;
+
+    private ZlibXmppInputOutputFilter sender;
+
+    private ZlibXmppInputOutputFilter receiver;
+
+    private final ByteBuffer stanza = ByteBuffer.wrap(STANZA);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        sender = new ZlibXmppInputOutputFilter(compressionLevel, Deflater.DEFAULT_STRATEGY, FlushMethod.SYNC_FLUSH);
+        receiver = new ZlibXmppInputOutputFilter(compressionLevel, Deflater.DEFAULT_STRATEGY, FlushMethod.SYNC_FLUSH);
+    }
+
+    @Benchmark
+    public int compressAndDecompress() throws IOException {
+        stanza.rewind();
+        OutputResult outputResult = sender.output(stanza, true, false, false);
+        ByteBuffer compressed = outputResult.filteredOutputData;
+        compressed.flip();
+
+        ByteBuffer decompressed = receiver.input(compressed);
+        int decompressedBytes = decompressed.position();
+
+        sender.releaseBuffers();
+        receiver.releaseBuffers();
+        return decompressedBytes;
+    }
+}
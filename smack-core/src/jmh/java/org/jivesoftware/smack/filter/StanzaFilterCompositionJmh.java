@@ -0,0 +1,93 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.filter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+
+import org.jxmpp.jid.impl.JidCreate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the evaluation of composed {@link StanzaFilter}s. The filters are nested {@link #depth} levels deep, where
+ * every level is an {@link AndFilter} respectively {@link OrFilter} combining the typical building blocks of listener
+ * filters. The filters are constructed so that every level has to be evaluated, which is the worst case for both
+ * filter kinds.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class StanzaFilterCompositionJmh {
+
+    @Param({"1", "4", "16"})
+    private int depth;
+
+    private Message message;
+
+    private StanzaFilter andFilter;
+
+    private StanzaFilter orFilter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        message = StanzaBuilder.buildMessage("filter-jmh")
+                        .from(JidCreate.entityFullFromOrThrowUnchecked("romeo@example.net/orchard"))
+                        .to(JidCreate.entityFullFromOrThrowUnchecked("juliet@example.org/balcony"))
+                        .ofType(Message.Type.chat)
+                        .setBody("Wherefore art thou, Romeo?")
+                        .build();
+
+        StanzaFilter acceptingAnd = MessageWithBodiesFilter.INSTANCE;
+        StanzaFilter rejectingOr = MessageTypeFilter.GROUPCHAT;
+        for (int i = 0; i < depth; i++) {
+            // All filters accept the message, hence the AndFilter evaluates all of its filters.
+            acceptingAnd = new AndFilter(StanzaTypeFilter.MESSAGE, MessageTypeFilter.NORMAL_OR_CHAT,
+                            FromMatchesFilter.createFull(message.getFrom()), acceptingAnd);
+            // All filters, but the innermost one, reject the message, hence the OrFilter evaluates all of its filters.
+            rejectingOr = new OrFilter(StanzaTypeFilter.IQ, MessageTypeFilter.ERROR,
+                            FromMatchesFilter.createFull(message.getTo()), rejectingOr);
+        }
+        andFilter = acceptingAnd;
+        orFilter = new OrFilter(rejectingOr, MessageWithBodiesFilter.INSTANCE);
+    }
+
+    @Benchmark
+    public boolean andFilter() {
+        return andFilter.accept(message);
+    }
+
+    @Benchmark
+    public boolean orFilter() {
+        return orFilter.accept(message);
+    }
+}
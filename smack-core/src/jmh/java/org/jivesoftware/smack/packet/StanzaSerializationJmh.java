@@ -0,0 +1,125 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.packet;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.util.IncrementalUtf8Encoder;
+import org.jivesoftware.smack.util.XmlStringBuilder;
+
+import org.jxmpp.jid.impl.JidCreate;
+import org.jxmpp.jid.parts.Resourcepart;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the serialization of typical stanzas. The {@code toXmlString} benchmark measures the serialization into a
+ * String, which is what most of the code paths do, while the {@code toUtf8} benchmark measures the serialization
+ * straight into a fixed size UTF-8 buffer using {@link IncrementalUtf8Encoder}, which is what the TCP transport does.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class StanzaSerializationJmh {
+
+    public enum StanzaKind {
+        message,
+        presence,
+        iq,
+    }
+
+    private static final XmlEnvironment STREAM_XML_ENVIRONMENT = new XmlEnvironment(StreamOpen.CLIENT_NAMESPACE);
+
+    @Param
+    private StanzaKind stanzaKind;
+
+    private Stanza stanza;
+
+    private final IncrementalUtf8Encoder encoder = new IncrementalUtf8Encoder();
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        switch (stanzaKind) {
+        case message:
+            stanza = StanzaBuilder.buildMessage("serialization-jmh-1")
+                            .from(JidCreate.entityFullFromOrThrowUnchecked("romeo@example.net/orchard"))
+                            .to(JidCreate.entityFullFromOrThrowUnchecked("juliet@example.org/balcony"))
+                            .ofType(Message.Type.chat)
+                            .setBody("Wherefore art thou, Romeo? <Deny thy father & refuse thy name>")
+                            .setThread("e0ffe42b28561960c6b12b944a092794b9683a38")
+                            .addExtension(StandardExtensionElement.builder("active",
+                                            "http://jabber.org/protocol/chatstates").build())
+                            .build();
+            break;
+        case presence:
+            stanza = StanzaBuilder.buildPresence("serialization-jmh-2")
+                            .from(JidCreate.entityFullFromOrThrowUnchecked("romeo@example.net/orchard"))
+                            .setMode(Presence.Mode.away)
+                            .setStatus("Tossing and turning")
+                            .setPriority(5)
+                            .addExtension(StandardExtensionElement.builder("c", "http://jabber.org/protocol/caps")
+                                            .addAttribute("hash", "sha-1")
+                                            .addAttribute("node", "https://igniterealtime.org/projects/smack")
+                                            .addAttribute("ver", "QgayPKawpkPSDYmwT/WM94uAlu0=")
+                                            .build())
+                            .build();
+            break;
+        case iq:
+            Bind bind = Bind.newSet(Resourcepart.fromOrThrowUnchecked("balcony"));
+            bind.setStanzaId("serialization-jmh-3");
+            stanza = bind;
+            break;
+        default:
+            throw new AssertionError(stanzaKind);
+        }
+    }
+
+    @Benchmark
+    public String toXmlString() {
+        return stanza.toXML(StreamOpen.CLIENT_NAMESPACE).toString();
+    }
+
+    @Benchmark
+    public int toUtf8() {
+        XmlStringBuilder xml = (XmlStringBuilder) stanza.toXML(StreamOpen.CLIENT_NAMESPACE);
+        encoder.start(xml.toList(STREAM_XML_ENVIRONMENT).iterator());
+        int encodedBytes = 0;
+        boolean allEncoded;
+        do {
+            buffer.clear();
+            allEncoded = encoder.encodeInto(buffer);
+            encodedBytes += buffer.position();
+        } while (!allEncoded);
+        return encodedBytes;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.parsing;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.xml.SmackXmlParser;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.stax.StaxXmlPullParserFactory;
+import org.jivesoftware.smack.xml.xpp3.Xpp3XmlPullParserFactory;
+
+import org.jxmpp.JxmppContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing typical stanzas with {@link PacketParserUtils#parseStanza(XmlPullParser, XmlEnvironment,
+ * JxmppContext)}, depending on the XML pull parser implementation. The measured time includes creating the parser, as
+ * the parser of a connection is also created per stanza by some transports.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class StanzaParsingJmh {
+
+    public enum StanzaKind {
+        message("<message xmlns='jabber:client' to='juliet@example.org/balcony' from='romeo@example.net/orchard'"
+                        + " id='parsing-jmh-1' type='chat'><body>Wherefore art thou, Romeo?</body>"
+                        + "<thread>e0ffe42b28561960c6b12b944a092794b9683a38</thread>"
+                        + "<active xmlns='http://jabber.org/protocol/chatstates'/>"
+                        + "<request xmlns='urn:xmpp:receipts'/></message>"),
+
+        presence("<presence xmlns='jabber:client' from='romeo@example.net/orchard' to='juliet@example.org'"
+                        + " id='parsing-jmh-2'><show>away</show><status>Tossing and turning</status>"
+                        + "<priority>5</priority><c xmlns='http://jabber.org/protocol/caps' hash='sha-1'"
+                        + " node='https://igniterealtime.org/projects/smack' ver='QgayPKawpkPSDYmwT/WM94uAlu0='/>"
+                        + "</presence>"),
+
+        iq("<iq xmlns='jabber:client' from='example.org' to='juliet@example.org/balcony' id='parsing-jmh-3'"
+                        + " type='result'><query xmlns='jabber:iq:version'><name>Exodus</name>"
+                        + "<version>0.7.0.4</version><os>Windows-XP 5.01.2600</os></query></iq>"),
+        ;
+
+        private final String xml;
+
+        StanzaKind(String xml) {
+            this.xml = xml;
+        }
+    }
+
+    @Param
+    private StanzaKind stanzaKind;
+
+    @Param({"stax", "xpp3"})
+    private String xmlPullParser;
+
+    private JxmppContext jxmppContext;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        jxmppContext = JxmppContext.getDefaultContext();
+        switch (xmlPullParser) {
+        case "stax":
+            SmackXmlParser.setXmlPullParserFactory(new StaxXmlPullParserFactory());
+            break;
+        case "xpp3":
+            SmackXmlParser.setXmlPullParserFactory(new Xpp3XmlPullParserFactory());
+            break;
+        default:
+            throw new IllegalArgumentException(xmlPullParser);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SmackXmlParser.setXmlPullParserFactory(null);
+    }
+
+    @Benchmark
+    public Stanza parseStanza() throws Exception {
+        XmlPullParser parser = PacketParserUtils.getParserFor(stanzaKind.xml);
+        return PacketParserUtils.parseStanza(parser, XmlEnvironment.EMPTY, jxmppContext);
+    }
+}
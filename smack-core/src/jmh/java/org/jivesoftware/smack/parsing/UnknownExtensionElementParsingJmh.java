@@ -0,0 +1,105 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.parsing;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.SmackConfiguration;
+import org.jivesoftware.smack.SmackConfiguration.UnknownExtensionElementParsingMode;
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.xml.SmackXmlParser;
+import org.jivesoftware.smack.xml.stax.StaxXmlPullParserFactory;
+import org.jivesoftware.smack.xml.xpp3.Xpp3XmlPullParserFactory;
+
+import org.jxmpp.JxmppContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing a message carrying a large extension element for which no provider is registered, depending on the
+ * {@link UnknownExtensionElementParsingMode} and the XML pull parser implementation.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class UnknownExtensionElementParsingJmh {
+
+    private static final int PAYLOAD_ITEMS = 100;
+
+    @Param({"standardExtensionElement", "lazy"})
+    private UnknownExtensionElementParsingMode unknownExtensionElementParsingMode;
+
+    @Param({"stax", "xpp3"})
+    private String xmlPullParser;
+
+    private String message;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<message xmlns='jabber:client' to='juliet@example.org/balcony' from='romeo@example.net/orchard'"
+                        + " id='unknown-extension-jmh' type='chat'><body>Wherefore art thou, Romeo?</body>");
+        sb.append("<payload xmlns='urn:example:payload' version='2'>");
+        for (int i = 0; i < PAYLOAD_ITEMS; i++) {
+            sb.append("<item id='").append(i).append("' kind='sample'><value>").append(i * 31)
+                            .append("</value><label>Item number ").append(i).append("</label></item>");
+        }
+        sb.append("</payload></message>");
+        message = sb.toString();
+
+        SmackConfiguration.setUnknownExtensionElementParsingMode(unknownExtensionElementParsingMode);
+        switch (xmlPullParser) {
+        case "stax":
+            SmackXmlParser.setXmlPullParserFactory(new StaxXmlPullParserFactory());
+            break;
+        case "xpp3":
+            SmackXmlParser.setXmlPullParserFactory(new Xpp3XmlPullParserFactory());
+            break;
+        default:
+            throw new IllegalArgumentException(xmlPullParser);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SmackConfiguration.setUnknownExtensionElementParsingMode(
+                        UnknownExtensionElementParsingMode.standardExtensionElement);
+        SmackXmlParser.setXmlPullParserFactory(null);
+    }
+
+    @Benchmark
+    public Message parseMessageWithUnknownExtensionElement() throws Exception {
+        return PacketParserUtils.parseMessage(PacketParserUtils.getParserFor(message), XmlEnvironment.EMPTY,
+                        JxmppContext.getDefaultContext());
+    }
+}
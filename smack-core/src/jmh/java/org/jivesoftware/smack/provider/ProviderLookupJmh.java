@@ -0,0 +1,140 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.provider;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.xml.XmlPullParser;
+
+import org.jxmpp.JxmppContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of resolving the provider of an extension element, as done by the parser for every extension
+ * element. The {@link QName} keyed map, which was used by the {@link ProviderManager} before, serves as baseline.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ProviderLookupJmh {
+
+    private static final int REGISTERED_NAMESPACES = 64;
+
+    /**
+     * The number of extensions resolved per benchmark invocation. Every fourth extension has no registered provider.
+     */
+    private static final int EXTENSIONS = 16;
+
+    /**
+     * Whether the element names and namespaces are interned, as it is the case with most XML pull parsers, or are
+     * equal but distinct string instances.
+     */
+    @Param({"true", "false"})
+    private boolean interned;
+
+    private final Map<QName, ExtensionElementProvider<ExtensionElement>> qnameMap = new ConcurrentHashMap<>();
+
+    private final String[] elementNames = new String[EXTENSIONS];
+    private final String[] namespaces = new String[EXTENSIONS];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ExtensionElementProvider<ExtensionElement> provider = new NoopExtensionElementProvider();
+        for (int i = 0; i < REGISTERED_NAMESPACES; i++) {
+            String namespace = namespace(i);
+            ProviderManager.addExtensionProvider("x", namespace, provider);
+            qnameMap.put(new QName(namespace, "x"), provider);
+        }
+
+        for (int i = 0; i < EXTENSIONS; i++) {
+            String elementName = i % 4 == 3 ? "unknown" : "x";
+            String namespace = namespace(i * 3);
+            if (interned) {
+                elementNames[i] = elementName.intern();
+                namespaces[i] = namespace.intern();
+            } else {
+                elementNames[i] = new String(elementName.toCharArray());
+                namespaces[i] = new String(namespace.toCharArray());
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (int i = 0; i < REGISTERED_NAMESPACES; i++) {
+            ProviderManager.removeExtensionProvider("x", namespace(i));
+        }
+    }
+
+    private static String namespace(int i) {
+        return "urn:xmpp:example:" + i;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EXTENSIONS)
+    public int providerManager() {
+        int found = 0;
+        for (int i = 0; i < EXTENSIONS; i++) {
+            if (ProviderManager.getExtensionProvider(elementNames[i], namespaces[i]) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EXTENSIONS)
+    public int qnameMap() {
+        int found = 0;
+        for (int i = 0; i < EXTENSIONS; i++) {
+            if (qnameMap.get(new QName(namespaces[i], elementNames[i])) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static final class NoopExtensionElementProvider extends ExtensionElementProvider<ExtensionElement> {
+        @Override
+        public ExtensionElement parse(XmlPullParser parser, int initialDepth, XmlEnvironment xmlEnvironment,
+                        JxmppContext jxmppContext) {
+            return null;
+        }
+    }
+}
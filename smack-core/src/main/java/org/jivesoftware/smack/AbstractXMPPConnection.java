@@ -1,6 +1,6 @@
 /*
  *
- * Copyright 2009 Jive Software, 2018-2025 Florian Schmaus.
+ * Copyright 2009 Jive Software, 2018-2026 Florian Schmaus.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,13 +23,12 @@ import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executor;
@@ -74,9 +73,11 @@ import org.jivesoftware.smack.debugger.SmackDebugger;
 import org.jivesoftware.smack.debugger.SmackDebuggerFactory;
 import org.jivesoftware.smack.filter.IQReplyFilter;
 import org.jivesoftware.smack.filter.StanzaFilter;
+import org.jivesoftware.smack.filter.StanzaFilterUtil;
 import org.jivesoftware.smack.filter.StanzaIdFilter;
 import org.jivesoftware.smack.internal.SmackTlsContext;
 import org.jivesoftware.smack.iqrequest.IQRequestHandler;
+import org.jivesoftware.smack.metrics.ConnectionMetrics;
 import org.jivesoftware.smack.packet.AbstractStreamOpen;
 import org.jivesoftware.smack.packet.Bind;
 import org.jivesoftware.smack.packet.ErrorIQ;
@@ -117,6 +118,7 @@ import org.jivesoftware.smack.util.Objects;
 import org.jivesoftware.smack.util.PacketParserUtils;
 import org.jivesoftware.smack.util.ParserUtils;
 import org.jivesoftware.smack.util.StringUtils;
+import org.jivesoftware.smack.util.VirtualThreads;
 import org.jivesoftware.smack.xml.XmlPullParser;
 import org.jivesoftware.smack.xml.XmlPullParserException;
 
@@ -199,26 +201,53 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
      * The alternative would be a synchronized HashSet, but this would mean a
      * synchronized block around every usage of <code>collectors</code>.
      * </p>
+     * <p>
+     * Collectors whose filter requires a particular stanza ID, which is the case for most collectors as they wait for
+     * the response to an IQ request, are not stored here but in {@link #stanzaIdCollectors}.
+     * </p>
      */
     private final Collection<StanzaCollector> collectors = new ConcurrentLinkedQueue<>();
 
-    private final Map<StanzaListener, ListenerWrapper> recvListeners = new LinkedHashMap<>();
+    /**
+     * StanzaCollectors whose filter requires a particular stanza ID, keyed by this ID. This allows to find the
+     * collector waiting for an incoming stanza, typically an IQ response, in O(1) instead of evaluating the filter of
+     * every collector. If there is more than one collector for a stanza ID, then the additional collectors are put into
+     * {@link #collectors}.
+     */
+    private final Map<String, StanzaCollector> stanzaIdCollectors = new ConcurrentHashMap<>();
+
+    /**
+     * The pending replies of requests send via {@link #sendAsync(Stanza, StanzaFilter, long)}, keyed by the stanza ID
+     * of the request. The futures of those requests are completed directly when the reply is processed, without a
+     * stanza listener and without a thread waiting for the reply. Whoever removes the entry from this map, i.e., the
+     * incoming reply or the timeout action, completes the future.
+     */
+    private final Map<String, AsyncReply<?>> asyncReplies = new ConcurrentHashMap<>();
+
+    /**
+     * List of PacketListeners that will be notified when a new stanza was received. The thread processing incoming
+     * stanzas will wait until those listeners have been invoked.
+     * <p>
+     * All stanza listener collections use {@link IndexedStanzaListeners}, which allows matching incoming stanzas
+     * against the listeners without acquiring a lock, and evaluates only the filters of candidate listeners.
+     * </p>
+     */
+    private final IndexedStanzaListeners recvListeners = new IndexedStanzaListeners();
 
     /**
      * List of PacketListeners that will be notified synchronously when a new stanza was received.
      */
-    private final Map<StanzaListener, ListenerWrapper> syncRecvListeners = new LinkedHashMap<>();
+    private final IndexedStanzaListeners syncRecvListeners = new IndexedStanzaListeners();
 
     /**
      * List of PacketListeners that will be notified asynchronously when a new stanza was received.
      */
-    private final Map<StanzaListener, ListenerWrapper> asyncRecvListeners = new LinkedHashMap<>();
+    private final IndexedStanzaListeners asyncRecvListeners = new IndexedStanzaListeners();
 
     /**
      * List of PacketListeners that will be notified when a new stanza was sent.
      */
-    private final Map<StanzaListener, ListenerWrapper> sendListeners =
-            new HashMap<>();
+    private final IndexedStanzaListeners sendListeners = new IndexedStanzaListeners();
 
     /**
      * List of PacketListeners that will be notified when a new stanza is about to be
@@ -234,6 +263,12 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
 
     private XmlEnvironment incomingStreamXmlEnvironment;
 
+    /**
+     * The open tag of the incoming stream, including all its namespace declarations, used to parse stanzas extracted
+     * from the stream. See {@link #parseAndProcessStanza(CharSequence)}.
+     */
+    private String incomingStreamOpenTag;
+
     protected XmlEnvironment outgoingStreamXmlEnvironment;
 
     final MultiMap<QName, NonzaCallback> nonzaCallbacksMap = new MultiMap<>();
@@ -329,6 +364,13 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
 
     private ParsingExceptionCallback parsingExceptionCallback = SmackConfiguration.getDefaultParsingExceptionCallback();
 
+    private static final Thread.UncaughtExceptionHandler UNCAUGHT_EXCEPTION_HANDLER = new Thread.UncaughtExceptionHandler() {
+        @Override
+        public void uncaughtException(Thread t, Throwable e) {
+            LOGGER.log(Level.WARNING, t + " encountered uncaught exception", e);
+        }
+    };
+
     /**
      * A cached thread pool executor service with custom thread factory to set meaningful names on the threads and set
      * them 'daemon'.
@@ -339,12 +381,7 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
             Thread thread = new Thread(runnable);
             thread.setName("Smack Cached Executor");
             thread.setDaemon(true);
-            thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
-                @Override
-                public void uncaughtException(Thread t, Throwable e) {
-                    LOGGER.log(Level.WARNING, t + " encountered uncaught exception", e);
-                }
-            });
+            thread.setUncaughtExceptionHandler(UNCAUGHT_EXCEPTION_HANDLER);
             return thread;
         }
     });
@@ -374,13 +411,15 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
      */
     protected boolean wasAuthenticated = false;
 
-    private final Map<QName, IQRequestHandler> setIqRequestHandler = new HashMap<>();
-    private final Map<QName, IQRequestHandler> getIqRequestHandler = new HashMap<>();
+    private final Map<QName, IQRequestHandler> setIqRequestHandler = new ConcurrentHashMap<>();
+    private final Map<QName, IQRequestHandler> getIqRequestHandler = new ConcurrentHashMap<>();
     private final Set<String> iqRequestHandlerNamespaces = new CopyOnWriteArraySet<>();
     private final Map<String, Integer> iqRequestHandlerNamespacesReferenceCounters = new HashMap<>();
 
     private final StanzaFactory stanzaFactory;
 
+    protected final ConnectionMetrics metrics;
+
     /**
      * Create a new XMPPConnection to an XMPP server.
      *
@@ -419,6 +458,9 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         } else {
             debugger = null;
         }
+
+        metrics = new ConnectionMetrics(SmackConfiguration.getMetricsRegistry(), this);
+
         // Notify listeners that a new connection has been established
         for (ConnectionCreationListener listener : XMPPConnectionRegistry.getConnectionCreationListeners()) {
             listener.connectionCreated(this);
@@ -437,6 +479,16 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         return config;
     }
 
+    /**
+     * Get the metrics of this connection.
+     *
+     * @return the metrics of this connection.
+     * @see SmackConfiguration#setMetricsRegistry(org.jivesoftware.smack.metrics.MetricsRegistry)
+     */
+    public ConnectionMetrics getConnectionMetrics() {
+        return metrics;
+    }
+
     @Override
     public DomainBareJid getXMPPServiceDomain() {
         if (xmppServiceDomain != null) {
@@ -1010,6 +1062,15 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
             // case the Exception is a StreamErrorException.
             instantShutdown();
 
+            for (StanzaCollector collector : stanzaIdCollectors.values()) {
+                collector.notifyConnectionError(exception);
+            }
+            for (String stanzaId : new ArrayList<>(asyncReplies.keySet())) {
+                AsyncReply<?> asyncReply = asyncReplies.remove(stanzaId);
+                if (asyncReply != null) {
+                    asyncReply.notifyConnectionError(exception);
+                }
+            }
             for (StanzaCollector collector : collectors) {
                 collector.notifyConnectionError(exception);
             }
@@ -1058,13 +1119,28 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
     @SuppressWarnings("TypeParameterUnusedInFormals")
     public <I extends IQ> I sendIqRequestAndWaitForResponse(IQ request)
             throws NoResponseException, XMPPErrorException, NotConnectedException, InterruptedException {
+        final long startNanos = metrics.startTimer();
         StanzaCollector collector = createStanzaCollectorAndSend(request);
-        IQ resultResponse = collector.nextResultOrThrow();
+        IQ resultResponse;
+        try {
+            resultResponse = collector.nextResultOrThrow();
+        } catch (XMPPErrorException e) {
+            recordIqRoundTrip(request, startNanos);
+            throw e;
+        }
+        recordIqRoundTrip(request, startNanos);
         @SuppressWarnings("unchecked")
         I concreteResultResponse = (I) resultResponse;
         return concreteResultResponse;
     }
 
+    private void recordIqRoundTrip(IQ request, long startNanos) {
+        if (!metrics.isEnabled()) {
+            return;
+        }
+        metrics.recordNanosSince(metrics.getIqRoundTripNanos(request.getChildElementNamespace()), startNanos);
+    }
+
     @Override
     public StanzaCollector createStanzaCollectorAndSend(IQ packet) throws NotConnectedException, InterruptedException {
         StanzaFilter packetFilter = new IQReplyFilter(packet, this);
@@ -1101,6 +1177,10 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
     @Override
     public StanzaCollector createStanzaCollector(StanzaCollector.Configuration configuration) {
         StanzaCollector collector = new StanzaCollector(this, configuration);
+        String stanzaId = StanzaFilterUtil.getRequiredStanzaId(collector.getStanzaFilter());
+        if (stanzaId != null && stanzaIdCollectors.putIfAbsent(stanzaId, collector) == null) {
+            return collector;
+        }
         // Add the collector to the list of active collectors.
         collectors.add(collector);
         return collector;
@@ -1108,6 +1188,10 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
 
     @Override
     public void removeStanzaCollector(StanzaCollector collector) {
+        String stanzaId = StanzaFilterUtil.getRequiredStanzaId(collector.getStanzaFilter());
+        if (stanzaId != null && stanzaIdCollectors.remove(stanzaId, collector)) {
+            return;
+        }
         collectors.remove(collector);
     }
 
@@ -1116,18 +1200,13 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         if (stanzaListener == null) {
             throw new NullPointerException("Given stanza listener must not be null");
         }
-        ListenerWrapper wrapper = new ListenerWrapper(stanzaListener, stanzaFilter);
-        synchronized (recvListeners) {
-            recvListeners.put(stanzaListener, wrapper);
-        }
+        recvListeners.add(stanzaListener, stanzaFilter);
         return new ListenerHandle.StanzaListenerHandle(this, stanzaListener);
     }
 
     @Override
     public final boolean removeStanzaListener(StanzaListener stanzaListener) {
-        synchronized (recvListeners) {
-            return recvListeners.remove(stanzaListener) != null;
-        }
+        return recvListeners.remove(stanzaListener);
     }
 
     @Override
@@ -1135,18 +1214,13 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         if (packetListener == null) {
             throw new NullPointerException("Packet listener is null.");
         }
-        ListenerWrapper wrapper = new ListenerWrapper(packetListener, packetFilter);
-        synchronized (syncRecvListeners) {
-            syncRecvListeners.put(packetListener, wrapper);
-        }
+        syncRecvListeners.add(packetListener, packetFilter);
         return new ListenerHandle.SyncStanzaListenerHandle(this, packetListener);
     }
 
     @Override
     public boolean removeSyncStanzaListener(StanzaListener packetListener) {
-        synchronized (syncRecvListeners) {
-            return syncRecvListeners.remove(packetListener) != null;
-        }
+        return syncRecvListeners.remove(packetListener);
     }
 
     @Override
@@ -1154,18 +1228,13 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         if (packetListener == null) {
             throw new NullPointerException("Packet listener is null.");
         }
-        ListenerWrapper wrapper = new ListenerWrapper(packetListener, packetFilter);
-        synchronized (asyncRecvListeners) {
-            asyncRecvListeners.put(packetListener, wrapper);
-        }
+        asyncRecvListeners.add(packetListener, packetFilter);
         return new ListenerHandle.AsyncStanzaListenerHandle(this, packetListener);
     }
 
     @Override
     public boolean removeAsyncStanzaListener(StanzaListener packetListener) {
-        synchronized (asyncRecvListeners) {
-            return asyncRecvListeners.remove(packetListener) != null;
-        }
+        return asyncRecvListeners.remove(packetListener);
     }
 
     @Override
@@ -1173,17 +1242,12 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         if (packetListener == null) {
             throw new NullPointerException("Packet listener is null.");
         }
-        ListenerWrapper wrapper = new ListenerWrapper(packetListener, packetFilter);
-        synchronized (sendListeners) {
-            sendListeners.put(packetListener, wrapper);
-        }
+        sendListeners.add(packetListener, packetFilter);
     }
 
     @Override
     public void removeStanzaSendingListener(StanzaListener packetListener) {
-        synchronized (sendListeners) {
-            sendListeners.remove(packetListener);
-        }
+        sendListeners.remove(packetListener);
     }
 
     /**
@@ -1206,14 +1270,9 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         }
         Stanza packet = (Stanza) sendTopLevelStreamElement;
 
-        final List<StanzaListener> listenersToNotify = new ArrayList<>();
-        synchronized (sendListeners) {
-            for (ListenerWrapper listenerWrapper : sendListeners.values()) {
-                if (listenerWrapper.filterMatches(packet)) {
-                    listenersToNotify.add(listenerWrapper.getListener());
-                }
-            }
-        }
+        metrics.getStanzasSent().increment();
+
+        final List<StanzaListener> listenersToNotify = sendListeners.getMatchingListeners(packet);
         if (listenersToNotify.isEmpty()) {
             return;
         }
@@ -1222,12 +1281,14 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
             @Override
             public void run() {
                 for (StanzaListener listener : listenersToNotify) {
+                    final long startNanos = metrics.startTimer();
                     try {
                         listener.processStanza(packet);
                     }
                     catch (Exception e) {
                         LOGGER.log(Level.WARNING, "Sending listener threw exception", e);
                     }
+                    metrics.recordNanosSince(metrics.getListenerNanos(), startNanos);
                 }
             }
         });
@@ -1451,6 +1512,10 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
             content = "[Could not parse: " + e.getMessage() + "]";
         }
         UnparseableStanza message = new UnparseableStanza(content, exception);
+        handleUnparsableStanza(message, exception);
+    }
+
+    private void handleUnparsableStanza(UnparseableStanza message, Exception exception) {
         ParsingExceptionCallback callback = getParsingExceptionCallback();
         if (callback != null) {
             try {
@@ -1470,8 +1535,10 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         int parserDepth = parser.getDepth();
         Stanza stanza = null;
         try {
+            final long startNanos = metrics.startTimer();
             try {
                 stanza = PacketParserUtils.parseStanza(parser, incomingStreamXmlEnvironment, getJxmppContext());
+                metrics.recordNanosSince(metrics.getStanzaParseNanos(), startNanos);
             } catch (NullPointerException e) {
                 // Those exceptions should probably be wrapped into a SmackParsingException and therefore likely constitute a missing verification in the throwing parser.
                 String message = "Smack parser throw unexpected exception '" + e.getMessage() + "', please report this at " + Smack.BUG_REPORT_URL;
@@ -1492,6 +1559,41 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         }
     }
 
+    /**
+     * Parse and process a stanza that was previously extracted from the incoming stream as self-contained XML, e.g.
+     * by {@link PacketParserUtils#parseElement(XmlPullParser)}. The stanza is parsed as if it was still part of the
+     * incoming stream, i.e. it inherits the default namespace, the namespace prefix declarations and the language of
+     * the stream. This allows connections
+     * to split reading the stream from the, potentially expensive, parsing of the stanza.
+     *
+     * @param stanzaXml the XML of the stanza.
+     * @throws InterruptedException if the calling thread was interrupted.
+     * @since 4.5
+     */
+    protected void parseAndProcessStanza(CharSequence stanzaXml) throws InterruptedException {
+        // Wrap the stanza in the open tag of the incoming stream, so that it is parsed with the default namespace and
+        // the namespace prefixes declared by the stream.
+        String streamOpenTag = incomingStreamOpenTag;
+        if (streamOpenTag == null) {
+            String streamNamespace = StreamOpen.CLIENT_NAMESPACE;
+            if (incomingStreamXmlEnvironment != null) {
+                streamNamespace = incomingStreamXmlEnvironment.getEffectiveNamespaceOrUse(streamNamespace);
+            }
+            streamOpenTag = "<stream:stream xmlns='" + streamNamespace + "' xmlns:stream='"
+                            + StreamOpen.ETHERX_JABBER_STREAMS_NAMESPACE + "'>";
+        }
+        String wrappedStanzaXml = streamOpenTag + stanzaXml;
+        XmlPullParser parser;
+        try {
+            parser = PacketParserUtils.getParserFor(wrappedStanzaXml);
+            parser.next();
+        } catch (XmlPullParserException | IOException e) {
+            handleUnparsableStanza(new UnparseableStanza(stanzaXml, e), e);
+            return;
+        }
+        parseAndProcessStanza(parser);
+    }
+
     /**
      * Processes a stanza after it's been fully parsed by looping through the installed
      * stanza collectors and listeners and letting them examine the stanza to see if
@@ -1506,6 +1608,7 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         maybeNotifyDebuggerAboutIncoming(stanza);
 
         lastStanzaReceived = System.currentTimeMillis();
+        metrics.getStanzasReceived().increment();
         // Deliver the incoming packet to listeners.
         invokeStanzaCollectorsAndNotifyRecvListeners(stanza);
     }
@@ -1531,14 +1634,10 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
                 final IQ.Type type = iq.getType();
                 switch (type) {
                 case set:
-                    synchronized (setIqRequestHandler) {
-                        iqRequestHandler = setIqRequestHandler.get(key);
-                    }
+                    iqRequestHandler = setIqRequestHandler.get(key);
                     break;
                 case get:
-                    synchronized (getIqRequestHandler) {
-                        iqRequestHandler = getIqRequestHandler.get(key);
-                    }
+                    iqRequestHandler = getIqRequestHandler.get(key);
                     break;
                 default:
                     throw new IllegalStateException("Should only encounter IQ type 'get' or 'set'");
@@ -1619,97 +1718,106 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
             }
         }
 
+        // Complete the future of a pending asynchronous request this stanza is the reply of, if any.
+        final String stanzaId = packet.getStanzaId();
+        if (stanzaId != null) {
+            AsyncReply<?> asyncReply = asyncReplies.get(stanzaId);
+            if (asyncReply != null && asyncReply.replyFilter.accept(packet)
+                            && asyncReplies.remove(stanzaId, asyncReply)) {
+                asyncReply.complete(packet);
+            }
+        }
+
         // First handle the async recv listeners. Note that this code is very similar to what follows a few lines below,
         // the only difference is that asyncRecvListeners is used here and that the packet listeners are started in
         // their own thread.
-        final Collection<StanzaListener> listenersToNotify = new ArrayList<>();
-        extractMatchingListeners(packet, asyncRecvListeners, listenersToNotify);
-        for (final StanzaListener listener : listenersToNotify) {
+        for (final StanzaListener listener : asyncRecvListeners.getMatchingListeners(packet)) {
             asyncGoLimited(new Runnable() {
                 @Override
                 public void run() {
+                    final long startNanos = metrics.startTimer();
                     try {
                         listener.processStanza(packet);
                     } catch (Exception e) {
                         LOGGER.log(Level.SEVERE, "Exception in async packet listener", e);
                     }
+                    metrics.recordNanosSince(metrics.getListenerNanos(), startNanos);
                 }
             });
         }
 
-        listenersToNotify.clear();
-        extractMatchingListeners(packet, recvListeners, listenersToNotify);
-        final Semaphore listenerSemaphore = new Semaphore(1 - listenersToNotify.size());
-        for (StanzaListener stanzaListener : listenersToNotify) {
-            asyncGoLimited(() -> {
-                try {
-                    stanzaListener.processStanza(packet);
-                }
-                catch (NotConnectedException e) {
-                    LOGGER.log(Level.WARNING, "Got not connected exception, aborting", e);
-                }
-                catch (Exception e) {
-                    LOGGER.log(Level.SEVERE, "Exception in packet listener", e);
-                } finally {
-                    listenerSemaphore.release();
-                }
-            });
+        // Matching the listeners does not allocate if there is no matching listener. Hence, we only pay for the
+        // semaphore if there are listeners we have to wait for.
+        final List<StanzaListener> recvListenersToNotify = recvListeners.getMatchingListeners(packet);
+        if (!recvListenersToNotify.isEmpty()) {
+            final Semaphore listenerSemaphore = new Semaphore(1 - recvListenersToNotify.size());
+            for (StanzaListener stanzaListener : recvListenersToNotify) {
+                asyncGoLimited(() -> {
+                    final long startNanos = metrics.startTimer();
+                    try {
+                        stanzaListener.processStanza(packet);
+                    }
+                    catch (NotConnectedException e) {
+                        LOGGER.log(Level.WARNING, "Got not connected exception, aborting", e);
+                    }
+                    catch (Exception e) {
+                        LOGGER.log(Level.SEVERE, "Exception in packet listener", e);
+                    } finally {
+                        metrics.recordNanosSince(metrics.getListenerNanos(), startNanos);
+                        listenerSemaphore.release();
+                    }
+                });
+            }
+            listenerSemaphore.acquireUninterruptibly();
         }
-        listenerSemaphore.acquireUninterruptibly();
 
         // Notify collectors after we invoked the listeners. This allows the listeners to adjust their behavior on state
         // changing operations, e.g., leaving a MUC, which are often based on collectors.
-        // Loop through all collectors and notify the appropriate ones.
+        // First, look up the collector waiting for this particular stanza ID, then loop through all remaining
+        // collectors and notify the appropriate ones.
+        if (stanzaId != null) {
+            StanzaCollector stanzaIdCollector = stanzaIdCollectors.get(stanzaId);
+            if (stanzaIdCollector != null) {
+                stanzaIdCollector.processStanza(packet);
+            }
+        }
         for (StanzaCollector collector : collectors) {
             collector.processStanza(packet);
         }
 
         // Notify the receive listeners interested in the packet
-        listenersToNotify.clear();
-        extractMatchingListeners(packet, syncRecvListeners, listenersToNotify);
+        final List<IndexedStanzaListeners.Registration> syncListenersToNotify = syncRecvListeners.getMatching(packet);
+        if (syncListenersToNotify.isEmpty()) {
+            return;
+        }
         // Decouple incoming stanza processing from listener invocation. Unlike async listeners, this uses a single
         // threaded executor service and therefore keeps the order.
         ASYNC_BUT_ORDERED.performAsyncButOrdered(this, new Runnable() {
             @Override
             public void run() {
-                // As listeners are able to remove themselves and because the timepoint where it is decided to invoke a
-                // listener is a different timepoint where the listener is actually invoked (here), we have to check
-                // again if the listener is still active.
-                Iterator<StanzaListener> it = listenersToNotify.iterator();
-                synchronized (syncRecvListeners) {
-                    while (it.hasNext()) {
-                        StanzaListener stanzaListener = it.next();
-                        if (!syncRecvListeners.containsKey(stanzaListener)) {
-                            // The listener was removed from syncRecvListener, also remove him from listenersToNotify.
-                            it.remove();
-                        }
+                for (IndexedStanzaListeners.Registration registration : syncListenersToNotify) {
+                    // As listeners are able to remove themselves and because the timepoint where it is decided to
+                    // invoke a listener is a different timepoint where the listener is actually invoked (here), we
+                    // have to check again if the listener is still active.
+                    if (!registration.isActive()) {
+                        continue;
                     }
-                }
-                for (StanzaListener listener : listenersToNotify) {
+                    final long startNanos = metrics.startTimer();
                     try {
-                        listener.processStanza(packet);
+                        registration.listener.processStanza(packet);
                     } catch (NotConnectedException e) {
                         LOGGER.log(Level.WARNING, "Got not connected exception, aborting", e);
                         break;
                     } catch (Exception e) {
                         LOGGER.log(Level.SEVERE, "Exception in packet listener", e);
+                    } finally {
+                        metrics.recordNanosSince(metrics.getListenerNanos(), startNanos);
                     }
                 }
             }
         });
     }
 
-    private static void extractMatchingListeners(Stanza stanza, Map<StanzaListener, ListenerWrapper> listeners,
-                    Collection<StanzaListener> listenersToNotify) {
-        synchronized (listeners) {
-            for (ListenerWrapper listenerWrapper : listeners.values()) {
-                if (listenerWrapper.filterMatches(stanza)) {
-                    listenersToNotify.add(listenerWrapper.getListener());
-                }
-            }
-        }
-    }
-
     /**
      * Sets whether the connection has already logged in the server. This method assures that the
      * {@link #wasAuthenticated} flag is never reset once it has ever been set.
@@ -1982,7 +2090,6 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         return sendAsync(stanza, replyFilter, getReplyTimeout());
     }
 
-    @SuppressWarnings("FutureReturnValueIgnored")
     @Override
     public <S extends Stanza> SmackFuture<S, Exception> sendAsync(S stanza, final StanzaFilter replyFilter, long timeout) {
         Objects.requireNonNull(stanza, "stanza must not be null");
@@ -1990,6 +2097,109 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         // disallow it here in the async API as it makes no sense
         Objects.requireNonNull(replyFilter, "replyFilter must not be null");
 
+        final String stanzaId = StanzaFilterUtil.getRequiredStanzaId(replyFilter);
+        if (stanzaId == null) {
+            return sendAsyncUsingStanzaListener(stanza, replyFilter, timeout);
+        }
+
+        final AsyncReply<S> asyncReply = new AsyncReply<>(replyFilter, stanza);
+        if (asyncReplies.putIfAbsent(stanzaId, asyncReply) != null) {
+            // There is already a pending request for this stanza ID, fall back to the stanza listener based approach.
+            return sendAsyncUsingStanzaListener(stanza, replyFilter, timeout);
+        }
+
+        // Note that the timeout action is set before the request is send, hence it is set once the reply arrives.
+        asyncReply.timeoutAction = schedule(() -> {
+            if (!asyncReplies.remove(stanzaId, asyncReply)) {
+                // We lost a race against the incoming reply, there is nothing more to do here.
+                return;
+            }
+            asyncReply.future.setException(newNoResponseOrNotConnectedException(replyFilter));
+        }, timeout, TimeUnit.MILLISECONDS);
+
+        try {
+            sendStanzaNonBlocking(stanza);
+        }
+        catch (NotConnectedException | OutgoingQueueFullException exception) {
+            if (asyncReplies.remove(stanzaId, asyncReply)) {
+                asyncReply.cancelTimeoutAction();
+                asyncReply.future.setException(exception);
+            }
+        }
+
+        return asyncReply.future;
+    }
+
+    private Exception newNoResponseOrNotConnectedException(StanzaFilter replyFilter) {
+        if (!isConnected()) {
+            // If the connection is no longer connected, throw a not connected exception.
+            return new NotConnectedException(this, replyFilter);
+        }
+        return NoResponseException.newWith(this, replyFilter);
+    }
+
+    private final class AsyncReply<S extends Stanza> {
+        private final InternalSmackFuture<S, Exception> future = new InternalSmackFuture<>();
+        private final StanzaFilter replyFilter;
+
+        private volatile ScheduledAction timeoutAction;
+
+        /**
+         * The namespace of the request, if it is an IQ, used to record the IQ round-trip time.
+         */
+        private final String iqNamespace;
+        private final long startNanos = metrics.startTimer();
+
+        private AsyncReply(StanzaFilter replyFilter, Stanza request) {
+            this.replyFilter = replyFilter;
+            if (request instanceof IQ) {
+                iqNamespace = ((IQ) request).getChildElementNamespace();
+            } else {
+                iqNamespace = null;
+            }
+        }
+
+        /**
+         * Complete the future with the given reply. Must only be invoked by the thread which removed this reply from
+         * {@link #asyncReplies}. Note that this is invoked by the connection's incoming processing thread, but as
+         * {@link SmackFuture} invokes its success and exception callbacks asynchronously, no user code is run here.
+         *
+         * @param reply the reply.
+         */
+        private void complete(Stanza reply) {
+            cancelTimeoutAction();
+            if (iqNamespace != null) {
+                metrics.recordNanosSince(metrics.getIqRoundTripNanos(iqNamespace), startNanos);
+            }
+            try {
+                XMPPErrorException.ifHasErrorThenThrow(reply);
+                @SuppressWarnings("unchecked")
+                S s = (S) reply;
+                future.setResult(s);
+            }
+            catch (XMPPErrorException exception) {
+                future.setException(exception);
+            }
+        }
+
+        private void notifyConnectionError(Exception exception) {
+            cancelTimeoutAction();
+            future.setException(new NotConnectedException(AbstractXMPPConnection.this, replyFilter, exception));
+        }
+
+        private void cancelTimeoutAction() {
+            ScheduledAction timeoutAction = this.timeoutAction;
+            // The timeout action is only null if the reply arrived before the request was send, e.g., because a
+            // stanza with the same ID was received by chance.
+            if (timeoutAction != null) {
+                timeoutAction.cancel();
+            }
+        }
+    }
+
+    @SuppressWarnings("FutureReturnValueIgnored")
+    private <S extends Stanza> SmackFuture<S, Exception> sendAsyncUsingStanzaListener(S stanza,
+                    final StanzaFilter replyFilter, long timeout) {
         final InternalSmackFuture<S, Exception> future = new InternalSmackFuture<>();
 
         final StanzaListener stanzaListener = new StanzaListener() {
@@ -2024,15 +2234,7 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
 
                 // If the packetListener got removed, then it was never run and
                 // we never received a response, inform the exception callback
-                Exception exception;
-                if (!isConnected()) {
-                    // If the connection is no longer connected, throw a not connected exception.
-                    exception = new NotConnectedException(AbstractXMPPConnection.this, replyFilter);
-                }
-                else {
-                    exception = NoResponseException.newWith(AbstractXMPPConnection.this, replyFilter);
-                }
-                future.setException(exception);
+                future.setException(newNoResponseOrNotConnectedException(replyFilter));
             }
         }, timeout, TimeUnit.MILLISECONDS);
 
@@ -2075,14 +2277,10 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         IQRequestHandler previous;
         switch (iqRequestHandler.getType()) {
         case set:
-            synchronized (setIqRequestHandler) {
-                previous = setIqRequestHandler.put(key, iqRequestHandler);
-            }
+            previous = setIqRequestHandler.put(key, iqRequestHandler);
             break;
         case get:
-            synchronized (getIqRequestHandler) {
-                previous = getIqRequestHandler.put(key, iqRequestHandler);
-            }
+            previous = getIqRequestHandler.put(key, iqRequestHandler);
             break;
         default:
             throw new IllegalArgumentException("Only IQ type of 'get' and 'set' allowed");
@@ -2115,14 +2313,10 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         final QName key = new QName(namespace, element);
         switch (type) {
         case set:
-            synchronized (setIqRequestHandler) {
-                unregisteredHandler = setIqRequestHandler.remove(key);
-            }
+            unregisteredHandler = setIqRequestHandler.remove(key);
             break;
         case get:
-            synchronized (getIqRequestHandler) {
-                unregisteredHandler = getIqRequestHandler.remove(key);
-            }
+            unregisteredHandler = getIqRequestHandler.remove(key);
             break;
         default:
             throw new IllegalArgumentException("Only IQ type of 'get' and 'set' allowed");
@@ -2236,6 +2430,7 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
             } else {
                 deferredAsyncRunnablesCount++;
                 deferredAsyncRunnables.add(wrappedRunnable);
+                metrics.getAsyncBacklogSize().record(deferredAsyncRunnablesCount);
             }
 
             final int HIGH_WATERMARK = 100;
@@ -2266,6 +2461,14 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
     }
 
     protected static void asyncGo(Runnable runnable) {
+        if (SmackConfiguration.getThreadMode() == SmackConfiguration.ThreadMode.virtualThreads) {
+            // Virtual threads are cheap to create and to block, hence there is no need to pool them.
+            Thread thread = VirtualThreads.newThread(runnable);
+            thread.setName("Smack Virtual Executor");
+            thread.setUncaughtExceptionHandler(UNCAUGHT_EXCEPTION_HANDLER);
+            thread.start();
+            return;
+        }
         CACHED_EXECUTOR_SERVICE.execute(runnable);
     }
 
@@ -2297,6 +2500,7 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
 
         streamId = parser.getAttributeValue("id");
         incomingStreamXmlEnvironment = XmlEnvironment.from(parser);
+        incomingStreamOpenTag = createIncomingStreamOpenTag(parser);
 
         String reportedServerDomainString = parser.getAttributeValue("from");
         // RFC 6120 § 4.7.1. makes no explicit statement whether or not 'from' in the stream open from the server
@@ -2323,6 +2527,41 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         return "</stream>";
     }
 
+    private String createIncomingStreamOpenTag(XmlPullParser parser) {
+        StringBuilder streamOpenTag = new StringBuilder("<");
+        String prefix = parser.getPrefix();
+        if (StringUtils.isNotEmpty(prefix)) {
+            streamOpenTag.append(prefix).append(':');
+        }
+        streamOpenTag.append(StreamOpen.UNPREFIXED_ELEMENT);
+
+        boolean defaultNamespaceDeclared = false;
+        try {
+            for (int i = 0; i < parser.getNamespaceCount(); i++) {
+                String namespacePrefix = parser.getNamespacePrefix(i);
+                streamOpenTag.append(" xmlns");
+                if (StringUtils.isNotEmpty(namespacePrefix)) {
+                    streamOpenTag.append(':').append(namespacePrefix);
+                } else {
+                    defaultNamespaceDeclared = true;
+                }
+                streamOpenTag.append("='")
+                        .append(StringUtils.escapeForXmlAttributeApos(parser.getNamespaceUri(i)))
+                        .append('\'');
+            }
+        } catch (XmlPullParserException e) {
+            LOGGER.log(Level.FINE, "Could not determine the namespace declarations of the incoming stream", e);
+            return null;
+        }
+        if (!defaultNamespaceDeclared) {
+            String streamNamespace = incomingStreamXmlEnvironment.getEffectiveNamespaceOrUse(
+                            StreamOpen.CLIENT_NAMESPACE);
+            streamOpenTag.append(" xmlns='").append(StringUtils.escapeForXmlAttributeApos(streamNamespace))
+                            .append('\'');
+        }
+        return streamOpenTag.append('>').toString();
+    }
+
     protected final void sendStreamOpen() throws NotConnectedException, InterruptedException {
         // If possible, provide the receiving entity of the stream open tag, i.e. the server, as much information as
         // possible. The 'to' attribute is *always* available. The 'from' attribute if set by the user and no external
@@ -1,6 +1,6 @@
 /*
  *
- * Copyright 2018-2019 Florian Schmaus
+ * Copyright 2018-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,11 +16,8 @@
  */
 package org.jivesoftware.smack;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Queue;
-import java.util.WeakHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 
 /**
@@ -47,22 +44,32 @@ import java.util.concurrent.Executor;
  * key.
  * </p>
  *
+ * <p>
+ * The queues of the keys are held in a concurrent map, hence invocations for different keys do not contend on a common
+ * lock. A queue is removed from the map once all of its runnables have been run, so that the keys are not retained
+ * longer than necessary. A handler runs at most {@link #MAX_BATCH_SIZE} runnables of a key before it hands itself off
+ * to the executor again, which avoids executor hand-offs for bursts while not starving other keys.
+ * </p>
+ *
  * @param <K> the type of the key
  * @since 4.3
  */
 public class AsyncButOrdered<K> {
 
     /**
-     * A map with the currently pending runnables for a given key. Note that this is a weak hash map, so we do not have
-     * to take care of removing the keys ourselves from the map.
+     * The maximum number of runnables a handler runs before it yields its thread to the executor.
+     */
+    static final int MAX_BATCH_SIZE = 64;
+
+    /**
+     * The number of runnables a handler takes from the queue of the key at once.
      */
-    private final Map<K, Queue<Runnable>> pendingRunnables = new WeakHashMap<>();
+    private static final int DRAIN_SIZE = 16;
 
     /**
-     * A marker map if there is an active thread for the given key. Holds the responsible handler thread if one is
-     * active, otherwise the key is non-existent in the map.
+     * The queues of the keys that currently have pending or running runnables.
      */
-    private final Map<K, Handler> threadActiveMap = new HashMap<>();
+    private final ConcurrentHashMap<K, KeyQueue> keyQueues = new ConcurrentHashMap<>();
 
     private final Executor executor;
 
@@ -74,11 +81,11 @@ public class AsyncButOrdered<K> {
         this.executor = executor;
     }
 
-    private void scheduleHandler(Handler handler) {
+    private void scheduleHandler(KeyQueue keyQueue) {
         if (executor == null) {
-            AbstractXMPPConnection.asyncGo(handler);
+            AbstractXMPPConnection.asyncGo(keyQueue);
         } else {
-            executor.execute(handler);
+            executor.execute(keyQueue);
         }
     }
 
@@ -90,37 +97,19 @@ public class AsyncButOrdered<K> {
      * @return true if a new thread was created
      */
     public boolean performAsyncButOrdered(K key, Runnable runnable) {
-        // First check if a key queue already exists, create one if not.
-        Queue<Runnable> keyQueue;
-        synchronized (pendingRunnables) {
-            keyQueue = pendingRunnables.get(key);
-            if (keyQueue == null) {
-                keyQueue = new ConcurrentLinkedQueue<>();
-                pendingRunnables.put(key, keyQueue);
+        while (true) {
+            KeyQueue keyQueue = keyQueues.computeIfAbsent(key, KeyQueue::new);
+            switch (keyQueue.offer(runnable)) {
+            case handlerScheduled:
+                return false;
+            case handlerRequired:
+                scheduleHandler(keyQueue);
+                return true;
+            case retired:
+                // The queue was drained and removed from the map in the meantime, retry with a fresh queue.
+                continue;
             }
         }
-
-        // Then add the task to the queue.
-        keyQueue.add(runnable);
-
-        // Finally check if there is already a handler working on that queue, create one if not.
-        Handler newlyCreatedHandler = null;
-        synchronized (threadActiveMap) {
-            if (!threadActiveMap.containsKey(key)) {
-                newlyCreatedHandler = new Handler(keyQueue, key);
-
-                // Mark that there is thread active for the given key. Note that this has to be done before scheduling
-                // the handler thread.
-                threadActiveMap.put(key, newlyCreatedHandler);
-            }
-        }
-
-        if (newlyCreatedHandler != null) {
-            scheduleHandler(newlyCreatedHandler);
-            return true;
-        }
-
-        return false;
     }
 
     public Executor asExecutorFor(final K key) {
@@ -132,44 +121,105 @@ public class AsyncButOrdered<K> {
         };
     }
 
-    private class Handler implements Runnable {
-        private final Queue<Runnable> keyQueue;
+    /**
+     * Get the number of keys which have pending or running runnables.
+     *
+     * @return the number of active keys.
+     */
+    int getActiveKeyCount() {
+        return keyQueues.size();
+    }
+
+    private enum OfferResult {
+        handlerScheduled,
+        handlerRequired,
+        retired,
+    }
+
+    /**
+     * The pending runnables of a key. The queue also acts as handler, which runs the pending runnables. At most one
+     * handler is scheduled or running per queue.
+     */
+    private final class KeyQueue implements Runnable {
         private final K key;
 
-        Handler(Queue<Runnable> keyQueue, K key) {
-            this.keyQueue = keyQueue;
+        private final ArrayDeque<Runnable> runnables = new ArrayDeque<>();
+
+        private boolean handlerActive;
+
+        private boolean retired;
+
+        private KeyQueue(K key) {
             this.key = key;
         }
 
+        private synchronized OfferResult offer(Runnable runnable) {
+            if (retired) {
+                return OfferResult.retired;
+            }
+
+            runnables.add(runnable);
+
+            if (handlerActive) {
+                return OfferResult.handlerScheduled;
+            }
+            // Mark that there is a handler active for the given key. Note that this has to be done before scheduling
+            // the handler.
+            handlerActive = true;
+            return OfferResult.handlerRequired;
+        }
+
+        private synchronized int drainTo(Runnable[] batch) {
+            int count = 0;
+            Runnable runnable;
+            while (count < batch.length && (runnable = runnables.poll()) != null) {
+                batch[count++] = runnable;
+            }
+            if (count == 0) {
+                // The queue is empty, stop the handler and remove the queue. Offers which still got this queue will
+                // notice that it is retired and retry with a fresh one.
+                handlerActive = false;
+                retired = true;
+                keyQueues.remove(key, this);
+            }
+            return count;
+        }
+
+        private synchronized void requeue(Runnable[] batch, int from, int to) {
+            for (int i = to - 1; i >= from; i--) {
+                runnables.addFirst(batch[i]);
+            }
+        }
+
         @Override
         public void run() {
-            mainloop:
-            while (true) {
-                Runnable runnable = null;
-                while ((runnable = keyQueue.poll()) != null) {
+            Runnable[] batch = new Runnable[DRAIN_SIZE];
+            int ran = 0;
+            while (ran < MAX_BATCH_SIZE) {
+                int count = drainTo(batch);
+                if (count == 0) {
+                    return;
+                }
+
+                for (int i = 0; i < count; i++) {
+                    Runnable runnable = batch[i];
+                    batch[i] = null;
                     try {
                         runnable.run();
                     } catch (Throwable t) {
-                        // The run() method threw, this handler thread is going to terminate because of that. We create
-                        // a new handler to continue working on the queue while throwing the throwable so that the
-                        // executor can handle it.
-                        Handler newlyCreatedHandler = new Handler(keyQueue, key);
-                        synchronized (threadActiveMap) {
-                            threadActiveMap.put(key, newlyCreatedHandler);
-                        }
-                        scheduleHandler(newlyCreatedHandler);
+                        // The run() method threw, this handler is going to terminate because of that. We put the not
+                        // yet run runnables of the batch back and re-schedule the handler to continue working on the
+                        // queue, while throwing the throwable so that the executor can handle it.
+                        requeue(batch, i + 1, count);
+                        scheduleHandler(this);
                         throw t;
                     }
                 }
-
-                synchronized (threadActiveMap) {
-                    // If the queue is empty, stop this handler, otherwise continue looping.
-                    if (keyQueue.isEmpty()) {
-                        threadActiveMap.remove(key);
-                        break mainloop;
-                    }
-                }
+                ran += count;
             }
+
+            // Yield the thread to the executor, so that the runnables of other keys get their turn.
+            scheduleHandler(this);
         }
     }
 }
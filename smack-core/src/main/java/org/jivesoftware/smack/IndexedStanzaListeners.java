@@ -0,0 +1,303 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.filter.StanzaFilter;
+import org.jivesoftware.smack.filter.StanzaFilterUtil;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.Presence;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.XmlElement;
+
+/**
+ * A set of stanza listeners optimized for the case where listeners are added and removed rarely, but stanzas are
+ * matched against the listeners very often.
+ * <p>
+ * Modifications are performed under a lock and publish a new immutable snapshot of the listeners, which allows the
+ * matching of stanzas to proceed without any lock. Within a snapshot, listeners are indexed by the stanza type they
+ * may accept and by the extension element their filter requires (see {@link StanzaFilterUtil}). Hence, only the
+ * filters of candidate listeners are evaluated. The order in which listeners were added is retained.
+ * </p>
+ */
+final class IndexedStanzaListeners {
+
+    private static final int KIND_MESSAGE = 0;
+    private static final int KIND_PRESENCE = 1;
+    private static final int KIND_IQ = 2;
+    private static final int KIND_OTHER = 3;
+
+    /**
+     * If an index has at most this many distinct extension element keys, then the stanza is probed for every key.
+     * Otherwise, the stanza's extension elements are looked up in the index.
+     */
+    private static final int KEY_PROBE_THRESHOLD = 4;
+
+    private static final Comparator<Registration> BY_SEQUENCE = (r1, r2) -> Long.compare(r1.sequence, r2.sequence);
+
+    private final Map<StanzaListener, Registration> registrations = new LinkedHashMap<>();
+
+    private long nextSequence;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * Add a stanza listener. If the listener was already added, then its previous registration is replaced and the
+     * listener is ordered as if it was added for the first time.
+     *
+     * @param listener the stanza listener.
+     * @param filter the stanza filter, may be <code>null</code>.
+     */
+    void add(StanzaListener listener, StanzaFilter filter) {
+        synchronized (registrations) {
+            // Remove the previous registration before adding the new one, as LinkedHashMap.put() would otherwise keep
+            // the listener at its previous position, and the iteration order would no longer be the sequence order.
+            Registration previous = registrations.remove(listener);
+            if (previous != null) {
+                previous.active = false;
+            }
+            Registration registration = new Registration(listener, filter, nextSequence++);
+            registrations.put(listener, registration);
+            snapshot = new Snapshot(registrations.values());
+        }
+    }
+
+    boolean remove(StanzaListener listener) {
+        synchronized (registrations) {
+            Registration registration = registrations.remove(listener);
+            if (registration == null) {
+                return false;
+            }
+            registration.active = false;
+            snapshot = new Snapshot(registrations.values());
+            return true;
+        }
+    }
+
+    /**
+     * Get the registrations whose filter accepts the given stanza. This method does not acquire any lock. If no
+     * registration matches, then typically no object is allocated.
+     *
+     * @param stanza the stanza.
+     * @return the matching registrations, in the order their listeners where added.
+     */
+    @SuppressWarnings("MixedMutabilityReturnType")
+    List<Registration> getMatching(Stanza stanza) {
+        Snapshot snapshot = this.snapshot;
+        if (snapshot.isEmpty) {
+            return Collections.emptyList();
+        }
+
+        Index index = snapshot.indexFor(stanza);
+
+        List<Registration> matching = null;
+        for (Registration registration : index.unkeyed) {
+            if (registration.filterMatches(stanza)) {
+                if (matching == null) {
+                    matching = new ArrayList<>(index.unkeyed.length);
+                }
+                matching.add(registration);
+            }
+        }
+
+        boolean keyedMatched = false;
+        if (index.keys.length <= KEY_PROBE_THRESHOLD) {
+            // Only a few keys, probe the stanza for every key.
+            for (int i = 0; i < index.keys.length; i++) {
+                if (stanza.getExtension(index.keys[i]) == null) {
+                    continue;
+                }
+                matching = addMatching(index.keyed[i], stanza, matching);
+                keyedMatched = true;
+            }
+        } else {
+            // Many keys, look up the stanza's extension elements in the index instead. Note that a stanza may contain
+            // multiple extension elements with the same qualified name, but we must visit every key only once.
+            QName previousKey = null;
+            for (XmlElement extensionElement : stanza.getExtensions()) {
+                QName key = extensionElement.getQName();
+                if (key.equals(previousKey)) {
+                    continue;
+                }
+                previousKey = key;
+                Registration[] keyedRegistrations = index.keyedMap.get(key);
+                if (keyedRegistrations == null) {
+                    continue;
+                }
+                matching = addMatching(keyedRegistrations, stanza, matching);
+                keyedMatched = true;
+            }
+        }
+
+        if (matching == null) {
+            return Collections.emptyList();
+        }
+
+        if (keyedMatched) {
+            Collections.sort(matching, BY_SEQUENCE);
+        }
+
+        return matching;
+    }
+
+    private static List<Registration> addMatching(Registration[] registrations, Stanza stanza,
+                    List<Registration> matching) {
+        for (Registration registration : registrations) {
+            if (registration.filterMatches(stanza)) {
+                if (matching == null) {
+                    matching = new ArrayList<>();
+                }
+                matching.add(registration);
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Get the listeners whose filter accepts the given stanza.
+     *
+     * @param stanza the stanza.
+     * @return the matching listeners, in the order they where added.
+     * @see #getMatching(Stanza)
+     */
+    @SuppressWarnings("MixedMutabilityReturnType")
+    List<StanzaListener> getMatchingListeners(Stanza stanza) {
+        List<Registration> matching = getMatching(stanza);
+        if (matching.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<StanzaListener> listeners = new ArrayList<>(matching.size());
+        for (Registration registration : matching) {
+            listeners.add(registration.listener);
+        }
+        return listeners;
+    }
+
+    static final class Registration {
+        final StanzaListener listener;
+        private final StanzaFilter filter;
+        private final long sequence;
+        private final QName requiredExtensionElement;
+
+        /**
+         * Set to <code>false</code> once the listener got removed. Allows to determine if a matched listener is still
+         * registered at the timepoint it is going to be invoked.
+         */
+        private volatile boolean active = true;
+
+        private Registration(StanzaListener listener, StanzaFilter filter, long sequence) {
+            this.listener = listener;
+            this.filter = filter;
+            this.sequence = sequence;
+            this.requiredExtensionElement = StanzaFilterUtil.getRequiredExtensionElement(filter);
+        }
+
+        private boolean filterMatches(Stanza stanza) {
+            return filter == null || filter.accept(stanza);
+        }
+
+        boolean isActive() {
+            return active;
+        }
+    }
+
+    private static final class Index {
+        private static final Index EMPTY = new Index(Collections.emptyList(), null);
+
+        private final Registration[] unkeyed;
+        private final QName[] keys;
+        private final Registration[][] keyed;
+        private final Map<QName, Registration[]> keyedMap;
+
+        private Index(Iterable<Registration> registrations, Class<? extends Stanza> stanzaType) {
+            List<Registration> unkeyed = new ArrayList<>();
+            Map<QName, List<Registration>> keyed = new LinkedHashMap<>();
+            for (Registration registration : registrations) {
+                if (stanzaType != null && !StanzaFilterUtil.mayAccept(registration.filter, stanzaType)) {
+                    continue;
+                }
+
+                QName key = registration.requiredExtensionElement;
+                if (key == null) {
+                    unkeyed.add(registration);
+                } else {
+                    keyed.computeIfAbsent(key, k -> new ArrayList<>()).add(registration);
+                }
+            }
+
+            this.unkeyed = unkeyed.toArray(new Registration[unkeyed.size()]);
+            this.keys = new QName[keyed.size()];
+            this.keyed = new Registration[keyed.size()][];
+            this.keyedMap = new HashMap<>(keyed.size());
+            int i = 0;
+            for (Map.Entry<QName, List<Registration>> entry : keyed.entrySet()) {
+                List<Registration> keyedRegistrations = entry.getValue();
+                this.keys[i] = entry.getKey();
+                this.keyed[i] = keyedRegistrations.toArray(new Registration[keyedRegistrations.size()]);
+                this.keyedMap.put(keys[i], this.keyed[i]);
+                i++;
+            }
+        }
+    }
+
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot();
+
+        private final boolean isEmpty;
+
+        private final Index[] indices;
+
+        private Snapshot() {
+            isEmpty = true;
+            indices = new Index[] { Index.EMPTY, Index.EMPTY, Index.EMPTY, Index.EMPTY };
+        }
+
+        private Snapshot(Iterable<Registration> registrations) {
+            isEmpty = !registrations.iterator().hasNext();
+            indices = new Index[4];
+            indices[KIND_MESSAGE] = new Index(registrations, Message.class);
+            indices[KIND_PRESENCE] = new Index(registrations, Presence.class);
+            indices[KIND_IQ] = new Index(registrations, IQ.class);
+            indices[KIND_OTHER] = new Index(registrations, null);
+        }
+
+        private Index indexFor(Stanza stanza) {
+            final int kind;
+            if (stanza instanceof Message) {
+                kind = KIND_MESSAGE;
+            } else if (stanza instanceof Presence) {
+                kind = KIND_PRESENCE;
+            } else if (stanza instanceof IQ) {
+                kind = KIND_IQ;
+            } else {
+                kind = KIND_OTHER;
+            }
+            return indices[kind];
+        }
+    }
+}
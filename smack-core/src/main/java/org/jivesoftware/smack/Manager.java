@@ -62,7 +62,17 @@ public abstract class Manager {
         return schedule(runnable, delay, unit, ScheduledAction.Kind.NonBlocking);
     }
 
-    protected static final ScheduledAction scheduleBlocking(Runnable runnable, long delay, TimeUnit unit) {
+    /**
+     * Schedules an action on {@link SmackReactor}. Once the delay elapsed, the action is handed off to a separate
+     * thread, so it may block, e.g. when performing I/O.
+     *
+     * @param runnable the action to perform.
+     * @param delay the delay after which the action is performed.
+     * @param unit the time unit of the delay.
+     * @return the scheduled action, which can be used to cancel it.
+     * @since 4.5
+     */
+    public static final ScheduledAction scheduleBlocking(Runnable runnable, long delay, TimeUnit unit) {
         return schedule(runnable, delay, unit, ScheduledAction.Kind.Blocking);
     }
 
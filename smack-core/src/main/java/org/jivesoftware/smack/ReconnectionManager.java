@@ -19,23 +19,30 @@ package org.jivesoftware.smack;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jivesoftware.smack.XMPPException.StreamErrorException;
+import org.jivesoftware.smack.internal.AbstractStats;
 import org.jivesoftware.smack.packet.StreamError;
-import org.jivesoftware.smack.util.Async;
+import org.jivesoftware.smack.util.ExtendedAppendable;
+import org.jivesoftware.smack.util.StringUtils;
 
 /**
  * Handles the automatic reconnection process. Every time a connection is dropped without
  * the application explicitly closing it, the manager automatically tries to reconnect to
  * the server.<p>
  *
- * There are two possible reconnection policies:
+ * There are three possible reconnection policies:
+ *
+ * {@link ReconnectionPolicy#JITTERED_EXPONENTIAL_BACKOFF} - The reconnection mechanism will wait an exponentially
+ * increasing, but randomized, delay between the reconnection attempts. The delay is capped at five minutes.
  *
  * {@link ReconnectionPolicy#RANDOM_INCREASING_DELAY} - The reconnection mechanism will try to reconnect periodically:
  * <ol>
@@ -47,7 +54,10 @@ import org.jivesoftware.smack.util.Async;
  * {@link ReconnectionPolicy#FIXED_DELAY} - The reconnection mechanism will try to reconnect after a fixed delay
  * independently from the number of reconnection attempts already performed.
  * <p>
- * Interrupting the reconnection thread will abort the reconnection mechanism.
+ * The reconnection attempts are scheduled on {@link SmackReactor}, instead of using a dedicated thread per connection.
+ * Additionally, the reconnection attempts of all connections of the JVM are subject to a global rate limit, see
+ * {@link #setGlobalReconnectionRateLimit(double, int)}. Use {@link #abortPossiblyRunningReconnection()} to abort the
+ * reconnection mechanism.
  * </p>
  *
  * @author Francisco Vives
@@ -105,15 +115,73 @@ public final class ReconnectionManager {
         return enabledPerDefault;
     }
 
+    static final long BACKOFF_BASE_DELAY_MILLIS = 1000;
+
+    static final long BACKOFF_MAX_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final double DEFAULT_GLOBAL_RECONNECTION_ATTEMPTS_PER_SECOND = 10;
+
+    private static final int DEFAULT_GLOBAL_RECONNECTION_BURST_SIZE = 50;
+
+    private static volatile ReconnectionRateLimiter globalRateLimiter = new ReconnectionRateLimiter(
+                    DEFAULT_GLOBAL_RECONNECTION_ATTEMPTS_PER_SECOND, DEFAULT_GLOBAL_RECONNECTION_BURST_SIZE);
+
+    /**
+     * Set the rate limit for the reconnection attempts of all connections of this JVM. Attempts exceeding the limit are
+     * deferred. The default is 10 attempts per second, with bursts of up to 50 attempts.
+     *
+     * @param attemptsPerSecond the sustained number of reconnection attempts per second.
+     * @param burstSize the number of reconnection attempts which may be performed at once.
+     * @since 4.5
+     */
+    public static void setGlobalReconnectionRateLimit(double attemptsPerSecond, int burstSize) {
+        globalRateLimiter = new ReconnectionRateLimiter(attemptsPerSecond, burstSize);
+    }
+
+    private static final LongAdder RECONNECTION_ATTEMPTS = new LongAdder();
+    private static final LongAdder SUCCESSFUL_RECONNECTION_ATTEMPTS = new LongAdder();
+    private static final LongAdder FAILED_RECONNECTION_ATTEMPTS = new LongAdder();
+    private static final LongAdder RATE_LIMITED_RECONNECTION_ATTEMPTS = new LongAdder();
+
+    private static final double ATTEMPT_RATE_WINDOW_SECONDS = 60;
+
+    private static final Object ATTEMPT_RATE_LOCK = new Object();
+
+    // The exponentially weighted moving average of the reconnection attempts per second, guarded by ATTEMPT_RATE_LOCK.
+    private static double attemptRate;
+    private static long attemptRateUpdateNanos = System.nanoTime();
+
+    private static double decayedAttemptRate(long nowNanos) {
+        double elapsedSeconds = (nowNanos - attemptRateUpdateNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        return attemptRate * Math.exp(-elapsedSeconds / ATTEMPT_RATE_WINDOW_SECONDS);
+    }
+
+    private static void recordReconnectionAttempt() {
+        RECONNECTION_ATTEMPTS.increment();
+        long nowNanos = System.nanoTime();
+        synchronized (ATTEMPT_RATE_LOCK) {
+            attemptRate = decayedAttemptRate(nowNanos) + 1 / ATTEMPT_RATE_WINDOW_SECONDS;
+            attemptRateUpdateNanos = nowNanos;
+        }
+    }
+
+    /**
+     * Get the reconnection statistics of all connections of this JVM.
+     *
+     * @return the reconnection statistics.
+     * @since 4.5
+     */
+    public static Stats getStats() {
+        return new Stats();
+    }
+
     private final Set<ReconnectionListener> reconnectionListeners = new CopyOnWriteArraySet<>();
 
     // Holds the connection to the server
     private final WeakReference<AbstractXMPPConnection> weakRefConnection;
-    private final int randomBase = new Random().nextInt(13) + 2; // between 2 and 15 seconds
-    private final Runnable reconnectionRunnable;
 
     private static int defaultFixedDelay = 15;
-    private static ReconnectionPolicy defaultReconnectionPolicy = ReconnectionPolicy.RANDOM_INCREASING_DELAY;
+    private static ReconnectionPolicy defaultReconnectionPolicy = ReconnectionPolicy.JITTERED_EXPONENTIAL_BACKOFF;
 
     private volatile int fixedDelay = defaultFixedDelay;
     private volatile ReconnectionPolicy reconnectionPolicy = defaultReconnectionPolicy;
@@ -186,130 +254,31 @@ public final class ReconnectionManager {
 
     boolean done = false;
 
-    private Thread reconnectionThread;
+    // The following fields are guarded by 'this'.
 
-    private ReconnectionManager(AbstractXMPPConnection connection) {
-        weakRefConnection = new WeakReference<>(connection);
+    private boolean reconnectionRunning;
 
-        reconnectionRunnable = new Runnable() {
-
-            /**
-             * Holds the current number of reconnection attempts
-             */
-            private int attempts = 0;
-
-            /**
-             * Returns the number of seconds until the next reconnection attempt.
-             *
-             * @return the number of seconds until the next reconnection attempt.
-             */
-            private int timeDelay() {
-                attempts++;
-
-                // Delay variable to be assigned
-                int delay;
-                switch (reconnectionPolicy) {
-                case FIXED_DELAY:
-                    delay = fixedDelay;
-                    break;
-                case RANDOM_INCREASING_DELAY:
-                    if (attempts > 13) {
-                        delay = randomBase * 6 * 5; // between 2.5 and 7.5 minutes (~5 minutes)
-                    }
-                    else if (attempts > 7) {
-                        delay = randomBase * 6; // between 30 and 90 seconds (~1 minutes)
-                    }
-                    else {
-                        delay = randomBase; // 10 seconds
-                    }
-                    break;
-                default:
-                    throw new AssertionError("Unknown reconnection policy " + reconnectionPolicy);
-                }
+    /**
+     * Incremented every time a reconnection cycle is started or aborted, so that stale scheduled actions and attempts
+     * are able to detect that they belong to a previous cycle.
+     */
+    private int reconnectionCycle;
 
-                return delay;
-            }
+    /**
+     * Holds the current number of reconnection attempts of the reconnection cycle.
+     */
+    private int attempts;
 
-            /**
-             * The process will try the reconnection until the connection succeed or the user cancel it
-             */
-            @Override
-            public void run() {
-                final AbstractXMPPConnection connection = weakRefConnection.get();
-                if (connection == null) {
-                    return;
-                }
+    private long previousDelayMillis;
 
-                // Reset attempts to zero since a new reconnection cycle is started once this runs.
-                attempts = 0;
-
-                // The process will try to reconnect until the connection is established or
-                // the user cancel the reconnection process AbstractXMPPConnection.disconnect().
-                while (isReconnectionPossible(connection)) {
-                    // Find how much time we should wait until the next reconnection
-                    int remainingSeconds = timeDelay();
-                    // Sleep until we're ready for the next reconnection attempt. Notify
-                    // listeners once per second about how much time remains before the next
-                    // reconnection attempt.
-                    while (remainingSeconds > 0) {
-                        if (!isReconnectionPossible(connection)) {
-                            return;
-                        }
-                        try {
-                            Thread.sleep(1000);
-                            remainingSeconds--;
-                            for (ReconnectionListener listener : reconnectionListeners) {
-                                listener.reconnectingIn(remainingSeconds);
-                            }
-                        }
-                        catch (InterruptedException e) {
-                            LOGGER.log(Level.FINE, "Reconnection Thread was interrupted, aborting reconnection mechanism", e);
-                            // Exit the reconnection thread in case it was interrupted.
-                            return;
-                        }
-                    }
+    private long nextAttemptNanos;
 
-                    for (ReconnectionListener listener : reconnectionListeners) {
-                        listener.reconnectingIn(0);
-                    }
+    private ScheduledAction scheduledReconnectionAction;
 
-                    if (!isReconnectionPossible(connection)) {
-                        return;
-                    }
-                    // Makes a reconnection attempt
-                    try {
-                        try {
-                            connection.connect();
-                        }
-                        catch (SmackException.AlreadyConnectedException e) {
-                            LOGGER.log(Level.FINER, "Connection was already connected on reconnection attempt", e);
-                        }
-                        connection.login();
-                    }
-                    catch (SmackException.AlreadyLoggedInException e) {
-                        // This can happen if another thread concurrently triggers a reconnection
-                        // and/or login. Obviously it should not be handled as a reconnection
-                        // failure. See also SMACK-725.
-                        LOGGER.log(Level.FINER, "Reconnection not required, was already logged in", e);
-                    }
-                    catch (SmackException | IOException | XMPPException e) {
-                        // Fires the failed reconnection notification
-                        for (ReconnectionListener listener : reconnectionListeners) {
-                            listener.reconnectionFailed(e);
-                        }
-                        // Failed to reconnect, try again.
-                        continue;
-                    } catch (InterruptedException e) {
-                        LOGGER.log(Level.FINE, "Reconnection Thread was interrupted, aborting reconnection mechanism", e);
-                        // Exit the reconnection thread in case it was interrupted.
-                        return;
-                    }
+    private Thread reconnectionAttemptThread;
 
-                    // Successfully reconnected .
-                    return;
-                }
-            }
-        };
+    private ReconnectionManager(AbstractXMPPConnection connection) {
+        weakRefConnection = new WeakReference<>(connection);
 
         // If the reconnection mechanism is enable per default, enable it for this ReconnectionManager instance
         if (getEnabledPerDefault()) {
@@ -377,14 +346,17 @@ public final class ReconnectionManager {
             LOGGER.fine("Connection is null, will not reconnect");
             return;
         }
-        // Since there is no thread running, creates a new one to attempt
-        // the reconnection.
-        // avoid to run duplicated reconnectionThread -- fd: 16/09/2010
-        if (reconnectionThread != null && reconnectionThread.isAlive())
+        // Avoid running duplicated reconnection cycles.
+        if (reconnectionRunning) {
             return;
+        }
 
-        reconnectionThread = Async.go(reconnectionRunnable,
-                        "Smack Reconnection Manager (" + connection.getConnectionCounter() + ')');
+        reconnectionRunning = true;
+        reconnectionCycle++;
+        // Reset attempts to zero since a new reconnection cycle is started.
+        attempts = 0;
+        previousDelayMillis = 0;
+        scheduleNextAttempt();
     }
 
     /**
@@ -393,12 +365,232 @@ public final class ReconnectionManager {
      * @since 4.2.2
      */
     public synchronized void abortPossiblyRunningReconnection() {
-        if (reconnectionThread == null) {
+        if (!reconnectionRunning) {
             return;
         }
 
-        reconnectionThread.interrupt();
-        reconnectionThread = null;
+        stopReconnection();
+
+        if (scheduledReconnectionAction != null) {
+            scheduledReconnectionAction.cancel();
+            scheduledReconnectionAction = null;
+        }
+
+        if (reconnectionAttemptThread != null) {
+            reconnectionAttemptThread.interrupt();
+            reconnectionAttemptThread = null;
+        }
+    }
+
+    private void stopReconnection() {
+        assert Thread.holdsLock(this);
+
+        reconnectionRunning = false;
+        reconnectionCycle++;
+    }
+
+    private void scheduleNextAttempt() {
+        assert Thread.holdsLock(this);
+
+        long delayMillis = nextDelayMillis();
+        nextAttemptNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        scheduleTick();
+    }
+
+    private void scheduleTick() {
+        assert Thread.holdsLock(this);
+
+        long tickDelayMillis = getRemainingMillis();
+        if (!reconnectionListeners.isEmpty()) {
+            // Notify listeners once per second about how much time remains before the next reconnection attempt.
+            tickDelayMillis = Math.min(tickDelayMillis, 1000);
+        }
+
+        final int cycle = reconnectionCycle;
+        scheduledReconnectionAction = AbstractXMPPConnection.schedule(() -> onTick(cycle), tickDelayMillis,
+                        TimeUnit.MILLISECONDS);
+    }
+
+    private long getRemainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nextAttemptNanos - System.nanoTime());
+    }
+
+    /**
+     * Invoked by the reactor, hence must not block.
+     *
+     * @param cycle the reconnection cycle the tick was scheduled for.
+     */
+    private void onTick(int cycle) {
+        final AbstractXMPPConnection connection = weakRefConnection.get();
+
+        synchronized (this) {
+            if (cycle != reconnectionCycle) {
+                return;
+            }
+            scheduledReconnectionAction = null;
+
+            if (connection == null || !isReconnectionPossible(connection)) {
+                stopReconnection();
+                return;
+            }
+
+            long remainingMillis = getRemainingMillis();
+            if (remainingMillis > 0) {
+                int remainingSeconds = (int) TimeUnit.MILLISECONDS.toSeconds(remainingMillis + 999);
+                AbstractXMPPConnection.asyncGo(() -> {
+                    for (ReconnectionListener listener : reconnectionListeners) {
+                        listener.reconnectingIn(remainingSeconds);
+                    }
+                });
+                scheduleTick();
+                return;
+            }
+
+            long rateLimitedNanos = globalRateLimiter.tryAcquire();
+            if (rateLimitedNanos > 0) {
+                RATE_LIMITED_RECONNECTION_ATTEMPTS.increment();
+                // Spread the deferred attempts, so that they do not all compete for the next permit.
+                long rateLimitedMillis = TimeUnit.NANOSECONDS.toMillis(rateLimitedNanos) + 1;
+                long deferMillis = rateLimitedMillis
+                                + ThreadLocalRandom.current().nextLong(Math.max(rateLimitedMillis, 1000));
+                nextAttemptNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deferMillis);
+                scheduleTick();
+                return;
+            }
+        }
+
+        AbstractXMPPConnection.asyncGo(() -> attemptReconnection(connection, cycle));
+    }
+
+    private void attemptReconnection(AbstractXMPPConnection connection, int cycle) {
+        synchronized (this) {
+            if (cycle != reconnectionCycle) {
+                return;
+            }
+            reconnectionAttemptThread = Thread.currentThread();
+        }
+
+        try {
+            attemptReconnection(connection);
+        } finally {
+            synchronized (this) {
+                if (reconnectionAttemptThread == Thread.currentThread()) {
+                    reconnectionAttemptThread = null;
+                }
+            }
+            // Clear a possible interrupt caused by abortPossiblyRunningReconnection(), as the thread may be pooled.
+            Thread.interrupted();
+        }
+    }
+
+    private void attemptReconnection(AbstractXMPPConnection connection) {
+        for (ReconnectionListener listener : reconnectionListeners) {
+            listener.reconnectingIn(0);
+        }
+
+        synchronized (this) {
+            if (!isReconnectionPossible(connection)) {
+                stopReconnection();
+                return;
+            }
+        }
+
+        recordReconnectionAttempt();
+
+        // Makes a reconnection attempt
+        try {
+            try {
+                connection.connect();
+            }
+            catch (SmackException.AlreadyConnectedException e) {
+                LOGGER.log(Level.FINER, "Connection was already connected on reconnection attempt", e);
+            }
+            connection.login();
+        }
+        catch (SmackException.AlreadyLoggedInException e) {
+            // This can happen if another thread concurrently triggers a reconnection
+            // and/or login. Obviously it should not be handled as a reconnection
+            // failure. See also SMACK-725.
+            LOGGER.log(Level.FINER, "Reconnection not required, was already logged in", e);
+        }
+        catch (SmackException | IOException | XMPPException e) {
+            FAILED_RECONNECTION_ATTEMPTS.increment();
+            // Fires the failed reconnection notification
+            for (ReconnectionListener listener : reconnectionListeners) {
+                listener.reconnectionFailed(e);
+            }
+            // Failed to reconnect, try again.
+            synchronized (this) {
+                if (reconnectionRunning && reconnectionAttemptThread == Thread.currentThread()) {
+                    scheduleNextAttempt();
+                }
+            }
+            return;
+        } catch (InterruptedException e) {
+            LOGGER.log(Level.FINE, "Reconnection attempt was interrupted, aborting reconnection mechanism", e);
+            synchronized (this) {
+                if (reconnectionAttemptThread == Thread.currentThread()) {
+                    stopReconnection();
+                }
+            }
+            return;
+        }
+
+        // Successfully reconnected.
+        SUCCESSFUL_RECONNECTION_ATTEMPTS.increment();
+        synchronized (this) {
+            if (reconnectionAttemptThread == Thread.currentThread()) {
+                stopReconnection();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of milliseconds until the next reconnection attempt.
+     *
+     * @return the number of milliseconds until the next reconnection attempt.
+     */
+    private long nextDelayMillis() {
+        assert Thread.holdsLock(this);
+
+        attempts++;
+
+        switch (reconnectionPolicy) {
+        case FIXED_DELAY:
+            return TimeUnit.SECONDS.toMillis(fixedDelay);
+        case RANDOM_INCREASING_DELAY:
+            // Draw a new random base for every attempt, so that connections do not reconnect in lock-step.
+            int randomBase = ThreadLocalRandom.current().nextInt(13) + 2; // between 2 and 15 seconds
+            int delay;
+            if (attempts > 13) {
+                delay = randomBase * 6 * 5; // between 2.5 and 7.5 minutes (~5 minutes)
+            }
+            else if (attempts > 7) {
+                delay = randomBase * 6; // between 30 and 90 seconds (~1 minutes)
+            }
+            else {
+                delay = randomBase; // 10 seconds
+            }
+            return TimeUnit.SECONDS.toMillis(delay);
+        case JITTERED_EXPONENTIAL_BACKOFF:
+            previousDelayMillis = nextJitteredExponentialBackoffDelayMillis(previousDelayMillis);
+            return previousDelayMillis;
+        default:
+            throw new AssertionError("Unknown reconnection policy " + reconnectionPolicy);
+        }
+    }
+
+    /**
+     * Calculate the next delay using "decorrelated jitter", i.e. a random delay between the base delay and three times
+     * the previous delay, capped at the maximum delay.
+     *
+     * @param previousDelayMillis the previous delay, or <code>0</code> for the first attempt.
+     * @return the next delay in milliseconds.
+     */
+    static long nextJitteredExponentialBackoffDelayMillis(long previousDelayMillis) {
+        long previous = Math.max(previousDelayMillis, BACKOFF_BASE_DELAY_MILLIS);
+        long upperBound = Math.min(previous * 3, BACKOFF_MAX_DELAY_MILLIS);
+        return ThreadLocalRandom.current().nextLong(BACKOFF_BASE_DELAY_MILLIS, upperBound + 1);
     }
 
     private final ConnectionListener connectionListener = new ConnectionListener() {
@@ -433,12 +625,12 @@ public final class ReconnectionManager {
     };
 
     /**
-     * Reconnection Policy, where {@link ReconnectionPolicy#RANDOM_INCREASING_DELAY} is the default policy used by smack and {@link ReconnectionPolicy#FIXED_DELAY} implies
-     * a fixed amount of time between reconnection attempts.
+     * Reconnection Policy, where {@link ReconnectionPolicy#JITTERED_EXPONENTIAL_BACKOFF} is the default policy used by
+     * smack and {@link ReconnectionPolicy#FIXED_DELAY} implies a fixed amount of time between reconnection attempts.
      */
     public enum ReconnectionPolicy {
         /**
-         * Default policy classically used by smack, having an increasing delay related to the
+         * Policy classically used by smack, having an increasing delay related to the
          * overall number of attempts.
          */
         RANDOM_INCREASING_DELAY,
@@ -447,5 +639,45 @@ public final class ReconnectionManager {
          * Policy using fixed amount of time between reconnection attempts.
          */
         FIXED_DELAY,
+
+        /**
+         * Default policy, using an exponential backoff with "decorrelated jitter". This avoids that many connections,
+         * which lost their connection at the same time, reconnect in lock-step.
+         */
+        JITTERED_EXPONENTIAL_BACKOFF,
+    }
+
+    public static final class Stats extends AbstractStats {
+
+        public final long reconnectionAttempts;
+        public final long successfulReconnectionAttempts;
+        public final long failedReconnectionAttempts;
+        public final long rateLimitedReconnectionAttempts;
+
+        /**
+         * The reconnection attempts per second, as exponentially weighted moving average over one minute.
+         */
+        public final double reconnectionAttemptRate;
+
+        private Stats() {
+            reconnectionAttempts = RECONNECTION_ATTEMPTS.sum();
+            successfulReconnectionAttempts = SUCCESSFUL_RECONNECTION_ATTEMPTS.sum();
+            failedReconnectionAttempts = FAILED_RECONNECTION_ATTEMPTS.sum();
+            rateLimitedReconnectionAttempts = RATE_LIMITED_RECONNECTION_ATTEMPTS.sum();
+            long nowNanos = System.nanoTime();
+            synchronized (ATTEMPT_RATE_LOCK) {
+                reconnectionAttemptRate = decayedAttemptRate(nowNanos);
+            }
+        }
+
+        @Override
+        public void appendStatsTo(ExtendedAppendable appendable) throws IOException {
+            StringUtils.appendHeading(appendable, "ReconnectionManager stats", '#').append('\n');
+            appendable.append("reconnection-attempts: ").append(String.valueOf(reconnectionAttempts)).append('\n');
+            appendable.append("successful-reconnection-attempts: ").append(String.valueOf(successfulReconnectionAttempts)).append('\n');
+            appendable.append("failed-reconnection-attempts: ").append(String.valueOf(failedReconnectionAttempts)).append('\n');
+            appendable.append("rate-limited-reconnection-attempts: ").append(String.valueOf(rateLimitedReconnectionAttempts)).append('\n');
+            appendable.append("reconnection-attempt-rate: ").append(String.valueOf(reconnectionAttemptRate)).append('\n');
+        }
     }
 }
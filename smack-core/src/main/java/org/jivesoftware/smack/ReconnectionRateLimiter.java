@@ -0,0 +1,71 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket limiting the rate of reconnection attempts. A single instance is shared by all connections of the
+ * JVM, so that an outage of the server does not result in all connections hammering the server at the same time once
+ * it becomes available again.
+ */
+final class ReconnectionRateLimiter {
+
+    private final double permitsPerNano;
+    private final double maxPermits;
+
+    private double availablePermits;
+    private long lastRefillNanos;
+
+    ReconnectionRateLimiter(double permitsPerSecond, int burstSize) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("Permits per second must be greater than 0");
+        }
+        if (burstSize < 1) {
+            throw new IllegalArgumentException("Burst size must be at least 1");
+        }
+        permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        maxPermits = burstSize;
+        availablePermits = burstSize;
+        lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Try to acquire a permit for a reconnection attempt.
+     *
+     * @return <code>0</code> if a permit was acquired, otherwise the time in nanoseconds until the next permit becomes
+     *         available.
+     */
+    long tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    synchronized long tryAcquire(long nowNanos) {
+        long elapsedNanos = nowNanos - lastRefillNanos;
+        if (elapsedNanos > 0) {
+            availablePermits = Math.min(maxPermits, availablePermits + elapsedNanos * permitsPerNano);
+            lastRefillNanos = nowNanos;
+        }
+
+        if (availablePermits >= 1) {
+            availablePermits -= 1;
+            return 0;
+        }
+
+        return (long) Math.ceil((1 - availablePermits) / permitsPerNano);
+    }
+}
@@ -16,9 +16,9 @@
  */
 package org.jivesoftware.smack;
 
-import java.util.Date;
 import java.util.concurrent.Delayed;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import org.jivesoftware.smack.util.Async;
 
@@ -29,15 +29,35 @@ public class ScheduledAction implements Delayed {
         Blocking,
     }
 
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_RUN = 2;
+
+    private static final AtomicIntegerFieldUpdater<ScheduledAction> STATE_UPDATER = AtomicIntegerFieldUpdater.newUpdater(
+                    ScheduledAction.class, "state");
+
     private final Runnable action;
-    final Date releaseTime;
-    final SmackReactor smackReactor;
+
+    /**
+     * The release time in the time scale of {@link System#nanoTime()}.
+     */
+    final long releaseTimeNanos;
+
+    final SmackReactor.Shard shard;
     final Kind kind;
 
-    ScheduledAction(Runnable action, Date releaseTime, SmackReactor smackReactor, Kind kind) {
+    private volatile int state = STATE_PENDING;
+
+    // The following fields are owned by the ScheduledActionTimerWheel holding this action, and must only be accessed
+    // by the wheel's owner thread.
+    ScheduledAction timerWheelNext;
+    ScheduledAction timerWheelPrevious;
+    int timerWheelBucket = -1;
+
+    ScheduledAction(Runnable action, long releaseTimeNanos, SmackReactor.Shard shard, Kind kind) {
         this.action = action;
-        this.releaseTime = releaseTime;
-        this.smackReactor = smackReactor;
+        this.releaseTimeNanos = releaseTimeNanos;
+        this.shard = shard;
         this.kind = kind;
     }
 
@@ -47,19 +67,19 @@ public class ScheduledAction implements Delayed {
      * @return <code>true</code> if the scheduled action was still pending and got removed, <code>false</code> otherwise.
      */
     public boolean cancel() {
-        return smackReactor.cancel(this);
+        return shard.cancel(this);
     }
 
-    @SuppressWarnings("JavaUtilDate")
     public boolean isDue() {
-        Date now = new Date();
-        return now.after(releaseTime);
+        return getTimeToDueNanos() < 0;
     }
 
-    @SuppressWarnings("JavaUtilDate")
     public long getTimeToDueMillis() {
-        long now = System.currentTimeMillis();
-        return releaseTime.getTime() - now;
+        return TimeUnit.NANOSECONDS.toMillis(getTimeToDueNanos());
+    }
+
+    private long getTimeToDueNanos() {
+        return releaseTimeNanos - System.nanoTime();
     }
 
     @Override
@@ -68,16 +88,38 @@ public class ScheduledAction implements Delayed {
             return 0;
         }
 
-        long thisDelay = getDelay(TimeUnit.MILLISECONDS);
-        long otherDelay = otherDelayed.getDelay(TimeUnit.MILLISECONDS);
+        long thisDelay = getDelay(TimeUnit.NANOSECONDS);
+        long otherDelay = otherDelayed.getDelay(TimeUnit.NANOSECONDS);
 
         return Long.compare(thisDelay, otherDelay);
     }
 
     @Override
     public long getDelay(TimeUnit unit) {
-        long delayInMillis = getTimeToDueMillis();
-        return unit.convert(delayInMillis, TimeUnit.MILLISECONDS);
+        return unit.convert(getTimeToDueNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    boolean isPending() {
+        return state == STATE_PENDING;
+    }
+
+    /**
+     * Transition this action from pending to cancelled.
+     *
+     * @return <code>true</code> if the action was pending, <code>false</code> if it was already cancelled or run.
+     */
+    boolean setCancelled() {
+        return STATE_UPDATER.compareAndSet(this, STATE_PENDING, STATE_CANCELLED);
+    }
+
+    /**
+     * Transition this action from pending to run. Only the thread which successfully performed this transition may
+     * invoke {@link #run()}.
+     *
+     * @return <code>true</code> if the action was pending, <code>false</code> if it was already cancelled or run.
+     */
+    boolean setRun() {
+        return STATE_UPDATER.compareAndSet(this, STATE_PENDING, STATE_RUN);
     }
 
     void run() {
@@ -0,0 +1,347 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hierarchical timing wheel holding the {@link ScheduledAction}s of a single reactor shard.
+ * <p>
+ * Time is divided into ticks of one millisecond. The wheel consists of multiple levels of 64 slots each, where a slot
+ * of level <i>n</i> spans 64<sup><i>n</i></sup> ticks. An action is placed in the level of the most significant
+ * 6-bit digit in which its release tick differs from the current tick, and every slot is a doubly linked list
+ * threaded through the actions. Hence scheduling and cancelling an action is O(1), independently of the number of
+ * pending actions. Once the current tick reaches a slot of a higher level, its actions are cascaded down into the lower
+ * levels. Empty slots are skipped using a bitmap of occupied slots per level, so that advancing the wheel after a long
+ * idle period does not need to visit every elapsed tick. Besides the actions themselves, the wheel occupies a fixed
+ * amount of memory.
+ * </p>
+ * <p>
+ * The wheel is owned by a single thread, which is the only one allowed to invoke {@link #advance(long)},
+ * {@link #pollDue()}, {@link #getMillisUntilNextEvent(long)} and {@link #isEmpty()}. Other threads may
+ * {@link #schedule(ScheduledAction)} and {@link #cancel(ScheduledAction)} actions; those requests are queued and
+ * applied by the owner once it advances the wheel.
+ * </p>
+ */
+final class ScheduledActionTimerWheel {
+
+    static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final int WHEEL_BITS = 6;
+
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /**
+     * The number of levels, so that every non-negative tick can be represented.
+     */
+    private static final int LEVELS = (Long.SIZE + WHEEL_BITS - 1) / WHEEL_BITS;
+
+    /**
+     * The index of the bucket holding the actions which are due but were not yet polled.
+     */
+    private static final int DUE_BUCKET = LEVELS * WHEEL_SIZE;
+
+    /**
+     * The number of cancellations queued by other threads after which the owner is woken up, so that the cancelled
+     * actions are unlinked and can be garbage collected even if the owner would otherwise sleep for a long time.
+     */
+    private static final int PENDING_CANCELLATIONS_WAKEUP_THRESHOLD = 1024;
+
+    private final Thread owner;
+
+    private final Runnable wakeup;
+
+    private final long startNanos;
+
+    private final ScheduledAction[] bucketHeads = new ScheduledAction[DUE_BUCKET + 1];
+
+    private final ScheduledAction[] bucketTails = new ScheduledAction[DUE_BUCKET + 1];
+
+    private final long[] occupiedSlots = new long[LEVELS];
+
+    private final Queue<ScheduledAction> pendingAdditions = new ConcurrentLinkedQueue<>();
+
+    private final Queue<ScheduledAction> pendingCancellations = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pendingCancellationsCount = new AtomicInteger();
+
+    private long currentTick;
+
+    private int size;
+
+    /**
+     * Create a new timer wheel.
+     *
+     * @param owner the thread owning the wheel.
+     * @param wakeup invoked by other threads after they queued a request for the owner.
+     */
+    ScheduledActionTimerWheel(Thread owner, Runnable wakeup) {
+        this(owner, wakeup, System.nanoTime());
+    }
+
+    ScheduledActionTimerWheel(Thread owner, Runnable wakeup, long startNanos) {
+        this.owner = owner;
+        this.wakeup = wakeup;
+        this.startNanos = startNanos;
+    }
+
+    void schedule(ScheduledAction action) {
+        if (Thread.currentThread() == owner) {
+            insert(action);
+            return;
+        }
+
+        pendingAdditions.add(action);
+        wakeup.run();
+    }
+
+    /**
+     * Cancel the given action.
+     *
+     * @param action the action to cancel.
+     * @return <code>true</code> if the action was still pending and will not be run, <code>false</code> otherwise.
+     */
+    boolean cancel(ScheduledAction action) {
+        if (!action.setCancelled()) {
+            return false;
+        }
+
+        if (Thread.currentThread() == owner) {
+            unlink(action);
+        } else {
+            pendingCancellations.add(action);
+            if (pendingCancellationsCount.incrementAndGet() == PENDING_CANCELLATIONS_WAKEUP_THRESHOLD) {
+                wakeup.run();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Advance the wheel to the given time. Afterwards, all actions released up to this time can be retrieved via
+     * {@link #pollDue()}.
+     *
+     * @param nowNanos the current time as returned by {@link System#nanoTime()}.
+     */
+    void advance(long nowNanos) {
+        processPendingRequests();
+
+        long nowTick = toTickRoundingDown(nowNanos);
+        for (int level; (level = getLowestOccupiedLevel()) >= 0;) {
+            long eventTick = getNextEventTick(level);
+            if (eventTick > nowTick) {
+                break;
+            }
+
+            currentTick = eventTick;
+            cascade(level, (int) (eventTick >>> (level * WHEEL_BITS)) & WHEEL_MASK);
+        }
+
+        if (nowTick > currentTick) {
+            currentTick = nowTick;
+        }
+    }
+
+    /**
+     * Retrieve the next due action. The returned action is marked as run, i.e. it can no longer be cancelled.
+     *
+     * @return the next due action, or <code>null</code> if there is none.
+     */
+    ScheduledAction pollDue() {
+        for (ScheduledAction action; (action = bucketHeads[DUE_BUCKET]) != null;) {
+            unlink(action);
+            if (action.setRun()) {
+                return action;
+            }
+            // The action got concurrently cancelled by another thread.
+        }
+        return null;
+    }
+
+    /**
+     * Get the time until the wheel needs to be advanced next.
+     *
+     * @param nowNanos the current time as returned by {@link System#nanoTime()}.
+     * @return the milliseconds until the next event, <code>0</code> if the wheel needs to be advanced right away, or
+     *         <code>-1</code> if there are no pending actions.
+     */
+    long getMillisUntilNextEvent(long nowNanos) {
+        processPendingRequests();
+
+        if (bucketHeads[DUE_BUCKET] != null) {
+            return 0;
+        }
+
+        int level = getLowestOccupiedLevel();
+        if (level < 0) {
+            return -1;
+        }
+
+        long nanosUntilNextEvent = startNanos + getNextEventTick(level) * TICK_NANOS - nowNanos;
+        if (nanosUntilNextEvent <= 0) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(nanosUntilNextEvent + TICK_NANOS - 1);
+    }
+
+    boolean isEmpty() {
+        return size == 0 && pendingAdditions.isEmpty();
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void processPendingRequests() {
+        for (ScheduledAction action; (action = pendingAdditions.poll()) != null;) {
+            // Skip actions which got cancelled before we could insert them.
+            if (action.isPending()) {
+                insert(action);
+            }
+        }
+
+        for (ScheduledAction action; (action = pendingCancellations.poll()) != null;) {
+            pendingCancellationsCount.decrementAndGet();
+            unlink(action);
+        }
+    }
+
+    private void insert(ScheduledAction action) {
+        long releaseTick = toTickRoundingUp(action.releaseTimeNanos);
+        if (releaseTick <= currentTick) {
+            link(action, DUE_BUCKET);
+            return;
+        }
+
+        int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(releaseTick ^ currentTick)) / WHEEL_BITS;
+        int slot = (int) (releaseTick >>> (level * WHEEL_BITS)) & WHEEL_MASK;
+        occupiedSlots[level] |= 1L << slot;
+        link(action, level * WHEEL_SIZE + slot);
+    }
+
+    private void cascade(int level, int slot) {
+        int bucket = level * WHEEL_SIZE + slot;
+        ScheduledAction action = bucketHeads[bucket];
+        bucketHeads[bucket] = null;
+        bucketTails[bucket] = null;
+        occupiedSlots[level] &= ~(1L << slot);
+
+        while (action != null) {
+            ScheduledAction next = action.timerWheelNext;
+            action.timerWheelNext = null;
+            action.timerWheelPrevious = null;
+            action.timerWheelBucket = -1;
+            size--;
+
+            insert(action);
+            action = next;
+        }
+    }
+
+    private int getLowestOccupiedLevel() {
+        for (int level = 0; level < LEVELS; level++) {
+            if (occupiedSlots[level] != 0) {
+                return level;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the tick of the next event of the given level. The actions of a lower level are always released before the
+     * first occupied slot of a higher level is reached, hence the next event of the lowest occupied level is the next
+     * event of the whole wheel.
+     *
+     * @param level the level.
+     * @return the tick at which the first occupied slot of the level is reached.
+     */
+    private long getNextEventTick(int level) {
+        int shift = level * WHEEL_BITS;
+        int slot = Long.numberOfTrailingZeros(occupiedSlots[level]);
+        int levelSpanBits = shift + WHEEL_BITS;
+        long levelSpanMask = levelSpanBits >= Long.SIZE ? -1L : (1L << levelSpanBits) - 1;
+        return (currentTick & ~levelSpanMask) | ((long) slot << shift);
+    }
+
+    private long toTickRoundingUp(long nanos) {
+        long elapsedNanos = nanos - startNanos;
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        long tick = elapsedNanos / TICK_NANOS;
+        if (elapsedNanos % TICK_NANOS != 0) {
+            tick++;
+        }
+        return tick;
+    }
+
+    private long toTickRoundingDown(long nanos) {
+        long elapsedNanos = nanos - startNanos;
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return elapsedNanos / TICK_NANOS;
+    }
+
+    private void link(ScheduledAction action, int bucket) {
+        ScheduledAction tail = bucketTails[bucket];
+        action.timerWheelPrevious = tail;
+        action.timerWheelNext = null;
+        action.timerWheelBucket = bucket;
+        if (tail == null) {
+            bucketHeads[bucket] = action;
+        } else {
+            tail.timerWheelNext = action;
+        }
+        bucketTails[bucket] = action;
+        size++;
+    }
+
+    private void unlink(ScheduledAction action) {
+        int bucket = action.timerWheelBucket;
+        if (bucket < 0) {
+            // The action is not (yet) linked, e.g. because it is still in the queue of pending additions.
+            return;
+        }
+
+        ScheduledAction previous = action.timerWheelPrevious;
+        ScheduledAction next = action.timerWheelNext;
+        if (previous == null) {
+            bucketHeads[bucket] = next;
+        } else {
+            previous.timerWheelNext = next;
+        }
+        if (next == null) {
+            bucketTails[bucket] = previous;
+        } else {
+            next.timerWheelPrevious = previous;
+        }
+        if (bucketHeads[bucket] == null && bucket != DUE_BUCKET) {
+            occupiedSlots[bucket / WHEEL_SIZE] &= ~(1L << (bucket & WHEEL_MASK));
+        }
+
+        action.timerWheelPrevious = null;
+        action.timerWheelNext = null;
+        action.timerWheelBucket = -1;
+        size--;
+    }
+}
@@ -34,9 +34,12 @@ import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionModuleDescr
 import org.jivesoftware.smack.compression.XMPPInputOutputStream;
 import org.jivesoftware.smack.debugger.ReflectionDebuggerFactory;
 import org.jivesoftware.smack.debugger.SmackDebuggerFactory;
+import org.jivesoftware.smack.metrics.MetricsRegistry;
+import org.jivesoftware.smack.metrics.NoOpMetricsRegistry;
 import org.jivesoftware.smack.parsing.ExceptionLoggingCallback;
 import org.jivesoftware.smack.parsing.ParsingExceptionCallback;
 import org.jivesoftware.smack.util.Objects;
+import org.jivesoftware.smack.util.VirtualThreads;
 
 import org.jxmpp.JxmppContext;
 
@@ -368,6 +371,96 @@ public final class SmackConfiguration {
         SmackConfiguration.unknownIqRequestReplyMode = Objects.requireNonNull(unknownIqRequestReplyMode, "Must set mode");
     }
 
+    /**
+     * How extension elements are parsed if there is no provider registered for them.
+     */
+    public enum UnknownExtensionElementParsingMode {
+        /**
+         * Parse the element into a {@link org.jivesoftware.smack.packet.StandardExtensionElement}.
+         */
+        standardExtensionElement,
+
+        /**
+         * Only keep the raw XML of the element as {@link org.jivesoftware.smack.packet.LazyExtensionElement}, which
+         * is parsed on first access.
+         */
+        lazy,
+    }
+
+    private static UnknownExtensionElementParsingMode unknownExtensionElementParsingMode = UnknownExtensionElementParsingMode.standardExtensionElement;
+
+    public static UnknownExtensionElementParsingMode getUnknownExtensionElementParsingMode() {
+        return unknownExtensionElementParsingMode;
+    }
+
+    /**
+     * Set how extension elements are parsed if there is no provider registered for them. The default is
+     * {@link UnknownExtensionElementParsingMode#standardExtensionElement}. Note that code which expects unknown
+     * extension elements to be {@link org.jivesoftware.smack.packet.StandardExtensionElement}s needs to be adjusted
+     * when switching to {@link UnknownExtensionElementParsingMode#lazy}.
+     *
+     * @param unknownExtensionElementParsingMode the parsing mode for unknown extension elements.
+     */
+    public static void setUnknownExtensionElementParsingMode(UnknownExtensionElementParsingMode unknownExtensionElementParsingMode) {
+        SmackConfiguration.unknownExtensionElementParsingMode = Objects.requireNonNull(unknownExtensionElementParsingMode, "Must set mode");
+    }
+
+    /**
+     * The kind of threads Smack uses to run asynchronous tasks, like listener callbacks and IQ request handlers, and
+     * the reader and writer of {@code XMPPTCPConnection}.
+     */
+    public enum ThreadMode {
+        /**
+         * Use platform threads. Asynchronous tasks run on a shared cached thread pool.
+         */
+        platformThreads,
+
+        /**
+         * Use virtual threads, which requires Java 21 or higher. Every asynchronous task gets its own virtual thread,
+         * which makes blocking, e.g. while waiting for an IQ response, cheap. The per-connection concurrency limit,
+         * see {@link AbstractXMPPConnection#setMaxAsyncOperations(int)}, still applies.
+         */
+        virtualThreads,
+    }
+
+    private static volatile ThreadMode threadMode = ThreadMode.platformThreads;
+
+    public static ThreadMode getThreadMode() {
+        return threadMode;
+    }
+
+    /**
+     * Set the kind of threads used by Smack. The default is {@link ThreadMode#platformThreads}. The mode only
+     * affects threads started after the change.
+     *
+     * @param threadMode the thread mode.
+     * @throws UnsupportedOperationException if virtual threads are requested, but not supported by the runtime.
+     */
+    public static void setThreadMode(ThreadMode threadMode) {
+        Objects.requireNonNull(threadMode, "Must set mode");
+        if (threadMode == ThreadMode.virtualThreads && !VirtualThreads.isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this runtime");
+        }
+        SmackConfiguration.threadMode = threadMode;
+    }
+
+    private static MetricsRegistry metricsRegistry = NoOpMetricsRegistry.INSTANCE;
+
+    public static MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    /**
+     * Set the registry Smack reports its metrics to. The default registry discards all metrics. The registry is
+     * looked up when a connection is constructed, hence it should be set before any connection is created.
+     *
+     * @param metricsRegistry the metrics registry.
+     * @see org.jivesoftware.smack.metrics.InMemoryMetricsRegistry
+     */
+    public static void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        SmackConfiguration.metricsRegistry = Objects.requireNonNull(metricsRegistry, "Must set metrics registry");
+    }
+
     private static final int defaultConcurrencyLevelLimit;
 
     static {
@@ -1,6 +1,6 @@
 /*
  *
- * Copyright 2018-2024 Florian Schmaus
+ * Copyright 2018-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,18 +23,14 @@ import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Date;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.DelayQueue;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
@@ -48,6 +44,12 @@ import java.util.logging.Logger;
  * <li>Multiple reactor threads</li>
  * <li>Scheduled actions</li>
  * </ul>
+ * <p>
+ * The reactor is sharded: Every reactor thread exclusively owns a {@link Selector} and a
+ * {@link ScheduledActionTimerWheel} holding its scheduled actions. Channels are pinned to a shard by the hash of an
+ * affinity key, typically the connection, and all callbacks of a channel are invoked by the thread of its shard. As
+ * the shards do not share any state, the capacity of the reactor scales with the number of reactor threads.
+ * </p>
  *
  * <pre>
  *
@@ -73,6 +75,14 @@ public class SmackReactor {
 
     private static final int PENDING_SET_INTEREST_OPS_MAX_BATCH_SIZE = 1024;
 
+    private static final long DRAINING_SELECT_WAIT_MILLIS = 1000;
+
+    /**
+     * The maximum delay of a scheduled action, which avoids overflows when computing its release time. Roughly 73
+     * years ought to be enough for everyone.
+     */
+    private static final long MAX_SCHEDULED_ACTION_DELAY_NANOS = Long.MAX_VALUE / 4;
+
     private static SmackReactor INSTANCE;
 
     static synchronized SmackReactor getInstance() {
@@ -82,56 +92,63 @@ public class SmackReactor {
         return INSTANCE;
     }
 
-    private final Selector selector;
     private final String reactorName;
 
-    private final List<Reactor> reactorThreads = Collections.synchronizedList(new ArrayList<>());
-
-    private final DelayQueue<ScheduledAction> scheduledActions = new DelayQueue<>();
-
-    private final Lock registrationLock = new ReentrantLock();
-
     /**
-     * The semaphore protecting the handling of the actions. Note that it is
-     * initialized with -1, which basically means that one thread will always do I/O using
-     * select().
+     * The shards new channels and scheduled actions are assigned to. Shards which got removed from this array, because
+     * the reactor thread count was decreased, continue to serve their channels until those are closed. Modifications
+     * are guarded by the monitor of {@link #shardsLock}.
      */
-    private final Semaphore actionsSemaphore = new Semaphore(-1, false);
+    private volatile Shard[] activeShards = new Shard[0];
 
-    private final Queue<SelectionKey> pendingSelectionKeys = new ConcurrentLinkedQueue<>();
+    private final Object shardsLock = new Object();
 
-    private final Queue<SetInterestOps> pendingSetInterestOps = new ConcurrentLinkedQueue<>();
+    private int shardCounter;
+
+    private final AtomicInteger nextScheduledActionShard = new AtomicInteger();
 
     SmackReactor(String reactorName) {
         this.reactorName = reactorName;
 
-        try {
-            selector = Selector.open();
-        }
-        catch (IOException e) {
-            throw new IllegalStateException(e);
-        }
-
         setReactorThreadCount(DEFAULT_REACTOR_THREAD_COUNT);
     }
 
     public SelectionKey registerWithSelector(SelectableChannel channel, int ops, ChannelSelectedCallback callback)
             throws ClosedChannelException {
-        SelectionKeyAttachment selectionKeyAttachment = new SelectionKeyAttachment(callback);
+        return registerWithSelector(channel, ops, callback, channel);
+    }
 
-        registrationLock.lock();
-        try {
-            selector.wakeup();
-            return channel.register(selector, ops, selectionKeyAttachment);
-        } finally {
-            registrationLock.unlock();
+    /**
+     * Register the given channel with the selector of a reactor shard. All channels registered with the same affinity
+     * key are assigned to the same shard, as long as the reactor thread count does not change.
+     *
+     * @param channel the channel to register.
+     * @param ops the interest set.
+     * @param callback the callback invoked by the reactor once the channel got selected.
+     * @param affinityKey the object whose hash determines the shard, e.g. the connection the channel belongs to.
+     * @return the selection key of the channel.
+     * @throws ClosedChannelException if the channel is closed.
+     */
+    public SelectionKey registerWithSelector(SelectableChannel channel, int ops, ChannelSelectedCallback callback,
+                    Object affinityKey) throws ClosedChannelException {
+        int hash = affinityKey.hashCode();
+        // Spread the higher bits, as the lower bits of some hash codes, e.g. identity hash codes, are not well
+        // distributed.
+        hash ^= hash >>> 16;
+        while (true) {
+            Shard[] activeShards = this.activeShards;
+            Shard shard = activeShards[(hash & Integer.MAX_VALUE) % activeShards.length];
+            SelectionKey selectionKey = shard.register(channel, ops, callback);
+            if (selectionKey != null) {
+                return selectionKey;
+            }
+            // We lost a race against the termination of the shard, retry with the current active shards.
         }
     }
 
     public void setInterestOps(SelectionKey selectionKey, int interestOps) {
-        SetInterestOps setInterestOps = new SetInterestOps(selectionKey, interestOps);
-        pendingSetInterestOps.add(setInterestOps);
-        selector.wakeup();
+        SelectionKeyAttachment selectionKeyAttachment = (SelectionKeyAttachment) selectionKey.attachment();
+        selectionKeyAttachment.shard.setInterestOps(selectionKey, interestOps);
     }
 
     private static final class SetInterestOps {
@@ -144,211 +161,282 @@ public class SmackReactor {
         }
     }
 
-    @SuppressWarnings("JavaUtilDate")
     ScheduledAction schedule(Runnable runnable, long delay, TimeUnit unit, ScheduledAction.Kind scheduledActionKind) {
-        long releaseTimeEpoch = System.currentTimeMillis() + unit.toMillis(delay);
-        Date releaseTimeDate = new Date(releaseTimeEpoch);
-        ScheduledAction scheduledAction = new ScheduledAction(runnable, releaseTimeDate, this, scheduledActionKind);
-        scheduledActions.add(scheduledAction);
-        selector.wakeup();
-        return scheduledAction;
+        long delayNanos = Math.min(unit.toNanos(delay), MAX_SCHEDULED_ACTION_DELAY_NANOS);
+        long releaseTimeNanos = System.nanoTime() + delayNanos;
+        while (true) {
+            Shard shard = getShardForScheduledAction();
+            ScheduledAction scheduledAction = new ScheduledAction(runnable, releaseTimeNanos, shard,
+                            scheduledActionKind);
+            if (shard.schedule(scheduledAction)) {
+                return scheduledAction;
+            }
+            // We lost a race against the termination of the shard, retry with the current active shards.
+        }
     }
 
-    /**
-     * Cancels the scheduled action.
-     *
-     * @param scheduledAction the scheduled action to cancel.
-     * @return <code>true</code> if the scheduled action was still pending and got removed, <code>false</code> otherwise.
-     */
-    boolean cancel(ScheduledAction scheduledAction) {
-        return scheduledActions.remove(scheduledAction);
+    private Shard getShardForScheduledAction() {
+        // Prefer the shard of the current thread, if it is one of our active shards. This is the case if an action is
+        // scheduled from within a channel selected callback or another scheduled action, and it does not require to
+        // wake up another shard.
+        Thread currentThread = Thread.currentThread();
+        if (currentThread instanceof Shard) {
+            Shard currentShard = (Shard) currentThread;
+            if (currentShard.getReactor() == this && !currentShard.draining) {
+                return currentShard;
+            }
+        }
+
+        Shard[] activeShards = this.activeShards;
+        int index = (nextScheduledActionShard.getAndIncrement() & Integer.MAX_VALUE) % activeShards.length;
+        return activeShards[index];
     }
 
-    private final class Reactor extends Thread {
+    final class Shard extends Thread {
 
-        private volatile long shutdownRequestTimestamp = -1;
+        private final Selector selector;
 
-        @Override
-        public void run() {
-            try {
-                reactorLoop();
-            } finally {
-                if (shutdownRequestTimestamp > 0) {
-                    long shutDownDelay = System.currentTimeMillis() - shutdownRequestTimestamp;
-                    LOGGER.info(this + " shut down after " + shutDownDelay + "ms");
-                } else {
-                    boolean contained = reactorThreads.remove(this);
-                    assert contained;
-                }
-            }
-        }
+        private final ScheduledActionTimerWheel scheduledActions = new ScheduledActionTimerWheel(this, this::wakeup);
 
-        private void reactorLoop() {
-            // Loop until reactor shutdown was requested.
-            while (shutdownRequestTimestamp < 0) {
-                handleScheduledActionsOrPerformSelect();
+        private final Queue<SetInterestOps> pendingSetInterestOps = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Guards the registration of channels and the termination of this shard.
+         */
+        private final Lock registrationLock = new ReentrantLock();
+
+        /**
+         * Set if {@link Selector#wakeup()} was invoked after this shard's thread returned from the last select. This
+         * allows us to save redundant wakeup() calls, which are costly.
+         */
+        private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
+        private volatile boolean draining;
 
-                handlePendingSelectionKeys();
+        private boolean terminated;
+
+        private Shard(int shardNumber) {
+            try {
+                selector = Selector.open();
             }
+            catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+
+            setDaemon(true);
+            setName("Smack " + reactorName + " Thread #" + shardNumber);
         }
 
-        @SuppressWarnings("LockNotBeforeTry")
-        private void handleScheduledActionsOrPerformSelect() {
-            ScheduledAction dueScheduledAction = null;
+        private SmackReactor getReactor() {
+            return SmackReactor.this;
+        }
 
-            boolean permitToHandleScheduledActions = actionsSemaphore.tryAcquire();
-            if (permitToHandleScheduledActions) {
+        @Override
+        public void run() {
+            try {
+                reactorLoop();
+            } finally {
                 try {
-                    dueScheduledAction = scheduledActions.poll();
-                } finally {
-                    actionsSemaphore.release();
+                    selector.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, "Closing the selector of " + this + " failed", e);
                 }
+                LOGGER.info(this + " shut down");
             }
+        }
 
-            if (dueScheduledAction != null) {
-                dueScheduledAction.run();
-                return;
-            }
+        @SuppressWarnings("LockNotBeforeTry")
+        private void reactorLoop() {
+            while (true) {
+                runDueScheduledActions();
 
-            int newSelectedKeysCount = 0;
-            List<SelectionKey> selectedKeys;
-            synchronized (selector) {
-                ScheduledAction nextScheduledAction = scheduledActions.peek();
+                boolean morePendingSetInterestOps = handlePendingSetInterestOps();
 
-                long selectWait;
-                if (nextScheduledAction == null) {
+                long selectWait = scheduledActions.getMillisUntilNextEvent(System.nanoTime());
+                if (selectWait < 0) {
+                    if (draining && maybeTerminate()) {
+                        return;
+                    }
                     // There is no next scheduled action, wait indefinitely in select() or until another thread invokes
                     // selector.wakeup().
                     selectWait = 0;
-                } else {
-                    selectWait = nextScheduledAction.getTimeToDueMillis();
-                    if (selectWait <= 0) {
-                        // A scheduled action was just released and became ready to execute.
-                        return;
-                    }
+                } else if (selectWait == 0) {
+                    // A scheduled action was just released and became ready to execute.
+                    continue;
                 }
-
-                // Before we call select, we handle the pending the interest Ops. This will not block since no other
-                // thread is currently in select() at this time.
-                // Note: This was put deliberately before the registration lock. It may cause more synchronization but
-                // allows for more parallelism.
-                // Hopefully that assumption is right.
-                int myHandledPendingSetInterestOps = 0;
-                for (SetInterestOps setInterestOps; (setInterestOps = pendingSetInterestOps.poll()) != null;) {
-                    setInterestOpsCancelledKeySafe(setInterestOps.selectionKey, setInterestOps.interestOps);
-
-                    if (myHandledPendingSetInterestOps++ >= PENDING_SET_INTEREST_OPS_MAX_BATCH_SIZE) {
-                        // This thread has handled enough "set pending interest ops" requests. Wakeup another one to
-                        // handle the remaining (if any).
-                        selector.wakeup();
-                        break;
-                    }
+                if (draining) {
+                    // Periodically re-evaluate if the shard can terminate, as the keys of closed channels are only
+                    // removed from the selector's key set by select().
+                    selectWait = selectWait == 0 ? DRAINING_SELECT_WAIT_MILLIS
+                                    : Math.min(selectWait, DRAINING_SELECT_WAIT_MILLIS);
                 }
 
-                // Ensure that a wakeup() in registerWithSelector() gives the corresponding
-                // register() in the same method the chance to actually register the channel. In
-                // other words: This construct ensures that there is never another select()
-                // between a corresponding wakeup() and register() calls.
+                // Ensure that a wakeup() in register() gives the corresponding register() in the same method the
+                // chance to actually register the channel. In other words: This construct ensures that there is never
+                // another select() between a corresponding wakeup() and register() calls.
                 // See also https://stackoverflow.com/a/1112809/194894
                 registrationLock.lock();
                 registrationLock.unlock();
 
+                int newSelectedKeysCount;
                 try {
-                    newSelectedKeysCount = selector.select(selectWait);
+                    if (morePendingSetInterestOps) {
+                        newSelectedKeysCount = selector.selectNow();
+                    } else {
+                        newSelectedKeysCount = selector.select(selectWait);
+                    }
                 } catch (IOException e) {
                     LOGGER.log(Level.SEVERE, "IOException while using select()", e);
-                    return;
+                    continue;
+                } finally {
+                    // Note that this has to happen before we handle the pending set interest ops (and the other
+                    // queues) again, otherwise a wakeup may get lost.
+                    wakeupPending.set(false);
                 }
 
                 if (newSelectedKeysCount == 0) {
-                    return;
+                    continue;
                 }
 
-                // Copy the selected-key set over to selectedKeys, remove the keys from the
-                // selected key set and loose interest of the key OPs for the time being.
-                // Note that we perform this operation in two steps in order to maximize the
-                // timespan setRacing() is set.
                 Set<SelectionKey> selectedKeySet = selector.selectedKeys();
-                for (SelectionKey selectionKey : selectedKeySet) {
+                List<SelectionKey> selectedKeys = new ArrayList<>(selectedKeySet);
+                selectedKeySet.clear();
+
+                // Loose interest of the key OPs for the time being. Note that we perform this operation in two steps
+                // in order to maximize the timespan setRacing() is set.
+                for (SelectionKey selectionKey : selectedKeys) {
                     SelectionKeyAttachment selectionKeyAttachment = (SelectionKeyAttachment) selectionKey.attachment();
                     selectionKeyAttachment.setRacing();
                 }
-                for (SelectionKey selectionKey : selectedKeySet) {
+                for (SelectionKey selectionKey : selectedKeys) {
                     setInterestOpsCancelledKeySafe(selectionKey, 0);
                 }
 
-                selectedKeys = new ArrayList<>(selectedKeySet);
-                selectedKeySet.clear();
+                final Level reactorSelectStatsLogLevel = Level.FINE;
+                if (LOGGER.isLoggable(reactorSelectStatsLogLevel)) {
+                    LOGGER.log(reactorSelectStatsLogLevel, this + ": New selected key count: " + newSelectedKeysCount);
+                }
+
+                handleSelectedKeys(selectedKeys);
             }
+        }
 
-            int selectedKeysCount = selectedKeys.size();
-            int currentReactorThreadCount = reactorThreads.size();
-            int myKeyCount;
-            if (selectedKeysCount > currentReactorThreadCount) {
-                myKeyCount = selectedKeysCount / currentReactorThreadCount;
-            } else {
-                myKeyCount = selectedKeysCount;
+        private void runDueScheduledActions() {
+            scheduledActions.advance(System.nanoTime());
+            for (ScheduledAction dueScheduledAction; (dueScheduledAction = scheduledActions.pollDue()) != null;) {
+                try {
+                    dueScheduledAction.run();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.SEVERE, "Scheduled action " + dueScheduledAction + " threw", e);
+                }
             }
+        }
 
-            final Level reactorSelectStatsLogLevel = Level.FINE;
-            if (LOGGER.isLoggable(reactorSelectStatsLogLevel)) {
-                LOGGER.log(reactorSelectStatsLogLevel,
-                                "New selected key count: " + newSelectedKeysCount
-                                + ". Total selected key count " + selectedKeysCount
-                                + ". My key count: " + myKeyCount
-                                + ". Current reactor thread count: " + currentReactorThreadCount);
+        /**
+         * Handle the pending set interest ops requests.
+         *
+         * @return <code>true</code> if there are more pending requests.
+         */
+        private boolean handlePendingSetInterestOps() {
+            int handledPendingSetInterestOps = 0;
+            for (SetInterestOps setInterestOps; (setInterestOps = pendingSetInterestOps.poll()) != null;) {
+                setInterestOpsCancelledKeySafe(setInterestOps.selectionKey, setInterestOps.interestOps);
+
+                if (++handledPendingSetInterestOps >= PENDING_SET_INTEREST_OPS_MAX_BATCH_SIZE) {
+                    // Do not starve the channels which are already selectable.
+                    return !pendingSetInterestOps.isEmpty();
+                }
             }
+            return false;
+        }
 
-            Collection<SelectionKey> mySelectedKeys = new ArrayList<>(myKeyCount);
-            Iterator<SelectionKey> it = selectedKeys.iterator();
-            for (int i = 0; i < myKeyCount; i++) {
-                SelectionKey selectionKey = it.next();
-                mySelectedKeys.add(selectionKey);
+        private boolean maybeTerminate() {
+            registrationLock.lock();
+            try {
+                // Note that the keys of closed channels are only removed from the key set on the next select().
+                if (!selector.keys().isEmpty() || !scheduledActions.isEmpty()) {
+                    return false;
+                }
+                terminated = true;
+                return true;
+            } finally {
+                registrationLock.unlock();
             }
-            while (it.hasNext()) {
-                // Drain to pendingSelectionKeys.
-                SelectionKey selectionKey = it.next();
-                pendingSelectionKeys.add(selectionKey);
+        }
+
+        private SelectionKey register(SelectableChannel channel, int ops, ChannelSelectedCallback callback)
+                        throws ClosedChannelException {
+            SelectionKeyAttachment selectionKeyAttachment = new SelectionKeyAttachment(callback, this);
+
+            registrationLock.lock();
+            try {
+                if (terminated) {
+                    return null;
+                }
+                wakeup();
+                return channel.register(selector, ops, selectionKeyAttachment);
+            } finally {
+                registrationLock.unlock();
             }
+        }
 
-            if (selectedKeysCount - myKeyCount > 0) {
-                // There where pending selection keys: Wakeup another reactor thread to handle them.
-                selector.wakeup();
+        private boolean schedule(ScheduledAction scheduledAction) {
+            scheduledActions.schedule(scheduledAction);
+            if (draining) {
+                // The shard may have terminated before it could see the scheduled action.
+                registrationLock.lock();
+                try {
+                    if (terminated) {
+                        scheduledAction.setCancelled();
+                        return false;
+                    }
+                } finally {
+                    registrationLock.unlock();
+                }
             }
+            return true;
+        }
 
-            handleSelectedKeys(mySelectedKeys);
+        /**
+         * Cancels the scheduled action.
+         *
+         * @param scheduledAction the scheduled action to cancel.
+         * @return <code>true</code> if the scheduled action was still pending and got removed, <code>false</code>
+         *         otherwise.
+         */
+        boolean cancel(ScheduledAction scheduledAction) {
+            return scheduledActions.cancel(scheduledAction);
         }
 
-        private void handlePendingSelectionKeys() {
-            final int pendingSelectionKeysSize = pendingSelectionKeys.size();
-            if (pendingSelectionKeysSize == 0) {
+        private void setInterestOps(SelectionKey selectionKey, int interestOps) {
+            if (Thread.currentThread() == this) {
+                // No need to queue the request, as the shard's thread is not in select().
+                setInterestOpsCancelledKeySafe(selectionKey, interestOps);
                 return;
             }
 
-            int currentReactorThreadCount = reactorThreads.size();
-            int myKeyCount = pendingSelectionKeysSize / currentReactorThreadCount;
-            // The division could result in myKeyCount being zero, even though there are pending selection keys.
-            // Therefore, ensure that this thread tries to get at least one pending selection key by invoking poll().
-            // Otherwise, it could happen that we end up in a busy loop, where myKeyCount is zero and this thread invokes
-            // selector.wakeup() below because pendingSelectionsKeys is not empty, but the woken up reactor thread wil
-            // end up with myKeyCount being zero again, restarting the busy-loop cycle.
-            if (myKeyCount == 0) myKeyCount = 1;
-            Collection<SelectionKey> selectedKeys = new ArrayList<>(myKeyCount);
-            for (int i = 0; i < myKeyCount; i++) {
-                SelectionKey selectionKey = pendingSelectionKeys.poll();
-                if (selectionKey == null) {
-                    // We lost a race and can abort here since the pendingSelectionKeys queue is empty.
-                    break;
-                }
-                selectedKeys.add(selectionKey);
-            }
+            SetInterestOps setInterestOps = new SetInterestOps(selectionKey, interestOps);
+            pendingSetInterestOps.add(setInterestOps);
+            wakeup();
+        }
 
-            if (!pendingSelectionKeys.isEmpty()) {
-                // There are more pending selection keys, wakeup a thread blocked in select() to handle them.
+        private void wakeup() {
+            // If we are the shard's thread, then we are not in select(), and the reactor loop will take care of the
+            // request once we return to it.
+            if (Thread.currentThread() == this) {
+                return;
+            }
+            if (wakeupPending.compareAndSet(false, true)) {
                 selector.wakeup();
             }
+        }
 
-            handleSelectedKeys(selectedKeys);
+        private void drain() {
+            draining = true;
+            // Note that we must not skip the wakeup here, even if the shard would be the current thread, as we need the
+            // reactor loop to re-evaluate the termination condition.
+            wakeupPending.set(true);
+            selector.wakeup();
         }
 
         private void setInterestOpsCancelledKeySafe(SelectionKey selectionKey, int interestOps) {
@@ -362,18 +450,19 @@ public class SmackReactor {
                 }
             }
         }
-
-        void requestShutdown() {
-            shutdownRequestTimestamp = System.currentTimeMillis();
-        }
     }
 
-    private static void handleSelectedKeys(Collection<SelectionKey> selectedKeys) {
+    private static void handleSelectedKeys(List<SelectionKey> selectedKeys) {
         for (SelectionKey selectionKey : selectedKeys) {
             SelectableChannel channel = selectionKey.channel();
             SelectionKeyAttachment selectionKeyAttachment = (SelectionKeyAttachment) selectionKey.attachment();
             ChannelSelectedCallback channelSelectedCallback = selectionKeyAttachment.channelSelectedCallback;
-            channelSelectedCallback.onChannelSelected(channel, selectionKey);
+            try {
+                channelSelectedCallback.onChannelSelected(channel, selectionKey);
+            } catch (RuntimeException e) {
+                // Do not let a single channel take down the whole shard.
+                LOGGER.log(Level.SEVERE, "Channel selected callback " + channelSelectedCallback + " threw", e);
+            }
         }
     }
 
@@ -381,51 +470,55 @@ public class SmackReactor {
         void onChannelSelected(SelectableChannel channel, SelectionKey selectionKey);
     }
 
+    /**
+     * Set the number of reactor threads, i.e., the number of shards. If the number is decreased, then the surplus
+     * shards are no longer assigned new channels or scheduled actions, but continue to serve their already
+     * registered channels until those are closed.
+     *
+     * @param reactorThreadCount the number of reactor threads.
+     */
     public void setReactorThreadCount(int reactorThreadCount) {
-        if (reactorThreadCount < 2) {
-            throw new IllegalArgumentException("Must have at least two reactor threads, but you requested " + reactorThreadCount);
+        if (reactorThreadCount < 1) {
+            throw new IllegalArgumentException(
+                            "Must have at least one reactor thread, but you requested " + reactorThreadCount);
         }
 
-        synchronized (reactorThreads) {
-            int deltaThreads = reactorThreadCount - reactorThreads.size();
-            if (deltaThreads > 0) {
-                // Start new reactor thread. Note that we start the threads before we increase the permits of the
-                // actionsSemaphore.
-                for (int i = 0; i < deltaThreads; i++) {
-                    Reactor reactor = new Reactor();
-                    reactor.setDaemon(true);
-                    reactor.setName("Smack " + reactorName + " Thread #" + i);
-                    reactorThreads.add(reactor);
-                    reactor.start();
-                }
-
-                actionsSemaphore.release(deltaThreads);
-            } else {
-                // Stop existing reactor threads. First we change the sign of deltaThreads, then we decrease the permits
-                // of the actionsSemaphore *before* we signal the selected reactor threads that they should shut down.
-                deltaThreads -= deltaThreads;
+        synchronized (shardsLock) {
+            Shard[] currentShards = activeShards;
+            Shard[] newShards = Arrays.copyOf(currentShards, reactorThreadCount);
+            for (int i = currentShards.length; i < reactorThreadCount; i++) {
+                Shard shard = new Shard(shardCounter++);
+                shard.start();
+                newShards[i] = shard;
+            }
 
-                for (int i = deltaThreads - 1; i > 0; i--) {
-                    // Note that this could potentially block forever, starving on the unfair semaphore.
-                    actionsSemaphore.acquireUninterruptibly();
-                }
+            // Publish the new shards before we drain the surplus ones, so that no new channels or actions get assigned
+            // to them.
+            activeShards = newShards;
 
-                for (int i = deltaThreads - 1; i > 0; i--) {
-                    Reactor reactor = reactorThreads.remove(i);
-                    reactor.requestShutdown();
-                }
-
-                selector.wakeup();
+            for (int i = reactorThreadCount; i < currentShards.length; i++) {
+                currentShards[i].drain();
             }
         }
     }
 
+    /**
+     * Get the number of reactor threads new channels and scheduled actions are distributed over.
+     *
+     * @return the number of reactor threads.
+     */
+    public int getReactorThreadCount() {
+        return activeShards.length;
+    }
+
     public static final class SelectionKeyAttachment {
         private final ChannelSelectedCallback channelSelectedCallback;
+        private final Shard shard;
         private final AtomicBoolean reactorThreadRacing = new AtomicBoolean();
 
-        private SelectionKeyAttachment(ChannelSelectedCallback channelSelectedCallback) {
+        private SelectionKeyAttachment(ChannelSelectedCallback channelSelectedCallback, Shard shard) {
             this.channelSelectedCallback = channelSelectedCallback;
+            this.shard = shard;
         }
 
         private void setRacing() {
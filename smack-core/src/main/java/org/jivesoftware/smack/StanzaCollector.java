@@ -20,6 +20,9 @@ package org.jivesoftware.smack;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
@@ -58,9 +61,17 @@ public final class StanzaCollector implements AutoCloseable {
 
     private final Stanza request;
 
+    /**
+     * Guards the result queue. A lock is used instead of the collector's monitor, as virtual threads waiting on a
+     * monitor may pin their carrier thread.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition resultAvailable = lock.newCondition();
+
     private volatile boolean cancelled;
 
-    private Exception connectionException;
+    private volatile Exception connectionException;
 
     /**
      * Creates a new stanza collector. If the stanza filter is <code>null</code>, then
@@ -83,15 +94,20 @@ public final class StanzaCollector implements AutoCloseable {
      * queued up. Once a stanza collector has been cancelled, it cannot be
      * re-enabled. Instead, a new stanza collector must be created.
      */
-    public synchronized void cancel() {
-        // If the packet collector has already been cancelled, do nothing.
-        if (cancelled) {
-            return;
-        }
+    public void cancel() {
+        lock.lock();
+        try {
+            // If the packet collector has already been cancelled, do nothing.
+            if (cancelled) {
+                return;
+            }
 
-        cancelled = true;
-        connection.removeStanzaCollector(this);
-        notifyAll();
+            cancelled = true;
+            connection.removeStanzaCollector(this);
+            resultAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
 
         if (collectorToReset != null) {
             collectorToReset.cancel();
@@ -118,8 +134,13 @@ public final class StanzaCollector implements AutoCloseable {
      *      results.
      */
     @SuppressWarnings({"unchecked", "TypeParameterUnusedInFormals"})
-    public synchronized <P extends Stanza> P pollResult() {
-        return (P) resultQueue.poll();
+    public <P extends Stanza> P pollResult() {
+        lock.lock();
+        try {
+            return (P) resultQueue.poll();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -153,18 +174,23 @@ public final class StanzaCollector implements AutoCloseable {
      */
     @SuppressWarnings({"unchecked", "TypeParameterUnusedInFormals"})
     // TODO: Consider removing this method as it is hardly ever useful.
-    public synchronized <P extends Stanza> P nextResultBlockForever() throws InterruptedException {
+    public <P extends Stanza> P nextResultBlockForever() throws InterruptedException {
         throwIfCancelled();
 
-        while (true) {
-            P res = (P) resultQueue.poll();
-            if (res != null) {
-                return res;
-            }
-            if (cancelled) {
-                return null;
+        lock.lock();
+        try {
+            while (true) {
+                P res = (P) resultQueue.poll();
+                if (res != null) {
+                    return res;
+                }
+                if (cancelled) {
+                    return null;
+                }
+                resultAvailable.await();
             }
-            wait();
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -200,12 +226,15 @@ public final class StanzaCollector implements AutoCloseable {
         long remainingWait = timeout;
         waitStart = System.currentTimeMillis();
         while (remainingWait > 0 && connectionException == null && !cancelled) {
-            synchronized (this) {
+            lock.lock();
+            try {
                 res = (P) resultQueue.poll();
                 if (res != null) {
                     return res;
                 }
-                wait(remainingWait);
+                resultAvailable.await(remainingWait, TimeUnit.MILLISECONDS);
+            } finally {
+                lock.unlock();
             }
             remainingWait = timeout - (System.currentTimeMillis() - waitStart);
         }
@@ -317,8 +346,13 @@ public final class StanzaCollector implements AutoCloseable {
      * @return the count of collected stanzas.
      * @since 4.1
      */
-    public synchronized int getCollectedCount() {
-        return resultQueue.size();
+    public int getCollectedCount() {
+        lock.lock();
+        try {
+            return resultQueue.size();
+        } finally {
+            lock.unlock();
+        }
     }
 
     private String stringCache;
@@ -336,9 +370,14 @@ public final class StanzaCollector implements AutoCloseable {
         return stringCache;
     }
 
-    synchronized void notifyConnectionError(Exception exception) {
-        connectionException = exception;
-        notifyAll();
+    void notifyConnectionError(Exception exception) {
+        lock.lock();
+        try {
+            connectionException = exception;
+            resultAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -349,13 +388,16 @@ public final class StanzaCollector implements AutoCloseable {
      */
     void processStanza(Stanza packet) {
         if (packetFilter == null || packetFilter.accept(packet)) {
-            synchronized (this) {
+            lock.lock();
+            try {
                 if (resultQueue.size() == maxQueueSize) {
                     Stanza rolledOverStanza = resultQueue.poll();
                     assert rolledOverStanza != null;
                 }
                 resultQueue.add(packet);
-                notifyAll();
+                resultAvailable.signalAll();
+            } finally {
+                lock.unlock();
             }
             if (collectorToReset != null) {
                 collectorToReset.waitStart = System.currentTimeMillis();
@@ -634,6 +634,11 @@ public interface XMPPConnection {
 
     /**
      * Send an IQ request asynchronously. The connection's default reply timeout will be used.
+     * <p>
+     * Unlike {@link #sendIqRequestAndWaitForResponse(IQ)}, no thread is blocked while the response is outstanding. The
+     * returned future is completed when the response is processed, or when the reply timeout is reached. Hence it is
+     * feasible to have a large number of IQ requests in flight.
+     * </p>
      *
      * @param request the IQ request to send.
      * @return a SmackFuture for the response.
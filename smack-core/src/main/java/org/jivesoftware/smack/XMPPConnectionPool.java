@@ -0,0 +1,487 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionConfiguration;
+import org.jivesoftware.smack.packet.Stanza;
+
+import org.jxmpp.jid.EntityBareJid;
+import org.jxmpp.jid.Jid;
+import org.jxmpp.jid.impl.JidCreate;
+import org.jxmpp.stringprep.XmppStringprepException;
+
+/**
+ * A pool of connections for applications which act on behalf of many accounts, e.g. server-side bots. Every account
+ * of the pool has at most one connection, which is created, connected and logged in on first use. Connections which
+ * were idle for the configured idle timeout are disconnected, and transparently logged in again once they are used the
+ * next time.
+ * <p>
+ * The number of connections which are concurrently connecting and logging in is bounded by
+ * {@link Builder#setMaxConcurrentLogins(int)}. Use {@link #loginAll(Collection)} to log in many accounts at once, for
+ * example when the application starts.
+ * </p>
+ * <pre>
+ * {@code
+ * XMPPConnectionPool pool = XMPPConnectionPool.builder()
+ *     .setMaxConcurrentLogins(128)
+ *     .setIdleTimeout(10, TimeUnit.MINUTES)
+ *     .build();
+ * pool.addAccount(configuration);
+ * pool.sendStanza(from, message);
+ * }
+ * </pre>
+ * <p>
+ * Like every other connection, the pooled connections are announced to the {@link ConnectionCreationListener}s
+ * registered with the {@link XMPPConnectionRegistry} once they are created.
+ * </p>
+ *
+ * @since 4.5
+ */
+public final class XMPPConnectionPool {
+
+    private static final Logger LOGGER = Logger.getLogger(XMPPConnectionPool.class.getName());
+
+    private final Map<EntityBareJid, PooledConnection> pooledConnections = new ConcurrentHashMap<>();
+
+    private final Semaphore loginSlots;
+
+    private final int maxConcurrentLogins;
+
+    private final long idleTimeoutMillis;
+
+    private final Lock idleSweepLock = new ReentrantLock();
+
+    private ScheduledAction idleSweepAction;
+
+    private volatile boolean closed;
+
+    private XMPPConnectionPool(Builder builder) {
+        maxConcurrentLogins = builder.maxConcurrentLogins;
+        loginSlots = new Semaphore(maxConcurrentLogins);
+        idleTimeoutMillis = builder.idleTimeoutMillis;
+    }
+
+    /**
+     * Add the account of the given configuration to the pool. Its connection will be a
+     * {@link ModularXmppClientToServerConnection}.
+     *
+     * @param configuration the configuration of the account, which must contain a username.
+     * @return the bare JID of the account.
+     * @throws XmppStringprepException if the username of the configuration is not a valid localpart.
+     */
+    public EntityBareJid addAccount(ModularXmppClientToServerConnectionConfiguration configuration)
+                    throws XmppStringprepException {
+        CharSequence username = configuration.getUsername();
+        if (username == null) {
+            throw new IllegalArgumentException("The configuration must contain a username");
+        }
+        EntityBareJid account = JidCreate.entityBareFrom(username + "@" + configuration.getXMPPServiceDomain(),
+                        configuration.getJxmppContext());
+        addAccount(account, () -> new ModularXmppClientToServerConnection(configuration));
+        return account;
+    }
+
+    /**
+     * Add an account to the pool. The connection of the account is created by the given factory once the account is
+     * used for the first time.
+     *
+     * @param account the bare JID of the account.
+     * @param connectionFactory the factory creating the, not yet connected, connection of the account.
+     */
+    public void addAccount(EntityBareJid account, Supplier<? extends AbstractXMPPConnection> connectionFactory) {
+        throwIfClosed();
+        PooledConnection previous = pooledConnections.putIfAbsent(account, new PooledConnection(connectionFactory));
+        if (previous != null) {
+            throw new IllegalArgumentException("The account " + account + " is already part of the pool");
+        }
+    }
+
+    /**
+     * Remove an account from the pool. If the account has a connection, then it will be disconnected.
+     *
+     * @param account the bare JID of the account.
+     * @return <code>true</code> if the account was part of the pool.
+     */
+    public boolean removeAccount(EntityBareJid account) {
+        PooledConnection pooledConnection = pooledConnections.remove(account);
+        if (pooledConnection == null) {
+            return false;
+        }
+        pooledConnection.disconnect();
+        return true;
+    }
+
+    /**
+     * Get the logged in connection of the given account. If the account has no logged in connection, then it is
+     * connected and logged in, which may block until a login slot becomes available.
+     *
+     * @param account the bare JID of the account.
+     * @return the logged in connection of the account.
+     * @throws SmackException if Smack detected an exceptional situation.
+     * @throws IOException if an I/O error occurred.
+     * @throws XMPPException if an XMPP protocol error was received.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    public AbstractXMPPConnection getConnection(EntityBareJid account)
+                    throws SmackException, IOException, XMPPException, InterruptedException {
+        throwIfClosed();
+        PooledConnection pooledConnection = pooledConnections.get(account);
+        if (pooledConnection == null) {
+            throw new IllegalArgumentException("The account " + account + " is not part of the pool");
+        }
+        return pooledConnection.getLoggedInConnection();
+    }
+
+    /**
+     * Send a stanza using the connection of the account of the given sender. The connection will be logged in if
+     * required.
+     *
+     * @param from the sender, whose bare JID must be an account of this pool.
+     * @param stanza the stanza to send.
+     * @throws NotConnectedException if the connection got disconnected while sending the stanza.
+     * @throws SmackException if Smack detected an exceptional situation.
+     * @throws IOException if an I/O error occurred.
+     * @throws XMPPException if an XMPP protocol error was received.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    public void sendStanza(Jid from, Stanza stanza)
+                    throws NotConnectedException, SmackException, IOException, XMPPException, InterruptedException {
+        EntityBareJid account = from.asEntityBareJidIfPossible();
+        if (account == null) {
+            throw new IllegalArgumentException(from + " is not the JID of an account");
+        }
+        getConnection(account).sendStanza(stanza);
+    }
+
+    /**
+     * Connect and log in the connections of the given accounts, with at most the configured number of concurrent
+     * logins. This method blocks until every account was either logged in or failed to log in.
+     *
+     * @param accounts the bare JIDs of the accounts.
+     * @return the exceptions of the accounts which failed to log in, the map is empty if all logins succeeded.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    public Map<EntityBareJid, Exception> loginAll(Collection<? extends EntityBareJid> accounts)
+                    throws InterruptedException {
+        final Queue<EntityBareJid> pendingAccounts = new ConcurrentLinkedQueue<>(accounts);
+        final Map<EntityBareJid, Exception> failures = new ConcurrentHashMap<>();
+
+        // Instead of one thread per account, start only as many workers as there are login slots. Each worker logs
+        // in the pending accounts one after another.
+        final int workerCount = Math.min(maxConcurrentLogins, pendingAccounts.size());
+        final CountDownLatch workersDone = new CountDownLatch(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            AbstractXMPPConnection.asyncGo(() -> {
+                try {
+                    EntityBareJid account;
+                    while ((account = pendingAccounts.poll()) != null) {
+                        try {
+                            getConnection(account);
+                        } catch (InterruptedException e) {
+                            failures.put(account, e);
+                            Thread.currentThread().interrupt();
+                            return;
+                        } catch (SmackException | IOException | XMPPException | IllegalArgumentException e) {
+                            failures.put(account, e);
+                        }
+                    }
+                } finally {
+                    workersDone.countDown();
+                }
+            });
+        }
+
+        workersDone.await();
+        return failures;
+    }
+
+    /**
+     * Get the number of accounts in this pool.
+     *
+     * @return the number of accounts.
+     */
+    public int getAccountCount() {
+        return pooledConnections.size();
+    }
+
+    /**
+     * Get the number of accounts in this pool whose connection is currently logged in.
+     *
+     * @return the number of logged in accounts.
+     */
+    public int getLoggedInCount() {
+        int count = 0;
+        for (PooledConnection pooledConnection : pooledConnections.values()) {
+            if (pooledConnection.isLoggedIn()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Close this pool, disconnecting all of its connections. The pool can not be used afterwards.
+     */
+    public void close() {
+        closed = true;
+        idleSweepLock.lock();
+        try {
+            if (idleSweepAction != null) {
+                idleSweepAction.cancel();
+                idleSweepAction = null;
+            }
+        } finally {
+            idleSweepLock.unlock();
+        }
+
+        for (PooledConnection pooledConnection : pooledConnections.values()) {
+            pooledConnection.disconnect();
+        }
+        pooledConnections.clear();
+    }
+
+    private void throwIfClosed() {
+        if (closed) {
+            throw new IllegalStateException("The connection pool was closed");
+        }
+    }
+
+    private void scheduleIdleSweepIfRequired() {
+        if (idleTimeoutMillis <= 0) {
+            return;
+        }
+
+        idleSweepLock.lock();
+        try {
+            if (idleSweepAction != null || closed) {
+                return;
+            }
+            // Check twice per idle timeout, so that connections are closed at most half the timeout too late.
+            idleSweepAction = AbstractXMPPConnection.schedule(this::sweepIdleConnections,
+                            Math.max(1, idleTimeoutMillis / 2), TimeUnit.MILLISECONDS);
+        } finally {
+            idleSweepLock.unlock();
+        }
+    }
+
+    private void sweepIdleConnections() {
+        final long now = System.currentTimeMillis();
+        for (PooledConnection pooledConnection : pooledConnections.values()) {
+            if (!pooledConnection.isLoggedIn() || now - pooledConnection.getLastActivityMillis() < idleTimeoutMillis) {
+                continue;
+            }
+            // This runs on the reactor, which must not block, while disconnecting may block.
+            AbstractXMPPConnection.asyncGo(pooledConnection::disconnectIfIdle);
+        }
+
+        idleSweepLock.lock();
+        try {
+            idleSweepAction = null;
+        } finally {
+            idleSweepLock.unlock();
+        }
+        // Check only after the action was reset, as a concurrent login does not schedule a sweep while there is one.
+        if (getLoggedInCount() > 0) {
+            scheduleIdleSweepIfRequired();
+        }
+    }
+
+    private final class PooledConnection {
+        private final Supplier<? extends AbstractXMPPConnection> connectionFactory;
+
+        /**
+         * Guards connecting, logging in and disconnecting the connection.
+         */
+        private final Lock lock = new ReentrantLock();
+
+        private volatile AbstractXMPPConnection connection;
+
+        private volatile long lastUsedMillis;
+
+        private PooledConnection(Supplier<? extends AbstractXMPPConnection> connectionFactory) {
+            this.connectionFactory = connectionFactory;
+        }
+
+        private boolean isLoggedIn() {
+            AbstractXMPPConnection connection = this.connection;
+            return connection != null && connection.isAuthenticated();
+        }
+
+        private long getLastActivityMillis() {
+            long lastActivityMillis = lastUsedMillis;
+            AbstractXMPPConnection connection = this.connection;
+            if (connection != null) {
+                // Receiving stanzas also counts as activity.
+                lastActivityMillis = Math.max(lastActivityMillis, connection.getLastStanzaReceived());
+            }
+            return lastActivityMillis;
+        }
+
+        private AbstractXMPPConnection getLoggedInConnection()
+                        throws SmackException, IOException, XMPPException, InterruptedException {
+            lastUsedMillis = System.currentTimeMillis();
+
+            AbstractXMPPConnection connection = this.connection;
+            if (connection != null && connection.isAuthenticated()) {
+                return connection;
+            }
+
+            lock.lockInterruptibly();
+            try {
+                connection = this.connection;
+                if (connection == null) {
+                    connection = connectionFactory.get();
+                    this.connection = connection;
+                }
+                if (connection.isAuthenticated()) {
+                    return connection;
+                }
+
+                loginSlots.acquire();
+                boolean loggedIn = false;
+                try {
+                    if (!connection.isConnected()) {
+                        connection.connect();
+                    }
+                    connection.login();
+                    loggedIn = true;
+                } finally {
+                    if (!loggedIn && connection.isConnected()) {
+                        // Do not leak a connection which connected but failed to log in.
+                        connection.disconnect();
+                    }
+                    loginSlots.release();
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            lastUsedMillis = System.currentTimeMillis();
+            scheduleIdleSweepIfRequired();
+            return connection;
+        }
+
+        private void disconnectIfIdle() {
+            lock.lock();
+            try {
+                // The connection may have been used since the sweep decided that it is idle.
+                if (System.currentTimeMillis() - getLastActivityMillis() < idleTimeoutMillis) {
+                    return;
+                }
+                disconnectLocked();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void disconnect() {
+            lock.lock();
+            try {
+                disconnectLocked();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void disconnectLocked() {
+            AbstractXMPPConnection connection = this.connection;
+            if (connection == null || !connection.isConnected()) {
+                return;
+            }
+            LOGGER.log(Level.FINE, "Disconnecting pooled connection {0}", connection);
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Get a new builder for a connection pool.
+     *
+     * @return a new builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * A builder for {@link XMPPConnectionPool}s.
+     */
+    public static final class Builder {
+        private int maxConcurrentLogins = 64;
+
+        private long idleTimeoutMillis = TimeUnit.MINUTES.toMillis(5);
+
+        private Builder() {
+        }
+
+        /**
+         * Set the maximum number of connections which are concurrently connecting and logging in. The default is 64.
+         *
+         * @param maxConcurrentLogins the maximum number of concurrent logins.
+         * @return a reference to this builder.
+         */
+        public Builder setMaxConcurrentLogins(int maxConcurrentLogins) {
+            if (maxConcurrentLogins < 1) {
+                throw new IllegalArgumentException("The maximum number of concurrent logins must be positive");
+            }
+            this.maxConcurrentLogins = maxConcurrentLogins;
+            return this;
+        }
+
+        /**
+         * Set the time after which a connection without activity is disconnected. A connection is active if it is
+         * used via the pool or if it receives stanzas. The default is five minutes, a timeout of zero disables
+         * disconnecting idle connections.
+         *
+         * @param idleTimeout the idle timeout.
+         * @param unit the unit of the idle timeout.
+         * @return a reference to this builder.
+         */
+        public Builder setIdleTimeout(long idleTimeout, TimeUnit unit) {
+            if (idleTimeout < 0) {
+                throw new IllegalArgumentException("The idle timeout must not be negative");
+            }
+            this.idleTimeoutMillis = unit.toMillis(idleTimeout);
+            return this;
+        }
+
+        /**
+         * Build the connection pool.
+         *
+         * @return the new connection pool.
+         */
+        public XMPPConnectionPool build() {
+            return new XMPPConnectionPool(this);
+        }
+    }
+}
@@ -64,6 +64,16 @@ public interface XmppInputOutputFilter {
      */
     ByteBuffer input(ByteBuffer inputData) throws IOException;
 
+    /**
+     * Release the buffers this filter holds, e.g. buffers borrowed from a
+     * {@link org.jivesoftware.smack.util.ByteBufferPool}, except the ones required to retain state. This is invoked by
+     * the transport once all data returned by {@link #output(ByteBuffer, boolean, boolean, boolean)} has been written
+     * and all data returned by {@link #input(ByteBuffer)} has been processed. The filter should acquire the buffers
+     * again on the next invocation of those methods.
+     */
+    default void releaseBuffers() {
+    }
+
     default void closeInputOutput() {
     }
 
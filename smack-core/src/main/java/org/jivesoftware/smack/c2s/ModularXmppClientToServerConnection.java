@@ -19,6 +19,7 @@ package org.jivesoftware.smack.c2s;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.security.cert.CertificateException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -36,6 +37,8 @@ import java.util.logging.Logger;
 import javax.net.ssl.SSLSession;
 
 import org.jivesoftware.smack.AbstractXMPPConnection;
+import org.jivesoftware.smack.NonzaCallback;
+import org.jivesoftware.smack.ScheduledAction;
 import org.jivesoftware.smack.SmackException;
 import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
@@ -141,6 +144,17 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
     private final ArrayBlockingQueueWithShutdown<TopLevelStreamElement> outgoingElementsQueue = new ArrayBlockingQueueWithShutdown<>(
                     100, true);
 
+    /**
+     * Elements which have to be sent before the elements in {@link #outgoingElementsQueue}, e.g. stanzas resent after
+     * a stream resumption. Guarded by itself.
+     */
+    private final ArrayDeque<TopLevelStreamElement> prioritizedOutgoingElements = new ArrayDeque<>();
+
+    /**
+     * Allows to check for prioritized outgoing elements without acquiring the lock of the deque.
+     */
+    private volatile boolean prioritizedOutgoingElementsAvailable;
+
     private XmppClientToServerTransport activeTransport;
 
     private final List<ConnectionStateMachineListener> connectionStateMachineListeners = new CopyOnWriteArrayList<>();
@@ -160,6 +174,11 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
     private final Map<Class<? extends ModularXmppClientToServerConnectionModuleDescriptor>, ModularXmppClientToServerConnectionModule<? extends ModularXmppClientToServerConnectionModuleDescriptor>> connectionModules = new HashMap<>();
 
     private final Map<Class<? extends ModularXmppClientToServerConnectionModuleDescriptor>, XmppClientToServerTransport> transports = new HashMap<>();
+
+    /**
+     * The connection modules as array, which is iterated for every incoming and outgoing stanza.
+     */
+    private final ModularXmppClientToServerConnectionModule<?>[] connectionModulesArray;
     /**
      * This is one of those cases where the field is modified by one thread and read by another. We currently use
      * CopyOnWriteArrayList but should potentially use a VarHandle once Smack supports them.
@@ -203,6 +222,36 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
                 ModularXmppClientToServerConnection.this.firePacketSendingListeners(element);
             }
 
+            @Override
+            public TopLevelStreamElement pollOutgoingElement() {
+                return ModularXmppClientToServerConnection.this.pollOutgoingElement();
+            }
+
+            @Override
+            public boolean hasOutgoingElements() {
+                return prioritizedOutgoingElementsAvailable || !outgoingElementsQueue.isEmpty();
+            }
+
+            @Override
+            public void sendBeforeQueuedElements(Collection<? extends TopLevelStreamElement> elements) {
+                ModularXmppClientToServerConnection.this.sendBeforeQueuedElements(elements);
+            }
+
+            @Override
+            public NonzaCallback.Builder buildNonzaCallback() {
+                return ModularXmppClientToServerConnection.this.buildNonzaCallback();
+            }
+
+            @Override
+            public ScheduledAction schedule(Runnable runnable, long delay, TimeUnit unit) {
+                return AbstractXMPPConnection.schedule(runnable, delay, unit);
+            }
+
+            @Override
+            public void setStreamResumed(boolean streamResumed) {
+                ModularXmppClientToServerConnection.this.streamResumed = streamResumed;
+            }
+
             @Override
             public void invokeConnectionStateMachineListener(ConnectionStateEvent connectionStateEvent) {
                 ModularXmppClientToServerConnection.this.invokeConnectionStateMachineListener(connectionStateEvent);
@@ -296,6 +345,7 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
                 transports.put(moduleDescriptorClass, transport);
             }
         }
+        connectionModulesArray = connectionModules.values().toArray(new ModularXmppClientToServerConnectionModule<?>[0]);
 
         GraphVertex<StateDescriptor> initialStateDescriptorVertex = configuration.initialStateDescriptorVertex;
         // Convert the graph of state descriptors to a graph of states, bound to this very connection.
@@ -504,6 +554,7 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
         }
 
         outgoingElementsQueue.put(element);
+        recordOutgoingQueueSize();
         transport.notifyAboutNewOutgoingElements();
     }
 
@@ -518,10 +569,58 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
         if (!enqueued) {
             throw new OutgoingQueueFullException();
         }
+        recordOutgoingQueueSize();
 
         transport.notifyAboutNewOutgoingElements();
     }
 
+    private void recordOutgoingQueueSize() {
+        if (!metrics.isEnabled()) {
+            return;
+        }
+        metrics.getOutgoingQueueSize().record(outgoingElementsQueue.size());
+    }
+
+    private TopLevelStreamElement pollOutgoingElement() {
+        TopLevelStreamElement element = null;
+        if (prioritizedOutgoingElementsAvailable) {
+            synchronized (prioritizedOutgoingElements) {
+                element = prioritizedOutgoingElements.poll();
+                prioritizedOutgoingElementsAvailable = !prioritizedOutgoingElements.isEmpty();
+            }
+        }
+        if (element == null) {
+            element = outgoingElementsQueue.poll();
+            if (element == null) {
+                return null;
+            }
+        }
+
+        for (ModularXmppClientToServerConnectionModule<?> connectionModule : connectionModulesArray) {
+            connectionModule.onOutgoingElement(element);
+        }
+        return element;
+    }
+
+    private void sendBeforeQueuedElements(Collection<? extends TopLevelStreamElement> elements) {
+        if (elements.isEmpty()) {
+            return;
+        }
+
+        synchronized (prioritizedOutgoingElements) {
+            List<TopLevelStreamElement> previouslyPrioritizedElements = new ArrayList<>(prioritizedOutgoingElements);
+            prioritizedOutgoingElements.clear();
+            prioritizedOutgoingElements.addAll(elements);
+            prioritizedOutgoingElements.addAll(previouslyPrioritizedElements);
+            prioritizedOutgoingElementsAvailable = true;
+        }
+
+        final XmppClientToServerTransport transport = activeTransport;
+        if (transport != null) {
+            transport.notifyAboutNewOutgoingElements();
+        }
+    }
+
     @Override
     protected void shutdown() {
         shutdown(false);
@@ -590,8 +689,9 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
                         try {
                             parseAndProcessStanza(parser);
                         } finally {
-                            // TODO: Here would be the following stream management code.
-                            // clientHandledStanzasCount = SMUtils.incrementHeight(clientHandledStanzasCount);
+                            for (ModularXmppClientToServerConnectionModule<?> connectionModule : connectionModulesArray) {
+                                connectionModule.onIncomingStanzaHandled();
+                            }
                         }
                         break;
                     case "error":
@@ -795,6 +895,13 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
             // function to close the queue again on failure.
             outgoingElementsQueueWasShutdown = outgoingElementsQueue.start();
 
+            // Prioritized elements which did not make it onto the wire belong to the previous stream. Modules
+            // interested in them, e.g. for replaying them after a stream resumption, keep track of them themselves.
+            synchronized (prioritizedOutgoingElements) {
+                prioritizedOutgoingElements.clear();
+                prioritizedOutgoingElementsAvailable = false;
+            }
+
             return StateTransitionResult.Success.EMPTY_INSTANCE;
         }
 
@@ -929,8 +1036,8 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
             LoginContext loginContext = walkStateGraphContext.getLoginContext();
             Resourcepart resource = bindResourceAndEstablishSession(loginContext.resource);
 
-            // TODO: This should be a field in the Stream Management (SM) module. Here should be hook which the SM
-            // module can use to set the field instead.
+            // A stream which was resumed does not pass this state, the Stream Management (SM) module sets
+            // streamResumed in this case.
             streamResumed = false;
 
             return new ResourceBoundResult(resource, loginContext.resource);
@@ -17,6 +17,7 @@
 package org.jivesoftware.smack.c2s;
 
 import org.jivesoftware.smack.c2s.internal.ModularXmppClientToServerConnectionInternal;
+import org.jivesoftware.smack.packet.TopLevelStreamElement;
 
 public abstract class ModularXmppClientToServerConnectionModule<MD extends ModularXmppClientToServerConnectionModuleDescriptor> {
 
@@ -37,4 +38,20 @@ public abstract class ModularXmppClientToServerConnectionModule<MD extends Modul
     protected XmppClientToServerTransport getTransport() {
         return null;
     }
+
+    /**
+     * Invoked right before the given element is handed over to the transport for sending. This is invoked by the
+     * transport's thread, in the order in which the elements are put on the wire.
+     *
+     * @param element the element which is about to be sent.
+     */
+    protected void onOutgoingElement(TopLevelStreamElement element) {
+    }
+
+    /**
+     * Invoked after an incoming stanza was handled. This is invoked by the transport's thread, in the order in which
+     * the stanzas were received.
+     */
+    protected void onIncomingStanzaHandled() {
+    }
 }
@@ -20,11 +20,15 @@ import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
+import java.util.Collection;
 import java.util.ListIterator;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
+import org.jivesoftware.smack.NonzaCallback;
+import org.jivesoftware.smack.ScheduledAction;
 import org.jivesoftware.smack.SmackException;
 import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
@@ -66,7 +70,8 @@ public abstract class ModularXmppClientToServerConnectionInternal {
 
     public SelectionKey registerWithSelector(SelectableChannel channel, int ops, ChannelSelectedCallback callback)
                     throws ClosedChannelException {
-        return reactor.registerWithSelector(channel, ops, callback);
+        // Pin all channels of the connection to the same reactor shard.
+        return reactor.registerWithSelector(channel, ops, callback, connection);
     }
 
     public void setInterestOps(SelectionKey selectionKey, int interestOps) {
@@ -107,6 +112,35 @@ public abstract class ModularXmppClientToServerConnectionInternal {
 
     public abstract void fireFirstLevelElementSendListeners(TopLevelStreamElement element);
 
+    /**
+     * Retrieve and remove the next element to send. Transports must use this method, instead of polling the
+     * {@link #outgoingElementsQueue} directly, so that connection modules get notified about the outgoing elements.
+     *
+     * @return the next element to send, or <code>null</code>.
+     */
+    public abstract TopLevelStreamElement pollOutgoingElement();
+
+    /**
+     * Check if there are elements which are waiting to be sent.
+     *
+     * @return <code>true</code> if there are elements waiting to be sent.
+     */
+    public abstract boolean hasOutgoingElements();
+
+    /**
+     * Queue the given elements in bulk, so that they are sent in the given order but before every other element
+     * waiting to be sent.
+     *
+     * @param elements the elements to send.
+     */
+    public abstract void sendBeforeQueuedElements(Collection<? extends TopLevelStreamElement> elements);
+
+    public abstract NonzaCallback.Builder buildNonzaCallback();
+
+    public abstract ScheduledAction schedule(Runnable runnable, long delay, TimeUnit unit);
+
+    public abstract void setStreamResumed(boolean streamResumed);
+
     public abstract void invokeConnectionStateMachineListener(ConnectionStateEvent connectionStateEvent);
 
     public abstract void addXmppInputOutputFilter(XmppInputOutputFilter xmppInputOutputFilter);
@@ -58,8 +58,12 @@ public class CompressionModule extends ModularXmppClientToServerConnectionModule
         private XmppCompressionFactory selectedCompressionFactory;
         private XmppInputOutputFilter usedXmppInputOutputCompressionFitler;
 
-        private CompressionState(StateDescriptor stateDescriptor, ModularXmppClientToServerConnectionInternal connectionInternal) {
+        private final CompressionModuleDescriptor compressionModuleDescriptor;
+
+        private CompressionState(StateDescriptor stateDescriptor, ModularXmppClientToServerConnectionInternal connectionInternal,
+                        CompressionModuleDescriptor compressionModuleDescriptor) {
             super(stateDescriptor, connectionInternal);
+            this.compressionModuleDescriptor = compressionModuleDescriptor;
         }
 
         @Override
@@ -81,7 +85,8 @@ public class CompressionModule extends ModularXmppClientToServerConnectionModule
                                 "No matching compression factory for " + compressFeature.getMethods());
             }
 
-            usedXmppInputOutputCompressionFitler = selectedCompressionFactory.fabricate(config);
+            usedXmppInputOutputCompressionFitler = selectedCompressionFactory.fabricate(config,
+                            compressionModuleDescriptor);
 
             return null;
         }
@@ -124,6 +129,6 @@ public class CompressionModule extends ModularXmppClientToServerConnectionModule
 
     public CompressionState constructCompressionState(CompressionStateDescriptor compressionStateDescriptor,
                     ModularXmppClientToServerConnectionInternal connectionInternal) {
-        return new CompressionState(compressionStateDescriptor, connectionInternal);
+        return new CompressionState(compressionStateDescriptor, connectionInternal, moduleDescriptor);
     }
 }
@@ -18,15 +18,26 @@ package org.jivesoftware.smack.compression;
 
 import java.util.Collections;
 import java.util.Set;
+import java.util.zip.Deflater;
 
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionConfiguration;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionModuleDescriptor;
 import org.jivesoftware.smack.c2s.internal.ModularXmppClientToServerConnectionInternal;
+import org.jivesoftware.smack.compression.XMPPInputOutputStream.FlushMethod;
 import org.jivesoftware.smack.fsm.StateDescriptor;
+import org.jivesoftware.smack.util.Objects;
 
 public class CompressionModuleDescriptor extends ModularXmppClientToServerConnectionModuleDescriptor {
 
-    private static final CompressionModuleDescriptor INSTANCE = new CompressionModuleDescriptor();
+    private final int compressionLevel;
+    private final int compressionStrategy;
+    private final FlushMethod flushMethod;
+
+    public CompressionModuleDescriptor(Builder builder) {
+        compressionLevel = builder.compressionLevel;
+        compressionStrategy = builder.compressionStrategy;
+        flushMethod = builder.flushMethod;
+    }
 
     @Override
     protected Set<Class<? extends StateDescriptor>> getStateDescriptors() {
@@ -39,6 +50,38 @@ public class CompressionModuleDescriptor extends ModularXmppClientToServerConnec
         return new CompressionModule(this, connectionInternal);
     }
 
+    /**
+     * Get the compression level, which is either {@link Deflater#DEFAULT_COMPRESSION} or between 0 and 9.
+     *
+     * @return the compression level.
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Get the compression strategy, which is one of {@link Deflater#DEFAULT_STRATEGY}, {@link Deflater#FILTERED} and
+     * {@link Deflater#HUFFMAN_ONLY}.
+     *
+     * @return the compression strategy.
+     */
+    public int getCompressionStrategy() {
+        return compressionStrategy;
+    }
+
+    /**
+     * Get the flush method used when the destination address of the outgoing data changes. If none was set, then the
+     * global flush method of {@link XMPPInputOutputStream#getFlushMethod()} is returned.
+     *
+     * @return the flush method.
+     */
+    public FlushMethod getFlushMethod() {
+        if (flushMethod == null) {
+            return XMPPInputOutputStream.getFlushMethod();
+        }
+        return flushMethod;
+    }
+
     public static final class Builder extends ModularXmppClientToServerConnectionModuleDescriptor.Builder {
 
         // Invoked via reflection.
@@ -47,9 +90,62 @@ public class CompressionModuleDescriptor extends ModularXmppClientToServerConnec
             super(connectionConfigurationBuilder);
         }
 
+        private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+        private int compressionStrategy = Deflater.DEFAULT_STRATEGY;
+
+        private FlushMethod flushMethod;
+
+        /**
+         * Set the compression level. Lower levels trade compression ratio for less CPU time.
+         *
+         * @param compressionLevel {@link Deflater#DEFAULT_COMPRESSION} or a level between 0 and 9.
+         * @return a reference to this builder.
+         */
+        public Builder setCompressionLevel(int compressionLevel) {
+            if (compressionLevel != Deflater.DEFAULT_COMPRESSION
+                            && (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)) {
+                throw new IllegalArgumentException("Invalid compression level: " + compressionLevel);
+            }
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        /**
+         * Set the compression strategy.
+         *
+         * @param compressionStrategy one of {@link Deflater#DEFAULT_STRATEGY}, {@link Deflater#FILTERED} and
+         *        {@link Deflater#HUFFMAN_ONLY}.
+         * @return a reference to this builder.
+         */
+        public Builder setCompressionStrategy(int compressionStrategy) {
+            switch (compressionStrategy) {
+            case Deflater.DEFAULT_STRATEGY:
+            case Deflater.FILTERED:
+            case Deflater.HUFFMAN_ONLY:
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid compression strategy: " + compressionStrategy);
+            }
+            this.compressionStrategy = compressionStrategy;
+            return this;
+        }
+
+        /**
+         * Set the flush method used when the destination address of the outgoing data changes. This overrides the
+         * global setting of {@link XMPPInputOutputStream#setFlushMethod(FlushMethod)} for this connection.
+         *
+         * @param flushMethod the flush method.
+         * @return a reference to this builder.
+         */
+        public Builder setFlushMethod(FlushMethod flushMethod) {
+            this.flushMethod = Objects.requireNonNull(flushMethod, "Must set flush method");
+            return this;
+        }
+
         @Override
-        protected ModularXmppClientToServerConnectionModuleDescriptor build() {
-            return INSTANCE;
+        protected CompressionModuleDescriptor build() {
+            return new CompressionModuleDescriptor(this);
         }
 
     }
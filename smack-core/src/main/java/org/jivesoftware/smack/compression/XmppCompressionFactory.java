@@ -44,4 +44,17 @@ public abstract class XmppCompressionFactory implements Comparable<XmppCompressi
 
     public abstract XmppInputOutputFilter fabricate(ConnectionConfiguration configuration);
 
+    /**
+     * Fabricate a new filter, taking the per-connection settings of the compression module into account. The default
+     * implementation ignores the settings and delegates to {@link #fabricate(ConnectionConfiguration)}.
+     *
+     * @param configuration the connection configuration.
+     * @param compressionModuleDescriptor the descriptor of the connection's compression module.
+     * @return a new filter.
+     */
+    public XmppInputOutputFilter fabricate(ConnectionConfiguration configuration,
+                    CompressionModuleDescriptor compressionModuleDescriptor) {
+        return fabricate(configuration);
+    }
+
 }
@@ -0,0 +1,355 @@
+/*
+ *
+ * Copyright 2018-2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.compression.zlib;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.jivesoftware.smack.XmppInputOutputFilter;
+import org.jivesoftware.smack.compression.XMPPInputOutputStream.FlushMethod;
+import org.jivesoftware.smack.util.ByteBufferPool;
+
+/**
+ * A zlib compression filter. All buffers used by the filter, including the ones returned by
+ * {@link #output(ByteBuffer, boolean, boolean, boolean)}, are borrowed from a {@link ByteBufferPool} and returned to the
+ * pool on {@link #releaseBuffers()}.
+ * <p>
+ * This implementation passes the data as byte arrays to {@link Deflater} and {@link Inflater}, and hence has to copy
+ * buffers which are not backed by an accessible array. Subclasses may override the methods operating on the compressor
+ * and decompressor, for example to use the {@link ByteBuffer} based API of newer Java versions.
+ * </p>
+ */
+public class ZlibXmppInputOutputFilter implements XmppInputOutputFilter {
+
+    private static final int MINIMUM_OUTPUT_BUFFER_SIZE = 256;
+
+    private static final ByteBufferPool HEAP_BUFFER_POOL = ByteBufferPool.getHeapBufferPool();
+
+    private final Deflater compressor;
+    private final Inflater decompressor = new Inflater();
+
+    private final FlushMethod flushMethod;
+
+    /**
+     * The pool of the buffers returned by {@link #output(ByteBuffer, boolean, boolean, boolean)}.
+     */
+    private final ByteBufferPool outputBufferPool;
+
+    long compressorInBytes;
+    long compressorOutBytes;
+    long compressorNanos;
+
+    long decompressorInBytes;
+    long decompressorOutBytes;
+    long decompressorNanos;
+
+    int maxOutputOutput = -1;
+    int maxInputOutput = -1;
+
+    int maxBytesWrittenAfterFullFlush = -1;
+
+    private ByteBuffer outputBuffer;
+
+    /**
+     * The buffers returned by {@link #output(ByteBuffer, boolean, boolean, boolean)} which may still be in use by the
+     * transport.
+     */
+    private final List<ByteBuffer> returnedOutputBuffers = new ArrayList<>();
+
+    /**
+     * Holds a copy of the data to compress, if the data is not backed by an accessible array.
+     */
+    private ByteBuffer compressorInputCopy;
+
+    /**
+     * Holds a copy of the data to decompress, if the data is not backed by an accessible array.
+     */
+    private ByteBuffer decompressorInputCopy;
+
+    /**
+     * The buffer returned by {@link #input(ByteBuffer)}. It is reused, as its data is consumed before the next
+     * invocation of {@link #input(ByteBuffer)}.
+     */
+    private ByteBuffer decompressorOutputBuffer;
+
+    public ZlibXmppInputOutputFilter(int compressionLevel, int compressionStrategy, FlushMethod flushMethod) {
+        this(compressionLevel, compressionStrategy, flushMethod, HEAP_BUFFER_POOL);
+    }
+
+    protected ZlibXmppInputOutputFilter(int compressionLevel, int compressionStrategy, FlushMethod flushMethod,
+                    ByteBufferPool outputBufferPool) {
+        compressor = new Deflater(compressionLevel);
+        compressor.setStrategy(compressionStrategy);
+        this.flushMethod = flushMethod;
+        this.outputBufferPool = outputBufferPool;
+    }
+
+    @Override
+    public OutputResult output(ByteBuffer outputData, boolean isFinalDataOfElement, boolean destinationAddressChanged,
+                    boolean moreDataAvailable) throws IOException {
+        if (destinationAddressChanged && flushMethod == FlushMethod.FULL_FLUSH) {
+            outputBuffer = outputBufferPool.acquire(MINIMUM_OUTPUT_BUFFER_SIZE);
+
+            int bytesWritten = deflate(Deflater.FULL_FLUSH);
+
+            maxBytesWrittenAfterFullFlush = Math.max(bytesWritten, maxBytesWrittenAfterFullFlush);
+            compressorOutBytes += bytesWritten;
+        }
+
+        if (outputData == null) {
+            return takeOutputBuffer();
+        }
+
+        int bytesRemaining = outputData.remaining();
+        if (outputBuffer == null) {
+            // We assume that the compressed data will not take more space as the uncompressed. Even if this is not
+            // always true, the automatic buffer resize mechanism of deflate() will take care.
+            outputBuffer = outputBufferPool.acquire(Math.max(bytesRemaining, MINIMUM_OUTPUT_BUFFER_SIZE));
+        }
+
+        // There is an invariant of Deflater/Inflater that input should only be set if needsInput() return true.
+        assert compressor.needsInput();
+
+        compressorInBytes += bytesRemaining;
+
+        setCompressorInput(compressor, outputData);
+
+        int flushMode;
+        if (moreDataAvailable) {
+            flushMode = Deflater.NO_FLUSH;
+        } else {
+            flushMode = Deflater.SYNC_FLUSH;
+        }
+
+        int bytesWritten = deflate(flushMode);
+
+        maxOutputOutput = Math.max(outputBuffer.position(), maxOutputOutput);
+        compressorOutBytes += bytesWritten;
+
+        return takeOutputBuffer();
+    }
+
+    private OutputResult takeOutputBuffer() {
+        if (outputBuffer == null) {
+            return OutputResult.NO_OUTPUT;
+        }
+
+        returnedOutputBuffers.add(outputBuffer);
+        OutputResult outputResult = new OutputResult(outputBuffer);
+        outputBuffer = null;
+        return outputResult;
+    }
+
+    private int deflate(int flushMode) {
+        final long startNanos = System.nanoTime();
+        int totalBytesWritten = 0;
+        while (true) {
+            totalBytesWritten += deflate(compressor, outputBuffer, flushMode);
+
+            if (compressor.needsInput() && outputBuffer.hasRemaining()) {
+                break;
+            }
+
+            ByteBuffer increasedOutputBuffer = outputBufferPool.acquire(outputBuffer.capacity() * 2);
+            // Workaround for Android API not matching Java >=9 API.
+            // See https://issuetracker.google.com/issues/369219141
+            ((java.nio.Buffer) outputBuffer).flip();
+            increasedOutputBuffer.put(outputBuffer);
+            outputBufferPool.release(outputBuffer);
+            outputBuffer = increasedOutputBuffer;
+        }
+        compressorNanos += System.nanoTime() - startNanos;
+
+        return totalBytesWritten;
+    }
+
+    /**
+     * Set the given data as input of the compressor. The data must be consumed by the following invocations of
+     * {@link #deflate(Deflater, ByteBuffer, int)}, or be copied.
+     *
+     * @param compressor the compressor.
+     * @param input the data to compress.
+     */
+    protected void setCompressorInput(Deflater compressor, ByteBuffer input) {
+        if (input.hasArray()) {
+            compressor.setInput(input.array(), input.arrayOffset() + input.position(), input.remaining());
+            // Workaround for Android API not matching Java >=9 API.
+            // See https://issuetracker.google.com/issues/369219141
+            ((java.nio.Buffer) input).position(input.limit());
+        } else {
+            // The compressor has consumed the input of the previous invocation, hence the copy can be reused.
+            compressorInputCopy = copyIntoPooledBuffer(input, compressorInputCopy);
+            compressor.setInput(compressorInputCopy.array(), compressorInputCopy.arrayOffset(),
+                            compressorInputCopy.limit());
+        }
+    }
+
+    /**
+     * Compress into the given buffer, starting at its position and up to its limit. The position of the buffer is
+     * advanced by the number of bytes written.
+     *
+     * @param compressor the compressor.
+     * @param output the buffer to write the compressed data into.
+     * @param flushMode the flush mode.
+     * @return the number of bytes written.
+     */
+    protected int deflate(Deflater compressor, ByteBuffer output, int flushMode) {
+        int position = output.position();
+        int bytesWritten = compressor.deflate(output.array(), output.arrayOffset() + position,
+                        output.limit() - position, flushMode);
+        // Workaround for Android API not matching Java >=9 API.
+        // See https://issuetracker.google.com/issues/369219141
+        ((java.nio.Buffer) output).position(position + bytesWritten);
+        return bytesWritten;
+    }
+
+    @Override
+    public ByteBuffer input(ByteBuffer inputData) throws IOException {
+        final int length = inputData.remaining();
+        decompressorInBytes += length;
+
+        setDecompressorInput(decompressor, inputData);
+
+        // Assume that the inflated/decompressed result will be roughly at most twice the size of the compressed
+        // variant. It appears to hold most of the times, if not, then the buffer resize mechanism will take care of
+        // it.
+        ByteBuffer outputBuffer = decompressorOutputBuffer;
+        if (outputBuffer == null || outputBuffer.capacity() < 2 * length) {
+            HEAP_BUFFER_POOL.release(outputBuffer);
+            outputBuffer = HEAP_BUFFER_POOL.acquire(2 * length);
+        } else {
+            ((java.nio.Buffer) outputBuffer).clear();
+        }
+
+        final long startNanos = System.nanoTime();
+        int bytesInflated;
+        while (true) {
+            try {
+                bytesInflated = inflate(decompressor, outputBuffer);
+            }
+            catch (DataFormatException e) {
+                throw new IOException(e);
+            }
+
+            decompressorOutBytes += bytesInflated;
+
+            if (decompressor.needsInput()) {
+                break;
+            }
+
+            ByteBuffer increasedOutputBuffer = HEAP_BUFFER_POOL.acquire(outputBuffer.capacity() * 2);
+            // Workaround for Android API not matching Java >=9 API.
+            // See https://issuetracker.google.com/issues/369219141
+            ((java.nio.Buffer) outputBuffer).flip();
+            increasedOutputBuffer.put(outputBuffer);
+            HEAP_BUFFER_POOL.release(outputBuffer);
+            outputBuffer = increasedOutputBuffer;
+        }
+        decompressorNanos += System.nanoTime() - startNanos;
+        decompressorOutputBuffer = outputBuffer;
+
+        if (bytesInflated == 0) {
+            return null;
+        }
+
+        maxInputOutput = Math.max(outputBuffer.position(), maxInputOutput);
+
+        return outputBuffer;
+    }
+
+    /**
+     * Set the given data as input of the decompressor. The data must be consumed by the following invocations of
+     * {@link #inflate(Inflater, ByteBuffer)}, or be copied.
+     *
+     * @param decompressor the decompressor.
+     * @param input the data to decompress.
+     */
+    protected void setDecompressorInput(Inflater decompressor, ByteBuffer input) {
+        if (input.hasArray()) {
+            decompressor.setInput(input.array(), input.arrayOffset() + input.position(), input.remaining());
+            // Workaround for Android API not matching Java >=9 API.
+            // See https://issuetracker.google.com/issues/369219141
+            ((java.nio.Buffer) input).position(input.limit());
+        } else {
+            // Copy since we are dealing with a buffer whose array is not accessible (possibly a direct buffer).
+            decompressorInputCopy = copyIntoPooledBuffer(input, decompressorInputCopy);
+            decompressor.setInput(decompressorInputCopy.array(), decompressorInputCopy.arrayOffset(),
+                            decompressorInputCopy.limit());
+        }
+    }
+
+    /**
+     * Decompress into the given heap buffer, starting at its position and up to its limit. The position of the buffer
+     * is advanced by the number of bytes written.
+     *
+     * @param decompressor the decompressor.
+     * @param output the buffer to write the decompressed data into.
+     * @return the number of bytes written.
+     * @throws DataFormatException if the compressed data is invalid.
+     */
+    protected int inflate(Inflater decompressor, ByteBuffer output) throws DataFormatException {
+        int position = output.position();
+        int bytesInflated = decompressor.inflate(output.array(), output.arrayOffset() + position,
+                        output.limit() - position);
+        // Workaround for Android API not matching Java >=9 API.
+        // See https://issuetracker.google.com/issues/369219141
+        ((java.nio.Buffer) output).position(position + bytesInflated);
+        return bytesInflated;
+    }
+
+    private static ByteBuffer copyIntoPooledBuffer(ByteBuffer data, ByteBuffer pooledBuffer) {
+        int bytesRemaining = data.remaining();
+        if (pooledBuffer == null || pooledBuffer.capacity() < bytesRemaining) {
+            HEAP_BUFFER_POOL.release(pooledBuffer);
+            pooledBuffer = HEAP_BUFFER_POOL.acquire(bytesRemaining);
+        } else {
+            ((java.nio.Buffer) pooledBuffer).clear();
+        }
+        pooledBuffer.put(data);
+        ((java.nio.Buffer) pooledBuffer).flip();
+        return pooledBuffer;
+    }
+
+    @Override
+    public void releaseBuffers() {
+        for (ByteBuffer returnedOutputBuffer : returnedOutputBuffers) {
+            outputBufferPool.release(returnedOutputBuffer);
+        }
+        returnedOutputBuffers.clear();
+        HEAP_BUFFER_POOL.release(compressorInputCopy);
+        compressorInputCopy = null;
+        HEAP_BUFFER_POOL.release(decompressorInputCopy);
+        decompressorInputCopy = null;
+        HEAP_BUFFER_POOL.release(decompressorOutputBuffer);
+        decompressorOutputBuffer = null;
+    }
+
+    @Override
+    public ZlibXmppCompressionFactory.Stats getStats() {
+        return new ZlibXmppCompressionFactory.Stats(this);
+    }
+
+    @Override
+    public String getFilterName() {
+        return "Compression (zlib)";
+    }
+}
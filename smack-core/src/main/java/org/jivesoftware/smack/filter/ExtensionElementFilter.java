@@ -51,4 +51,8 @@ public class ExtensionElementFilter<E extends ExtensionElement> implements Stanz
     public boolean accept(E extensionElement) {
         return true;
     }
+
+    QName getQName() {
+        return extensionElementQName;
+    }
 }
@@ -17,6 +17,8 @@
 
 package org.jivesoftware.smack.filter;
 
+import javax.xml.namespace.QName;
+
 import org.jivesoftware.smack.packet.ExtensionElement;
 import org.jivesoftware.smack.packet.Stanza;
 import org.jivesoftware.smack.util.StringUtils;
@@ -70,6 +72,13 @@ public class StanzaExtensionFilter implements StanzaFilter {
         return packet.hasExtension(elementName, namespace);
     }
 
+    QName getQName() {
+        if (elementName == null) {
+            return null;
+        }
+        return new QName(namespace, elementName);
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + ": element=" + elementName + " namespace=" + namespace;
@@ -0,0 +1,154 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.Stanza;
+
+/**
+ * Utilities to statically inspect {@link StanzaFilter}s. This allows for example to build indices over a set of
+ * filters, so that only the filters which possibly accept a given stanza have to be evaluated.
+ * <p>
+ * All methods of this class are conservative: If they are unable to determine a property of a filter, then they will
+ * assume the filter may accept any stanza. Note that {@link OrFilter}s are never inspected, as filters can be added
+ * to them after they have been inspected, which would widen the set of accepted stanzas. Similarly, only the exact
+ * classes of the inspected filter types are considered, as subclasses may override their accept method.
+ * </p>
+ *
+ * @since 4.5
+ */
+public final class StanzaFilterUtil {
+
+    private StanzaFilterUtil() {
+    }
+
+    /**
+     * Check if the given filter may accept stanzas of the given type. If this method returns <code>false</code>, then
+     * the filter is guaranteed to never accept a stanza which is an instance of <code>stanzaType</code>.
+     *
+     * @param filter the filter, may be <code>null</code> which is treated as a filter accepting all stanzas.
+     * @param stanzaType the type of the stanza.
+     * @return <code>true</code> if the filter may accept stanzas of the given type.
+     */
+    public static boolean mayAccept(StanzaFilter filter, Class<? extends Stanza> stanzaType) {
+        if (filter == null) {
+            return true;
+        }
+
+        if (filter instanceof StanzaTypeFilter) {
+            StanzaTypeFilter stanzaTypeFilter = (StanzaTypeFilter) filter;
+            return typesMayOverlap(stanzaTypeFilter.getStanzaType(), stanzaType);
+        }
+        if (filter instanceof FlexibleStanzaTypeFilter) {
+            FlexibleStanzaTypeFilter<?> flexibleStanzaTypeFilter = (FlexibleStanzaTypeFilter<?>) filter;
+            return typesMayOverlap(flexibleStanzaTypeFilter.stanzaType, stanzaType);
+        }
+        if (filter.getClass() == IQReplyFilter.class || filter.getClass() == IQResultReplyFilter.class) {
+            return typesMayOverlap(IQ.class, stanzaType);
+        }
+        if (filter.getClass() == AndFilter.class) {
+            AndFilter andFilter = (AndFilter) filter;
+            for (StanzaFilter innerFilter : copyFilters(andFilter)) {
+                if (!mayAccept(innerFilter, stanzaType)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the qualified name of an extension element which must be present in every stanza accepted by the given
+     * filter.
+     *
+     * @param filter the filter, may be <code>null</code>.
+     * @return the qualified name of a required extension element, or <code>null</code>.
+     */
+    public static QName getRequiredExtensionElement(StanzaFilter filter) {
+        if (filter == null) {
+            return null;
+        }
+
+        if (filter.getClass() == StanzaExtensionFilter.class) {
+            StanzaExtensionFilter stanzaExtensionFilter = (StanzaExtensionFilter) filter;
+            return stanzaExtensionFilter.getQName();
+        }
+        if (filter instanceof ExtensionElementFilter) {
+            ExtensionElementFilter<?> extensionElementFilter = (ExtensionElementFilter<?>) filter;
+            return extensionElementFilter.getQName();
+        }
+        if (filter.getClass() == AndFilter.class) {
+            AndFilter andFilter = (AndFilter) filter;
+            for (StanzaFilter innerFilter : copyFilters(andFilter)) {
+                QName qname = getRequiredExtensionElement(innerFilter);
+                if (qname != null) {
+                    return qname;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Get the stanza ID which every stanza accepted by the given filter must have.
+     *
+     * @param filter the filter, may be <code>null</code>.
+     * @return the required stanza ID, or <code>null</code>.
+     */
+    public static String getRequiredStanzaId(StanzaFilter filter) {
+        if (filter == null) {
+            return null;
+        }
+
+        if (filter.getClass() == StanzaIdFilter.class) {
+            StanzaIdFilter stanzaIdFilter = (StanzaIdFilter) filter;
+            return stanzaIdFilter.getStanzaId();
+        }
+        if (filter.getClass() == IQReplyFilter.class || filter.getClass() == IQResultReplyFilter.class) {
+            IQReplyFilter iqReplyFilter = (IQReplyFilter) filter;
+            return iqReplyFilter.getStanzaId();
+        }
+        if (filter.getClass() == AndFilter.class) {
+            AndFilter andFilter = (AndFilter) filter;
+            for (StanzaFilter innerFilter : copyFilters(andFilter)) {
+                String stanzaId = getRequiredStanzaId(innerFilter);
+                if (stanzaId != null) {
+                    return stanzaId;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean typesMayOverlap(Class<?> a, Class<?> b) {
+        return a.isAssignableFrom(b) || b.isAssignableFrom(a);
+    }
+
+    private static List<StanzaFilter> copyFilters(AbstractListFilter listFilter) {
+        // AbstractListFilter's list is not thread-safe, but filters are typically not modified once they got
+        // registered. Copy the list anyway to keep the window for a concurrent modification small.
+        return new ArrayList<>(listFilter.filters);
+    }
+}
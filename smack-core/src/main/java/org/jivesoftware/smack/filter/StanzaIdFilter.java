@@ -53,6 +53,10 @@ public class StanzaIdFilter implements StanzaFilter {
         return stanzaId.equals(stanza.getStanzaId());
     }
 
+    String getStanzaId() {
+        return stanzaId;
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + ": id=" + stanzaId;
@@ -0,0 +1,210 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jivesoftware.smack.XMPPConnection;
+
+/**
+ * The metrics of a single connection. Holds the counters and histograms looked up from the {@link MetricsRegistry}
+ * when the connection was constructed.
+ */
+public final class ConnectionMetrics {
+
+    /**
+     * Counter of the bytes read from the transport.
+     */
+    public static final String BYTES_READ = "smack.connection.bytes.read";
+
+    /**
+     * Counter of the bytes written to the transport.
+     */
+    public static final String BYTES_WRITTEN = "smack.connection.bytes.written";
+
+    /**
+     * Counter of the received stanzas.
+     */
+    public static final String STANZAS_RECEIVED = "smack.connection.stanzas.received";
+
+    /**
+     * Counter of the sent stanzas.
+     */
+    public static final String STANZAS_SENT = "smack.connection.stanzas.sent";
+
+    /**
+     * Histogram of the time, in nanoseconds, it took to parse an incoming stanza.
+     */
+    public static final String STANZA_PARSE_NANOS = "smack.connection.stanza.parse.nanos";
+
+    /**
+     * Histogram of the number of elements in the outgoing queue, recorded whenever an element is queued.
+     */
+    public static final String OUTGOING_QUEUE_SIZE = "smack.connection.outgoing.queue.size";
+
+    /**
+     * Histogram of the time, in nanoseconds, the invocation of a stanza listener took.
+     */
+    public static final String LISTENER_NANOS = "smack.connection.listener.nanos";
+
+    /**
+     * Histogram of the number of deferred asynchronous tasks, recorded whenever a task has to be deferred because the
+     * connection's concurrency limit is reached.
+     */
+    public static final String ASYNC_BACKLOG_SIZE = "smack.connection.async.backlog.size";
+
+    /**
+     * Histogram of the round-trip time, in nanoseconds, of IQ requests. Qualified by the namespace of the request.
+     */
+    public static final String IQ_ROUND_TRIP_NANOS = "smack.connection.iq.roundtrip.nanos";
+
+    /**
+     * Histogram of the time, in nanoseconds, spent in input/output filters, e.g. TLS or compression. Qualified by
+     * the name of the filter.
+     */
+    public static final String FILTER_NANOS = "smack.connection.filter.nanos";
+
+    private final MetricsRegistry registry;
+    private final XMPPConnection connection;
+    private final boolean enabled;
+
+    private final Counter bytesRead;
+    private final Counter bytesWritten;
+    private final Counter stanzasReceived;
+    private final Counter stanzasSent;
+    private final Histogram stanzaParseNanos;
+    private final Histogram outgoingQueueSize;
+    private final Histogram listenerNanos;
+    private final Histogram asyncBacklogSize;
+
+    private final Map<String, Histogram> iqRoundTripNanos = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> filterNanos = new ConcurrentHashMap<>();
+
+    public ConnectionMetrics(MetricsRegistry registry, XMPPConnection connection) {
+        this.registry = registry;
+        this.connection = connection;
+        enabled = registry.isEnabled();
+
+        bytesRead = registry.counter(connection, BYTES_READ);
+        bytesWritten = registry.counter(connection, BYTES_WRITTEN);
+        stanzasReceived = registry.counter(connection, STANZAS_RECEIVED);
+        stanzasSent = registry.counter(connection, STANZAS_SENT);
+        stanzaParseNanos = registry.histogram(connection, STANZA_PARSE_NANOS, null);
+        outgoingQueueSize = registry.histogram(connection, OUTGOING_QUEUE_SIZE, null);
+        listenerNanos = registry.histogram(connection, LISTENER_NANOS, null);
+        asyncBacklogSize = registry.histogram(connection, ASYNC_BACKLOG_SIZE, null);
+    }
+
+    /**
+     * Check if the metrics are enabled. Callers should only measure, e.g. read the clock, if this returns
+     * <code>true</code>.
+     *
+     * @return <code>true</code> if the metrics are enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start measuring a duration.
+     *
+     * @return the start time, to be passed to {@link #recordNanosSince(Histogram, long)}.
+     */
+    public long startTimer() {
+        if (!enabled) {
+            return 0;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Record the nanoseconds passed since the given start time.
+     *
+     * @param histogram the histogram to record the duration in.
+     * @param startNanos the start time as returned by {@link #startTimer()}.
+     */
+    public void recordNanosSince(Histogram histogram, long startNanos) {
+        if (!enabled) {
+            return;
+        }
+        histogram.record(System.nanoTime() - startNanos);
+    }
+
+    public Counter getBytesRead() {
+        return bytesRead;
+    }
+
+    public Counter getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public Counter getStanzasReceived() {
+        return stanzasReceived;
+    }
+
+    public Counter getStanzasSent() {
+        return stanzasSent;
+    }
+
+    public Histogram getStanzaParseNanos() {
+        return stanzaParseNanos;
+    }
+
+    public Histogram getOutgoingQueueSize() {
+        return outgoingQueueSize;
+    }
+
+    public Histogram getListenerNanos() {
+        return listenerNanos;
+    }
+
+    public Histogram getAsyncBacklogSize() {
+        return asyncBacklogSize;
+    }
+
+    /**
+     * Get the round-trip time histogram for IQ requests of the given namespace.
+     *
+     * @param namespace the namespace of the IQ request, may be <code>null</code>.
+     * @return the histogram.
+     */
+    public Histogram getIqRoundTripNanos(String namespace) {
+        if (!enabled) {
+            return Histogram.NO_OP;
+        }
+        if (namespace == null) {
+            namespace = "";
+        }
+        return iqRoundTripNanos.computeIfAbsent(namespace,
+                        ns -> registry.histogram(connection, IQ_ROUND_TRIP_NANOS, ns));
+    }
+
+    /**
+     * Get the histogram of the time spent in the input/output filter with the given name.
+     *
+     * @param filterName the name of the filter.
+     * @return the histogram.
+     */
+    public Histogram getFilterNanos(String filterName) {
+        if (!enabled) {
+            return Histogram.NO_OP;
+        }
+        return filterNanos.computeIfAbsent(filterName,
+                        name -> registry.histogram(connection, FILTER_NANOS, name));
+    }
+}
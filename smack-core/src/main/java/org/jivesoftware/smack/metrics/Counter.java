@@ -0,0 +1,42 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.metrics;
+
+/**
+ * A monotonically increasing counter. Implementations must be thread-safe and should be cheap to update.
+ */
+public interface Counter {
+
+    /**
+     * A counter discarding all increments.
+     */
+    Counter NO_OP = amount -> { };
+
+    /**
+     * Increment the counter by one.
+     */
+    default void increment() {
+        increment(1);
+    }
+
+    /**
+     * Increment the counter by the given amount.
+     *
+     * @param amount the amount, which must not be negative.
+     */
+    void increment(long amount);
+}
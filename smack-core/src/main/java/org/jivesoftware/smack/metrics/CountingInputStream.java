@@ -0,0 +1,59 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream counting the bytes read from the underlying stream.
+ */
+public final class CountingInputStream extends FilterInputStream {
+
+    private final Counter bytesRead;
+
+    public CountingInputStream(InputStream inputStream, Counter bytesRead) {
+        super(inputStream);
+        this.bytesRead = bytesRead;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int res = super.read();
+        if (res >= 0) {
+            bytesRead.increment();
+        }
+        return res;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int res = super.read(b, off, len);
+        if (res > 0) {
+            bytesRead.increment(res);
+        }
+        return res;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long res = super.skip(n);
+        bytesRead.increment(res);
+        return res;
+    }
+}
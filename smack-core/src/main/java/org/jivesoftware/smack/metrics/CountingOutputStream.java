@@ -0,0 +1,47 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream counting the bytes written to the underlying stream.
+ */
+public final class CountingOutputStream extends FilterOutputStream {
+
+    private final Counter bytesWritten;
+
+    public CountingOutputStream(OutputStream outputStream, Counter bytesWritten) {
+        super(outputStream);
+        this.bytesWritten = bytesWritten;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        bytesWritten.increment();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        // Do not use the implementation of FilterOutputStream, which writes byte by byte.
+        out.write(b, off, len);
+        bytesWritten.increment(len);
+    }
+}
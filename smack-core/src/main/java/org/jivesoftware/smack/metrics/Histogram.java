@@ -0,0 +1,36 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.metrics;
+
+/**
+ * A histogram recording the distribution of values, e.g. latencies in nanoseconds or queue sizes. Implementations must
+ * be thread-safe and should be cheap to update.
+ */
+public interface Histogram {
+
+    /**
+     * A histogram discarding all values.
+     */
+    Histogram NO_OP = value -> { };
+
+    /**
+     * Record the given value.
+     *
+     * @param value the value, which must not be negative.
+     */
+    void record(long value);
+}
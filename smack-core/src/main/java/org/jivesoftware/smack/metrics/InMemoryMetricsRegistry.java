@@ -0,0 +1,307 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.metrics;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.internal.AbstractStats;
+import org.jivesoftware.smack.util.ExtendedAppendable;
+import org.jivesoftware.smack.util.StringUtils;
+
+/**
+ * A metrics registry keeping the values in memory. Histograms use buckets of power of two sizes, hence percentiles are
+ * approximated by the upper bound of the bucket they fall into.
+ * <p>
+ * Metrics are kept until {@link #remove(XMPPConnection)} is invoked for their connection.
+ * </p>
+ */
+public final class InMemoryMetricsRegistry implements MetricsRegistry {
+
+    private final Map<MetricKey, InMemoryCounter> counters = new ConcurrentHashMap<>();
+    private final Map<MetricKey, InMemoryHistogram> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public Counter counter(XMPPConnection connection, String name) {
+        MetricKey key = new MetricKey(connection.getConnectionCounter(), name, null);
+        return counters.computeIfAbsent(key, k -> new InMemoryCounter());
+    }
+
+    @Override
+    public Histogram histogram(XMPPConnection connection, String name, String qualifier) {
+        MetricKey key = new MetricKey(connection.getConnectionCounter(), name, qualifier);
+        return histograms.computeIfAbsent(key, k -> new InMemoryHistogram());
+    }
+
+    /**
+     * Get the current value of a counter.
+     *
+     * @param connection the connection.
+     * @param name the name of the counter.
+     * @return the value of the counter, or <code>0</code> if there is no such counter.
+     */
+    public long getCount(XMPPConnection connection, String name) {
+        InMemoryCounter counter = counters.get(new MetricKey(connection.getConnectionCounter(), name, null));
+        if (counter == null) {
+            return 0;
+        }
+        return counter.value.sum();
+    }
+
+    /**
+     * Get a snapshot of a histogram.
+     *
+     * @param connection the connection.
+     * @param name the name of the histogram.
+     * @param qualifier the optional qualifier of the histogram, may be <code>null</code>.
+     * @return a snapshot of the histogram, or <code>null</code> if there is no such histogram.
+     */
+    public HistogramSnapshot getHistogram(XMPPConnection connection, String name, String qualifier) {
+        InMemoryHistogram histogram = histograms.get(new MetricKey(connection.getConnectionCounter(), name, qualifier));
+        if (histogram == null) {
+            return null;
+        }
+        return new HistogramSnapshot(histogram);
+    }
+
+    /**
+     * Remove all metrics of the given connection.
+     *
+     * @param connection the connection.
+     */
+    public void remove(XMPPConnection connection) {
+        int connectionCounter = connection.getConnectionCounter();
+        counters.keySet().removeIf(key -> key.connectionCounter == connectionCounter);
+        histograms.keySet().removeIf(key -> key.connectionCounter == connectionCounter);
+    }
+
+    /**
+     * Get a snapshot of all metrics.
+     *
+     * @return a snapshot of all metrics.
+     */
+    public Stats getStats() {
+        return new Stats(this);
+    }
+
+    private static final class MetricKey implements Comparable<MetricKey> {
+        private final int connectionCounter;
+        private final String name;
+        private final String qualifier;
+
+        private MetricKey(int connectionCounter, String name, String qualifier) {
+            this.connectionCounter = connectionCounter;
+            this.name = name;
+            this.qualifier = qualifier;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof MetricKey)) {
+                return false;
+            }
+            MetricKey otherKey = (MetricKey) other;
+            return connectionCounter == otherKey.connectionCounter && name.equals(otherKey.name)
+                            && java.util.Objects.equals(qualifier, otherKey.qualifier);
+        }
+
+        @Override
+        public int hashCode() {
+            return java.util.Objects.hash(connectionCounter, name, qualifier);
+        }
+
+        @Override
+        public int compareTo(MetricKey other) {
+            int res = Integer.compare(connectionCounter, other.connectionCounter);
+            if (res != 0) {
+                return res;
+            }
+            res = name.compareTo(other.name);
+            if (res != 0) {
+                return res;
+            }
+            return String.valueOf(qualifier).compareTo(String.valueOf(other.qualifier));
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(name).append("{connection=").append(connectionCounter);
+            if (qualifier != null) {
+                sb.append(", qualifier=").append(qualifier);
+            }
+            sb.append('}');
+            return sb.toString();
+        }
+    }
+
+    private static final class InMemoryCounter implements Counter {
+        private final LongAdder value = new LongAdder();
+
+        @Override
+        public void increment(long amount) {
+            value.add(amount);
+        }
+    }
+
+    /**
+     * The number of buckets, bucket <code>i</code> holds the values whose highest set bit is bit <code>i - 1</code>,
+     * bucket <code>0</code> holds the value zero.
+     */
+    private static final int BUCKET_COUNT = Long.SIZE + 1;
+
+    private static final class InMemoryHistogram implements Histogram {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+        @Override
+        public void record(long value) {
+            if (value < 0) {
+                // Possible if the clock used to measure a duration is not monotonic.
+                value = 0;
+            }
+            count.increment();
+            sum.add(value);
+            buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(value));
+            if (value < min.get()) {
+                min.accumulateAndGet(value, Math::min);
+            }
+            if (value > max.get()) {
+                max.accumulateAndGet(value, Math::max);
+            }
+        }
+    }
+
+    public static final class HistogramSnapshot {
+        public final long count;
+        public final long sum;
+        public final long min;
+        public final long max;
+
+        private final long[] buckets = new long[BUCKET_COUNT];
+
+        private HistogramSnapshot(InMemoryHistogram histogram) {
+            long bucketCount = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets[i] = histogram.buckets.get(i);
+                bucketCount += buckets[i];
+            }
+            // Use the count of the buckets, so that percentiles are consistent with the count.
+            count = bucketCount;
+            sum = histogram.sum.sum();
+            if (count == 0) {
+                min = 0;
+                max = 0;
+            } else {
+                min = histogram.min.get();
+                max = histogram.max.get();
+            }
+        }
+
+        public double getMean() {
+            if (count == 0) {
+                return 0;
+            }
+            return (double) sum / count;
+        }
+
+        /**
+         * Get the approximated value at the given percentile.
+         *
+         * @param percentile the percentile, between 0 and 100.
+         * @return the approximated value, which is never greater than the maximum recorded value.
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100");
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    long bucketUpperBound = i == Long.SIZE ? Long.MAX_VALUE : (1L << i) - 1;
+                    return Math.max(min, Math.min(bucketUpperBound, max));
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + ", mean=" + getMean() + ", min=" + min + ", p50=" + getValueAtPercentile(50)
+                            + ", p99=" + getValueAtPercentile(99) + ", max=" + max;
+        }
+    }
+
+    public static final class Stats extends AbstractStats {
+
+        public final Map<String, Long> counters;
+        public final Map<String, HistogramSnapshot> histograms;
+
+        private Stats(InMemoryMetricsRegistry registry) {
+            SortedMap<MetricKey, Long> counters = new TreeMap<>();
+            for (Map.Entry<MetricKey, InMemoryCounter> entry : registry.counters.entrySet()) {
+                counters.put(entry.getKey(), entry.getValue().value.sum());
+            }
+            SortedMap<MetricKey, HistogramSnapshot> histograms = new TreeMap<>();
+            for (Map.Entry<MetricKey, InMemoryHistogram> entry : registry.histograms.entrySet()) {
+                histograms.put(entry.getKey(), new HistogramSnapshot(entry.getValue()));
+            }
+            this.counters = toStringKeys(counters);
+            this.histograms = toStringKeys(histograms);
+        }
+
+        private static <V> Map<String, V> toStringKeys(SortedMap<MetricKey, V> map) {
+            // Keep the order of the metric keys, as the string representations do not sort numerically.
+            Map<String, V> res = new LinkedHashMap<>(map.size());
+            for (Map.Entry<MetricKey, V> entry : map.entrySet()) {
+                res.put(entry.getKey().toString(), entry.getValue());
+            }
+            return Collections.unmodifiableMap(res);
+        }
+
+        @Override
+        public void appendStatsTo(ExtendedAppendable appendable) throws IOException {
+            StringUtils.appendHeading(appendable, "Smack metrics", '#').append('\n');
+            for (Map.Entry<String, Long> entry : counters.entrySet()) {
+                appendable.append(entry.getKey()).append(": ").append(String.valueOf(entry.getValue())).append('\n');
+            }
+            for (Map.Entry<String, HistogramSnapshot> entry : histograms.entrySet()) {
+                appendable.append(entry.getKey()).append(": ").append(entry.getValue().toString()).append('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.metrics;
+
+import org.jivesoftware.smack.XMPPConnection;
+
+/**
+ * The service provider interface of Smack's metrics. A registry hands out the counters and histograms Smack updates.
+ * Smack looks up the metrics of a connection once, when the connection is constructed, and caches the returned
+ * instances. Metrics qualified by a dynamic value, like the namespace of an IQ request, are looked up once per
+ * qualifier. Hence lookups do not need to be particularly fast, but updates of the returned metrics should be.
+ * <p>
+ * The connection passed to the lookup methods may not be fully constructed yet. Implementations should only use it
+ * to identify the connection, e.g. via {@link XMPPConnection#getConnectionCounter()}, and must not retain it
+ * strongly, as this would prevent the connection from being garbage collected.
+ * </p>
+ *
+ * @see ConnectionMetrics for the names of the metrics Smack reports.
+ */
+public interface MetricsRegistry {
+
+    /**
+     * Get the counter with the given name for the given connection.
+     *
+     * @param connection the connection.
+     * @param name the name of the counter.
+     * @return the counter.
+     */
+    Counter counter(XMPPConnection connection, String name);
+
+    /**
+     * Get the histogram with the given name and optional qualifier for the given connection.
+     *
+     * @param connection the connection.
+     * @param name the name of the histogram.
+     * @param qualifier an optional qualifier, e.g. a namespace, may be <code>null</code>.
+     * @return the histogram.
+     */
+    Histogram histogram(XMPPConnection connection, String name, String qualifier);
+
+    /**
+     * Check if this registry is enabled. Smack avoids the costs of measuring, e.g. reading the clock, if the registry
+     * is not enabled.
+     *
+     * @return <code>true</code> if this registry is enabled.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+}
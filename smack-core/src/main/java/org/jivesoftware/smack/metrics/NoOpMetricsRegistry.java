@@ -0,0 +1,45 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.metrics;
+
+import org.jivesoftware.smack.XMPPConnection;
+
+/**
+ * The default metrics registry, which discards all values.
+ */
+public final class NoOpMetricsRegistry implements MetricsRegistry {
+
+    public static final NoOpMetricsRegistry INSTANCE = new NoOpMetricsRegistry();
+
+    private NoOpMetricsRegistry() {
+    }
+
+    @Override
+    public Counter counter(XMPPConnection connection, String name) {
+        return Counter.NO_OP;
+    }
+
+    @Override
+    public Histogram histogram(XMPPConnection connection, String name, String qualifier) {
+        return Histogram.NO_OP;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+}
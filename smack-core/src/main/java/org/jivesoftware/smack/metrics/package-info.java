@@ -0,0 +1,25 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * A lightweight, pluggable metrics SPI. Smack reports counters and histograms of its hot paths to the
+ * {@link org.jivesoftware.smack.metrics.MetricsRegistry} set via
+ * {@link org.jivesoftware.smack.SmackConfiguration#setMetricsRegistry(MetricsRegistry)}. The default registry discards
+ * all values, {@link org.jivesoftware.smack.metrics.InMemoryMetricsRegistry} is a reference implementation which keeps
+ * the values in memory. Adapters for monitoring systems implement {@link org.jivesoftware.smack.metrics.MetricsRegistry}.
+ */
+package org.jivesoftware.smack.metrics;
@@ -0,0 +1,135 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.packet;
+
+import java.io.IOException;
+
+import org.jivesoftware.smack.parsing.SmackParsingException;
+import org.jivesoftware.smack.parsing.StandardExtensionElementProvider;
+import org.jivesoftware.smack.provider.Provider;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.util.StringUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+import org.jxmpp.JxmppContext;
+
+/**
+ * An extension element which only holds its raw XML. The XML is parsed on demand, e.g. into a
+ * {@link StandardExtensionElement} via {@link #getStandardExtensionElement()}, or with an arbitrary provider via
+ * {@link #parse(Provider)}. This avoids the cost of building an element tree for payloads which are never inspected.
+ * <p>
+ * Lazy extension elements are created by {@link org.jivesoftware.smack.parsing.LazyExtensionElementProvider}, either
+ * because the provider was registered for a particular extension element, or because
+ * {@link org.jivesoftware.smack.SmackConfiguration#setUnknownExtensionElementParsingMode} was set to
+ * {@link org.jivesoftware.smack.SmackConfiguration.UnknownExtensionElementParsingMode#lazy}.
+ * </p>
+ * <p>
+ * Note that the raw XML is a verbatim slice of the stream if the XML parser supports roundtrip. Hence it does not
+ * include namespace prefixes declared by ancestors of the extension element.
+ * </p>
+ *
+ * @since 4.5
+ */
+public final class LazyExtensionElement implements XmlElement {
+
+    private final String name;
+    private final String namespace;
+    private final String rawXml;
+
+    private StandardExtensionElement standardExtensionElement;
+
+    public LazyExtensionElement(String name, String namespace, CharSequence rawXml) {
+        this.name = StringUtils.requireNotNullNorEmpty(name, "Name must not be null nor empty");
+        this.namespace = StringUtils.requireNotNullNorEmpty(namespace, "Namespace must not be null nor empty");
+        this.rawXml = rawXml.toString();
+    }
+
+    @Override
+    public String getElementName() {
+        return name;
+    }
+
+    @Override
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public String getRawXml() {
+        return rawXml;
+    }
+
+    /**
+     * Parse the raw XML of this element with the given provider.
+     *
+     * @param <E> the type of the resulting element.
+     * @param provider the provider used to parse the element.
+     * @return the parsed element.
+     * @throws XmlPullParserException if an error in the XML parser occurred.
+     * @throws IOException if an I/O error occurred.
+     * @throws SmackParsingException if the provider encountered invalid input.
+     */
+    public <E extends Element> E parse(Provider<E> provider)
+                    throws XmlPullParserException, IOException, SmackParsingException {
+        return parse(provider, JxmppContext.getDefaultContext());
+    }
+
+    /**
+     * Parse the raw XML of this element with the given provider.
+     *
+     * @param <E> the type of the resulting element.
+     * @param provider the provider used to parse the element.
+     * @param jxmppContext the JXMPP context used when creating JIDs.
+     * @return the parsed element.
+     * @throws XmlPullParserException if an error in the XML parser occurred.
+     * @throws IOException if an I/O error occurred.
+     * @throws SmackParsingException if the provider encountered invalid input.
+     */
+    public <E extends Element> E parse(Provider<E> provider, JxmppContext jxmppContext)
+                    throws XmlPullParserException, IOException, SmackParsingException {
+        XmlPullParser parser = PacketParserUtils.getParserFor(rawXml);
+        return provider.parse(parser, null, jxmppContext);
+    }
+
+    /**
+     * Get this element as {@link StandardExtensionElement}. The raw XML is parsed on the first invocation, subsequent
+     * invocations return the same instance.
+     *
+     * @return this element as {@link StandardExtensionElement}.
+     */
+    public synchronized StandardExtensionElement getStandardExtensionElement() {
+        if (standardExtensionElement == null) {
+            try {
+                standardExtensionElement = parse(StandardExtensionElementProvider.INSTANCE);
+            } catch (XmlPullParserException | IOException | SmackParsingException e) {
+                // The raw XML was obtained from a well-formed XML stream, hence this should never happen.
+                throw new IllegalStateException("Could not parse the raw XML of " + this, e);
+            }
+        }
+        return standardExtensionElement;
+    }
+
+    @Override
+    public String toXML(XmlEnvironment xmlEnvironment) {
+        return rawXml;
+    }
+
+    @Override
+    public String toString() {
+        return "LazyExtensionElement(" + namespace + ':' + name + ')';
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.parsing;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.LazyExtensionElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.provider.ExtensionElementProvider;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+import org.jxmpp.JxmppContext;
+
+/**
+ * The parser for {@link LazyExtensionElement}s. It skips over the element while keeping its raw XML, without building
+ * an element tree. Register this provider for extension elements which are usually not inspected, in order to defer
+ * their parsing to the point where they are actually accessed.
+ *
+ * @author Florian Schmaus
+ *
+ */
+public class LazyExtensionElementProvider extends ExtensionElementProvider<LazyExtensionElement> {
+
+    public static final LazyExtensionElementProvider INSTANCE = new LazyExtensionElementProvider();
+
+    @Override
+    public LazyExtensionElement parse(XmlPullParser parser, int initialDepth, XmlEnvironment xmlEnvironment,
+                    JxmppContext jxmppContext) throws XmlPullParserException, IOException {
+        String name = parser.getName();
+        String namespace = parser.getNamespace();
+        CharSequence rawXml;
+        if (parser.supportsRoundtrip()) {
+            rawXml = copyXml(parser, initialDepth);
+        } else {
+            rawXml = reconstructXml(parser, initialDepth);
+        }
+        return new LazyExtensionElement(name, namespace, rawXml);
+    }
+
+    /**
+     * Copy the XML of the current element verbatim, for XML parsers which support roundtrip.
+     *
+     * @param parser the XML parser, positioned at the start tag of the element.
+     * @param initialDepth the depth of the element.
+     * @return the XML of the element.
+     * @throws XmlPullParserException if an error in the XML parser occurred.
+     * @throws IOException if an I/O error occurred.
+     */
+    private static String copyXml(XmlPullParser parser, int initialDepth) throws XmlPullParserException, IOException {
+        StringBuilder xml = new StringBuilder(256);
+        boolean emptyElementTag = false;
+        XmlPullParser.Event event = parser.getEventType();
+        while (true) {
+            switch (event) {
+            case START_ELEMENT:
+                String startTag = parser.getText();
+                xml.append(startTag);
+                emptyElementTag = startTag.endsWith("/>");
+                break;
+            case TEXT_CHARACTERS:
+                // The parser reports the text with resolved entities, hence it needs to be escaped again.
+                appendEscaped(xml, parser.getText(), false);
+                break;
+            case END_ELEMENT:
+                // The end event of an empty element tag, e.g. <foo/>, reports the start tag again.
+                if (!emptyElementTag) {
+                    xml.append(parser.getText());
+                }
+                emptyElementTag = false;
+
+                if (parser.getDepth() <= initialDepth) {
+                    return xml.toString();
+                }
+                break;
+            default:
+                // Catch all for incomplete switch (MissingCasesInEnumSwitch) statement.
+                break;
+            }
+            event = parser.next();
+        }
+    }
+
+    /**
+     * Reconstruct the XML of the current element for XML parsers which do not support roundtrip. Unlike
+     * {@link PacketParserUtils#parseContentDepth(XmlPullParser, int, boolean)}, this writes straight into a single
+     * {@link StringBuilder}, and only declares the namespace of an element if it differs from the one of its parent.
+     *
+     * @param parser the XML parser, positioned at the start tag of the element.
+     * @param initialDepth the depth of the element.
+     * @return the XML of the element.
+     * @throws XmlPullParserException if an error in the XML parser occurred.
+     * @throws IOException if an I/O error occurred.
+     */
+    private static String reconstructXml(XmlPullParser parser, int initialDepth)
+                    throws XmlPullParserException, IOException {
+        StringBuilder xml = new StringBuilder(256);
+        // The qualified names of the currently open elements. Using them for the end tags avoids querying the parser
+        // again, which is costly for some implementations.
+        List<QName> openElements = new ArrayList<>();
+        boolean startTagOpen = false;
+        XmlPullParser.Event event = parser.getEventType();
+        while (true) {
+            switch (event) {
+            case START_ELEMENT:
+                if (startTagOpen) {
+                    xml.append('>');
+                }
+                startTagOpen = true;
+
+                QName qname = parser.getQName();
+                String parentNamespace = openElements.isEmpty() ? XMLConstants.NULL_NS_URI
+                                : openElements.get(openElements.size() - 1).getNamespaceURI();
+                openElements.add(qname);
+
+                xml.append('<').append(qname.getLocalPart());
+                if (!qname.getNamespaceURI().equals(parentNamespace)) {
+                    appendAttribute(xml, "xmlns", qname.getNamespaceURI());
+                }
+
+                final int attributeCount = parser.getAttributeCount();
+                for (int i = 0; i < attributeCount; i++) {
+                    String attributePrefix = parser.getAttributePrefix(i);
+                    if (attributePrefix == null || attributePrefix.isEmpty()) {
+                        appendAttribute(xml, parser.getAttributeName(i), parser.getAttributeValue(i));
+                        continue;
+                    }
+
+                    if (!attributePrefix.equals("xml") && !isPrefixDeclaredByPreviousAttribute(parser, i)) {
+                        appendAttribute(xml, "xmlns:" + attributePrefix, parser.getAttributeNamespace(i));
+                    }
+                    appendAttribute(xml, attributePrefix + ':' + parser.getAttributeName(i),
+                                    parser.getAttributeValue(i));
+                }
+                break;
+            case TEXT_CHARACTERS:
+                if (startTagOpen) {
+                    xml.append('>');
+                    startTagOpen = false;
+                }
+                appendEscaped(xml, parser.getText(), false);
+                break;
+            case END_ELEMENT:
+                if (startTagOpen) {
+                    xml.append("/>");
+                    startTagOpen = false;
+                } else {
+                    xml.append("</").append(openElements.get(openElements.size() - 1).getLocalPart()).append('>');
+                }
+                openElements.remove(openElements.size() - 1);
+
+                if (parser.getDepth() <= initialDepth) {
+                    return xml.toString();
+                }
+                break;
+            default:
+                // Catch all for incomplete switch (MissingCasesInEnumSwitch) statement.
+                break;
+            }
+            event = parser.next();
+        }
+    }
+
+    private static boolean isPrefixDeclaredByPreviousAttribute(XmlPullParser parser, int attributeIndex) {
+        String attributePrefix = parser.getAttributePrefix(attributeIndex);
+        for (int i = 0; i < attributeIndex; i++) {
+            if (attributePrefix.equals(parser.getAttributePrefix(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void appendAttribute(StringBuilder xml, String name, String value) {
+        xml.append(' ').append(name).append("='");
+        appendEscaped(xml, value, true);
+        xml.append('\'');
+    }
+
+    private static void appendEscaped(StringBuilder xml, String string, boolean attribute) {
+        final int length = string.length();
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            switch (c) {
+            case '<':
+                xml.append("&lt;");
+                break;
+            case '>':
+                xml.append("&gt;");
+                break;
+            case '&':
+                xml.append("&amp;");
+                break;
+            case '\'':
+                if (attribute) {
+                    xml.append("&apos;");
+                } else {
+                    xml.append(c);
+                }
+                break;
+            default:
+                xml.append(c);
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.provider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.namespace.QName;
+
+/**
+ * A lookup table for providers, optimized for the lookups performed while parsing.
+ * <p>
+ * Unlike a map keyed by {@link QName}, this does not require to allocate and hash a {@link QName} for every lookup.
+ * The table is a two-level map, keyed by the namespace and then by the element name. Both keys are interned on
+ * registration. As most XML parsers return interned (or at least reused) strings for namespaces and element names,
+ * and {@link String#equals(Object)} first checks for identity, a lookup usually boils down to two identity comparisons
+ * of strings whose hash codes are already cached. The per-namespace tables are immutable and get replaced on
+ * modification, which is rare compared to the lookups.
+ * </p>
+ *
+ * @param <P> the type of the providers.
+ */
+final class ProviderLookupTable<P> {
+
+    private final Map<String, NamespaceTable<P>> namespaceTables = new ConcurrentHashMap<>();
+
+    P get(String elementName, String namespace) {
+        NamespaceTable<P> namespaceTable = namespaceTables.get(nullToEmpty(namespace));
+        if (namespaceTable == null) {
+            return null;
+        }
+        return namespaceTable.get(elementName);
+    }
+
+    P get(QName qname) {
+        return get(qname.getLocalPart(), qname.getNamespaceURI());
+    }
+
+    synchronized P put(String elementName, String namespace, P provider) {
+        namespace = nullToEmpty(namespace).intern();
+        NamespaceTable<P> namespaceTable = namespaceTables.get(namespace);
+        Map<String, P> providers;
+        if (namespaceTable == null) {
+            providers = new HashMap<>(2);
+        } else {
+            providers = namespaceTable.toMap();
+        }
+        P previousProvider = providers.put(elementName.intern(), provider);
+        namespaceTables.put(namespace, NamespaceTable.of(providers));
+        return previousProvider;
+    }
+
+    synchronized P remove(String elementName, String namespace) {
+        namespace = nullToEmpty(namespace);
+        NamespaceTable<P> namespaceTable = namespaceTables.get(namespace);
+        if (namespaceTable == null) {
+            return null;
+        }
+        Map<String, P> providers = namespaceTable.toMap();
+        P removedProvider = providers.remove(elementName);
+        if (removedProvider == null) {
+            return null;
+        }
+        if (providers.isEmpty()) {
+            namespaceTables.remove(namespace);
+        } else {
+            namespaceTables.put(namespace, NamespaceTable.of(providers));
+        }
+        return removedProvider;
+    }
+
+    private static String nullToEmpty(String namespace) {
+        if (namespace == null) {
+            // Mimic QName, which treats a null namespace as the empty namespace.
+            return "";
+        }
+        return namespace;
+    }
+
+    List<P> values() {
+        List<P> values = new ArrayList<>();
+        for (NamespaceTable<P> namespaceTable : namespaceTables.values()) {
+            values.addAll(namespaceTable.toMap().values());
+        }
+        return values;
+    }
+
+    /**
+     * The providers of a single namespace. Most namespaces have only a single registered element, for which we avoid
+     * the map.
+     */
+    private static final class NamespaceTable<P> {
+        private final String singleElementName;
+        private final P singleProvider;
+        private final Map<String, P> providers;
+
+        private NamespaceTable(String singleElementName, P singleProvider, Map<String, P> providers) {
+            this.singleElementName = singleElementName;
+            this.singleProvider = singleProvider;
+            this.providers = providers;
+        }
+
+        private static <P> NamespaceTable<P> of(Map<String, P> providers) {
+            if (providers.size() == 1) {
+                Map.Entry<String, P> entry = providers.entrySet().iterator().next();
+                return new NamespaceTable<>(entry.getKey(), entry.getValue(), null);
+            }
+            return new NamespaceTable<>(null, null, providers);
+        }
+
+        @SuppressWarnings("ReferenceEquality")
+        private P get(String elementName) {
+            if (providers == null) {
+                // Check for identity first, as the element name is likely interned.
+                if (singleElementName == elementName || singleElementName.equals(elementName)) {
+                    return singleProvider;
+                }
+                return null;
+            }
+            return providers.get(elementName);
+        }
+
+        private Map<String, P> toMap() {
+            if (providers == null) {
+                Map<String, P> map = new HashMap<>(2);
+                map.put(singleElementName, singleProvider);
+                return map;
+            }
+            return new HashMap<>(providers);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ProviderLookupTable(" + Collections.unmodifiableMap(namespaceTables).keySet() + ')';
+    }
+}
@@ -17,10 +17,7 @@
 
 package org.jivesoftware.smack.provider;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.namespace.QName;
 
@@ -114,10 +111,12 @@ import org.jivesoftware.smack.util.XmppElementUtil;
  */
 public final class ProviderManager {
 
-    private static final Map<QName, ExtensionElementProvider<ExtensionElement>> extensionProviders = new ConcurrentHashMap<>();
-    private static final Map<QName, IqProvider<IQ>> iqProviders = new ConcurrentHashMap<>();
-    private static final Map<QName, ExtensionElementProvider<ExtensionElement>> streamFeatureProviders = new ConcurrentHashMap<>();
-    private static final Map<QName, NonzaProvider<? extends Nonza>> nonzaProviders = new ConcurrentHashMap<>();
+    // The providers are looked up for every element while parsing, hence they are kept in lookup tables which do not
+    // require a QName instance as key.
+    private static final ProviderLookupTable<ExtensionElementProvider<ExtensionElement>> extensionProviders = new ProviderLookupTable<>();
+    private static final ProviderLookupTable<IqProvider<IQ>> iqProviders = new ProviderLookupTable<>();
+    private static final ProviderLookupTable<ExtensionElementProvider<ExtensionElement>> streamFeatureProviders = new ProviderLookupTable<>();
+    private static final ProviderLookupTable<NonzaProvider<? extends Nonza>> nonzaProviders = new ProviderLookupTable<>();
 
     static {
         // Ensure that Smack is initialized by calling getVersion, so that user
@@ -170,8 +169,7 @@ public final class ProviderManager {
      * @return the IQ provider.
      */
     public static IqProvider<IQ> getIQProvider(String elementName, String namespace) {
-        QName key = getQName(elementName, namespace);
-        return iqProviders.get(key);
+        return iqProviders.get(elementName, namespace);
     }
 
     /**
@@ -182,9 +180,7 @@ public final class ProviderManager {
      * @return all IqProvider instances.
      */
     public static List<IqProvider<IQ>> getIQProviders() {
-        List<IqProvider<IQ>> providers = new ArrayList<>(iqProviders.size());
-        providers.addAll(iqProviders.values());
-        return providers;
+        return iqProviders.values();
     }
 
     /**
@@ -200,10 +196,8 @@ public final class ProviderManager {
     public static void addIQProvider(String elementName, String namespace,
             Object provider) {
         validate(elementName, namespace);
-        // First remove existing providers
-        QName key = removeIQProvider(elementName, namespace);
         if (provider instanceof IqProvider) {
-            iqProviders.put(key, (IqProvider<IQ>) provider);
+            iqProviders.put(elementName, namespace, (IqProvider<IQ>) provider);
         } else {
             throw new IllegalArgumentException("Provider must be an instance of IqProvider");
         }
@@ -219,9 +213,8 @@ public final class ProviderManager {
      * @return the QName of the removed provider
      */
     public static QName removeIQProvider(String elementName, String namespace) {
-        QName key = getQName(elementName, namespace);
-        iqProviders.remove(key);
-        return key;
+        iqProviders.remove(elementName, namespace);
+        return getQName(elementName, namespace);
     }
 
     /**
@@ -244,8 +237,7 @@ public final class ProviderManager {
      * @return the extension provider.
      */
     public static ExtensionElementProvider<ExtensionElement> getExtensionProvider(String elementName, String namespace) {
-        QName key = getQName(elementName, namespace);
-        return getExtensionProvider(key);
+        return extensionProviders.get(elementName, namespace);
     }
 
     public static ExtensionElementProvider<ExtensionElement> getExtensionProvider(QName qname) {
@@ -265,10 +257,8 @@ public final class ProviderManager {
     public static void addExtensionProvider(String elementName, String namespace,
             Object provider) {
         validate(elementName, namespace);
-        // First remove existing providers
-        QName key = removeExtensionProvider(elementName, namespace);
         if (provider instanceof ExtensionElementProvider) {
-            extensionProviders.put(key, (ExtensionElementProvider<ExtensionElement>) provider);
+            extensionProviders.put(elementName, namespace, (ExtensionElementProvider<ExtensionElement>) provider);
         } else {
             throw new IllegalArgumentException("Provider must be a PacketExtensionProvider");
         }
@@ -284,9 +274,8 @@ public final class ProviderManager {
      * @return the QName of the removed stanza extension provider
      */
     public static QName removeExtensionProvider(String elementName, String namespace) {
-        QName key = getQName(elementName, namespace);
-        extensionProviders.remove(key);
-        return key;
+        extensionProviders.remove(elementName, namespace);
+        return getQName(elementName, namespace);
     }
 
     /**
@@ -297,30 +286,24 @@ public final class ProviderManager {
      * @return all PacketExtensionProvider instances.
      */
     public static List<ExtensionElementProvider<ExtensionElement>> getExtensionProviders() {
-        List<ExtensionElementProvider<ExtensionElement>> providers = new ArrayList<>(extensionProviders.size());
-        providers.addAll(extensionProviders.values());
-        return providers;
+        return extensionProviders.values();
     }
 
     public static ExtensionElementProvider<ExtensionElement> getStreamFeatureProvider(String elementName, String namespace) {
-        QName key = getQName(elementName, namespace);
-        return streamFeatureProviders.get(key);
+        return streamFeatureProviders.get(elementName, namespace);
     }
 
     public static void addStreamFeatureProvider(String elementName, String namespace, ExtensionElementProvider<ExtensionElement> provider) {
         validate(elementName, namespace);
-        QName key = getQName(elementName, namespace);
-        streamFeatureProviders.put(key, provider);
+        streamFeatureProviders.put(elementName, namespace, provider);
     }
 
     public static void removeStreamFeatureProvider(String elementName, String namespace) {
-        QName key = getQName(elementName, namespace);
-        streamFeatureProviders.remove(key);
+        streamFeatureProviders.remove(elementName, namespace);
     }
 
     public static NonzaProvider<? extends Nonza> getNonzaProvider(String elementName, String namespace) {
-        QName key = getQName(elementName, namespace);
-        return getNonzaProvider(key);
+        return nonzaProviders.get(elementName, namespace);
     }
 
     public static NonzaProvider<? extends Nonza> getNonzaProvider(QName key) {
@@ -330,17 +313,16 @@ public final class ProviderManager {
     public static void addNonzaProvider(NonzaProvider<? extends Nonza> nonzaProvider) {
         Class<? extends Nonza> nonzaClass = nonzaProvider.getElementClass();
         QName key = XmppElementUtil.getQNameFor(nonzaClass);
-        nonzaProviders.put(key, nonzaProvider);
+        nonzaProviders.put(key.getLocalPart(), key.getNamespaceURI(), nonzaProvider);
     }
 
     public static void removeNonzaProvider(Class<? extends Nonza> nonzaClass) {
         QName key = XmppElementUtil.getQNameFor(nonzaClass);
-        nonzaProviders.remove(key);
+        nonzaProviders.remove(key.getLocalPart(), key.getNamespaceURI());
     }
 
     public static void removeNonzaProvider(String elementName, String namespace) {
-        QName key = getQName(elementName, namespace);
-        nonzaProviders.remove(key);
+        nonzaProviders.remove(elementName, namespace);
     }
 
     private static QName getQName(String elementName, String namespace) {
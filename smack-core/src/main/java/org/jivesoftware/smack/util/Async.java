@@ -19,6 +19,9 @@ package org.jivesoftware.smack.util;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.jivesoftware.smack.SmackConfiguration;
+import org.jivesoftware.smack.SmackConfiguration.ThreadMode;
+
 public class Async {
 
     /**
@@ -48,7 +51,18 @@ public class Async {
         return thread;
     }
 
+    /**
+     * Creates a new, not yet started, daemon thread with the given Runnable. This is a virtual thread if
+     * {@link SmackConfiguration#getThreadMode()} is {@link ThreadMode#virtualThreads}.
+     *
+     * @param runnable the runnable the thread executes.
+     * @return the new thread.
+     */
     public static Thread daemonThreadFrom(Runnable runnable) {
+        if (SmackConfiguration.getThreadMode() == ThreadMode.virtualThreads) {
+            // Virtual threads are always daemon threads.
+            return VirtualThreads.newThread(runnable);
+        }
         Thread thread = new Thread(runnable);
         thread.setDaemon(true);
         return thread;
@@ -0,0 +1,375 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jivesoftware.smack.SmackConfiguration;
+
+/**
+ * A pool of {@link ByteBuffer}s shared by all connections. The pool hands out buffers of power of two sized classes,
+ * ranging from {@link #MIN_BUFFER_SIZE} to {@link #MAX_BUFFER_SIZE}. Users are expected to borrow buffers only for the
+ * time they are required, e.g. while performing I/O, and to {@link #release(ByteBuffer)} them afterwards, so that idle
+ * connections do not hold any buffer memory.
+ * <p>
+ * Direct buffers are allocated in slabs of {@link #SLAB_SIZE} bytes, which are split into buffers of the requested
+ * size class. This amortizes the considerable costs of allocating direct memory. The number of buffers retained per size
+ * class is bounded, surplus buffers are left to the garbage collector.
+ * </p>
+ * <p>
+ * If leak detection is enabled, which is the default if {@link SmackConfiguration#DEBUG} is set, then the pool records
+ * where a buffer was acquired and logs a warning, including the recorded location, if a buffer got garbage collected
+ * without being released.
+ * </p>
+ *
+ * @since 4.5
+ */
+public final class ByteBufferPool {
+
+    private static final Logger LOGGER = Logger.getLogger(ByteBufferPool.class.getName());
+
+    /**
+     * The size of the smallest size class.
+     */
+    public static final int MIN_BUFFER_SIZE = 512;
+
+    /**
+     * The size of the largest size class. Larger buffers are not pooled.
+     */
+    public static final int MAX_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * The size of the slabs direct buffers are allocated in.
+     */
+    public static final int SLAB_SIZE = 64 * 1024;
+
+    /**
+     * The default number of bytes retained per size class.
+     */
+    public static final int DEFAULT_MAX_POOLED_BYTES_PER_SIZE_CLASS = 2 * 1024 * 1024;
+
+    private static final int MIN_BUFFER_SIZE_SHIFT = Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+
+    private static final int SIZE_CLASS_COUNT = Integer.numberOfTrailingZeros(MAX_BUFFER_SIZE) - MIN_BUFFER_SIZE_SHIFT + 1;
+
+    private static final ByteBufferPool DIRECT_BUFFER_POOL = new ByteBufferPool(true,
+                    DEFAULT_MAX_POOLED_BYTES_PER_SIZE_CLASS);
+
+    private static final ByteBufferPool HEAP_BUFFER_POOL = new ByteBufferPool(false,
+                    DEFAULT_MAX_POOLED_BYTES_PER_SIZE_CLASS);
+
+    /**
+     * Get the shared pool of direct buffers.
+     *
+     * @return the shared pool of direct buffers.
+     */
+    public static ByteBufferPool getDirectBufferPool() {
+        return DIRECT_BUFFER_POOL;
+    }
+
+    /**
+     * Get the shared pool of heap buffers. Buffers of this pool are backed by an accessible array, which starts at
+     * array offset zero.
+     *
+     * @return the shared pool of heap buffers.
+     */
+    public static ByteBufferPool getHeapBufferPool() {
+        return HEAP_BUFFER_POOL;
+    }
+
+    private final boolean direct;
+
+    private final SizeClass[] sizeClasses = new SizeClass[SIZE_CLASS_COUNT];
+
+    private final LongAdder acquiredBuffers = new LongAdder();
+    private final LongAdder releasedBuffers = new LongAdder();
+    private final LongAdder discardedBuffers = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder leakedBuffers = new LongAdder();
+
+    private final ConcurrentHashMap<LeakTracker, LeakTracker> leakTrackers = new ConcurrentHashMap<>();
+    private final ReferenceQueue<ByteBuffer> leakReferenceQueue = new ReferenceQueue<>();
+
+    private volatile boolean leakDetectionEnabled = SmackConfiguration.DEBUG;
+
+    /**
+     * Create a new pool.
+     *
+     * @param direct if the pool should hand out direct buffers.
+     * @param maxPooledBytesPerSizeClass the maximum number of bytes retained per size class.
+     */
+    public ByteBufferPool(boolean direct, int maxPooledBytesPerSizeClass) {
+        this.direct = direct;
+        for (int i = 0; i < sizeClasses.length; i++) {
+            int bufferSize = MIN_BUFFER_SIZE << i;
+            sizeClasses[i] = new SizeClass(bufferSize, maxPooledBytesPerSizeClass / bufferSize);
+        }
+    }
+
+    /**
+     * Enable or disable leak detection. Note that only buffers acquired while leak detection is enabled are tracked.
+     *
+     * @param leakDetectionEnabled <code>true</code> to enable leak detection.
+     */
+    public void setLeakDetectionEnabled(boolean leakDetectionEnabled) {
+        this.leakDetectionEnabled = leakDetectionEnabled;
+    }
+
+    /**
+     * Acquire a buffer with at least the given capacity. The returned buffer is cleared, its limit is its capacity. It
+     * should be passed to {@link #release(ByteBuffer)} once it is no longer used.
+     *
+     * @param minCapacity the minimum capacity of the buffer.
+     * @return a buffer with at least the given capacity.
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        if (minCapacity < 0) {
+            throw new IllegalArgumentException("The capacity must not be negative");
+        }
+
+        acquiredBuffers.increment();
+
+        ByteBuffer buffer;
+        if (minCapacity > MAX_BUFFER_SIZE) {
+            buffer = allocate(minCapacity);
+        } else {
+            SizeClass sizeClass = sizeClasses[sizeClassIndex(minCapacity)];
+            buffer = sizeClass.freeBuffers.poll();
+            if (buffer != null) {
+                sizeClass.pooledBuffers.decrementAndGet();
+                ((java.nio.Buffer) buffer).clear();
+            } else {
+                buffer = allocateFor(sizeClass);
+            }
+        }
+
+        if (leakDetectionEnabled) {
+            reportLeaks();
+            LeakTracker leakTracker = new LeakTracker(buffer, leakReferenceQueue);
+            leakTrackers.put(leakTracker, leakTracker);
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Release a buffer previously acquired from this pool. The buffer must not be used by the caller afterwards. Buffers
+     * which have not been acquired from this pool, and <code>null</code>, are silently ignored.
+     *
+     * @param buffer the buffer to release, may be <code>null</code>.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+
+        if (!leakTrackers.isEmpty()) {
+            LeakTracker leakTracker = leakTrackers.remove(new LeakTracker(buffer, null));
+            if (leakTracker != null) {
+                leakTracker.clear();
+            }
+        }
+
+        releasedBuffers.increment();
+
+        int capacity = buffer.capacity();
+        if (buffer.isDirect() != direct || buffer.isReadOnly() || capacity < MIN_BUFFER_SIZE
+                        || capacity > MAX_BUFFER_SIZE || Integer.bitCount(capacity) != 1) {
+            discardedBuffers.increment();
+            return;
+        }
+
+        SizeClass sizeClass = sizeClasses[sizeClassIndex(capacity)];
+        if (sizeClass.pooledBuffers.incrementAndGet() > sizeClass.maxPooledBuffers) {
+            sizeClass.pooledBuffers.decrementAndGet();
+            discardedBuffers.increment();
+            return;
+        }
+
+        sizeClass.freeBuffers.offer(buffer);
+    }
+
+    private ByteBuffer allocateFor(SizeClass sizeClass) {
+        final int bufferSize = sizeClass.bufferSize;
+        if (!direct || bufferSize >= SLAB_SIZE) {
+            return allocate(bufferSize);
+        }
+
+        // Split a new slab into buffers of the size class. The first one is handed out, the remaining ones are put into
+        // the pool.
+        ByteBuffer slab = allocate(SLAB_SIZE);
+        ByteBuffer buffer = null;
+        for (int position = 0; position < SLAB_SIZE; position += bufferSize) {
+            ((java.nio.Buffer) slab).limit(position + bufferSize);
+            ((java.nio.Buffer) slab).position(position);
+            ByteBuffer slice = slab.slice();
+            if (buffer == null) {
+                buffer = slice;
+            } else {
+                sizeClass.pooledBuffers.incrementAndGet();
+                sizeClass.freeBuffers.offer(slice);
+            }
+        }
+        return buffer;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        allocatedBytes.add(capacity);
+        if (direct) {
+            return ByteBuffer.allocateDirect(capacity);
+        }
+        return ByteBuffer.allocate(capacity);
+    }
+
+    private void reportLeaks() {
+        Reference<? extends ByteBuffer> reference;
+        while ((reference = leakReferenceQueue.poll()) != null) {
+            LeakTracker leakTracker = (LeakTracker) reference;
+            if (leakTrackers.remove(leakTracker) == null) {
+                continue;
+            }
+            leakedBuffers.increment();
+            LOGGER.log(Level.WARNING, "A buffer of " + leakTracker.capacity + " bytes was garbage collected without being released to "
+                            + this + ". It was acquired at the attached location.", leakTracker.acquiredAt);
+        }
+    }
+
+    private static int sizeClassIndex(int capacity) {
+        if (capacity <= MIN_BUFFER_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_BUFFER_SIZE_SHIFT;
+    }
+
+    /**
+     * Get the statistics of this pool.
+     *
+     * @return the statistics of this pool.
+     */
+    public Stats getStats() {
+        return new Stats(this);
+    }
+
+    @Override
+    public String toString() {
+        return "ByteBufferPool(" + (direct ? "direct" : "heap") + ')';
+    }
+
+    private static final class SizeClass {
+        private final int bufferSize;
+        private final int maxPooledBuffers;
+        private final Queue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pooledBuffers = new AtomicInteger();
+
+        private SizeClass(int bufferSize, int maxPooledBuffers) {
+            this.bufferSize = bufferSize;
+            this.maxPooledBuffers = maxPooledBuffers;
+        }
+    }
+
+    /**
+     * Tracks an acquired buffer. Note that {@link ByteBuffer#equals(Object)} compares the buffer's content, hence
+     * trackers compare the identity of the tracked buffers.
+     */
+    private static final class LeakTracker extends WeakReference<ByteBuffer> {
+        private final int identityHashCode;
+        private final int capacity;
+        private final Throwable acquiredAt;
+
+        private LeakTracker(ByteBuffer buffer, ReferenceQueue<ByteBuffer> referenceQueue) {
+            super(buffer, referenceQueue);
+            identityHashCode = System.identityHashCode(buffer);
+            capacity = buffer.capacity();
+            if (referenceQueue != null) {
+                acquiredAt = new Throwable("Buffer acquired");
+            } else {
+                // Trackers without reference queue are only used to look up trackers.
+                acquiredAt = null;
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return identityHashCode;
+        }
+
+        @SuppressWarnings("ReferenceEquality")
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof LeakTracker)) {
+                return false;
+            }
+            ByteBuffer buffer = get();
+            return buffer != null && buffer == ((LeakTracker) other).get();
+        }
+    }
+
+    public static final class Stats {
+        public final long acquiredBuffers;
+        public final long releasedBuffers;
+        public final long discardedBuffers;
+        public final long allocatedBytes;
+        public final long pooledBytes;
+        public final long leakedBuffers;
+
+        private Stats(ByteBufferPool pool) {
+            acquiredBuffers = pool.acquiredBuffers.sum();
+            releasedBuffers = pool.releasedBuffers.sum();
+            discardedBuffers = pool.discardedBuffers.sum();
+            allocatedBytes = pool.allocatedBytes.sum();
+            long pooledBytes = 0;
+            for (SizeClass sizeClass : pool.sizeClasses) {
+                pooledBytes += (long) sizeClass.bufferSize * sizeClass.pooledBuffers.get();
+            }
+            this.pooledBytes = pooledBytes;
+            leakedBuffers = pool.leakedBuffers.sum();
+        }
+
+        private transient String toStringCache;
+
+        @Override
+        public String toString() {
+            if (toStringCache != null) {
+                return toStringCache;
+            }
+
+            toStringCache =
+                  "acquired-buffers: " + acquiredBuffers + '\n'
+                + "released-buffers: " + releasedBuffers + '\n'
+                + "discarded-buffers: " + discardedBuffers + '\n'
+                + "allocated-bytes: " + allocatedBytes + '\n'
+                + "pooled-bytes: " + pooledBytes + '\n'
+                + "leaked-buffers: " + leakedBuffers + '\n'
+                ;
+
+            return toStringCache;
+        }
+    }
+}
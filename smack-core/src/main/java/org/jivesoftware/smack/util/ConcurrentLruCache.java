@@ -0,0 +1,161 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded cache with an approximated least recently used (LRU) eviction policy, which, unlike jxmpp's
+ * <code>LruCache</code>, does not serialize its users on a single lock. Lookups and insertions operate on a
+ * {@link ConcurrentHashMap} and record the time of the last access of an entry. Once the cache grows beyond its
+ * maximum size, the thread that inserted the entry evicts the least recently accessed entries. The eviction removes a
+ * few more entries than necessary, so that its costs are amortized over the following insertions, and is skipped if
+ * another thread is already evicting. Hence the cache may temporarily hold slightly more entries than its maximum size.
+ *
+ * @param <K> the type of the keys.
+ * @param <V> the type of the values.
+ * @since 4.5
+ */
+public final class ConcurrentLruCache<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<V>> map = new ConcurrentHashMap<>();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private volatile int maxCacheSize;
+
+    /**
+     * Create a new cache with the given maximum size.
+     *
+     * @param maxCacheSize the maximum number of entries of the cache.
+     */
+    public ConcurrentLruCache(int maxCacheSize) {
+        setMaxCacheSize(maxCacheSize);
+    }
+
+    /**
+     * Lookup the value of the given key.
+     *
+     * @param key the key.
+     * @return the value of the key, or <code>null</code> if the key is not in the cache.
+     */
+    public V lookup(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            return null;
+        }
+        entry.lastAccess = System.nanoTime();
+        return entry.value;
+    }
+
+    /**
+     * Put the given key-value pair in the cache, possibly evicting the least recently used entries.
+     *
+     * @param key the key.
+     * @param value the value.
+     * @return the previous value of the key, or <code>null</code>.
+     */
+    public V put(K key, V value) {
+        Entry<V> previous = map.put(key, new Entry<>(value));
+        evictIfRequired();
+        if (previous == null) {
+            return null;
+        }
+        return previous.value;
+    }
+
+    /**
+     * Remove the given key from the cache.
+     *
+     * @param key the key.
+     * @return the value of the removed key, or <code>null</code>.
+     */
+    public V remove(K key) {
+        Entry<V> removed = map.remove(key);
+        if (removed == null) {
+            return null;
+        }
+        return removed.value;
+    }
+
+    public void clear() {
+        map.clear();
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public int getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    /**
+     * Set the maximum size of the cache, evicting entries if the cache is now larger than the new maximum size.
+     *
+     * @param maxCacheSize the maximum number of entries of the cache.
+     */
+    public void setMaxCacheSize(int maxCacheSize) {
+        if (maxCacheSize < 1) {
+            throw new IllegalArgumentException("The maximum cache size must be positive");
+        }
+        this.maxCacheSize = maxCacheSize;
+        evictIfRequired();
+    }
+
+    private void evictIfRequired() {
+        final int maxCacheSize = this.maxCacheSize;
+        if (map.size() <= maxCacheSize) {
+            return;
+        }
+        if (!evictionLock.tryLock()) {
+            // Another thread is already evicting entries.
+            return;
+        }
+        try {
+            int excess = map.size() - maxCacheSize;
+            if (excess <= 0) {
+                return;
+            }
+            List<Map.Entry<K, Entry<V>>> entries = new ArrayList<>(map.entrySet());
+            int evictCount = Math.min(entries.size(), excess + maxCacheSize / 16);
+            // Least recently accessed first.
+            entries.sort((e1, e2) -> Long.compare(e1.getValue().lastAccess, e2.getValue().lastAccess));
+            for (int i = 0; i < evictCount; i++) {
+                Map.Entry<K, Entry<V>> entry = entries.get(i);
+                // Only remove the entry if it was not replaced in the meantime.
+                map.remove(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+
+        private volatile long lastAccess = System.nanoTime();
+
+        private Entry(V value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Encodes a sequence of {@link CharSequence}s, for example the parts of an {@link XmlStringBuilder} as returned by
+ * {@link XmlStringBuilder#toList(org.jivesoftware.smack.packet.XmlEnvironment)}, incrementally into UTF-8. Unlike
+ * {@link UTF8#encode(CharSequence)}, the character sequences are neither converted to a String nor is a new buffer
+ * allocated for them. Instead, as many bytes as fit are encoded into a caller provided {@link ByteBuffer}, which allows
+ * to serialize arbitrary large elements using a buffer of a fixed size.
+ * <p>
+ * Parts which are {@link PreEncodedXml} are not encoded again, instead their UTF-8 encoding is copied.
+ * </p>
+ * <p>
+ * Instances of this class are not thread-safe, but may be reused for multiple sequences.
+ * </p>
+ *
+ * @since 4.5
+ */
+public final class IncrementalUtf8Encoder {
+
+    /**
+     * The minimal number of bytes the buffer passed to {@link #encodeInto(ByteBuffer)} must have remaining. This
+     * ensures that every Unicode code point can be encoded.
+     */
+    public static final int MINIMUM_BUFFER_REMAINING = 4;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private Iterator<? extends CharSequence> parts;
+
+    private CharBuffer currentPart;
+
+    private ByteBuffer currentPreEncodedPart;
+
+    /**
+     * Start encoding the given character sequences. Any sequence which was not yet completely encoded is discarded.
+     *
+     * @param parts the character sequences to encode.
+     */
+    public void start(Iterator<? extends CharSequence> parts) {
+        this.parts = parts;
+        currentPart = null;
+        currentPreEncodedPart = null;
+        encoder.reset();
+    }
+
+    /**
+     * Check if there are remaining characters to encode.
+     *
+     * @return <code>true</code> if there are remaining characters to encode.
+     */
+    public boolean hasRemaining() {
+        return (currentPart != null && currentPart.hasRemaining())
+                        || (currentPreEncodedPart != null && currentPreEncodedPart.hasRemaining())
+                        || (parts != null && parts.hasNext());
+    }
+
+    /**
+     * Encode as many of the remaining characters as fit into the given buffer.
+     *
+     * @param buffer the buffer to encode the characters into.
+     * @return <code>true</code> if all characters have been encoded, <code>false</code> if the buffer got full.
+     * @throws IllegalArgumentException if the buffer has less than {@link #MINIMUM_BUFFER_REMAINING} bytes remaining.
+     */
+    public boolean encodeInto(ByteBuffer buffer) {
+        if (buffer.remaining() < MINIMUM_BUFFER_REMAINING) {
+            throw new IllegalArgumentException("The buffer must have at least " + MINIMUM_BUFFER_REMAINING
+                            + " bytes remaining, but has only " + buffer.remaining());
+        }
+
+        while (true) {
+            if (currentPreEncodedPart != null) {
+                if (!copyPreEncodedPartInto(buffer)) {
+                    return false;
+                }
+                currentPreEncodedPart = null;
+            }
+
+            if (currentPart == null || !currentPart.hasRemaining()) {
+                if (parts == null || !parts.hasNext()) {
+                    parts = null;
+                    currentPart = null;
+                    return true;
+                }
+                CharSequence nextPart = parts.next();
+                if (nextPart instanceof PreEncodedXml) {
+                    currentPart = null;
+                    currentPreEncodedPart = ((PreEncodedXml) nextPart).getUtf8();
+                    continue;
+                }
+                // CharBuffer.wrap() does not copy the characters of the sequence.
+                currentPart = CharBuffer.wrap(nextPart);
+            }
+
+            // Every part is a self-contained character sequence, hence signal the end of input. This causes a dangling
+            // surrogate at the end of a part to be replaced, instead of being silently dropped.
+            CoderResult result = encoder.encode(currentPart, buffer, true);
+            if (result.isOverflow()) {
+                return false;
+            }
+            assert result.isUnderflow();
+
+            // The UTF-8 encoder does not hold any state which needs to be flushed, but the CharsetEncoder API
+            // requires a flush() before the encoder can be reset and reused for the next part.
+            result = encoder.flush(buffer);
+            if (result.isOverflow()) {
+                return false;
+            }
+            encoder.reset();
+        }
+    }
+
+    private boolean copyPreEncodedPartInto(ByteBuffer buffer) {
+        ByteBuffer source = currentPreEncodedPart;
+        if (source.remaining() <= buffer.remaining()) {
+            buffer.put(source);
+            return true;
+        }
+
+        int limit = source.limit();
+        ((java.nio.Buffer) source).limit(source.position() + buffer.remaining());
+        buffer.put(source);
+        ((java.nio.Buffer) source).limit(limit);
+        return false;
+    }
+}
@@ -30,6 +30,7 @@ import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.jivesoftware.smack.SmackConfiguration;
 import org.jivesoftware.smack.compress.packet.Compress;
 import org.jivesoftware.smack.packet.EmptyResultIQ;
 import org.jivesoftware.smack.packet.ErrorIQ;
@@ -49,6 +50,7 @@ import org.jivesoftware.smack.packet.StreamError;
 import org.jivesoftware.smack.packet.UnparsedIQ;
 import org.jivesoftware.smack.packet.XmlElement;
 import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.parsing.LazyExtensionElementProvider;
 import org.jivesoftware.smack.parsing.SmackParsingException;
 import org.jivesoftware.smack.parsing.StandardExtensionElementProvider;
 import org.jivesoftware.smack.provider.ExtensionElementProvider;
@@ -830,7 +832,13 @@ public class PacketParserUtils {
         }
 
         // No providers registered, so use a default extension.
-        return StandardExtensionElementProvider.INSTANCE.parse(parser, outerXmlEnvironment, jxmppContext);
+        switch (SmackConfiguration.getUnknownExtensionElementParsingMode()) {
+        case lazy:
+            return LazyExtensionElementProvider.INSTANCE.parse(parser, outerXmlEnvironment, jxmppContext);
+        case standardExtensionElement:
+        default:
+            return StandardExtensionElementProvider.INSTANCE.parse(parser, outerXmlEnvironment, jxmppContext);
+        }
     }
 
     public static StartTls parseStartTlsFeature(XmlPullParser parser)
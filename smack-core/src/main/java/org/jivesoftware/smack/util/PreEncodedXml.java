@@ -0,0 +1,83 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An immutable piece of XML, which additionally holds its UTF-8 encoding. Elements whose XML representation never
+ * changes may append an instance of this class to the {@link XmlStringBuilder} returned by their <code>toXML()</code>
+ * method, ideally one obtained from a {@link PreEncodedXmlCache}. The XmlStringBuilder keeps it as a part. Transports which encode the outgoing XML with an {@link IncrementalUtf8Encoder} copy the
+ * pre-encoded bytes instead of encoding the characters again.
+ *
+ * @since 4.5
+ */
+public final class PreEncodedXml implements CharSequence {
+
+    private final String xml;
+
+    private final byte[] utf8;
+
+    /**
+     * Create a new pre-encoded XML from the given characters, which are encoded into UTF-8 right away.
+     *
+     * @param xml the XML.
+     */
+    public PreEncodedXml(CharSequence xml) {
+        this.xml = xml.toString();
+        this.utf8 = this.xml.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the number of bytes of the UTF-8 encoding of this XML.
+     *
+     * @return the length of the UTF-8 encoding.
+     */
+    public int getUtf8Length() {
+        return utf8.length;
+    }
+
+    /**
+     * Get the UTF-8 encoding of this XML as a new, read-only, buffer.
+     *
+     * @return the UTF-8 encoding of this XML.
+     */
+    public ByteBuffer getUtf8() {
+        return ByteBuffer.wrap(utf8).asReadOnlyBuffer();
+    }
+
+    @Override
+    public int length() {
+        return xml.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return xml.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return xml.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return xml;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import org.jivesoftware.smack.packet.XmlEnvironment;
+
+/**
+ * Caches the serialized form of an immutable element, so that it is not build again every time the element is sent.
+ * <p>
+ * The XML of an element may depend on its enclosing XML environment, for example the <code>xmlns</code> attribute is
+ * omitted if the enclosing element has the same namespace. Hence the cached XML is keyed by the effective namespace and
+ * language of the enclosing XML environment. Since elements are typically serialized within the same environment
+ * over and over again, the cache holds only the XML of the most recently used environment.
+ * </p>
+ * <pre>
+ * {@code
+ * private final PreEncodedXmlCache xmlCache = new PreEncodedXmlCache();
+ *
+ * public XmlStringBuilder toXML(XmlEnvironment enclosingXmlEnvironment) {
+ *     PreEncodedXml xml = xmlCache.get(enclosingXmlEnvironment);
+ *     if (xml == null) {
+ *         XmlStringBuilder xsb = new XmlStringBuilder(this, enclosingXmlEnvironment);
+ *         …
+ *         xml = xmlCache.put(enclosingXmlEnvironment, xsb);
+ *     }
+ *     return new XmlStringBuilder().append(xml);
+ * }
+ * }
+ * </pre>
+ * <p>
+ * Only elements which can not be modified after their creation must use this cache. Instances of this class are
+ * thread-safe.
+ * </p>
+ *
+ * @since 4.5
+ */
+public final class PreEncodedXmlCache {
+
+    private volatile Entry entry;
+
+    /**
+     * Get the cached XML for the given enclosing XML environment.
+     *
+     * @param enclosingXmlEnvironment the enclosing XML environment, may be <code>null</code>.
+     * @return the cached XML, or <code>null</code> if there is no XML cached for the given environment.
+     */
+    public PreEncodedXml get(XmlEnvironment enclosingXmlEnvironment) {
+        Entry entry = this.entry;
+        if (entry == null || !entry.matches(enclosingXmlEnvironment)) {
+            return null;
+        }
+        return entry.xml;
+    }
+
+    /**
+     * Cache the given XML for the given enclosing XML environment, replacing any previously cached XML.
+     *
+     * @param enclosingXmlEnvironment the enclosing XML environment, may be <code>null</code>.
+     * @param xml the XML of the element within the given environment.
+     * @return the cached XML.
+     */
+    public PreEncodedXml put(XmlEnvironment enclosingXmlEnvironment, CharSequence xml) {
+        if (enclosingXmlEnvironment == null) {
+            enclosingXmlEnvironment = XmlEnvironment.EMPTY;
+        }
+        Entry entry = new Entry(enclosingXmlEnvironment.getEffectiveNamespace(),
+                        enclosingXmlEnvironment.getEffectiveLanguage(), new PreEncodedXml(xml));
+        this.entry = entry;
+        return entry.xml;
+    }
+
+    private static final class Entry {
+        private final String namespace;
+        private final String language;
+        private final PreEncodedXml xml;
+
+        private Entry(String namespace, String language, PreEncodedXml xml) {
+            this.namespace = namespace;
+            this.language = language;
+            this.xml = xml;
+        }
+
+        private boolean matches(XmlEnvironment xmlEnvironment) {
+            if (xmlEnvironment == null) {
+                xmlEnvironment = XmlEnvironment.EMPTY;
+            }
+            return StringUtils.nullSafeCharSequenceEquals(namespace, xmlEnvironment.getEffectiveNamespace())
+                            && StringUtils.nullSafeCharSequenceEquals(language, xmlEnvironment.getEffectiveLanguage());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Access to virtual threads, which are available on Java 21 or higher.
+ * <p>
+ * As Smack targets older Java versions and Android, virtual threads are looked up reflectively once. If the runtime
+ * does not provide them, {@link #isSupported()} returns <code>false</code>.
+ * </p>
+ */
+public final class VirtualThreads {
+
+    private static final Logger LOGGER = Logger.getLogger(VirtualThreads.class.getName());
+
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = lookupVirtualThreadFactory();
+
+    private VirtualThreads() {
+    }
+
+    private static ThreadFactory lookupVirtualThreadFactory() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Object builder = ofVirtual.invoke(null);
+            // Unlike the builder, the factory of a builder is thread-safe.
+            Method factory = ofVirtual.getReturnType().getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (IllegalAccessException | InvocationTargetException | SecurityException e) {
+            LOGGER.log(Level.FINE, "Could not lookup virtual thread factory", e);
+            return null;
+        }
+    }
+
+    /**
+     * Check if the runtime supports virtual threads.
+     *
+     * @return <code>true</code> if virtual threads are supported.
+     */
+    public static boolean isSupported() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    /**
+     * Create a new, not yet started, virtual thread.
+     *
+     * @param runnable the runnable the thread executes.
+     * @return the new virtual thread.
+     * @throws UnsupportedOperationException if the runtime does not support virtual threads.
+     */
+    public static Thread newThread(Runnable runnable) {
+        if (VIRTUAL_THREAD_FACTORY == null) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this runtime");
+        }
+        return VIRTUAL_THREAD_FACTORY.newThread(runnable);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class AsyncButOrderedTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void runnablesOfTheSameKeyAreRunInOrder() throws InterruptedException {
+        final int keyCount = 16;
+        final int runnablesPerKey = 5 * AsyncButOrdered.MAX_BATCH_SIZE;
+        AsyncButOrdered<String> asyncButOrdered = new AsyncButOrdered<>(executor);
+
+        List<List<Integer>> results = new ArrayList<>(keyCount);
+        CountDownLatch done = new CountDownLatch(keyCount * runnablesPerKey);
+        List<Thread> submitters = new ArrayList<>(keyCount);
+        for (int k = 0; k < keyCount; k++) {
+            final String key = "key-" + k;
+            final List<Integer> keyResults = new ArrayList<>(runnablesPerKey);
+            results.add(keyResults);
+            submitters.add(new Thread(() -> {
+                for (int i = 0; i < runnablesPerKey; i++) {
+                    final int value = i;
+                    asyncButOrdered.performAsyncButOrdered(key, () -> {
+                        // Runnables of the same key never run concurrently, hence no synchronization is required.
+                        keyResults.add(value);
+                        done.countDown();
+                    });
+                }
+            }));
+        }
+        for (Thread submitter : submitters) {
+            submitter.start();
+        }
+
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+        for (List<Integer> keyResults : results) {
+            assertEquals(runnablesPerKey, keyResults.size());
+            for (int i = 0; i < runnablesPerKey; i++) {
+                assertEquals(i, keyResults.get(i).intValue());
+            }
+        }
+        waitUntilNoActiveKeys(asyncButOrdered);
+    }
+
+    @Test
+    public void throwingRunnableDoesNotStopTheQueue() throws InterruptedException {
+        AsyncButOrdered<String> asyncButOrdered = new AsyncButOrdered<>(executor);
+        List<Integer> results = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        // Block the handler, so that all following runnables end up in the same batch.
+        CountDownLatch blocker = new CountDownLatch(1);
+        asyncButOrdered.performAsyncButOrdered("key", () -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        });
+        asyncButOrdered.performAsyncButOrdered("key", () -> results.add(1));
+        asyncButOrdered.performAsyncButOrdered("key", () -> {
+            throw new IllegalStateException("Thrown by test");
+        });
+        asyncButOrdered.performAsyncButOrdered("key", () -> results.add(2));
+        asyncButOrdered.performAsyncButOrdered("key", done::countDown);
+        blocker.countDown();
+
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+        assertEquals(List.of(1, 2), results);
+        waitUntilNoActiveKeys(asyncButOrdered);
+    }
+
+    private static void waitUntilNoActiveKeys(AsyncButOrdered<?> asyncButOrdered) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (asyncButOrdered.getActiveKeyCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, asyncButOrdered.getActiveKeyCount());
+    }
+}
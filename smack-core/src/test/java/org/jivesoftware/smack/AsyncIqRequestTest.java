@@ -0,0 +1,96 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jivesoftware.smack.SmackException.NoResponseException;
+import org.jivesoftware.smack.XMPPException.XMPPErrorException;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.StanzaError;
+import org.jivesoftware.smack.packet.TestIQ;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class AsyncIqRequestTest {
+
+    private DummyConnection connection;
+
+    @BeforeEach
+    public void setUp() {
+        connection = DummyConnection.newConnectedDummyConnection();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        connection.disconnect();
+    }
+
+    @Test
+    public void manyRequestsInFlightAreCompletedByTheirResponses() throws Exception {
+        final int requestCount = 1000;
+        List<IQ> requests = new ArrayList<>(requestCount);
+        List<SmackFuture<IQ, Exception>> futures = new ArrayList<>(requestCount);
+        for (int i = 0; i < requestCount; i++) {
+            IQ request = new TestIQ();
+            request.setStanzaId("async-" + i);
+            requests.add(request);
+            futures.add(connection.sendIqRequestAsync(request));
+        }
+
+        // Respond in reverse order.
+        List<IQ> responses = new ArrayList<>(requestCount);
+        for (int i = requestCount - 1; i >= 0; i--) {
+            IQ response = IQ.createResultIQ(requests.get(i));
+            responses.add(0, response);
+            connection.processStanza(response);
+        }
+
+        for (int i = 0; i < requestCount; i++) {
+            assertSame(responses.get(i), futures.get(i).getOrThrow());
+        }
+    }
+
+    @Test
+    public void errorResponseCompletesFutureExceptionally() {
+        IQ request = new TestIQ();
+        SmackFuture<IQ, Exception> future = connection.sendIqRequestAsync(request);
+
+        connection.processStanza(IQ.createErrorResponse(request, StanzaError.Condition.item_not_found));
+
+        assertThrows(XMPPErrorException.class, () -> future.getOrThrow());
+    }
+
+    @Test
+    public void missingResponseCausesNoResponseException() {
+        IQ request = new TestIQ();
+        SmackFuture<IQ, Exception> future = connection.sendIqRequestAsync(request, 50);
+
+        assertThrows(NoResponseException.class, () -> future.getOrThrow());
+
+        // A late response must not change the outcome.
+        connection.processStanza(IQ.createResultIQ(request));
+        assertFalse(future.wasSuccessful());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jivesoftware.smack.filter.AndFilter;
+import org.jivesoftware.smack.filter.MessageTypeFilter;
+import org.jivesoftware.smack.filter.OrFilter;
+import org.jivesoftware.smack.filter.StanzaExtensionFilter;
+import org.jivesoftware.smack.filter.StanzaTypeFilter;
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.Presence;
+import org.jivesoftware.smack.packet.StandardExtensionElement;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+
+import org.junit.jupiter.api.Test;
+
+public class IndexedStanzaListenersTest {
+
+    private static final StanzaListener LISTENER_1 = s -> { };
+    private static final StanzaListener LISTENER_2 = s -> { };
+    private static final StanzaListener LISTENER_3 = s -> { };
+    private static final StanzaListener LISTENER_4 = s -> { };
+
+    private static final StandardExtensionElement FOO_EXTENSION = StandardExtensionElement.builder("foo", "urn:example:foo").build();
+
+    @Test
+    public void matchesByStanzaType() {
+        IndexedStanzaListeners listeners = new IndexedStanzaListeners();
+        listeners.add(LISTENER_1, StanzaTypeFilter.MESSAGE);
+        listeners.add(LISTENER_2, StanzaTypeFilter.PRESENCE);
+        listeners.add(LISTENER_3, null);
+        listeners.add(LISTENER_4, new OrFilter(StanzaTypeFilter.MESSAGE, StanzaTypeFilter.PRESENCE));
+
+        Message message = StanzaBuilder.buildMessage().build();
+        assertEquals(Arrays.asList(LISTENER_1, LISTENER_3, LISTENER_4), listeners.getMatchingListeners(message));
+
+        Presence presence = StanzaBuilder.buildPresence().build();
+        assertEquals(Arrays.asList(LISTENER_2, LISTENER_3, LISTENER_4), listeners.getMatchingListeners(presence));
+    }
+
+    @Test
+    public void matchesByExtensionElementAndRetainsOrder() {
+        IndexedStanzaListeners listeners = new IndexedStanzaListeners();
+        listeners.add(LISTENER_1, new StanzaExtensionFilter("foo", "urn:example:foo"));
+        listeners.add(LISTENER_2, MessageTypeFilter.CHAT);
+        listeners.add(LISTENER_3, new AndFilter(StanzaTypeFilter.MESSAGE, new StanzaExtensionFilter("foo", "urn:example:foo")));
+
+        Message chatMessage = StanzaBuilder.buildMessage().ofType(Message.Type.chat).build();
+        assertEquals(Collections.singletonList(LISTENER_2), listeners.getMatchingListeners(chatMessage));
+
+        Message chatMessageWithExtension = StanzaBuilder.buildMessage()
+                        .ofType(Message.Type.chat)
+                        .addExtension(FOO_EXTENSION)
+                        .build();
+        assertEquals(Arrays.asList(LISTENER_1, LISTENER_2, LISTENER_3),
+                        listeners.getMatchingListeners(chatMessageWithExtension));
+
+        Presence presenceWithExtension = StanzaBuilder.buildPresence().addExtension(FOO_EXTENSION).build();
+        assertEquals(Collections.singletonList(LISTENER_1), listeners.getMatchingListeners(presenceWithExtension));
+    }
+
+    @Test
+    public void readdedListenerIsOrderedLast() {
+        IndexedStanzaListeners listeners = new IndexedStanzaListeners();
+        listeners.add(LISTENER_1, null);
+        listeners.add(LISTENER_2, null);
+        listeners.add(LISTENER_3, new StanzaExtensionFilter("foo", "urn:example:foo"));
+        listeners.add(LISTENER_1, null);
+
+        Message message = StanzaBuilder.buildMessage().build();
+        assertEquals(Arrays.asList(LISTENER_2, LISTENER_1), listeners.getMatchingListeners(message));
+
+        Message messageWithExtension = StanzaBuilder.buildMessage().addExtension(FOO_EXTENSION).build();
+        assertEquals(Arrays.asList(LISTENER_2, LISTENER_3, LISTENER_1),
+                        listeners.getMatchingListeners(messageWithExtension));
+    }
+
+    @Test
+    public void removedListenerIsNoLongerMatchedAndInactive() {
+        IndexedStanzaListeners listeners = new IndexedStanzaListeners();
+        listeners.add(LISTENER_1, null);
+
+        Message message = StanzaBuilder.buildMessage().build();
+        List<IndexedStanzaListeners.Registration> matching = listeners.getMatching(message);
+        assertEquals(1, matching.size());
+        assertTrue(matching.get(0).isActive());
+
+        assertTrue(listeners.remove(LISTENER_1));
+        assertFalse(listeners.remove(LISTENER_1));
+
+        assertFalse(matching.get(0).isActive());
+        assertTrue(listeners.getMatching(message).isEmpty());
+    }
+}
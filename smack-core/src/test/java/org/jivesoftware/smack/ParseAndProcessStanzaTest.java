@@ -0,0 +1,89 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.filter.StanzaTypeFilter;
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+
+import org.junit.jupiter.api.Test;
+
+public class ParseAndProcessStanzaTest {
+
+    private static DummyConnection createConnectionWithOpenedStream() throws Exception {
+        DummyConnection connection = new DummyConnection();
+        XmlPullParser parser = PacketParserUtils.getParserFor("<stream:stream xmlns='jabber:client'"
+                        + " xmlns:stream='http://etherx.jabber.org/streams' from='example.org' id='stream-1'>");
+        connection.onStreamOpen(parser);
+        return connection;
+    }
+
+    @Test
+    public void stanzaXmlInheritsStreamNamespace() throws Exception {
+        DummyConnection connection = createConnectionWithOpenedStream();
+        StanzaCollector collector = connection.createStanzaCollector(StanzaTypeFilter.MESSAGE);
+
+        connection.parseAndProcessStanza("<message from='juliet@example.org/balcony' id='m1'><body>Hi</body></message>");
+
+        Message message = collector.pollResult();
+        assertNotNull(message);
+        assertEquals("m1", message.getStanzaId());
+        assertEquals("juliet@example.org/balcony", message.getFrom().toString());
+        // The body is only recognized if the message element inherited the 'jabber:client' namespace.
+        assertEquals("Hi", message.getBody());
+    }
+
+    @Test
+    public void stanzaXmlInheritsNamespacePrefixesOfStream() throws Exception {
+        DummyConnection connection = new DummyConnection();
+        XmlPullParser parser = PacketParserUtils.getParserFor("<stream:stream xmlns='jabber:client'"
+                        + " xmlns:stream='http://etherx.jabber.org/streams' xmlns:foo='urn:example:foo'"
+                        + " from='example.org' id='stream-1'>");
+        connection.onStreamOpen(parser);
+        StanzaCollector collector = connection.createStanzaCollector(StanzaTypeFilter.MESSAGE);
+
+        connection.parseAndProcessStanza("<message id='m1'><body>Hi</body><foo:bar>baz</foo:bar></message>");
+
+        Message message = collector.pollResult();
+        assertNotNull(message);
+        assertEquals("Hi", message.getBody());
+        assertNotNull(message.getExtension(new QName("urn:example:foo", "bar")));
+    }
+
+    @Test
+    public void malformedStanzaXmlIsReportedToParsingExceptionCallback() throws Exception {
+        DummyConnection connection = createConnectionWithOpenedStream();
+        StanzaCollector collector = connection.createStanzaCollector(StanzaTypeFilter.MESSAGE);
+        List<UnparseableStanza> unparseableStanzas = new ArrayList<>();
+        connection.setParsingExceptionCallback(unparseableStanzas::add);
+
+        connection.parseAndProcessStanza("<message id='m1' type='bogus'/>");
+
+        assertNull(collector.pollResult());
+        assertEquals(1, unparseableStanzas.size());
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class ReconnectionBackoffTest {
+
+    @Test
+    public void jitteredExponentialBackoffStaysWithinBounds() {
+        long previousDelayMillis = 0;
+        long maxSeenDelayMillis = 0;
+        for (int i = 0; i < 1000; i++) {
+            long delayMillis = ReconnectionManager.nextJitteredExponentialBackoffDelayMillis(previousDelayMillis);
+            assertTrue(delayMillis >= ReconnectionManager.BACKOFF_BASE_DELAY_MILLIS);
+            assertTrue(delayMillis <= ReconnectionManager.BACKOFF_MAX_DELAY_MILLIS);
+            assertTrue(delayMillis <= Math.max(previousDelayMillis, ReconnectionManager.BACKOFF_BASE_DELAY_MILLIS) * 3);
+            maxSeenDelayMillis = Math.max(maxSeenDelayMillis, delayMillis);
+            previousDelayMillis = delayMillis;
+        }
+        // The delay grows well beyond the base delay.
+        assertTrue(maxSeenDelayMillis > TimeUnit.MINUTES.toMillis(1));
+    }
+
+    @Test
+    public void jitteredExponentialBackoffDesynchronizesConnections() {
+        Set<Long> firstDelays = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            firstDelays.add(ReconnectionManager.nextJitteredExponentialBackoffDelayMillis(0));
+        }
+        assertTrue(firstDelays.size() > 10);
+    }
+
+    @Test
+    public void rateLimiterAllowsBurstAndThenLimitsRate() {
+        ReconnectionRateLimiter rateLimiter = new ReconnectionRateLimiter(2, 3);
+        long nowNanos = System.nanoTime();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(nowNanos));
+        }
+
+        long waitNanos = rateLimiter.tryAcquire(nowNanos);
+        assertTrue(waitNanos > 0);
+        assertTrue(waitNanos <= TimeUnit.MILLISECONDS.toNanos(500));
+
+        assertEquals(0, rateLimiter.tryAcquire(nowNanos + waitNanos));
+        assertTrue(rateLimiter.tryAcquire(nowNanos + waitNanos) > 0);
+
+        // The bucket does not fill beyond its burst size.
+        long muchLaterNanos = nowNanos + TimeUnit.MINUTES.toNanos(1);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(muchLaterNanos));
+        }
+        assertTrue(rateLimiter.tryAcquire(muchLaterNanos) > 0);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class ScheduledActionTimerWheelTest {
+
+    private static final long START_NANOS = 42;
+
+    private static final long TICK_NANOS = ScheduledActionTimerWheel.TICK_NANOS;
+
+    private final ScheduledActionTimerWheel wheel = new ScheduledActionTimerWheel(Thread.currentThread(), () -> { },
+                    START_NANOS);
+
+    private static ScheduledAction newAction(long releaseTick) {
+        return new ScheduledAction(() -> { }, START_NANOS + releaseTick * TICK_NANOS, null,
+                        ScheduledAction.Kind.NonBlocking);
+    }
+
+    private List<ScheduledAction> advanceToTick(long tick) {
+        wheel.advance(START_NANOS + tick * TICK_NANOS);
+        List<ScheduledAction> dueActions = new ArrayList<>();
+        for (ScheduledAction dueAction; (dueAction = wheel.pollDue()) != null;) {
+            dueActions.add(dueAction);
+        }
+        return dueActions;
+    }
+
+    @Test
+    public void actionsAreReleasedAtTheirReleaseTime() {
+        Random random = new Random(42);
+        final long maxTick = TimeUnit.DAYS.toMillis(2);
+        List<ScheduledAction> pendingActions = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            long releaseTick = random.nextInt(10) == 0 ? random.nextInt(100) : (long) (random.nextDouble() * maxTick);
+            ScheduledAction action = newAction(releaseTick);
+            pendingActions.add(action);
+            wheel.schedule(action);
+        }
+        assertEquals(pendingActions.size(), wheel.size());
+
+        long tick = 0;
+        while (!pendingActions.isEmpty()) {
+            long millisUntilNextEvent = wheel.getMillisUntilNextEvent(START_NANOS + tick * TICK_NANOS);
+            assertTrue(millisUntilNextEvent >= 0);
+            tick += Math.max(1, Math.min(millisUntilNextEvent, random.nextInt(100000)));
+
+            for (ScheduledAction dueAction : advanceToTick(tick)) {
+                long releaseTick = (dueAction.releaseTimeNanos - START_NANOS) / TICK_NANOS;
+                assertTrue(releaseTick <= tick, "Action released too early");
+                assertTrue(pendingActions.remove(dueAction));
+            }
+            for (ScheduledAction pendingAction : pendingActions) {
+                long releaseTick = (pendingAction.releaseTimeNanos - START_NANOS) / TICK_NANOS;
+                assertTrue(releaseTick > tick, "Action not released in time");
+            }
+        }
+
+        assertTrue(wheel.isEmpty());
+        assertEquals(-1, wheel.getMillisUntilNextEvent(START_NANOS + tick * TICK_NANOS));
+    }
+
+    @Test
+    public void nextEventIsReportedForDistantActions() {
+        final long releaseTick = TimeUnit.HOURS.toMillis(5);
+        wheel.schedule(newAction(releaseTick));
+
+        long tick = 0;
+        int wakeups = 0;
+        List<ScheduledAction> dueActions;
+        do {
+            long millisUntilNextEvent = wheel.getMillisUntilNextEvent(START_NANOS + tick * TICK_NANOS);
+            assertTrue(millisUntilNextEvent > 0);
+            tick += millisUntilNextEvent;
+            assertTrue(tick <= releaseTick);
+            dueActions = advanceToTick(tick);
+            wakeups++;
+        } while (dueActions.isEmpty());
+
+        assertEquals(releaseTick, tick);
+        // Cascading an action down to the lowest level only requires a few wakeups.
+        assertTrue(wakeups < 10);
+    }
+
+    @Test
+    public void cancelledActionsAreRemovedAndNotRun() {
+        ScheduledAction cancelledAction = newAction(100);
+        ScheduledAction action = newAction(100);
+        wheel.schedule(cancelledAction);
+        wheel.schedule(action);
+
+        assertTrue(wheel.cancel(cancelledAction));
+        assertFalse(wheel.cancel(cancelledAction));
+        assertEquals(1, wheel.size());
+
+        List<ScheduledAction> dueActions = advanceToTick(100);
+        assertEquals(1, dueActions.size());
+        assertSame(action, dueActions.get(0));
+        assertFalse(wheel.cancel(action));
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void requestsOfOtherThreadsAreQueued() throws InterruptedException {
+        AtomicInteger wakeups = new AtomicInteger();
+        ScheduledActionTimerWheel queuingWheel = new ScheduledActionTimerWheel(Thread.currentThread(),
+                        () -> wakeups.incrementAndGet(), START_NANOS);
+        ScheduledAction action = newAction(10);
+        ScheduledAction cancelledAction = newAction(10);
+
+        Thread otherThread = new Thread(() -> {
+            queuingWheel.schedule(action);
+            queuingWheel.schedule(cancelledAction);
+            queuingWheel.cancel(cancelledAction);
+        });
+        otherThread.start();
+        otherThread.join();
+
+        assertEquals(2, wakeups.get());
+        assertFalse(queuingWheel.isEmpty());
+        assertEquals(10, queuingWheel.getMillisUntilNextEvent(START_NANOS));
+        assertEquals(1, queuingWheel.size());
+
+        queuingWheel.advance(START_NANOS + 10 * TICK_NANOS);
+        assertSame(action, queuingWheel.pollDue());
+        assertNull(queuingWheel.pollDue());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SmackReactorTest {
+
+    private SmackReactor reactor;
+
+    private final List<Pipe> pipes = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        reactor = new SmackReactor("SmackReactorTest");
+        reactor.setReactorThreadCount(4);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        for (Pipe pipe : pipes) {
+            pipe.sink().close();
+            pipe.source().close();
+        }
+        reactor.setReactorThreadCount(1);
+    }
+
+    private Thread getCallbackThread(Object affinityKey) throws Exception {
+        Pipe pipe = Pipe.open();
+        pipes.add(pipe);
+        pipe.source().configureBlocking(false);
+
+        CompletableFuture<Thread> callbackThread = new CompletableFuture<>();
+        reactor.registerWithSelector(pipe.source(), SelectionKey.OP_READ, (channel, selectionKey) -> {
+            callbackThread.complete(Thread.currentThread());
+        }, affinityKey);
+        pipe.sink().write(ByteBuffer.wrap(new byte[] { 42 }));
+
+        return callbackThread.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void channelsWithSameAffinityKeyAreHandledBySameShard() throws Exception {
+        Object affinityKey = new Object();
+        Thread firstThread = getCallbackThread(affinityKey);
+        Thread secondThread = getCallbackThread(affinityKey);
+
+        assertSame(firstThread, secondThread);
+        assertTrue(firstThread instanceof SmackReactor.Shard);
+    }
+
+    @Test
+    public void channelsAreDistributedOverShards() throws Exception {
+        List<Thread> callbackThreads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            callbackThreads.add(getCallbackThread(i));
+        }
+
+        assertEquals(4, callbackThreads.stream().distinct().count());
+    }
+
+    @Test
+    public void scheduledActionsRunAndCanBeCancelled() throws Exception {
+        CountDownLatch ran = new CountDownLatch(1);
+        reactor.schedule(() -> ran.countDown(), 10, TimeUnit.MILLISECONDS, ScheduledAction.Kind.NonBlocking);
+
+        ScheduledAction cancelledAction = reactor.schedule(() -> {
+            throw new AssertionError("Cancelled action must not run");
+        }, 10, TimeUnit.MILLISECONDS, ScheduledAction.Kind.NonBlocking);
+        assertTrue(cancelledAction.cancel());
+        assertFalse(cancelledAction.cancel());
+
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void drainingShardsKeepServingTheirChannelsAndActions() throws Exception {
+        Object affinityKey = new Object();
+        Thread callbackThread = getCallbackThread(affinityKey);
+
+        CountDownLatch ran = new CountDownLatch(4);
+        for (int i = 0; i < 4; i++) {
+            reactor.schedule(() -> ran.countDown(), 100, TimeUnit.MILLISECONDS, ScheduledAction.Kind.NonBlocking);
+        }
+        reactor.setReactorThreadCount(1);
+        assertEquals(1, reactor.getReactorThreadCount());
+
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+        assertTrue(callbackThread.isAlive());
+    }
+}
@@ -22,6 +22,7 @@ import static org.junit.Assert.assertNull;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jivesoftware.smack.filter.StanzaFilter;
+import org.jivesoftware.smack.filter.StanzaIdFilter;
 import org.jivesoftware.smack.packet.Stanza;
 
 import org.junit.Test;
@@ -162,6 +163,31 @@ public class StanzaCollectorTest {
                         + consumer3DequeuedLocal, insertCount, totalDequeued);
     }
 
+    @Test
+    public void stanzaIdCollectorsReceiveTheirStanzas() throws InterruptedException {
+        DummyConnection connection = new DummyConnection();
+
+        StanzaCollector firstCollector = connection.createStanzaCollector(new StanzaIdFilter("1"));
+        StanzaCollector secondCollector = connection.createStanzaCollector(new StanzaIdFilter("2"));
+        // A second collector for the same stanza ID.
+        StanzaCollector otherFirstCollector = connection.createStanzaCollector(new StanzaIdFilter("1"));
+
+        connection.processStanza(new TestPacket(1));
+        connection.processStanza(new TestPacket(2));
+
+        assertEquals("1", firstCollector.nextResult(10).getStanzaId());
+        assertEquals("1", otherFirstCollector.nextResult(10).getStanzaId());
+        assertEquals("2", secondCollector.nextResult(10).getStanzaId());
+
+        firstCollector.cancel();
+        connection.processStanza(new TestPacket(1));
+        assertNull(firstCollector.pollResult());
+        assertEquals("1", otherFirstCollector.nextResult(10).getStanzaId());
+
+        secondCollector.cancel();
+        otherFirstCollector.cancel();
+    }
+
     static class OKEverything implements StanzaFilter {
         @Override
         public boolean accept(Stanza packet) {
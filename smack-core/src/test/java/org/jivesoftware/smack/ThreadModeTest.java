@@ -0,0 +1,99 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jivesoftware.smack.SmackConfiguration.ThreadMode;
+import org.jivesoftware.smack.filter.StanzaIdFilter;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+import org.jivesoftware.smack.util.Async;
+import org.jivesoftware.smack.util.VirtualThreads;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class ThreadModeTest {
+
+    @AfterEach
+    public void resetThreadMode() {
+        SmackConfiguration.setThreadMode(ThreadMode.platformThreads);
+    }
+
+    @Test
+    public void virtualThreadsRequireRuntimeSupport() {
+        assumeFalse(VirtualThreads.isSupported());
+
+        assertThrows(UnsupportedOperationException.class,
+                        () -> SmackConfiguration.setThreadMode(ThreadMode.virtualThreads));
+        assertEquals(ThreadMode.platformThreads, SmackConfiguration.getThreadMode());
+    }
+
+    @Test
+    public void manyBlockedStanzaCollectorWaitsOnVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+        SmackConfiguration.setThreadMode(ThreadMode.virtualThreads);
+
+        final int waiters = 10000;
+        DummyConnection connection = new DummyConnection();
+        List<StanzaCollector> collectors = new ArrayList<>(waiters);
+        for (int i = 0; i < waiters; i++) {
+            collectors.add(connection.createStanzaCollector(new StanzaIdFilter("id-" + i)));
+        }
+
+        AtomicInteger results = new AtomicInteger();
+        AtomicInteger virtualThreads = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(waiters);
+        for (StanzaCollector collector : collectors) {
+            Async.go(() -> {
+                try {
+                    if (Thread.currentThread().getClass() != Thread.class) {
+                        // The class of virtual threads is an internal subclass of Thread.
+                        virtualThreads.incrementAndGet();
+                    }
+                    if (collector.nextResult(TimeUnit.MINUTES.toMillis(1)) != null) {
+                        results.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        for (int i = 0; i < waiters; i++) {
+            Stanza stanza = StanzaBuilder.buildMessage("id-" + i).build();
+            collectors.get(i).processStanza(stanza);
+        }
+
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+        assertEquals(waiters, results.get());
+        assertEquals(waiters, virtualThreads.get());
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+import org.jivesoftware.smack.packet.StanzaError;
+
+import org.junit.jupiter.api.Test;
+import org.jxmpp.jid.EntityBareJid;
+import org.jxmpp.jid.impl.JidCreate;
+import org.jxmpp.jid.parts.Resourcepart;
+
+public class XMPPConnectionPoolTest {
+
+    private static EntityBareJid account(int i) {
+        return JidCreate.entityBareFromOrThrowUnchecked("bot" + i + "@example.org");
+    }
+
+    private static DummyConnection createConnection(EntityBareJid account) {
+        return new DummyConnection(DummyConnection.getDummyConfigurationBuilder()
+                        .setUsernameAndPassword(account.getLocalpart(), "password")
+                        .build());
+    }
+
+    private static final class SlowLoginConnection extends DummyConnection {
+        private final AtomicInteger concurrentLogins;
+        private final AtomicInteger maxObservedConcurrentLogins;
+
+        private SlowLoginConnection(EntityBareJid account, AtomicInteger concurrentLogins,
+                        AtomicInteger maxObservedConcurrentLogins) {
+            super(DummyConnection.getDummyConfigurationBuilder()
+                            .setUsernameAndPassword(account.getLocalpart(), "password")
+                            .build());
+            this.concurrentLogins = concurrentLogins;
+            this.maxObservedConcurrentLogins = maxObservedConcurrentLogins;
+        }
+
+        @Override
+        protected void loginInternal(String username, String password, Resourcepart resource) throws XMPPException {
+            int current = concurrentLogins.incrementAndGet();
+            maxObservedConcurrentLogins.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            } finally {
+                concurrentLogins.decrementAndGet();
+            }
+            super.loginInternal(username, password, resource);
+        }
+    }
+
+    private static final class FailingLoginConnection extends DummyConnection {
+        private final AtomicInteger shutdownCount = new AtomicInteger();
+
+        private FailingLoginConnection(EntityBareJid account) {
+            super(DummyConnection.getDummyConfigurationBuilder()
+                            .setUsernameAndPassword(account.getLocalpart(), "password")
+                            .build());
+        }
+
+        @Override
+        protected void shutdown() {
+            shutdownCount.incrementAndGet();
+            super.shutdown();
+        }
+
+        @Override
+        protected void loginInternal(String username, String password, Resourcepart resource) throws XMPPException {
+            throw new XMPPException.XMPPErrorException(null, StanzaError.getBuilder(StanzaError.Condition.not_authorized)
+                            .build());
+        }
+    }
+
+    @Test
+    public void connectionIsLoggedInOnFirstUseAndRoutedBySender() throws Exception {
+        XMPPConnectionPool pool = XMPPConnectionPool.builder().build();
+        List<DummyConnection> connections = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            EntityBareJid account = account(i);
+            pool.addAccount(account, () -> {
+                DummyConnection connection = createConnection(account);
+                connections.add(connection);
+                return connection;
+            });
+        }
+        assertEquals(0, connections.size());
+
+        Message message = StanzaBuilder.buildMessage("routed").to("juliet@example.org").build();
+        pool.sendStanza(JidCreate.entityFullFrom("bot1@example.org/resource"), message);
+
+        assertEquals(1, connections.size());
+        DummyConnection connection = connections.get(0);
+        assertTrue(connection.isAuthenticated());
+        assertEquals(1, pool.getLoggedInCount());
+        Message sent = connection.getSentPacket();
+        assertEquals("routed", sent.getStanzaId());
+
+        // The connection is reused.
+        assertSame(connection, pool.getConnection(account(1)));
+        assertEquals(1, connections.size());
+
+        assertThrows(IllegalArgumentException.class, () -> pool.getConnection(account(42)));
+        pool.close();
+    }
+
+    @Test
+    public void loginAllBoundsConcurrentLogins() throws Exception {
+        final int maxConcurrentLogins = 4;
+        XMPPConnectionPool pool = XMPPConnectionPool.builder().setMaxConcurrentLogins(maxConcurrentLogins).build();
+        AtomicInteger concurrentLogins = new AtomicInteger();
+        AtomicInteger maxObservedConcurrentLogins = new AtomicInteger();
+        List<EntityBareJid> accounts = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            EntityBareJid account = account(i);
+            accounts.add(account);
+            pool.addAccount(account,
+                            () -> new SlowLoginConnection(account, concurrentLogins, maxObservedConcurrentLogins));
+        }
+
+        Map<EntityBareJid, Exception> failures = pool.loginAll(accounts);
+
+        assertTrue(failures.isEmpty());
+        assertEquals(accounts.size(), pool.getLoggedInCount());
+        assertTrue(maxObservedConcurrentLogins.get() <= maxConcurrentLogins);
+        pool.close();
+        assertEquals(0, pool.getAccountCount());
+    }
+
+    @Test
+    public void idleConnectionsAreDisconnected() throws Exception {
+        XMPPConnectionPool pool = XMPPConnectionPool.builder().setIdleTimeout(100, TimeUnit.MILLISECONDS).build();
+        EntityBareJid account = account(0);
+        pool.addAccount(account, () -> createConnection(account));
+
+        AbstractXMPPConnection connection = pool.getConnection(account);
+        assertTrue(connection.isAuthenticated());
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (connection.isAuthenticated() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertFalse(connection.isAuthenticated());
+
+        // The next use logs the connection in again.
+        assertSame(connection, pool.getConnection(account));
+        assertTrue(connection.isAuthenticated());
+        pool.close();
+    }
+
+    @Test
+    public void connectionIsDisconnectedIfLoginFails() throws Exception {
+        XMPPConnectionPool pool = XMPPConnectionPool.builder().build();
+        EntityBareJid account = account(0);
+        List<FailingLoginConnection> connections = new ArrayList<>();
+        pool.addAccount(account, () -> {
+            FailingLoginConnection connection = new FailingLoginConnection(account);
+            connections.add(connection);
+            return connection;
+        });
+
+        assertThrows(XMPPException.XMPPErrorException.class, () -> pool.getConnection(account));
+
+        assertEquals(1, connections.size());
+        assertEquals(1, connections.get(0).shutdownCount.get());
+        assertEquals(0, pool.getLoggedInCount());
+        pool.close();
+    }
+}
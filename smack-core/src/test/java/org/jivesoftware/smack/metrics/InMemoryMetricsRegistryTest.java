@@ -0,0 +1,111 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.DummyConnection;
+import org.jivesoftware.smack.SmackConfiguration;
+import org.jivesoftware.smack.SmackFuture;
+import org.jivesoftware.smack.filter.StanzaTypeFilter;
+import org.jivesoftware.smack.packet.EmptyResultIQ;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+import org.jivesoftware.smack.packet.TestIQ;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class InMemoryMetricsRegistryTest {
+
+    @AfterEach
+    public void resetMetricsRegistry() {
+        SmackConfiguration.setMetricsRegistry(NoOpMetricsRegistry.INSTANCE);
+    }
+
+    @Test
+    public void histogramSnapshot() {
+        InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+        DummyConnection connection = new DummyConnection();
+        Histogram histogram = registry.histogram(connection, "test", "qualifier");
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        InMemoryMetricsRegistry.HistogramSnapshot snapshot = registry.getHistogram(connection, "test", "qualifier");
+        assertEquals(100, snapshot.count);
+        assertEquals(5050, snapshot.sum);
+        assertEquals(1, snapshot.min);
+        assertEquals(100, snapshot.max);
+        assertEquals(50.5, snapshot.getMean(), 0.001);
+        // 50 lies in the bucket [32, 63].
+        assertEquals(63, snapshot.getValueAtPercentile(50));
+        assertEquals(100, snapshot.getValueAtPercentile(100));
+
+        assertNull(registry.getHistogram(connection, "test", null));
+
+        registry.remove(connection);
+        assertNull(registry.getHistogram(connection, "test", "qualifier"));
+    }
+
+    @Test
+    public void recordsListenerAndIqRoundTripMetrics() throws Exception {
+        InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+        SmackConfiguration.setMetricsRegistry(registry);
+        DummyConnection connection = new DummyConnection();
+        connection.connect();
+        assertTrue(connection.getConnectionMetrics().isEnabled());
+
+        CountDownLatch listenerInvoked = new CountDownLatch(1);
+        connection.addAsyncStanzaListener(stanza -> listenerInvoked.countDown(), StanzaTypeFilter.MESSAGE);
+        Message message = StanzaBuilder.buildMessage().build();
+        connection.processStanza(message);
+        assertTrue(listenerInvoked.await(1, TimeUnit.MINUTES));
+
+        TestIQ request = new TestIQ("query", "urn:example:metrics");
+        request.setType(IQ.Type.get);
+        SmackFuture<IQ, Exception> future = connection.sendIqRequestAsync(request);
+        IQ response = new EmptyResultIQ(request);
+        connection.processStanza(response);
+        future.getOrThrow();
+
+        InMemoryMetricsRegistry.HistogramSnapshot iqRoundTrip = registry.getHistogram(connection,
+                        ConnectionMetrics.IQ_ROUND_TRIP_NANOS, "urn:example:metrics");
+        assertNotNull(iqRoundTrip);
+        assertEquals(1, iqRoundTrip.count);
+
+        // The listener histogram is recorded after the listener returned, hence wait for it.
+        for (int i = 0; i < 100; i++) {
+            InMemoryMetricsRegistry.HistogramSnapshot listener = registry.getHistogram(connection,
+                            ConnectionMetrics.LISTENER_NANOS, null);
+            if (listener.count == 1) {
+                break;
+            }
+            Thread.sleep(10);
+        }
+        assertEquals(1, registry.getHistogram(connection, ConnectionMetrics.LISTENER_NANOS, null).count);
+
+        assertTrue(registry.getStats().toString().contains(ConnectionMetrics.IQ_ROUND_TRIP_NANOS));
+    }
+}
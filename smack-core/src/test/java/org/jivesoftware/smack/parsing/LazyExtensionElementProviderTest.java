@@ -0,0 +1,98 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.parsing;
+
+import static org.jivesoftware.smack.util.PacketParserUtils.getParserFor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.jivesoftware.smack.SmackConfiguration;
+import org.jivesoftware.smack.SmackConfiguration.UnknownExtensionElementParsingMode;
+import org.jivesoftware.smack.packet.LazyExtensionElement;
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.StandardExtensionElement;
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.test.util.SmackTestUtil;
+import org.jivesoftware.smack.test.util.SmackTestUtil.XmlPullParserKind;
+import org.jivesoftware.smack.util.PacketParserUtils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.jxmpp.JxmppContext;
+
+public class LazyExtensionElementProviderTest {
+
+    private static final String EXTENSION_XML = "<payload xmlns='urn:example:payload' xmlns:ex='urn:example:ext'"
+                    + " version='2' ex:flag='it&apos;s'><item id='1'>first &amp; foremost</item><item id='2'/>"
+                    + "<empty></empty><nested xmlns='urn:example:nested'><child>x &lt; y</child></nested></payload>";
+
+    private static final String MESSAGE_XML = "<message xmlns='jabber:client' to='juliet@example.org' id='lazy-1'>"
+                    + "<body>Hi</body>" + EXTENSION_XML + "</message>";
+
+    @AfterEach
+    public void resetParsingMode() {
+        SmackConfiguration.setUnknownExtensionElementParsingMode(
+                        UnknownExtensionElementParsingMode.standardExtensionElement);
+    }
+
+    private static Message parseMessage(String xml, XmlPullParserKind parserKind) throws Exception {
+        return PacketParserUtils.parseMessage(SmackTestUtil.getParserFor(xml, parserKind), XmlEnvironment.EMPTY,
+                        JxmppContext.getDefaultContext());
+    }
+
+    private static StandardExtensionElement parseStandardExtensionElement(String xml) throws Exception {
+        return StandardExtensionElementProvider.INSTANCE.parse(getParserFor(xml));
+    }
+
+    @ParameterizedTest
+    @EnumSource(XmlPullParserKind.class)
+    public void lazyExtensionElementKeepsRawXml(XmlPullParserKind parserKind) throws Exception {
+        LazyExtensionElement element = SmackTestUtil.parse(EXTENSION_XML, LazyExtensionElementProvider.class,
+                        parserKind);
+
+        assertEquals("payload", element.getElementName());
+        assertEquals("urn:example:payload", element.getNamespace());
+        // The raw XML may be a verbatim copy or, if the XML parser does not support roundtrip, a reconstruction.
+        assertEquals(parseStandardExtensionElement(EXTENSION_XML).toXML().toString(),
+                        parseStandardExtensionElement(element.getRawXml()).toXML().toString());
+
+        StandardExtensionElement standardExtensionElement = element.getStandardExtensionElement();
+        assertEquals("2", standardExtensionElement.getAttributeValue("version"));
+        assertEquals(2, standardExtensionElement.getElements("item").size());
+        assertEquals("first & foremost", standardExtensionElement.getFirstElement("item").getText());
+        assertEquals("x < y", standardExtensionElement.getFirstElement("nested", "urn:example:nested")
+                        .getFirstElement("child").getText());
+        assertSame(standardExtensionElement, element.getStandardExtensionElement());
+    }
+
+    @ParameterizedTest
+    @EnumSource(XmlPullParserKind.class)
+    public void unknownExtensionElementsAreParsedLazilyIfConfigured(XmlPullParserKind parserKind) throws Exception {
+        Message message = parseMessage(MESSAGE_XML, parserKind);
+        assertTrue(message.getExtensionElement("payload", "urn:example:payload") instanceof StandardExtensionElement);
+
+        SmackConfiguration.setUnknownExtensionElementParsingMode(UnknownExtensionElementParsingMode.lazy);
+        message = parseMessage(MESSAGE_XML, parserKind);
+        XmlElement extension = message.getExtensionElement("payload", "urn:example:payload");
+        assertTrue(extension instanceof LazyExtensionElement);
+        assertEquals("Hi", message.getBody());
+        assertTrue(message.toXML().toString().contains(((LazyExtensionElement) extension).getRawXml()));
+    }
+}
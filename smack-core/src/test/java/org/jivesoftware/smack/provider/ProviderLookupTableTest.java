@@ -0,0 +1,84 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.provider;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import javax.xml.namespace.QName;
+
+import org.junit.jupiter.api.Test;
+
+public class ProviderLookupTableTest {
+
+    @Test
+    public void lookupDoesNotRequireIdenticalStrings() {
+        ProviderLookupTable<String> table = new ProviderLookupTable<>();
+        table.put("query", "jabber:iq:version", "version");
+
+        // Strings which are equal but not identical, as returned by some XML parsers.
+        String elementName = new String("query");
+        String namespace = new String("jabber:iq:version");
+        assertEquals("version", table.get(elementName, namespace));
+        assertEquals("version", table.get(new QName(namespace, elementName)));
+        assertNull(table.get("query", "jabber:iq:last"));
+        assertNull(table.get("x", "jabber:iq:version"));
+        assertNull(table.get("query", null));
+    }
+
+    @Test
+    public void multipleElementsPerNamespace() {
+        ProviderLookupTable<String> table = new ProviderLookupTable<>();
+        table.put("a", "urn:example", "a-provider");
+        table.put("b", "urn:example", "b-provider");
+        table.put("c", "urn:example", "c-provider");
+
+        assertEquals("a-provider", table.get("a", "urn:example"));
+        assertEquals("b-provider", table.get("b", "urn:example"));
+        assertEquals("c-provider", table.get("c", "urn:example"));
+        assertEquals(new HashSet<>(Arrays.asList("a-provider", "b-provider", "c-provider")),
+                        new HashSet<>(table.values()));
+
+        assertEquals("b-provider", table.put("b", "urn:example", "new-b-provider"));
+        assertEquals("new-b-provider", table.get("b", "urn:example"));
+
+        assertEquals("a-provider", table.remove("a", "urn:example"));
+        assertEquals("c-provider", table.remove("c", "urn:example"));
+        assertNull(table.get("a", "urn:example"));
+        assertEquals("new-b-provider", table.get("b", "urn:example"));
+
+        assertEquals("new-b-provider", table.remove("b", "urn:example"));
+        assertNull(table.remove("b", "urn:example"));
+        assertEquals(0, table.values().size());
+    }
+
+    @Test
+    public void nullNamespaceIsTheEmptyNamespace() {
+        ProviderLookupTable<String> table = new ProviderLookupTable<>();
+        table.put("x", null, "x-provider");
+        assertEquals("x-provider", table.get("x", ""));
+        assertEquals("x-provider", table.get("x", null));
+
+        assertEquals("x-provider", table.remove("x", null));
+        assertNull(table.get("x", ""));
+        assertNull(table.remove("x", null));
+        assertNull(table.remove("y", null));
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.jivesoftware.smack.provider;
 
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import org.jivesoftware.smack.SmackConfiguration;
@@ -39,6 +40,15 @@ public class ProviderManagerTest {
         assertTrue(SmackConfiguration.isSmackInitialized());
     }
 
+    @Test
+    public void shouldRemoveProvidersWithNullNamespace() {
+        // Removing with a null namespace must not throw, even though providers can not be added with one.
+        ProviderManager.removeIQProvider("foo", null);
+        ProviderManager.removeExtensionProvider("foo", null);
+        ProviderManager.removeNonzaProvider("foo", null);
+        assertNull(ProviderManager.getIQProvider("foo", null));
+    }
+
     public static class TestIQProvider extends IqProvider<IQ> {
 
         @Override
@@ -0,0 +1,127 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class ByteBufferPoolTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 512, 513, 4096, 5000, 64 * 1024, ByteBufferPool.MAX_BUFFER_SIZE})
+    public void acquiredBuffersHaveSizeClassCapacity(int minCapacity) {
+        ByteBufferPool pool = new ByteBufferPool(true, ByteBufferPool.DEFAULT_MAX_POOLED_BYTES_PER_SIZE_CLASS);
+        ByteBuffer buffer = pool.acquire(minCapacity);
+
+        assertTrue(buffer.isDirect());
+        assertTrue(buffer.capacity() >= minCapacity);
+        assertTrue(buffer.capacity() >= ByteBufferPool.MIN_BUFFER_SIZE);
+        assertEquals(1, Integer.bitCount(buffer.capacity()));
+        assertTrue(buffer.capacity() < 2 * Math.max(minCapacity, ByteBufferPool.MIN_BUFFER_SIZE));
+        assertEquals(0, buffer.position());
+        assertEquals(buffer.capacity(), buffer.limit());
+    }
+
+    @Test
+    public void releasedBuffersAreReusedAndCleared() {
+        ByteBufferPool pool = new ByteBufferPool(true, ByteBufferPool.DEFAULT_MAX_POOLED_BYTES_PER_SIZE_CLASS);
+        ByteBuffer buffer = pool.acquire(ByteBufferPool.SLAB_SIZE);
+        buffer.put((byte) 42).flip();
+        pool.release(buffer);
+
+        ByteBuffer reusedBuffer = pool.acquire(ByteBufferPool.SLAB_SIZE);
+        assertSame(buffer, reusedBuffer);
+        assertEquals(0, reusedBuffer.position());
+        assertEquals(reusedBuffer.capacity(), reusedBuffer.limit());
+    }
+
+    @Test
+    public void smallDirectBuffersAreSlicedFromSlabs() {
+        ByteBufferPool pool = new ByteBufferPool(true, ByteBufferPool.DEFAULT_MAX_POOLED_BYTES_PER_SIZE_CLASS);
+        final int buffersPerSlab = ByteBufferPool.SLAB_SIZE / 4096;
+        for (int i = 0; i < buffersPerSlab; i++) {
+            ByteBuffer buffer = pool.acquire(4096);
+            // Ensure that the slices do not overlap.
+            buffer.put(new byte[buffer.capacity()]);
+        }
+
+        ByteBufferPool.Stats stats = pool.getStats();
+        assertEquals(ByteBufferPool.SLAB_SIZE, stats.allocatedBytes);
+        assertEquals(0, stats.pooledBytes);
+    }
+
+    @Test
+    public void poolRetainsBoundedNumberOfBuffers() {
+        final int bufferSize = 128 * 1024;
+        ByteBufferPool pool = new ByteBufferPool(true, 2 * bufferSize);
+        ByteBuffer[] buffers = new ByteBuffer[3];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = pool.acquire(bufferSize);
+        }
+        for (ByteBuffer buffer : buffers) {
+            pool.release(buffer);
+        }
+
+        ByteBufferPool.Stats stats = pool.getStats();
+        assertEquals(2 * bufferSize, stats.pooledBytes);
+        assertEquals(1, stats.discardedBuffers);
+    }
+
+    @Test
+    public void foreignAndOversizedBuffersAreNotPooled() {
+        ByteBufferPool pool = new ByteBufferPool(true, ByteBufferPool.DEFAULT_MAX_POOLED_BYTES_PER_SIZE_CLASS);
+        ByteBuffer oversizedBuffer = pool.acquire(ByteBufferPool.MAX_BUFFER_SIZE + 1);
+        pool.release(oversizedBuffer);
+        pool.release(ByteBuffer.allocate(4096));
+        pool.release(null);
+
+        ByteBufferPool.Stats stats = pool.getStats();
+        assertEquals(0, stats.pooledBytes);
+        assertEquals(2, stats.discardedBuffers);
+        assertNotSame(oversizedBuffer, pool.acquire(ByteBufferPool.MAX_BUFFER_SIZE + 1));
+    }
+
+    @Test
+    public void heapBuffersHaveAccessibleArray() {
+        ByteBufferPool pool = new ByteBufferPool(false, ByteBufferPool.DEFAULT_MAX_POOLED_BYTES_PER_SIZE_CLASS);
+        ByteBuffer buffer = pool.acquire(1000);
+
+        assertFalse(buffer.isDirect());
+        assertTrue(buffer.hasArray());
+        assertEquals(0, buffer.arrayOffset());
+    }
+
+    @Test
+    public void releasedBuffersAreNotReportedAsLeaked() {
+        ByteBufferPool pool = new ByteBufferPool(true, ByteBufferPool.DEFAULT_MAX_POOLED_BYTES_PER_SIZE_CLASS);
+        pool.setLeakDetectionEnabled(true);
+        ByteBuffer buffer = pool.acquire(ByteBufferPool.SLAB_SIZE);
+        pool.release(buffer);
+        assertSame(buffer, pool.acquire(ByteBufferPool.SLAB_SIZE));
+
+        assertEquals(0, pool.getStats().leakedBuffers);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ConcurrentLruCacheTest {
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() throws InterruptedException {
+        ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<>(32);
+        for (int i = 0; i < 32; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        // Make sure that the following access is the most recent one, even with a coarse grained clock.
+        Thread.sleep(2);
+        assertEquals("0", cache.lookup(0));
+
+        cache.put(32, "32");
+
+        assertTrue(cache.size() <= 32);
+        assertEquals("0", cache.lookup(0));
+        assertEquals("32", cache.lookup(32));
+        assertNull(cache.lookup(1));
+
+        assertEquals("0", cache.remove(0));
+        assertNull(cache.lookup(0));
+
+        cache.setMaxCacheSize(4);
+        assertTrue(cache.size() <= 4);
+        assertEquals("32", cache.lookup(32));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void concurrentPutsRespectTheMaximumSize() throws InterruptedException {
+        final int maxCacheSize = 1000;
+        ConcurrentLruCache<Integer, Integer> cache = new ConcurrentLruCache<>(maxCacheSize);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int offset = t * 100_000;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    cache.put(offset + i, i);
+                    cache.lookup(offset + i / 2);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Trigger a final eviction, as the last puts may have skipped it while another thread was evicting.
+        cache.put(-1, -1);
+        assertTrue(cache.size() <= maxCacheSize, "Cache size " + cache.size() + " exceeds " + maxCacheSize);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jivesoftware.smack.packet.XmlEnvironment;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class IncrementalUtf8EncoderTest {
+
+    private static final String UNICODE_TEXT = "Grüße, 世界! 😀 <&>";
+
+    @ParameterizedTest
+    @ValueSource(ints = {4, 5, 7, 16, 1024})
+    public void encodesXmlStringBuilderPartsIntoSmallBuffers(int bufferSize) {
+        XmlStringBuilder xml = new XmlStringBuilder();
+        xml.halfOpenElement("message").attribute("to", "juliet@example.org").rightAngleBracket();
+        xml.element("body", UNICODE_TEXT);
+        xml.closeElement("message");
+        List<CharSequence> parts = xml.toList(XmlEnvironment.EMPTY);
+
+        IncrementalUtf8Encoder encoder = new IncrementalUtf8Encoder();
+        encoder.start(parts.iterator());
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+        boolean complete;
+        do {
+            buffer.clear();
+            complete = encoder.encodeInto(buffer);
+            buffer.flip();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            encoded.write(bytes, 0, bytes.length);
+        } while (!complete);
+
+        assertFalse(encoder.hasRemaining());
+        String expected = xml.toXML(XmlEnvironment.EMPTY).toString();
+        assertEquals(expected, new String(encoded.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {4, 5, 7, 16, 1024})
+    public void copiesPreEncodedPartsIntoSmallBuffers(int bufferSize) {
+        PreEncodedXml preEncodedXml = new PreEncodedXml("<body>" + UNICODE_TEXT + "</body>");
+        List<CharSequence> parts = Arrays.asList("<message>", preEncodedXml, preEncodedXml, "</message>");
+
+        IncrementalUtf8Encoder encoder = new IncrementalUtf8Encoder();
+        encoder.start(parts.iterator());
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        boolean complete;
+        do {
+            buffer.clear();
+            complete = encoder.encodeInto(buffer);
+            buffer.flip();
+            encoded.write(buffer.array(), 0, buffer.limit());
+        } while (!complete);
+
+        assertFalse(encoder.hasRemaining());
+        String expected = String.join("", parts);
+        assertEquals(expected, new String(encoded.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 3})
+    public void rejectsTooSmallBuffers(int bufferSize) {
+        IncrementalUtf8Encoder encoder = new IncrementalUtf8Encoder();
+        encoder.start(Arrays.asList("foo").iterator());
+
+        assertThrows(IllegalArgumentException.class, () -> encoder.encodeInto(ByteBuffer.allocate(bufferSize)));
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.jivesoftware.smack.packet.XmlEnvironment;
+
+import org.junit.jupiter.api.Test;
+
+public class PreEncodedXmlCacheTest {
+
+    @Test
+    public void cachedXmlIsKeyedByEffectiveEnvironment() {
+        PreEncodedXmlCache cache = new PreEncodedXmlCache();
+        XmlEnvironment client = new XmlEnvironment("jabber:client", "en");
+        assertNull(cache.get(client));
+
+        PreEncodedXml xml = cache.put(client, "<c xmlns='http://jabber.org/protocol/caps'/>");
+        assertEquals("<c xmlns='http://jabber.org/protocol/caps'/>", xml.toString());
+        assertEquals(xml.length(), xml.getUtf8Length());
+
+        // An equivalent environment hits the cache.
+        XmlEnvironment nested = XmlEnvironment.builder().withNext(new XmlEnvironment("jabber:client", "en")).build();
+        assertSame(xml, cache.get(nested));
+
+        // A different effective namespace or language does not.
+        assertNull(cache.get(new XmlEnvironment("jabber:server", "en")));
+        assertNull(cache.get(new XmlEnvironment("jabber:client", "de")));
+        assertNull(cache.get(null));
+
+        PreEncodedXml emptyEnvironmentXml = cache.put(null, "<c/>");
+        assertNotNull(emptyEnvironmentXml);
+        assertSame(emptyEnvironmentXml, cache.get(XmlEnvironment.EMPTY));
+    }
+}
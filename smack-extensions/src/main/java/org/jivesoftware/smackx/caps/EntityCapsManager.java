@@ -33,7 +33,12 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.jivesoftware.smack.ConnectionCreationListener;
 import org.jivesoftware.smack.ConnectionListener;
@@ -55,6 +60,7 @@ import org.jivesoftware.smack.packet.PresenceBuilder;
 import org.jivesoftware.smack.packet.Stanza;
 import org.jivesoftware.smack.roster.AbstractPresenceEventListener;
 import org.jivesoftware.smack.roster.Roster;
+import org.jivesoftware.smack.util.ConcurrentLruCache;
 import org.jivesoftware.smack.util.StringUtils;
 import org.jivesoftware.smack.util.stringencoder.Base64;
 
@@ -75,7 +81,6 @@ import org.jivesoftware.smackx.xdata.packet.DataForm;
 import org.jxmpp.jid.DomainBareJid;
 import org.jxmpp.jid.FullJid;
 import org.jxmpp.jid.Jid;
-import org.jxmpp.util.cache.LruCache;
 
 /**
  * Manages own and others Entity Capabilities (XEP-0115).
@@ -122,7 +127,13 @@ public final class EntityCapsManager extends Manager {
     public static final String NAMESPACE = CapsExtension.NAMESPACE;
     public static final String ELEMENT = CapsExtension.ELEMENT;
 
-    private static final Map<String, MessageDigest> SUPPORTED_HASHES = new HashMap<String, MessageDigest>();
+    private static final Logger LOGGER = Logger.getLogger(EntityCapsManager.class.getName());
+
+    /**
+     * The supported hashes. Every thread uses its own instance of the message digests, so that verification strings
+     * can be calculated concurrently.
+     */
+    private static final Map<String, ThreadLocal<MessageDigest>> SUPPORTED_HASHES = new HashMap<>();
 
     /**
      * The default hash. Currently 'sha-1'.
@@ -143,7 +154,7 @@ public final class EntityCapsManager extends Manager {
     /**
      * Map of "node + '#' + hash" to DiscoverInfo data
      */
-    static final LruCache<String, DiscoverInfo> CAPS_CACHE = new LruCache<>(1000);
+    static final ConcurrentLruCache<String, DiscoverInfo> CAPS_CACHE = new ConcurrentLruCache<>(1000);
 
     /**
      * Map of Full JID -&gt; DiscoverInfo/null. In case of c2s connection the
@@ -151,7 +162,13 @@ public final class EntityCapsManager extends Manager {
      * link-local connection the key is formed as user@host (no resource) In
      * case of a server or component the key is formed as domain
      */
-    static final LruCache<Jid, NodeVerHash> JID_TO_NODEVER_CACHE = new LruCache<>(10000);
+    static final ConcurrentLruCache<Jid, NodeVerHash> JID_TO_NODEVER_CACHE = new ConcurrentLruCache<>(10000);
+
+    /**
+     * Map of "node + '#' + hash" to the disco#info lookup currently in flight for it. Allows all callers that
+     * require the disco#info of the same node#ver to share a single request.
+     */
+    private static final Map<String, CompletableFuture<DiscoverInfo>> IN_FLIGHT_DISCO_INFO_LOOKUPS = new ConcurrentHashMap<>();
 
     static {
         XMPPConnectionRegistry.addConnectionCreationListener(new ConnectionCreationListener() {
@@ -162,8 +179,15 @@ public final class EntityCapsManager extends Manager {
         });
 
         try {
-            MessageDigest sha1MessageDigest = MessageDigest.getInstance(DEFAULT_HASH);
-            SUPPORTED_HASHES.put(DEFAULT_HASH, sha1MessageDigest);
+            MessageDigest.getInstance(DEFAULT_HASH);
+            SUPPORTED_HASHES.put(DEFAULT_HASH, ThreadLocal.withInitial(() -> {
+                try {
+                    return MessageDigest.getInstance(DEFAULT_HASH);
+                } catch (NoSuchAlgorithmException e) {
+                    // Should never happen, as we were able to get an instance before.
+                    throw new AssertionError(e);
+                }
+            }));
         } catch (NoSuchAlgorithmException e) {
             // Ignore
         }
@@ -181,22 +205,74 @@ public final class EntityCapsManager extends Manager {
                     return null;
                 }
 
-                try {
-                    info = serviceDiscoveryManager.discoverInfo(jid, nodeVerHash.getNodeVer());
-                } catch (NoResponseException | XMPPErrorException | NotConnectedException | InterruptedException e) {
-                    // TODO log
-                    return null;
-                }
+                return lookupDiscoverInfo(serviceDiscoveryManager, jid, nodeVerHash);
+            }
+        });
+    }
 
-                if (verifyDiscoverInfoVersion(nodeVerHash.getVer(), nodeVerHash.getHash(), info)) {
-                    addDiscoverInfoByNode(nodeVerHash.getNodeVer(), info);
-                } else {
-                    // TODO log
-                }
+    /**
+     * Lookup the disco#info of the given node#ver by querying the given entity. If a lookup of the same node#ver is
+     * already in flight, e.g. because many entities running the same client became available at the same time, then
+     * this method waits for its result instead of sending another request.
+     *
+     * @param serviceDiscoveryManager the service discovery manager used to query the entity.
+     * @param jid the entity announcing the node#ver.
+     * @param nodeVerHash the node#ver and hash announced by the entity.
+     * @return the disco#info or <code>null</code>.
+     */
+    static DiscoverInfo lookupDiscoverInfo(ServiceDiscoveryManager serviceDiscoveryManager, Jid jid,
+                    NodeVerHash nodeVerHash) {
+        final String nodeVer = nodeVerHash.getNodeVer();
+        CompletableFuture<DiscoverInfo> lookup = new CompletableFuture<>();
+        CompletableFuture<DiscoverInfo> inFlightLookup = IN_FLIGHT_DISCO_INFO_LOOKUPS.putIfAbsent(nodeVer, lookup);
+        if (inFlightLookup != null) {
+            DiscoverInfo info;
+            try {
+                info = inFlightLookup.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                // Should never happen, as the lookup is never completed exceptionally.
+                throw new AssertionError(e);
+            }
+            if (info == null) {
+                // The lookup failed, return null so that the caller queries the entity itself.
+                return null;
+            }
+            // Every caller receives its own copy, just like when the disco#info is retrieved from CAPS_CACHE.
+            return new DiscoverInfo(info);
+        }
 
+        // The verified disco#info, which is shared with the callers that waited for this lookup.
+        DiscoverInfo verifiedInfo = null;
+        try {
+            // A lookup that just finished may have added the disco#info to the cache.
+            DiscoverInfo info = getDiscoveryInfoByNodeVer(nodeVer);
+            if (info != null) {
+                verifiedInfo = info;
                 return info;
             }
-        });
+
+            try {
+                info = serviceDiscoveryManager.discoverInfo(jid, nodeVer);
+            } catch (NoResponseException | XMPPErrorException | NotConnectedException | InterruptedException e) {
+                LOGGER.log(Level.FINE, "Could not lookup disco#info of " + nodeVer + " from " + jid, e);
+                return null;
+            }
+
+            if (verifyDiscoverInfoVersion(nodeVerHash.getVer(), nodeVerHash.getHash(), info)) {
+                addDiscoverInfoByNode(nodeVer, info);
+                verifiedInfo = info;
+            } else {
+                LOGGER.fine("Verification of disco#info of " + nodeVer + " from " + jid + " failed");
+            }
+
+            return info;
+        } finally {
+            IN_FLIGHT_DISCO_INFO_LOOKUPS.remove(nodeVer, lookup);
+            lookup.complete(verifiedInfo);
+        }
     }
 
     /**
@@ -298,6 +374,36 @@ public final class EntityCapsManager extends Manager {
         persistentCache = cache;
     }
 
+    /**
+     * Populates the memory cache with the entries of the persistent cache, so that the capabilities of known node#ver
+     * combinations do not have to be looked up when the persistent cache is consulted the first time. The number of
+     * loaded entries is limited by the maximum size of the memory cache.
+     *
+     * @return the number of entries loaded into the memory cache.
+     * @see EntityCapsPersistentCache#loadAll()
+     * @since 4.5
+     */
+    public static int loadPersistentCacheIntoMemory() {
+        EntityCapsPersistentCache cache = persistentCache;
+        if (cache == null) {
+            return 0;
+        }
+        Map<String, DiscoverInfo> entries = cache.loadAll();
+        // The entries are ordered from the least to the most recently used one, skip the least recently used ones if
+        // not all entries fit into the memory cache.
+        int skip = Math.max(0, entries.size() - CAPS_CACHE.getMaxCacheSize());
+        int loaded = 0;
+        for (Map.Entry<String, DiscoverInfo> entry : entries.entrySet()) {
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            CAPS_CACHE.put(entry.getKey(), entry.getValue());
+            loaded++;
+        }
+        return loaded;
+    }
+
     /**
      * Sets the maximum cache sizes.
      *
@@ -654,8 +760,8 @@ public final class EntityCapsManager extends Manager {
             hash = DEFAULT_HASH;
         }
         // SUPPORTED_HASHES uses the format of MessageDigest, which is uppercase, e.g. "SHA-1" instead of "sha-1"
-        MessageDigest md = SUPPORTED_HASHES.get(hash.toUpperCase(Locale.US));
-        if (md == null)
+        ThreadLocal<MessageDigest> threadLocalMessageDigest = SUPPORTED_HASHES.get(hash.toUpperCase(Locale.US));
+        if (threadLocalMessageDigest == null)
             return null;
         // Then transform the hash to lowercase, as this value will be put on the wire within the caps element's hash
         // attribute. I'm not sure if the standard is case insensitive here, but let's assume that even it is, there could
@@ -766,10 +872,7 @@ public final class EntityCapsManager extends Manager {
         // (note: the Base64 output MUST NOT include whitespace and MUST set
         // padding bits to zero).
         byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
-        byte[] digest;
-        synchronized (md) {
-            digest = md.digest(bytes);
-        }
+        byte[] digest = threadLocalMessageDigest.get().digest(bytes);
         String version = Base64.encodeToString(digest);
         return new CapsVersionAndHash(version, hash);
     }
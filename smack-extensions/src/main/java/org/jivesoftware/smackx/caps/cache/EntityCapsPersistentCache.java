@@ -16,6 +16,9 @@
  */
 package org.jivesoftware.smackx.caps.cache;
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.jivesoftware.smackx.disco.packet.DiscoverInfo;
 
 public interface EntityCapsPersistentCache {
@@ -35,6 +38,19 @@ public interface EntityCapsPersistentCache {
      */
     DiscoverInfo lookup(String nodeVer);
 
+    /**
+     * Load all entries of the Cache, e.g. to populate the in-memory cache on startup. The default implementation
+     * returns an empty map, i.e. implementations which are not able to efficiently load all entries do not need to
+     * implement this.
+     *
+     * @return a map of node#ver to the DiscoverInfo of all entries, ordered from the least to the most recently used
+     *         entry if the cache tracks the usage of its entries.
+     * @since 4.5
+     */
+    default Map<String, DiscoverInfo> loadAll() {
+        return Collections.emptyMap();
+    }
+
     /**
      * Empty the Cache.
      */
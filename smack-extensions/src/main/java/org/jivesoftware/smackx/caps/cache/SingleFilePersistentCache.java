@@ -0,0 +1,656 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.caps.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.jivesoftware.smack.Manager;
+import org.jivesoftware.smack.ScheduledAction;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.parsing.SmackParsingException;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+import org.jivesoftware.smackx.disco.packet.DiscoverInfo;
+import org.jivesoftware.smackx.disco.packet.DiscoverInfoBuilder;
+
+import org.jxmpp.JxmppContext;
+
+/**
+ * An EntityCapsPersistentCache that stores the Caps information of all known nodes in a single, append-only file.
+ * Unlike {@link SimpleDirectoryPersistentCache}, which uses one file per node and stores the disco#info as XML, this
+ * cache stores the identities and features of a disco#info in a compact binary encoding, so that restoring them does
+ * not require to parse XML. Only the extension elements of a disco#info, typically XEP-0128 data forms, are stored as
+ * XML.
+ * <p>
+ * An in-memory index maps every node#ver to the position of its record, which is build by reading the file once when
+ * the cache is created. New entries are not written immediately, but collected for the write-behind delay (see
+ * {@link #setWriteBehindDelay(long, TimeUnit)}) and then appended to the file in a single write. Use {@link #flush()}
+ * to write the pending entries, for example before the application exits.
+ * </p>
+ * <p>
+ * The number of entries of the cache is bounded. If the bound is exceeded, the least recently used entries are
+ * evicted. The file is compacted once it contains more evicted than current entries. Since the index is not stored,
+ * the recency of the entries is approximated by their position in the file when the cache is created again.
+ * {@link #loadAll()} reads all entries in a single pass, which allows to populate the in-memory cache of
+ * {@link org.jivesoftware.smackx.caps.EntityCapsManager} on startup.
+ * </p>
+ *
+ * @since 4.5
+ */
+public final class SingleFilePersistentCache implements EntityCapsPersistentCache {
+
+    private static final Logger LOGGER = Logger.getLogger(SingleFilePersistentCache.class.getName());
+
+    private static final int MAGIC = 0x534d4543;
+    private static final int FORMAT_VERSION = 2;
+    private static final int FILE_HEADER_LENGTH = 8;
+    private static final int RECORD_HEADER_LENGTH = 8;
+    private static final int MAX_PAYLOAD_LENGTH = 16 * 1024 * 1024;
+
+    private static final int DISCO_INFO_FLAG_HAS_NODE = 1;
+
+    private static final int IDENTITY_FLAG_HAS_NAME = 1;
+    private static final int IDENTITY_FLAG_HAS_LANGUAGE = 2;
+
+    /**
+     * The default maximum number of entries, which matches the default size of the in-memory Caps cache.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    /**
+     * The minimum number of evicted records before the file is compacted.
+     */
+    static final int MIN_OUTDATED_RECORDS_FOR_COMPACTION = 256;
+
+    private final File file;
+
+    private final int maxEntries;
+
+    /**
+     * Maps the node#ver of the entries to the position of their record in the file, in access order.
+     */
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The entries not yet written to the file.
+     */
+    private final LinkedHashMap<String, DiscoverInfo> pending = new LinkedHashMap<>();
+
+    private long writeBehindDelayMillis = 1000;
+
+    /**
+     * The scheduled write-behind of the pending entries, or <code>null</code> if none is scheduled.
+     */
+    private ScheduledAction scheduledFlush;
+
+    /**
+     * The length of the valid part of the file. New records are appended at this position.
+     */
+    private long fileLength;
+
+    private int recordCount;
+
+    /**
+     * Creates a new SingleFilePersistentCache with {@link #DEFAULT_MAX_ENTRIES} entries.
+     *
+     * @param file the file storing the cache, which is created if it does not exist.
+     * @throws IOException if the file could not be read or created.
+     */
+    public SingleFilePersistentCache(File file) throws IOException {
+        this(file, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates a new SingleFilePersistentCache. If the file exists but is not a valid cache file, it is replaced by
+     * an empty cache.
+     *
+     * @param file the file storing the cache, which is created if it does not exist.
+     * @param maxEntries the maximum number of entries of the cache.
+     * @throws IOException if the file could not be read or created.
+     */
+    public SingleFilePersistentCache(File file, int maxEntries) throws IOException {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("The maximum number of entries must be positive");
+        }
+        this.file = file;
+        this.maxEntries = maxEntries;
+
+        if (!file.isFile() || !load()) {
+            writeNewFile(new HashMap<>());
+        }
+    }
+
+    /**
+     * Sets the delay after which new entries are written to the file. A delay of zero causes every new entry to be
+     * written immediately.
+     *
+     * @param delay the write-behind delay.
+     * @param unit the time unit of the delay.
+     */
+    public synchronized void setWriteBehindDelay(long delay, TimeUnit unit) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("The write-behind delay must not be negative");
+        }
+        writeBehindDelayMillis = unit.toMillis(delay);
+    }
+
+    private boolean load() throws IOException {
+        try (RecordReader reader = new RecordReader(file)) {
+            if (!reader.readFileHeader()) {
+                LOGGER.warning("Replacing " + file + ", as it is not a valid Entity Caps cache");
+                return false;
+            }
+            Record record;
+            while ((record = reader.next()) != null) {
+                index.put(record.nodeVer, record.offset);
+                recordCount++;
+            }
+            fileLength = reader.offset;
+        }
+
+        if (fileLength < file.length()) {
+            LOGGER.warning("Discarding " + (file.length() - fileLength) + " bytes of incomplete records from " + file);
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+                randomAccessFile.setLength(fileLength);
+            }
+        }
+        evictIfRequired();
+        return true;
+    }
+
+    @Override
+    public synchronized void addDiscoverInfoByNodePersistent(String nodeVer, DiscoverInfo info) {
+        if (index.containsKey(nodeVer) || pending.containsKey(nodeVer)) {
+            return;
+        }
+        pending.put(nodeVer, info);
+        evictIfRequired();
+
+        if (writeBehindDelayMillis == 0) {
+            flush();
+        } else if (scheduledFlush == null) {
+            // Scheduled as blocking action, so that the file I/O of the flush does not run on the reactor thread.
+            scheduledFlush = Manager.scheduleBlocking(this::flush, writeBehindDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized DiscoverInfo lookup(String nodeVer) {
+        DiscoverInfo info = pending.get(nodeVer);
+        if (info != null) {
+            return info;
+        }
+        Long offset = index.get(nodeVer);
+        if (offset == null) {
+            return null;
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            randomAccessFile.seek(offset);
+            int payloadLength = randomAccessFile.readInt();
+            int checksum = randomAccessFile.readInt();
+            if (payloadLength < 0 || payloadLength > MAX_PAYLOAD_LENGTH) {
+                throw new IOException("Invalid length of the record at " + offset);
+            }
+            byte[] payload = new byte[payloadLength];
+            randomAccessFile.readFully(payload);
+            Record record = Record.decode(offset, payload, checksum);
+            if (record == null) {
+                throw new IOException("Checksum mismatch of the record at " + offset);
+            }
+            return record.parseDiscoverInfo();
+        } catch (IOException | XmlPullParserException | SmackParsingException e) {
+            LOGGER.log(Level.WARNING, "Could not restore info of " + nodeVer + " from " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads all entries of the cache in a single pass over the file.
+     *
+     * @return a map of node#ver to the disco#info of all entries.
+     */
+    @Override
+    public synchronized Map<String, DiscoverInfo> loadAll() {
+        Map<String, DiscoverInfo> entries = new LinkedHashMap<>(index.size() + pending.size());
+        Map<String, Long> offsets = copyIndex();
+        try (RecordReader reader = new RecordReader(file)) {
+            if (!reader.readFileHeader()) {
+                throw new IOException("Invalid file header");
+            }
+            Record record;
+            while ((record = reader.next()) != null && reader.offset <= fileLength) {
+                if (!isCurrent(record, offsets)) {
+                    continue;
+                }
+                entries.put(record.nodeVer, record.parseDiscoverInfo());
+            }
+        } catch (IOException | XmlPullParserException | SmackParsingException e) {
+            LOGGER.log(Level.WARNING, "Could not load the entries of " + file, e);
+        }
+        entries.putAll(pending);
+        return entries;
+    }
+
+    /**
+     * Writes the pending entries to the file. Entries which can not be encoded are not persisted.
+     */
+    public synchronized void flush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel();
+            scheduledFlush = null;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // Encode all entries before writing, so that an entry which can not be encoded does not leave a partially
+        // written file behind.
+        Map<String, byte[]> payloads = new LinkedHashMap<>(pending.size() * 4 / 3 + 1);
+        for (Map.Entry<String, DiscoverInfo> entry : pending.entrySet()) {
+            try {
+                payloads.put(entry.getKey(), encode(entry.getKey(), entry.getValue()));
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not encode the info of " + entry.getKey() + ", not persisting it", e);
+            }
+        }
+        pending.clear();
+        if (payloads.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> newOffsets = new LinkedHashMap<>(payloads.size() * 4 / 3 + 1);
+        long offset = fileLength;
+        try (FileOutputStream fileOutputStream = new FileOutputStream(file, true)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOutputStream, 64 * 1024));
+            for (Map.Entry<String, byte[]> entry : payloads.entrySet()) {
+                byte[] payload = entry.getValue();
+                writeRecord(out, payload);
+                newOffsets.put(entry.getKey(), offset);
+                offset += RECORD_HEADER_LENGTH + payload.length;
+            }
+            out.flush();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not write to " + file + ", discarding " + payloads.size() + " entries", e);
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+                // Remove partially written records, so that following records are not discarded when loading.
+                randomAccessFile.setLength(fileLength);
+            } catch (IOException e2) {
+                LOGGER.log(Level.WARNING, "Could not truncate " + file, e2);
+            }
+            return;
+        }
+
+        index.putAll(newOffsets);
+        fileLength = offset;
+        recordCount += newOffsets.size();
+
+        if (recordCount - index.size() > Math.max(MIN_OUTDATED_RECORDS_FOR_COMPACTION, index.size())) {
+            compact();
+        }
+    }
+
+    @Override
+    public synchronized void emptyCache() {
+        pending.clear();
+        try {
+            writeNewFile(new HashMap<>());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not empty " + file, e);
+        }
+    }
+
+    synchronized int size() {
+        return index.size() + pending.size();
+    }
+
+    /**
+     * Returns a copy of the index, which allows to look up the offsets without changing the access order of the index.
+     */
+    private Map<String, Long> copyIndex() {
+        return new HashMap<>(index);
+    }
+
+    private static boolean isCurrent(Record record, Map<String, Long> offsets) {
+        Long currentOffset = offsets.get(record.nodeVer);
+        return currentOffset != null && currentOffset.longValue() == record.offset;
+    }
+
+    private void evictIfRequired() {
+        Iterator<String> indexIterator = index.keySet().iterator();
+        while (index.size() + pending.size() > maxEntries && indexIterator.hasNext()) {
+            // The least recently used entry. Its record becomes outdated and is removed by the next compaction.
+            indexIterator.next();
+            indexIterator.remove();
+        }
+        Iterator<String> pendingIterator = pending.keySet().iterator();
+        while (pending.size() > maxEntries) {
+            pendingIterator.next();
+            pendingIterator.remove();
+        }
+    }
+
+    /**
+     * Writes the current records, in the order of their last use, into a new file, which then replaces the existing
+     * one.
+     */
+    private void compact() {
+        // Copy the payloads, so that the file can be written in the order of the index.
+        Map<String, byte[]> payloads = new HashMap<>(index.size() * 4 / 3 + 1);
+        Map<String, Long> offsets = copyIndex();
+        try (RecordReader reader = new RecordReader(file)) {
+            if (!reader.readFileHeader()) {
+                throw new IOException("Invalid file header");
+            }
+            Record record;
+            while ((record = reader.next()) != null && reader.offset <= fileLength) {
+                if (isCurrent(record, offsets)) {
+                    payloads.put(record.nodeVer, record.payload);
+                }
+            }
+        } catch (IOException e) {
+            // The existing file is still valid, compaction is retried with the next flush.
+            LOGGER.log(Level.WARNING, "Could not compact " + file, e);
+            return;
+        }
+
+        if (payloads.size() != index.size()) {
+            LOGGER.warning("Compaction of " + file + " lost entries, keeping the existing file");
+            return;
+        }
+
+        Map<String, byte[]> orderedPayloads = new LinkedHashMap<>(payloads.size() * 4 / 3 + 1);
+        for (String nodeVer : index.keySet()) {
+            orderedPayloads.put(nodeVer, payloads.get(nodeVer));
+        }
+        try {
+            writeNewFile(orderedPayloads);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not compact " + file, e);
+        }
+    }
+
+    /**
+     * Writes the given records into a new file, which then atomically replaces the existing file.
+     */
+    private void writeNewFile(Map<String, byte[]> payloads) throws IOException {
+        File newFile = new File(file.getPath() + ".new");
+        Map<String, Long> newIndex = new LinkedHashMap<>(payloads.size() * 4 / 3 + 1);
+        long offset = FILE_HEADER_LENGTH;
+        try (FileOutputStream fileOutputStream = new FileOutputStream(newFile)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOutputStream, 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            for (Map.Entry<String, byte[]> entry : payloads.entrySet()) {
+                byte[] payload = entry.getValue();
+                writeRecord(out, payload);
+                newIndex.put(entry.getKey(), offset);
+                offset += RECORD_HEADER_LENGTH + payload.length;
+            }
+            out.flush();
+            fileOutputStream.getFD().sync();
+        }
+
+        try {
+            Files.move(newFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            newFile.delete();
+            throw e;
+        }
+
+        index.clear();
+        index.putAll(newIndex);
+        fileLength = offset;
+        recordCount = newIndex.size();
+    }
+
+    /**
+     * Encodes the payload of a record.
+     *
+     * @throws IOException if the payload would exceed the maximum payload length.
+     */
+    private static byte[] encode(String nodeVer, DiscoverInfo info) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(512);
+        try (DataOutputStream out = new DataOutputStream(payload)) {
+            writeString(out, nodeVer);
+
+            String node = info.getNode();
+            out.writeByte(node != null ? DISCO_INFO_FLAG_HAS_NODE : 0);
+            if (node != null) {
+                writeString(out, node);
+            }
+
+            List<DiscoverInfo.Identity> identities = info.getIdentities();
+            out.writeInt(identities.size());
+            for (DiscoverInfo.Identity identity : identities) {
+                String name = identity.getName();
+                String language = identity.getLanguage();
+                int flags = 0;
+                if (name != null) {
+                    flags |= IDENTITY_FLAG_HAS_NAME;
+                }
+                if (language != null) {
+                    flags |= IDENTITY_FLAG_HAS_LANGUAGE;
+                }
+                out.writeByte(flags);
+                writeString(out, identity.getCategory());
+                writeString(out, identity.getType());
+                if (name != null) {
+                    writeString(out, name);
+                }
+                if (language != null) {
+                    writeString(out, language);
+                }
+            }
+
+            List<DiscoverInfo.Feature> features = info.getFeatures();
+            out.writeInt(features.size());
+            for (DiscoverInfo.Feature feature : features) {
+                writeString(out, feature.getVar());
+            }
+
+            List<XmlElement> extensions = info.getExtensions();
+            out.writeInt(extensions.size());
+            for (XmlElement extension : extensions) {
+                writeString(out, extension.toXML().toString());
+            }
+        }
+        if (payload.size() > MAX_PAYLOAD_LENGTH) {
+            throw new IOException("Record of " + payload.size() + " bytes exceeds the maximum of " + MAX_PAYLOAD_LENGTH
+                            + " bytes");
+        }
+        return payload.toByteArray();
+    }
+
+    /**
+     * Writes the given string as UTF-8, prefixed by its length. Unlike {@link DataOutputStream#writeUTF(String)}, this
+     * is not limited to strings whose encoding fits into 64 KiB.
+     */
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        // The input is always a record payload held in memory, hence available() is exact.
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeRecord(DataOutputStream out, byte[] payload) throws IOException {
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload, 0, payload.length);
+        out.writeInt(payload.length);
+        out.writeInt((int) crc32.getValue());
+        out.write(payload);
+    }
+
+    private static final class Record {
+        private final long offset;
+        private final String nodeVer;
+        private final byte[] payload;
+        private final int discoverInfoOffset;
+
+        private Record(long offset, String nodeVer, byte[] payload, int discoverInfoOffset) {
+            this.offset = offset;
+            this.nodeVer = nodeVer;
+            this.payload = payload;
+            this.discoverInfoOffset = discoverInfoOffset;
+        }
+
+        /**
+         * Decodes the given payload of a record.
+         *
+         * @return the record or <code>null</code> if the checksum does not match.
+         */
+        private static Record decode(long offset, byte[] payload, int checksum) throws IOException {
+            CRC32 crc32 = new CRC32();
+            crc32.update(payload, 0, payload.length);
+            if ((int) crc32.getValue() != checksum) {
+                return null;
+            }
+            ByteArrayInputStream payloadStream = new ByteArrayInputStream(payload);
+            DataInputStream in = new DataInputStream(payloadStream);
+            String nodeVer = readString(in);
+            int discoverInfoOffset = payload.length - payloadStream.available();
+            return new Record(offset, nodeVer, payload, discoverInfoOffset);
+        }
+
+        private DiscoverInfo parseDiscoverInfo() throws IOException, XmlPullParserException, SmackParsingException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload, discoverInfoOffset,
+                            payload.length - discoverInfoOffset));
+            DiscoverInfoBuilder builder = DiscoverInfo.builder("entity-caps-cache").ofType(IQ.Type.result);
+
+            int flags = in.readByte();
+            if ((flags & DISCO_INFO_FLAG_HAS_NODE) != 0) {
+                builder.setNode(readString(in));
+            }
+
+            int identityCount = in.readInt();
+            for (int i = 0; i < identityCount; i++) {
+                int identityFlags = in.readByte();
+                String category = readString(in);
+                String type = readString(in);
+                String name = (identityFlags & IDENTITY_FLAG_HAS_NAME) != 0 ? readString(in) : null;
+                String language = (identityFlags & IDENTITY_FLAG_HAS_LANGUAGE) != 0 ? readString(in) : null;
+                builder.addIdentity(new DiscoverInfo.Identity(category, type, name, language));
+            }
+
+            int featureCount = in.readInt();
+            for (int i = 0; i < featureCount; i++) {
+                builder.addFeature(readString(in));
+            }
+
+            int extensionCount = in.readInt();
+            for (int i = 0; i < extensionCount; i++) {
+                XmlPullParser parser = PacketParserUtils.getParserFor(readString(in));
+                builder.addExtension(PacketParserUtils.parseExtensionElement(parser.getName(), parser.getNamespace(),
+                                parser, null, JxmppContext.getDefaultContext()));
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * Sequentially reads the records of a file. Reading stops at the first incomplete or corrupt record.
+     */
+    private static final class RecordReader implements Closeable {
+        private final DataInputStream in;
+
+        /**
+         * The position after the last record read.
+         */
+        private long offset;
+
+        private RecordReader(File file) throws IOException {
+            InputStream inputStream = Files.newInputStream(file.toPath());
+            in = new DataInputStream(new BufferedInputStream(inputStream, 64 * 1024));
+        }
+
+        private boolean readFileHeader() throws IOException {
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                    return false;
+                }
+            } catch (EOFException e) {
+                return false;
+            }
+            offset = FILE_HEADER_LENGTH;
+            return true;
+        }
+
+        private Record next() throws IOException {
+            byte[] payload;
+            int checksum;
+            try {
+                int payloadLength = in.readInt();
+                checksum = in.readInt();
+                if (payloadLength < 0 || payloadLength > MAX_PAYLOAD_LENGTH) {
+                    return null;
+                }
+                payload = new byte[payloadLength];
+                in.readFully(payload);
+            } catch (EOFException e) {
+                return null;
+            }
+            Record record = Record.decode(offset, payload, checksum);
+            if (record == null) {
+                return null;
+            }
+            offset += RECORD_HEADER_LENGTH + payload.length;
+            return record;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
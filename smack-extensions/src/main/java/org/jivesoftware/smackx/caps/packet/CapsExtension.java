@@ -20,6 +20,7 @@ import javax.xml.namespace.QName;
 
 import org.jivesoftware.smack.packet.ExtensionElement;
 import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.util.PreEncodedXml;
 import org.jivesoftware.smack.util.XmlStringBuilder;
 
 /**
@@ -32,6 +33,11 @@ public class CapsExtension implements ExtensionElement {
 
     private final String node, ver, hash;
 
+    /**
+     * The cached XML of this extension, which does not depend on the enclosing XML environment.
+     */
+    private PreEncodedXml xml;
+
     public CapsExtension(String node, String version, String hash) {
         this.node = node;
         this.ver = version;
@@ -73,10 +79,17 @@ public class CapsExtension implements ExtensionElement {
      */
     @Override
     public XmlStringBuilder toXML(org.jivesoftware.smack.packet.XmlEnvironment enclosingNamespace) {
-        XmlStringBuilder xml = new XmlStringBuilder(this);
-        xml.attribute("hash", hash).attribute("node", node).attribute("ver", ver);
-        xml.closeEmptyElement();
-        return xml;
+        // The same caps extension is attached to every outgoing presence, hence its XML is cached. Racing threads may
+        // build it more than once, which is harmless as the result is always the same.
+        PreEncodedXml xml = this.xml;
+        if (xml == null) {
+            XmlStringBuilder xsb = new XmlStringBuilder(this);
+            xsb.attribute("hash", hash).attribute("node", node).attribute("ver", ver);
+            xsb.closeEmptyElement();
+            xml = new PreEncodedXml(xsb);
+            this.xml = xml;
+        }
+        return new XmlStringBuilder().append(xml);
     }
 
     public static CapsExtension from(Stanza stanza) {
@@ -128,7 +128,7 @@ public final class ChatStateManager extends Manager {
 
                 // otherwise add a chatState extension if necessary.
                 if (updateChatState(chat, ChatState.active)) {
-                    message.addExtension(new ChatStateExtension(ChatState.active));
+                    message.addExtension(ChatStateExtension.from(ChatState.active));
                 }
             }
         });
@@ -219,7 +219,7 @@ public final class ChatStateManager extends Manager {
             return;
         }
         Message message = StanzaBuilder.buildMessage().build();
-        ChatStateExtension extension = new ChatStateExtension(newState);
+        ChatStateExtension extension = ChatStateExtension.from(newState);
         message.addExtension(extension);
 
         chat.send(message);
@@ -17,7 +17,12 @@
 
 package org.jivesoftware.smackx.chatstates.packet;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.util.PreEncodedXml;
+import org.jivesoftware.smack.util.PreEncodedXmlCache;
 import org.jivesoftware.smack.util.XmlStringBuilder;
 
 import org.jivesoftware.smackx.chatstates.ChatState;
@@ -33,8 +38,18 @@ public class ChatStateExtension implements XmlElement {
 
     public static final String NAMESPACE = "http://jabber.org/protocol/chatstates";
 
+    private static final Map<ChatState, ChatStateExtension> INSTANCES = new EnumMap<>(ChatState.class);
+
+    static {
+        for (ChatState chatState : ChatState.values()) {
+            INSTANCES.put(chatState, new ChatStateExtension(chatState));
+        }
+    }
+
     private final ChatState state;
 
+    private final PreEncodedXmlCache xmlCache = new PreEncodedXmlCache();
+
     /**
      * Default constructor. The argument provided is the state that the extension will represent.
      *
@@ -58,11 +73,27 @@ public class ChatStateExtension implements XmlElement {
         return state;
     }
 
+    /**
+     * Get the shared chat state extension for the given chat state. As chat state extensions are immutable, the shared
+     * instances can be used instead of creating new ones, which also allows them to reuse their serialized form.
+     *
+     * @param state the chat state.
+     * @return the chat state extension for the given chat state.
+     * @since 4.5
+     */
+    public static ChatStateExtension from(ChatState state) {
+        return INSTANCES.get(state);
+    }
+
     @Override
     public XmlStringBuilder toXML(org.jivesoftware.smack.packet.XmlEnvironment enclosingNamespace) {
-        XmlStringBuilder xml = new XmlStringBuilder(this);
-        xml.closeEmptyElement();
-        return xml;
+        PreEncodedXml xml = xmlCache.get(enclosingNamespace);
+        if (xml == null) {
+            XmlStringBuilder xsb = new XmlStringBuilder(this);
+            xsb.closeEmptyElement();
+            xml = xmlCache.put(enclosingNamespace, xsb);
+        }
+        return new XmlStringBuilder().append(xml);
     }
 
 }
@@ -32,7 +32,7 @@ public class ChatStateExtensionProvider extends ExtensionElementProvider<ChatSta
         String chatStateString = parser.getName();
         ChatState state = ChatState.valueOf(chatStateString);
 
-        return new ChatStateExtension(state);
+        return ChatStateExtension.from(state);
     }
 
 }
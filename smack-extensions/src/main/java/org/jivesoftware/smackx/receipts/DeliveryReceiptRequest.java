@@ -42,6 +42,8 @@ public class DeliveryReceiptRequest implements ExtensionElement {
     public static final String NAMESPACE = DeliveryReceipt.NAMESPACE;
     public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
 
+    private static final String XML = "<request xmlns='" + DeliveryReceipt.NAMESPACE + "'/>";
+
     @Override
     public String getElementName() {
         return ELEMENT;
@@ -54,7 +56,7 @@ public class DeliveryReceiptRequest implements ExtensionElement {
 
     @Override
     public String toXML(org.jivesoftware.smack.packet.XmlEnvironment enclosingNamespace) {
-        return "<request xmlns='" + DeliveryReceipt.NAMESPACE + "'/>";
+        return XML;
     }
 
     /**
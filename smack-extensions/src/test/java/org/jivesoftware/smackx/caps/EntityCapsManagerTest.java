@@ -18,14 +18,20 @@ package org.jivesoftware.smackx.caps;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import org.jivesoftware.smack.DummyConnection;
 import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.Stanza;
 import org.jivesoftware.smack.test.util.SmackTestSuite;
 import org.jivesoftware.smack.util.StringUtils;
 import org.jivesoftware.smack.util.stringencoder.Base32;
@@ -33,6 +39,8 @@ import org.jivesoftware.smack.util.stringencoder.StringEncoder;
 
 import org.jivesoftware.smackx.caps.cache.EntityCapsPersistentCache;
 import org.jivesoftware.smackx.caps.cache.SimpleDirectoryPersistentCache;
+import org.jivesoftware.smackx.caps.cache.SingleFilePersistentCache;
+import org.jivesoftware.smackx.disco.ServiceDiscoveryManager;
 import org.jivesoftware.smackx.disco.packet.DiscoverInfo;
 import org.jivesoftware.smackx.disco.packet.DiscoverInfoBuilder;
 import org.jivesoftware.smackx.xdata.FormField;
@@ -41,6 +49,7 @@ import org.jivesoftware.smackx.xdata.TextSingleFormField;
 import org.jivesoftware.smackx.xdata.packet.DataForm;
 
 import org.junit.jupiter.api.Test;
+import org.jxmpp.jid.Jid;
 import org.jxmpp.jid.impl.JidCreate;
 import org.jxmpp.stringprep.XmppStringprepException;
 
@@ -101,6 +110,28 @@ public class EntityCapsManagerTest extends SmackTestSuite {
         testSimpleDirectoryCache(Base32.getStringEncoder());
     }
 
+    @Test
+    public void testLoadPersistentCacheIntoMemory() throws IOException {
+        SingleFilePersistentCache cache = new SingleFilePersistentCache(new File(createTempDirectory(), "caps"));
+        EntityCapsManager.setPersistentCache(cache);
+        try {
+            DiscoverInfo di = createComplexSamplePacket();
+            CapsVersionAndHash versionAndHash = EntityCapsManager.generateVerificationString(di, StringUtils.SHA1);
+            String nodeVer = "http://psi-im.org#" + versionAndHash.version;
+            EntityCapsManager.addDiscoverInfoByNode(nodeVer, di);
+            cache.flush();
+            EntityCapsManager.clearMemoryCache();
+
+            assertEquals(1, EntityCapsManager.loadPersistentCacheIntoMemory());
+            DiscoverInfo restored = EntityCapsManager.CAPS_CACHE.lookup(nodeVer);
+            assertNotNull(restored);
+            assertEquals(versionAndHash.version,
+                            EntityCapsManager.generateVerificationString(restored, StringUtils.SHA1).version);
+        } finally {
+            EntityCapsManager.setPersistentCache(null);
+        }
+    }
+
     @Test
     public void testVerificationDuplicateFeatures() throws XmppStringprepException {
         DiscoverInfo di = createMalformedDiscoverInfo();
@@ -113,6 +144,64 @@ public class EntityCapsManagerTest extends SmackTestSuite {
         assertTrue(di.containsDuplicateIdentities());
     }
 
+    @Test
+    public void testConcurrentLookupsOfTheSameNodeVerShareOneRequest() throws Exception {
+        EntityCapsManager.persistentCache = null;
+        EntityCapsManager.clearMemoryCache();
+        DummyConnection connection = DummyConnection.newConnectedDummyConnection();
+        ServiceDiscoveryManager serviceDiscoveryManager = ServiceDiscoveryManager.getInstanceFor(connection);
+
+        DiscoverInfo sample = createComplexSamplePacket();
+        CapsVersionAndHash versionAndHash = EntityCapsManager.generateVerificationString(sample, StringUtils.SHA1);
+        EntityCapsManager.NodeVerHash nodeVerHash = new EntityCapsManager.NodeVerHash("http://psi-im.org", versionAndHash);
+
+        final int contactCount = 16;
+        List<DiscoverInfo> results = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>(contactCount);
+        for (int i = 0; i < contactCount; i++) {
+            Jid contact = JidCreate.from("contact" + i + "@capulet.lit/psi");
+            threads.add(new Thread(() -> results.add(
+                            EntityCapsManager.lookupDiscoverInfo(serviceDiscoveryManager, contact, nodeVerHash))));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        DiscoverInfo request = nextNodeVerDiscoInfoRequest(connection, nodeVerHash.getNodeVer());
+        DiscoverInfo response = sample.asBuilder(request.getStanzaId())
+                        .from(request.getTo())
+                        .to(request.getFrom())
+                        .ofType(IQ.Type.result)
+                        .setNode(nodeVerHash.getNodeVer())
+                        .build();
+        connection.processStanza(response);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Only a single disco#info request was send.
+        assertNull(nextNodeVerDiscoInfoRequest(connection, nodeVerHash.getNodeVer()));
+        assertEquals(contactCount, results.size());
+        for (DiscoverInfo result : results) {
+            assertNotNull(result);
+            assertEquals(nodeVerHash.getNodeVer(), result.getNode());
+        }
+        assertNotSame(results.get(0), results.get(1));
+        assertNotNull(EntityCapsManager.getDiscoveryInfoByNodeVer(nodeVerHash.getNodeVer()));
+        connection.disconnect();
+    }
+
+    private static DiscoverInfo nextNodeVerDiscoInfoRequest(DummyConnection connection, String nodeVer) {
+        // Skip the other stanzas, like the ones send on login.
+        Stanza sentStanza;
+        while ((sentStanza = connection.getSentPacket(1)) != null) {
+            if (sentStanza instanceof DiscoverInfo && nodeVer.equals(((DiscoverInfo) sentStanza).getNode())) {
+                return (DiscoverInfo) sentStanza;
+            }
+        }
+        return null;
+    }
+
     @SuppressWarnings("UnusedVariable")
     private static void testSimpleDirectoryCache(StringEncoder<String> stringEncoder) throws IOException {
 
@@ -0,0 +1,235 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.caps.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+
+import org.jivesoftware.smackx.disco.packet.DiscoverInfo;
+import org.jivesoftware.smackx.xdata.FormField;
+import org.jivesoftware.smackx.xdata.packet.DataForm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SingleFilePersistentCacheTest extends SmackTestSuite {
+
+    @TempDir
+    File tempDir;
+
+    private static String nodeVer(int i) {
+        return "https://example.org/client#ver" + i;
+    }
+
+    private static DiscoverInfo createDiscoverInfo(int i) {
+        DataForm softwareInfo = DataForm.builder(DataForm.Type.result)
+                        .addField(FormField.buildHiddenFormType("urn:xmpp:dataforms:softwareinfo"))
+                        .addField(FormField.builder("software_version").setValue("1." + i).build())
+                        .build();
+        return DiscoverInfo.builder("disco" + i)
+                        .ofType(IQ.Type.result)
+                        .setNode(nodeVer(i))
+                        .addIdentity(new DiscoverInfo.Identity("client", "pc", "Client " + i, "en"))
+                        .addIdentity(new DiscoverInfo.Identity("client", "phone"))
+                        .addFeature("http://jabber.org/protocol/disco#info")
+                        .addFeature("urn:example:feature:" + i)
+                        .addExtension(softwareInfo)
+                        .build();
+    }
+
+    private static void assertDiscoverInfoEquals(DiscoverInfo expected, DiscoverInfo actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getNode(), actual.getNode());
+        assertEquals(expected.getIdentities(), actual.getIdentities());
+        assertEquals(expected.getFeatures(), actual.getFeatures());
+        assertEquals(expected.getExtensions().size(), actual.getExtensions().size());
+        for (int i = 0; i < expected.getExtensions().size(); i++) {
+            assertEquals(expected.getExtensions().get(i).toXML().toString(),
+                            actual.getExtensions().get(i).toXML().toString());
+        }
+    }
+
+    @Test
+    public void entriesSurviveReopening() throws IOException {
+        File file = new File(tempDir, "caps");
+        SingleFilePersistentCache cache = new SingleFilePersistentCache(file);
+        cache.setWriteBehindDelay(0, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 10; i++) {
+            cache.addDiscoverInfoByNodePersistent(nodeVer(i), createDiscoverInfo(i));
+        }
+
+        cache = new SingleFilePersistentCache(file);
+        assertEquals(10, cache.size());
+        assertDiscoverInfoEquals(createDiscoverInfo(3), cache.lookup(nodeVer(3)));
+        assertNull(cache.lookup(nodeVer(42)));
+
+        Map<String, DiscoverInfo> entries = cache.loadAll();
+        assertEquals(10, entries.size());
+        assertDiscoverInfoEquals(createDiscoverInfo(7), entries.get(nodeVer(7)));
+
+        cache.emptyCache();
+        assertEquals(0, cache.size());
+        assertEquals(0, new SingleFilePersistentCache(file).size());
+    }
+
+    @Test
+    public void entriesAreWrittenBehind() throws IOException {
+        File file = new File(tempDir, "caps");
+        SingleFilePersistentCache cache = new SingleFilePersistentCache(file);
+        cache.setWriteBehindDelay(1, TimeUnit.HOURS);
+        cache.addDiscoverInfoByNodePersistent(nodeVer(1), createDiscoverInfo(1));
+        cache.addDiscoverInfoByNodePersistent(nodeVer(2), createDiscoverInfo(2));
+
+        // Pending entries are visible, but not yet written.
+        assertDiscoverInfoEquals(createDiscoverInfo(1), cache.lookup(nodeVer(1)));
+        assertEquals(2, cache.loadAll().size());
+        assertEquals(0, new SingleFilePersistentCache(file).size());
+
+        cache.flush();
+        SingleFilePersistentCache reopened = new SingleFilePersistentCache(file);
+        assertEquals(2, reopened.size());
+        assertDiscoverInfoEquals(createDiscoverInfo(2), reopened.lookup(nodeVer(2)));
+    }
+
+    @Test
+    public void writeBehindIsScheduled() throws IOException, InterruptedException {
+        File file = new File(tempDir, "caps");
+        SingleFilePersistentCache cache = new SingleFilePersistentCache(file);
+        cache.setWriteBehindDelay(10, TimeUnit.MILLISECONDS);
+        cache.addDiscoverInfoByNodePersistent(nodeVer(1), createDiscoverInfo(1));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (new SingleFilePersistentCache(file).size() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, new SingleFilePersistentCache(file).size());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvictedAndTheFileIsCompacted() throws IOException {
+        final int maxEntries = 10;
+        File file = new File(tempDir, "caps");
+        SingleFilePersistentCache cache = new SingleFilePersistentCache(file, maxEntries);
+        cache.setWriteBehindDelay(0, TimeUnit.MILLISECONDS);
+        final int entryCount = 2 * SingleFilePersistentCache.MIN_OUTDATED_RECORDS_FOR_COMPACTION;
+        for (int i = 0; i < entryCount; i++) {
+            cache.addDiscoverInfoByNodePersistent(nodeVer(i), createDiscoverInfo(i));
+            // Keep the first entry in use.
+            assertNotNull(cache.lookup(nodeVer(0)));
+        }
+
+        assertEquals(maxEntries, cache.size());
+        assertNotNull(cache.lookup(nodeVer(0)));
+        assertNotNull(cache.lookup(nodeVer(entryCount - 1)));
+        assertNull(cache.lookup(nodeVer(1)));
+
+        // The file was compacted, so that it does not hold all entries ever added.
+        long maxFileLength = (SingleFilePersistentCache.MIN_OUTDATED_RECORDS_FOR_COMPACTION + 2 * maxEntries)
+                        * file.length() / maxEntries;
+        assertTrue(file.length() < maxFileLength);
+
+        SingleFilePersistentCache reopened = new SingleFilePersistentCache(file, maxEntries);
+        assertEquals(maxEntries, reopened.size());
+        assertDiscoverInfoEquals(createDiscoverInfo(entryCount - 1), reopened.lookup(nodeVer(entryCount - 1)));
+    }
+
+    @Test
+    public void incompleteRecordsAreDiscarded() throws IOException {
+        File file = new File(tempDir, "caps");
+        SingleFilePersistentCache cache = new SingleFilePersistentCache(file);
+        cache.setWriteBehindDelay(0, TimeUnit.MILLISECONDS);
+        cache.addDiscoverInfoByNodePersistent(nodeVer(1), createDiscoverInfo(1));
+        long validLength = file.length();
+
+        // Simulate a crash while a record was written.
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[] {0, 0, 1, 0, 42, 42});
+        }
+
+        cache = new SingleFilePersistentCache(file);
+        assertEquals(validLength, file.length());
+        assertEquals(1, cache.size());
+        cache.setWriteBehindDelay(0, TimeUnit.MILLISECONDS);
+        cache.addDiscoverInfoByNodePersistent(nodeVer(2), createDiscoverInfo(2));
+        assertEquals(2, new SingleFilePersistentCache(file).size());
+    }
+
+    @Test
+    public void stringsLongerThan64KiBArePersisted() throws IOException {
+        File file = new File(tempDir, "caps");
+        SingleFilePersistentCache cache = new SingleFilePersistentCache(file);
+        cache.setWriteBehindDelay(0, TimeUnit.MILLISECONDS);
+        StringBuilder sb = new StringBuilder("urn:example:feature:");
+        while (sb.length() < 70 * 1024) {
+            sb.append("größe-");
+        }
+        String longString = sb.toString();
+        DiscoverInfo info = DiscoverInfo.builder("disco")
+                        .ofType(IQ.Type.result)
+                        .setNode(longString)
+                        .addIdentity(new DiscoverInfo.Identity("client", "pc", longString, "en"))
+                        .addFeature(longString)
+                        .build();
+        cache.addDiscoverInfoByNodePersistent(longString, info);
+
+        cache = new SingleFilePersistentCache(file);
+        assertDiscoverInfoEquals(info, cache.lookup(longString));
+    }
+
+    @Test
+    public void entriesWhichCanNotBeEncodedAreSkipped() throws IOException {
+        File file = new File(tempDir, "caps");
+        SingleFilePersistentCache cache = new SingleFilePersistentCache(file);
+        cache.setWriteBehindDelay(1, TimeUnit.HOURS);
+
+        char[] hugeFeature = new char[17 * 1024 * 1024];
+        Arrays.fill(hugeFeature, 'a');
+        DiscoverInfo hugeInfo = DiscoverInfo.builder("disco")
+                        .ofType(IQ.Type.result)
+                        .addFeature(new String(hugeFeature))
+                        .build();
+        cache.addDiscoverInfoByNodePersistent(nodeVer(1), createDiscoverInfo(1));
+        cache.addDiscoverInfoByNodePersistent(nodeVer(2), hugeInfo);
+        cache.addDiscoverInfoByNodePersistent(nodeVer(3), createDiscoverInfo(3));
+        cache.flush();
+
+        assertEquals(2, cache.size());
+        assertNull(cache.lookup(nodeVer(2)));
+        assertDiscoverInfoEquals(createDiscoverInfo(3), cache.lookup(nodeVer(3)));
+
+        // The offsets of the entries following the skipped one are correct.
+        cache.setWriteBehindDelay(0, TimeUnit.MILLISECONDS);
+        cache.addDiscoverInfoByNodePersistent(nodeVer(4), createDiscoverInfo(4));
+        cache = new SingleFilePersistentCache(file);
+        assertEquals(3, cache.size());
+        assertDiscoverInfoEquals(createDiscoverInfo(1), cache.lookup(nodeVer(1)));
+        assertDiscoverInfoEquals(createDiscoverInfo(3), cache.lookup(nodeVer(3)));
+        assertDiscoverInfoEquals(createDiscoverInfo(4), cache.lookup(nodeVer(4)));
+    }
+}
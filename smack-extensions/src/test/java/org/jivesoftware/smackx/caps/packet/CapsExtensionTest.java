@@ -0,0 +1,66 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.caps.packet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jivesoftware.smack.packet.Presence;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+import org.jivesoftware.smack.util.PreEncodedXml;
+
+import org.junit.jupiter.api.Test;
+
+public class CapsExtensionTest extends SmackTestSuite {
+
+    private static final String CAPS_XML = "<c xmlns='http://jabber.org/protocol/caps'"
+                    + " hash='sha-1'"
+                    + " node='https://igniterealtime.org/projects/smack'"
+                    + " ver='QgayPKawpkPSDYmwt/WM94uA1u0='/>";
+
+    private static List<PreEncodedXml> preEncodedPartsOf(Presence presence) {
+        List<PreEncodedXml> preEncodedParts = new ArrayList<>();
+        for (CharSequence part : presence.toXML(XmlEnvironment.EMPTY).toList(XmlEnvironment.EMPTY)) {
+            if (part instanceof PreEncodedXml) {
+                preEncodedParts.add((PreEncodedXml) part);
+            }
+        }
+        return preEncodedParts;
+    }
+
+    @Test
+    public void reusesPreEncodedXml() {
+        CapsExtension capsExtension = new CapsExtension("https://igniterealtime.org/projects/smack",
+                        "QgayPKawpkPSDYmwt/WM94uA1u0=", "sha-1");
+        assertEquals(CAPS_XML, capsExtension.toXML().toString());
+
+        Presence presence = StanzaBuilder.buildPresence("presence-1").addExtension(capsExtension).build();
+        Presence anotherPresence = StanzaBuilder.buildPresence("presence-2").addExtension(capsExtension).build();
+
+        List<PreEncodedXml> preEncodedParts = preEncodedPartsOf(presence);
+        List<PreEncodedXml> anotherPreEncodedParts = preEncodedPartsOf(anotherPresence);
+        assertEquals(1, preEncodedParts.size());
+        assertEquals(CAPS_XML, preEncodedParts.get(0).toString());
+        assertEquals(1, anotherPreEncodedParts.size());
+        assertSame(preEncodedParts.get(0), anotherPreEncodedParts.get(0));
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.roster;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jivesoftware.smack.DummyConnection;
+import org.jivesoftware.smack.StanzaListener;
+import org.jivesoftware.smack.filter.StanzaTypeFilter;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.roster.packet.RosterPacket;
+import org.jivesoftware.smack.util.PacketParserUtils;
+
+import org.jxmpp.JxmppContext;
+import org.jxmpp.jid.EntityBareJid;
+import org.jxmpp.jid.impl.JidCreate;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the heap retained by the presences stored in a {@link Roster}, with and without the
+ * {@link Roster#setCompactPresenceStorage(boolean) compact presence storage}. Every benchmark operation receives a
+ * presence from {@link #RESOURCES_PER_CONTACT} resources of every contact. The presences are parsed from XML, like
+ * received presences, so that they are only retained by the roster. The retained heap is reported as the
+ * {@code retainedBytes} secondary result. As JMH sums up such results over the iterations, only one iteration is
+ * measured.
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class RosterPresenceFootprintJmh {
+
+    private static final int RESOURCES_PER_CONTACT = 2;
+
+    @Param({"false", "true"})
+    private boolean compactPresenceStorage;
+
+    @Param({"20000"})
+    private int rosterSize;
+
+    private DummyConnection connection;
+
+    private final AtomicLong processedPresences = new AtomicLong();
+
+    private final StanzaListener processedPresencesCounter = stanza -> processedPresences.incrementAndGet();
+
+    private long usedHeapBefore;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long retainedBytes;
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() throws Exception {
+        connection = new DummyConnection();
+        connection.connect();
+        connection.login();
+
+        Roster roster = Roster.getInstanceFor(connection);
+        roster.setSubscriptionMode(Roster.SubscriptionMode.manual);
+        roster.setCompactPresenceStorage(compactPresenceStorage);
+        roster.reload();
+
+        while (true) {
+            Stanza sentStanza = connection.getSentPacket();
+            if (!(sentStanza instanceof RosterPacket) || ((IQ) sentStanza).getType() != IQ.Type.get) {
+                continue;
+            }
+            RosterPacket rosterResult = new RosterPacket();
+            rosterResult.setTo(connection.getUser());
+            rosterResult.setType(IQ.Type.result);
+            rosterResult.setStanzaId(sentStanza.getStanzaId());
+            for (int i = 0; i < rosterSize; i++) {
+                RosterPacket.Item item = new RosterPacket.Item(contact(i), "Contact " + i);
+                item.setItemType(RosterPacket.ItemType.both);
+                rosterResult.addRosterItem(item);
+            }
+            connection.processStanza(rosterResult);
+            break;
+        }
+        if (!roster.waitUntilLoaded()) {
+            throw new IllegalStateException("Roster not loaded");
+        }
+
+        processedPresences.set(0);
+        connection.addSyncStanzaListener(processedPresencesCounter, StanzaTypeFilter.PRESENCE);
+        usedHeapBefore = usedHeap();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        // Not disconnecting the connection, as this would cause the roster to process an unavailable presence for
+        // every stored presence, which would interfere with the next iteration. Instead, the connection and its roster
+        // become garbage.
+        connection.removeSyncStanzaListener(processedPresencesCounter);
+        connection = null;
+    }
+
+    private static EntityBareJid contact(int i) {
+        return JidCreate.entityBareFromOrThrowUnchecked("contact" + i + "@example.org");
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Benchmark
+    public void storePresences(Footprint footprint) throws Exception {
+        JxmppContext jxmppContext = JxmppContext.getDefaultContext();
+        for (int r = 0; r < RESOURCES_PER_CONTACT; r++) {
+            for (int i = 0; i < rosterSize; i++) {
+                String xml = "<presence xmlns='jabber:client' from='" + contact(i) + "/resource" + r + "' to='"
+                                + connection.getUser() + "' id='presence-" + r + '-' + i + "'>"
+                                + "<show>away</show><status>Status of contact " + i + "</status>"
+                                + "<priority>" + r + "</priority>"
+                                + "<c xmlns='http://jabber.org/protocol/caps' hash='sha-1'"
+                                + " node='https://igniterealtime.org/projects/smack' ver='QgayPKawpkPSDYmwT/WM94uAlu"
+                                + (i % 8) + "='/>"
+                                + "<delay xmlns='urn:xmpp:delay' stamp='2026-10-17T12:00:00Z'/>"
+                                + "</presence>";
+                Stanza presence = PacketParserUtils.parseStanza(PacketParserUtils.getParserFor(xml),
+                                XmlEnvironment.EMPTY, jxmppContext);
+                connection.processStanza(presence);
+            }
+        }
+
+        long expectedProcessedPresences = (long) rosterSize * RESOURCES_PER_CONTACT;
+        while (processedPresences.get() < expectedProcessedPresences) {
+            Thread.sleep(1);
+        }
+        footprint.retainedBytes = usedHeap() - usedHeapBefore;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.roster;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jivesoftware.smack.DummyConnection;
+import org.jivesoftware.smack.StanzaListener;
+import org.jivesoftware.smack.filter.StanzaTypeFilter;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.Presence;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+import org.jivesoftware.smack.roster.packet.RosterPacket;
+
+import org.jxmpp.jid.EntityBareJid;
+import org.jxmpp.jid.impl.JidCreate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how fast the {@link Roster} processes incoming presences of its contacts. One benchmark operation delivers
+ * an available presence of every contact, from a rotating set of resources, and waits until the roster has processed
+ * all of them. Hence the processed presences per second are the operations per second multiplied by
+ * {@link #rosterSize}.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class RosterPresenceJmh {
+
+    private static final int RESOURCES_PER_CONTACT = 3;
+
+    private static final Presence.Mode[] MODES = {
+        Presence.Mode.available,
+        Presence.Mode.away,
+        Presence.Mode.chat,
+        Presence.Mode.dnd,
+        Presence.Mode.xa,
+    };
+
+    @Param({"10", "1000", "10000"})
+    private int rosterSize;
+
+    private DummyConnection connection;
+
+    private Presence[] presences;
+
+    /**
+     * Counts the processed presences. The listener is registered after the roster's, and synchronous stanza
+     * listeners are invoked in order, hence a counted presence has also been processed by the roster.
+     */
+    private final AtomicLong processedPresences = new AtomicLong();
+
+    private final StanzaListener processedPresencesCounter = stanza -> processedPresences.incrementAndGet();
+
+    private long expectedProcessedPresences;
+
+    private int nextResource;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        connection = new DummyConnection();
+        connection.connect();
+        connection.login();
+
+        Roster roster = Roster.getInstanceFor(connection);
+        roster.setSubscriptionMode(Roster.SubscriptionMode.manual);
+        roster.reload();
+
+        EntityBareJid[] contacts = new EntityBareJid[rosterSize];
+        while (true) {
+            Stanza sentStanza = connection.getSentPacket();
+            if (!(sentStanza instanceof RosterPacket) || ((IQ) sentStanza).getType() != IQ.Type.get) {
+                continue;
+            }
+            RosterPacket rosterResult = new RosterPacket();
+            rosterResult.setTo(connection.getUser());
+            rosterResult.setType(IQ.Type.result);
+            rosterResult.setStanzaId(sentStanza.getStanzaId());
+            for (int i = 0; i < rosterSize; i++) {
+                contacts[i] = JidCreate.entityBareFrom("contact" + i + "@example.org");
+                RosterPacket.Item item = new RosterPacket.Item(contacts[i], "Contact " + i);
+                item.setItemType(RosterPacket.ItemType.both);
+                item.addGroupName("Group " + (i % 10));
+                rosterResult.addRosterItem(item);
+            }
+            connection.processStanza(rosterResult);
+            break;
+        }
+        if (!roster.waitUntilLoaded()) {
+            throw new IllegalStateException("Roster not loaded");
+        }
+
+        presences = new Presence[rosterSize * RESOURCES_PER_CONTACT];
+        for (int r = 0; r < RESOURCES_PER_CONTACT; r++) {
+            for (int i = 0; i < rosterSize; i++) {
+                presences[r * rosterSize + i] = StanzaBuilder.buildPresence()
+                                .from(JidCreate.entityFullFrom(contacts[i] + "/resource" + r))
+                                .to(connection.getUser())
+                                .setMode(MODES[(i + r) % MODES.length])
+                                .setStatus("Status " + r)
+                                .build();
+            }
+        }
+
+        connection.addSyncStanzaListener(processedPresencesCounter, StanzaTypeFilter.PRESENCE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        connection.disconnect();
+    }
+
+    @Benchmark
+    public void processPresences() {
+        int offset = nextResource * rosterSize;
+        nextResource = (nextResource + 1) % RESOURCES_PER_CONTACT;
+        for (int i = 0; i < rosterSize; i++) {
+            connection.processStanza(presences[offset + i]);
+        }
+
+        expectedProcessedPresences += rosterSize;
+        while (processedPresences.get() < expectedProcessedPresences) {
+            Thread.onSpinWait();
+        }
+    }
+}
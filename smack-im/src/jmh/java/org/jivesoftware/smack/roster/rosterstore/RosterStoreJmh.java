@@ -0,0 +1,139 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.roster.rosterstore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.roster.packet.RosterPacket.Item;
+import org.jivesoftware.smack.roster.packet.RosterPacket.ItemType;
+
+import org.jxmpp.jid.impl.JidCreate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link DirectoryRosterStore} and {@link LogFileRosterStore}: loading all entries of a stored roster, as
+ * done when a connection with roster versioning is established, storing a roster push, and replacing all entries, as
+ * done after a full roster retrieval.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class RosterStoreJmh {
+
+    public enum StoreKind {
+        directory,
+        logfile,
+    }
+
+    @Param
+    private StoreKind store;
+
+    @Param({"1000", "20000"})
+    private int rosterSize;
+
+    private File baseDir;
+
+    private RosterStore rosterStore;
+
+    private List<Item> items;
+
+    private int nextPush;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        baseDir = Files.createTempDirectory("smack-roster-store-jmh").toFile();
+        rosterStore = create();
+
+        items = new ArrayList<>(rosterSize);
+        for (int i = 0; i < rosterSize; i++) {
+            Item item = new Item(JidCreate.entityBareFromOrThrowUnchecked("contact" + i + "@example.org"),
+                            "Contact " + i);
+            item.setItemType(ItemType.both);
+            item.addGroupName("Group " + (i % 10));
+            items.add(item);
+        }
+        rosterStore.resetEntries(items, "0");
+    }
+
+    private RosterStore create() {
+        switch (store) {
+        case directory:
+            return DirectoryRosterStore.init(baseDir);
+        case logfile:
+            return LogFileRosterStore.init(new File(baseDir, "roster"));
+        default:
+            throw new AssertionError(store);
+        }
+    }
+
+    private RosterStore open() {
+        switch (store) {
+        case directory:
+            return DirectoryRosterStore.open(baseDir);
+        case logfile:
+            return LogFileRosterStore.open(new File(baseDir, "roster"));
+        default:
+            throw new AssertionError(store);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (File file : baseDir.listFiles()) {
+            file.delete();
+        }
+        baseDir.delete();
+    }
+
+    @Benchmark
+    public List<Item> load() {
+        return open().getEntries();
+    }
+
+    @Benchmark
+    public boolean push() {
+        int push = nextPush++;
+        Item item = items.get(push % rosterSize);
+        item.setName("Contact " + push);
+        return rosterStore.addEntry(item, Integer.toString(push));
+    }
+
+    @Benchmark
+    public boolean reset() {
+        return rosterStore.resetEntries(items, Integer.toString(nextPush++));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.roster;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.Presence;
+import org.jivesoftware.smack.packet.PresenceBuilder;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+import org.jivesoftware.smack.packet.StanzaError;
+import org.jivesoftware.smack.packet.XmlElement;
+
+import org.jxmpp.jid.BareJid;
+import org.jxmpp.jid.DomainBareJid;
+import org.jxmpp.jid.EntityBareJid;
+import org.jxmpp.jid.Jid;
+import org.jxmpp.jid.impl.JidCreate;
+import org.jxmpp.jid.parts.Resourcepart;
+import org.jxmpp.util.cache.LruCache;
+
+/**
+ * A flat record of the information of a {@link Presence} the {@link Roster} needs. It is used instead of the presence
+ * if {@link Roster#setCompactPresenceStorage(boolean) compact presence storage} is enabled.
+ * <p>
+ * The record holds the type, mode, priority and default status of the presence, and its XEP-0115 entity capabilities
+ * element. As most contacts use one of a few client versions, equal entity capabilities elements are shared between
+ * the records. The stanza ID, the addressee and all other extension elements are dropped. The sender is not stored, it
+ * is derived from the bare JID and resource the record is stored under.
+ * </p>
+ */
+final class CompactPresence {
+
+    static final QName CAPS_QNAME = new QName("http://jabber.org/protocol/caps", "c");
+
+    /**
+     * Interns the entity capabilities elements, keyed by their XML representation.
+     */
+    private static final LruCache<String, XmlElement> CAPS_ELEMENTS = new LruCache<>(1024);
+
+    private final Presence.Type type;
+
+    private final Presence.Mode mode;
+
+    private final byte priority;
+
+    private final boolean hasFrom;
+
+    private final String status;
+
+    private final XmlElement caps;
+
+    private final StanzaError error;
+
+    private CompactPresence(Presence presence) {
+        type = presence.getType();
+        mode = presence.getMode();
+        priority = presence.getPriorityByte();
+        hasFrom = presence.getFrom() != null;
+        status = presence.getStatus();
+        caps = intern(presence.getExtension(CAPS_QNAME));
+        error = presence.getError();
+    }
+
+    static CompactPresence from(Presence presence) {
+        return new CompactPresence(presence);
+    }
+
+    private static XmlElement intern(XmlElement caps) {
+        if (caps == null) {
+            return null;
+        }
+        String xml = caps.toXML().toString();
+        XmlElement internedCaps = CAPS_ELEMENTS.lookup(xml);
+        if (internedCaps != null) {
+            return internedCaps;
+        }
+        CAPS_ELEMENTS.put(xml, caps);
+        return caps;
+    }
+
+    /**
+     * Rebuild the presence.
+     *
+     * @param bareJid the bare JID of the sender.
+     * @param resource the resource of the sender or {@link Resourcepart#EMPTY}.
+     * @return the presence.
+     */
+    Presence toPresence(BareJid bareJid, Resourcepart resource) {
+        PresenceBuilder presenceBuilder = StanzaBuilder.buildPresence((String) null)
+                        .ofType(type)
+                        .setMode(mode)
+                        .setPriority(priority)
+                        .setStatus(status);
+        if (hasFrom) {
+            presenceBuilder.from(toFrom(bareJid, resource));
+        }
+        if (caps != null) {
+            presenceBuilder.addExtension(caps);
+        }
+        if (error != null) {
+            presenceBuilder.setError(error);
+        }
+        return presenceBuilder.build();
+    }
+
+    private static Jid toFrom(BareJid bareJid, Resourcepart resource) {
+        if (resource.equals(Resourcepart.EMPTY)) {
+            return bareJid;
+        }
+        EntityBareJid entityBareJid = bareJid.asEntityBareJidIfPossible();
+        if (entityBareJid != null) {
+            return JidCreate.entityFullFrom(entityBareJid, resource);
+        }
+        DomainBareJid domainBareJid = bareJid.asDomainBareJid();
+        return JidCreate.domainFullFrom(domainBareJid, resource);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.roster;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.jivesoftware.smack.packet.Presence;
+
+import org.jxmpp.jid.BareJid;
+import org.jxmpp.jid.parts.Resourcepart;
+
+/**
+ * A map from the resources of an entity to its presences, which stores the presences as {@link CompactPresence}s and
+ * rebuilds them when they are retrieved. Hence, unlike with a regular map, the retrieved presences are not the ones
+ * put into the map, and retrieving the same presence twice returns two different, but equal, instances.
+ */
+final class CompactPresenceMap extends AbstractMap<Resourcepart, Presence> {
+
+    private final BareJid bareJid;
+
+    private final Map<Resourcepart, CompactPresence> presences;
+
+    /**
+     * Creates a new map.
+     *
+     * @param bareJid the bare JID of the entity the presences belong to.
+     * @param presences the map used to store the compact presences, which determines the thread-safety and the
+     *        eviction policy of this map.
+     */
+    CompactPresenceMap(BareJid bareJid, Map<Resourcepart, CompactPresence> presences) {
+        this.bareJid = bareJid;
+        this.presences = presences;
+    }
+
+    private Presence toPresence(Resourcepart resource, CompactPresence compactPresence) {
+        if (compactPresence == null) {
+            return null;
+        }
+        return compactPresence.toPresence(bareJid, resource);
+    }
+
+    @Override
+    public Presence get(Object key) {
+        if (!(key instanceof Resourcepart)) {
+            return null;
+        }
+        Resourcepart resource = (Resourcepart) key;
+        return toPresence(resource, presences.get(resource));
+    }
+
+    @Override
+    public Presence put(Resourcepart resource, Presence presence) {
+        return toPresence(resource, presences.put(resource, CompactPresence.from(presence)));
+    }
+
+    @Override
+    public Presence remove(Object key) {
+        if (!(key instanceof Resourcepart)) {
+            return null;
+        }
+        Resourcepart resource = (Resourcepart) key;
+        return toPresence(resource, presences.remove(resource));
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return presences.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return presences.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return presences.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        presences.clear();
+    }
+
+    @Override
+    public Set<Resourcepart> keySet() {
+        return presences.keySet();
+    }
+
+    @Override
+    public Set<Map.Entry<Resourcepart, Presence>> entrySet() {
+        return new AbstractSet<Map.Entry<Resourcepart, Presence>>() {
+            @Override
+            public Iterator<Map.Entry<Resourcepart, Presence>> iterator() {
+                Iterator<Map.Entry<Resourcepart, CompactPresence>> iterator = presences.entrySet().iterator();
+                return new Iterator<Map.Entry<Resourcepart, Presence>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<Resourcepart, Presence> next() {
+                        Map.Entry<Resourcepart, CompactPresence> entry = iterator.next();
+                        Resourcepart resource = entry.getKey();
+                        return new AbstractMap.SimpleImmutableEntry<>(resource,
+                                        toPresence(resource, entry.getValue()));
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return presences.size();
+            }
+        };
+    }
+}
@@ -22,6 +22,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +30,7 @@ import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -255,6 +257,10 @@ public final class Roster extends Manager {
 
     private static int defaultNonRosterPresenceMapMaxSize = INITIAL_DEFAULT_NON_ROSTER_PRESENCE_MAP_SIZE;
 
+    private static boolean compactPresenceStorageDefault;
+
+    private static long notificationBatchingWindowMillisDefault;
+
     private RosterStore rosterStore;
 
     /**
@@ -322,6 +328,24 @@ public final class Roster extends Manager {
      */
     private boolean rosterLoadedAtLogin = rosterLoadedAtLoginDefault;
 
+    private boolean compactPresenceStorage = compactPresenceStorageDefault;
+
+    /**
+     * The window, in milliseconds, over which roster listener and presence event listener notifications are
+     * coalesced. Zero if the listeners are notified immediately.
+     */
+    private long notificationBatchingWindowMillis = notificationBatchingWindowMillisDefault;
+
+    /**
+     * Guards {@link #pendingNotifications}. Never held while listeners are invoked.
+     */
+    private final Object pendingNotificationsLock = new Object();
+
+    /**
+     * The notifications collected in the current batching window, or <code>null</code> if no flush is scheduled.
+     */
+    private PendingNotifications pendingNotifications;
+
     private SubscriptionMode subscriptionMode = getDefaultSubscriptionMode();
 
     private final Set<SubscribeListener> subscribeListeners = new CopyOnWriteArraySet<>();
@@ -510,13 +534,20 @@ public final class Roster extends Manager {
         Map<Resourcepart, Presence> entityPresences = getPresencesInternal(entity);
         if (entityPresences == null) {
             if (contains(entity)) {
-                entityPresences = new ConcurrentHashMap<>();
+                if (compactPresenceStorage) {
+                    entityPresences = new CompactPresenceMap(entity, new ConcurrentHashMap<>());
+                } else {
+                    entityPresences = new ConcurrentHashMap<>();
+                }
                 presenceMap.put(entity, entityPresences);
             }
             else {
-                LruCache<Resourcepart, Presence> nonRosterEntityPresences = new LruCache<>(32);
-                nonRosterPresenceMap.put(entity, nonRosterEntityPresences);
-                entityPresences = nonRosterEntityPresences;
+                if (compactPresenceStorage) {
+                    entityPresences = new CompactPresenceMap(entity, new LruCache<>(32));
+                } else {
+                    entityPresences = new LruCache<>(32);
+                }
+                nonRosterPresenceMap.put(entity, entityPresences);
             }
         }
         return entityPresences;
@@ -1358,6 +1389,98 @@ public final class Roster extends Manager {
         return rosterLoadedAtLogin;
     }
 
+    /**
+     * Sets if newly created instances of {@link Roster} use the compact presence storage.
+     *
+     * @param compactPresenceStorageDefault if the compact presence storage is used.
+     * @see #setCompactPresenceStorage(boolean)
+     * @since 4.5
+     */
+    public static void setCompactPresenceStorageDefault(boolean compactPresenceStorageDefault) {
+        Roster.compactPresenceStorageDefault = compactPresenceStorageDefault;
+    }
+
+    /**
+     * Sets if the presences of the contacts are stored in a compact representation. Instead of the received presence
+     * stanzas, the roster then only stores their type, mode, priority, status and entity capabilities, and rebuilds
+     * the presences when they are retrieved, e.g. by {@link #getPresence(BareJid)}. This considerably reduces the
+     * memory required for rosters with many contacts, at the cost that all other information of the presences, like
+     * their extension elements, is not available from the roster. Presence listeners are not affected, they are
+     * always invoked with the received presence.
+     * <p>
+     * The setting applies to the contacts whose presence is received after the setting was changed, hence it should
+     * be set before logging in.
+     * </p>
+     *
+     * @param compactPresenceStorage if the compact presence storage is used.
+     * @since 4.5
+     */
+    public void setCompactPresenceStorage(boolean compactPresenceStorage) {
+        this.compactPresenceStorage = compactPresenceStorage;
+    }
+
+    /**
+     * Returns true if the presences of the contacts are stored in a compact representation.
+     *
+     * @return true if the compact presence storage is used.
+     * @see #setCompactPresenceStorage(boolean)
+     * @since 4.5
+     */
+    public boolean isCompactPresenceStorage() {
+        return compactPresenceStorage;
+    }
+
+    /**
+     * Sets the notification batching window used by newly created instances of {@link Roster}.
+     *
+     * @param window the batching window, zero disables batching.
+     * @param unit the time unit of the batching window.
+     * @see #setNotificationBatchingWindow(long, TimeUnit)
+     * @since 4.5
+     */
+    public static void setNotificationBatchingWindowDefault(long window, TimeUnit unit) {
+        if (window < 0) {
+            throw new IllegalArgumentException("The notification batching window must not be negative");
+        }
+        notificationBatchingWindowMillisDefault = unit.toMillis(window);
+    }
+
+    /**
+     * Sets the window over which the notifications of {@link RosterListener}s and {@link PresenceEventListener}s are
+     * batched. Per default, i.e. with a window of zero, the listeners are notified once for every roster push and
+     * every received presence. With a non-zero window, the changes received within the window are coalesced per
+     * contact and delivered as a single change set once the window expired: every roster listener is invoked at
+     * most once for the added, updated and deleted entries, followed by the latest presence of every address whose
+     * presence changed. Changes that cancel each other out, like an entry that is added and deleted within the same
+     * window, are not reported at all. Subscription related presence events are always delivered immediately.
+     * <p>
+     * Batching considerably reduces the listener invocations, and the time the listeners block the roster, when a
+     * large roster is loaded or a presence flood is received, at the cost of delaying the notifications by up to
+     * the window.
+     * </p>
+     *
+     * @param window the batching window, zero disables batching.
+     * @param unit the time unit of the batching window.
+     * @since 4.5
+     */
+    public void setNotificationBatchingWindow(long window, TimeUnit unit) {
+        if (window < 0) {
+            throw new IllegalArgumentException("The notification batching window must not be negative");
+        }
+        notificationBatchingWindowMillis = unit.toMillis(window);
+    }
+
+    /**
+     * Returns the window, in milliseconds, over which listener notifications are batched.
+     *
+     * @return the notification batching window in milliseconds, zero if batching is disabled.
+     * @see #setNotificationBatchingWindow(long, TimeUnit)
+     * @since 4.5
+     */
+    public long getNotificationBatchingWindowMillis() {
+        return notificationBatchingWindowMillis;
+    }
+
     RosterStore getRosterStore() {
         return rosterStore;
     }
@@ -1416,6 +1539,22 @@ public final class Roster extends Manager {
      */
     private void fireRosterChangedEvent(final Collection<Jid> addedEntries, final Collection<Jid> updatedEntries,
                     final Collection<Jid> deletedEntries) {
+        if (notificationBatchingWindowMillis > 0) {
+            synchronized (pendingNotificationsLock) {
+                PendingNotifications pending = getOrSchedulePendingNotifications();
+                for (Jid jid : addedEntries) {
+                    pending.recordEntryChange(jid, EntryChange.added);
+                }
+                for (Jid jid : updatedEntries) {
+                    pending.recordEntryChange(jid, EntryChange.updated);
+                }
+                for (Jid jid : deletedEntries) {
+                    pending.recordEntryChange(jid, EntryChange.deleted);
+                }
+            }
+            return;
+        }
+
         synchronized (rosterListenersAndEntriesLock) {
             for (RosterListener listener : rosterListeners) {
                 if (!addedEntries.isEmpty()) {
@@ -1443,6 +1582,18 @@ public final class Roster extends Manager {
             return;
         }
 
+        if (notificationBatchingWindowMillis > 0) {
+            synchronized (pendingNotificationsLock) {
+                PendingNotifications pending = getOrSchedulePendingNotifications();
+                if (ownPresence) {
+                    pending.ownPresences.put(presence.getFrom(), presence);
+                } else {
+                    pending.presences.put(presence.getFrom(), presence);
+                }
+            }
+            return;
+        }
+
         synchronized (rosterListenersAndEntriesLock) {
             for (RosterListener listener : rosterListeners) {
                 if (ownPresence) {
@@ -1454,6 +1605,151 @@ public final class Roster extends Manager {
         }
     }
 
+    /**
+     * Fires the available, unavailable or error presence event to the presence event listeners.
+     *
+     * @param from the address that send the presence, may be <code>null</code>.
+     * @param presence the presence.
+     */
+    private void firePresenceEvent(Jid from, Presence presence) {
+        if (notificationBatchingWindowMillis > 0) {
+            synchronized (pendingNotificationsLock) {
+                getOrSchedulePendingNotifications().presenceEvents.put(from, presence);
+            }
+            return;
+        }
+
+        invokePresenceEventListeners(from, presence);
+    }
+
+    private void invokePresenceEventListeners(Jid from, Presence presence) {
+        FullJid fullFrom = from != null ? from.asFullJidIfPossible() : null;
+        for (PresenceEventListener presenceEventListener : presenceEventListeners) {
+            switch (presence.getType()) {
+            case available:
+                presenceEventListener.presenceAvailable(fullFrom, presence);
+                break;
+            case unavailable:
+                presenceEventListener.presenceUnavailable(fullFrom, presence);
+                break;
+            case error:
+                presenceEventListener.presenceError(from, presence);
+                break;
+            default:
+                throw new AssertionError();
+            }
+        }
+    }
+
+    private PendingNotifications getOrSchedulePendingNotifications() {
+        assert Thread.holdsLock(pendingNotificationsLock);
+        if (pendingNotifications == null) {
+            pendingNotifications = new PendingNotifications();
+            scheduleBlocking(this::flushPendingNotifications, notificationBatchingWindowMillis, TimeUnit.MILLISECONDS);
+        }
+        return pendingNotifications;
+    }
+
+    /**
+     * Delivers the notifications collected in the current batching window. The roster listeners are invoked with the
+     * coalesced change set while {@link #rosterListenersAndEntriesLock} is acquired only once for the whole batch.
+     */
+    private void flushPendingNotifications() {
+        final PendingNotifications pending;
+        synchronized (pendingNotificationsLock) {
+            pending = pendingNotifications;
+            pendingNotifications = null;
+        }
+        if (pending == null) {
+            return;
+        }
+
+        List<Jid> addedEntries = new ArrayList<>();
+        List<Jid> updatedEntries = new ArrayList<>();
+        List<Jid> deletedEntries = new ArrayList<>();
+        for (Map.Entry<Jid, EntryChange> entryChange : pending.entryChanges.entrySet()) {
+            switch (entryChange.getValue()) {
+            case added:
+                addedEntries.add(entryChange.getKey());
+                break;
+            case updated:
+                updatedEntries.add(entryChange.getKey());
+                break;
+            case deleted:
+                deletedEntries.add(entryChange.getKey());
+                break;
+            }
+        }
+
+        synchronized (rosterListenersAndEntriesLock) {
+            for (RosterListener listener : rosterListeners) {
+                if (!addedEntries.isEmpty()) {
+                    listener.entriesAdded(addedEntries);
+                }
+                if (!updatedEntries.isEmpty()) {
+                    listener.entriesUpdated(updatedEntries);
+                }
+                if (!deletedEntries.isEmpty()) {
+                    listener.entriesDeleted(deletedEntries);
+                }
+                for (Presence presence : pending.presences.values()) {
+                    listener.presenceChanged(presence);
+                }
+                for (Presence presence : pending.ownPresences.values()) {
+                    listener.ownPresenceChanged(presence);
+                }
+            }
+        }
+
+        for (Map.Entry<Jid, Presence> presenceEvent : pending.presenceEvents.entrySet()) {
+            invokePresenceEventListeners(presenceEvent.getKey(), presenceEvent.getValue());
+        }
+    }
+
+    private enum EntryChange {
+        added,
+        updated,
+        deleted,
+    }
+
+    /**
+     * The roster changes and presences received within one batching window, coalesced per address. Guarded by
+     * {@link #pendingNotificationsLock}.
+     */
+    private static final class PendingNotifications {
+        private final Map<Jid, EntryChange> entryChanges = new LinkedHashMap<>();
+
+        // The latest presence per address, in the order the addresses first changed their presence.
+        private final Map<Jid, Presence> presences = new LinkedHashMap<>();
+        private final Map<Jid, Presence> ownPresences = new LinkedHashMap<>();
+        private final Map<Jid, Presence> presenceEvents = new LinkedHashMap<>();
+
+        private void recordEntryChange(Jid jid, EntryChange change) {
+            EntryChange previous = entryChanges.get(jid);
+            if (previous == null) {
+                entryChanges.put(jid, change);
+                return;
+            }
+
+            switch (previous) {
+            case added:
+                if (change == EntryChange.deleted) {
+                    // Added and deleted within the window, the listeners never knew about the entry.
+                    entryChanges.remove(jid);
+                }
+                // An update of an added entry is still an addition.
+                break;
+            case updated:
+                entryChanges.put(jid, change == EntryChange.deleted ? EntryChange.deleted : EntryChange.updated);
+                break;
+            case deleted:
+                // A deleted entry that got added again has, from the listeners point of view, been updated.
+                entryChanges.put(jid, change == EntryChange.deleted ? EntryChange.deleted : EntryChange.updated);
+                break;
+            }
+        }
+    }
+
     private void addUpdateEntry(Collection<Jid> addedEntries, Collection<Jid> updatedEntries,
                     Collection<Jid> unchangedEntries, RosterPacket.Item item, RosterEntry entry) {
         RosterEntry oldEntry;
@@ -1723,9 +2019,7 @@ public final class Roster extends Manager {
                         // If the user is in the roster or if its our own presence, fire an event.
                         fireRosterPresenceEvent(key, ownPresence, presence);
 
-                        for (PresenceEventListener presenceEventListener : presenceEventListeners) {
-                            presenceEventListener.presenceAvailable(fullFrom, presence);
-                        }
+                        firePresenceEvent(from, presence);
                         break;
                     // If an "unavailable" packet.
                     case unavailable:
@@ -1755,9 +2049,7 @@ public final class Roster extends Manager {
                         // client code, instead of just having the invariant
                         // "unavailable presences are always from the full JID".
                         if (fullFrom != null) {
-                            for (PresenceEventListener presenceEventListener : presenceEventListeners) {
-                                presenceEventListener.presenceUnavailable(fullFrom, presence);
-                            }
+                            firePresenceEvent(from, presence);
                         } else {
                             LOGGER.fine("Unavailable presence from bare JID: " + presence);
                         }
@@ -1782,9 +2074,7 @@ public final class Roster extends Manager {
                         // If the user is in the roster or if its our own presence, fire an event.
                         fireRosterPresenceEvent(key, ownPresence, presence);
 
-                        for (PresenceEventListener presenceEventListener : presenceEventListeners) {
-                            presenceEventListener.presenceError(from, presence);
-                        }
+                        firePresenceEvent(from, presence);
                         break;
                     case subscribed:
                         for (PresenceEventListener presenceEventListener : presenceEventListeners) {
@@ -0,0 +1,595 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.roster.rosterstore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.jivesoftware.smack.roster.packet.RosterPacket.Item;
+import org.jivesoftware.smack.roster.packet.RosterPacket.ItemType;
+
+import org.jxmpp.jid.BareJid;
+import org.jxmpp.jid.Jid;
+import org.jxmpp.jid.impl.JidCreate;
+
+/**
+ * Stores roster entries as specified by RFC 6121 for roster versioning in a single, append-only log file. Unlike
+ * {@link DirectoryRosterStore}, which uses one file per entry, this store scales to rosters with tens of thousands of
+ * entries: roster pushes append a single record to the log, {@link #resetEntries(Collection, String)} writes the whole
+ * roster sequentially into a new file, and {@link #getEntries()} reads the file in one sequential pass. The entries
+ * are stored in a compact binary encoding instead of XML, so that loading them does not require to parse XML.
+ * <p>
+ * Every record carries the roster version after the record was applied, hence the entries and the version stored in the
+ * log are always consistent, even if the last records were lost, for example due to a crash. Records which were only
+ * partially written are detected by their checksum and discarded when the store is opened. The log is compacted once
+ * it contains more outdated than current records. An in-memory index maps the bare JIDs to the position of their
+ * current record, which allows {@link #getEntry(Jid)} to read only this record.
+ * </p>
+ *
+ * @since 4.5
+ */
+public final class LogFileRosterStore implements RosterStore {
+
+    private static final Logger LOGGER = Logger.getLogger(LogFileRosterStore.class.getName());
+
+    private static final int MAGIC = 0x534d5253;
+    private static final int FORMAT_VERSION = 2;
+    private static final int FILE_HEADER_LENGTH = 8;
+    private static final int RECORD_HEADER_LENGTH = 8;
+    private static final int MAX_PAYLOAD_LENGTH = 16 * 1024 * 1024;
+
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_REMOVE = 2;
+    private static final byte RECORD_VERSION = 3;
+
+    private static final int ITEM_FLAG_HAS_NAME = 1;
+    private static final int ITEM_FLAG_SUBSCRIPTION_PENDING = 2;
+    private static final int ITEM_FLAG_APPROVED = 4;
+
+    /**
+     * The minimum number of outdated records before the log is compacted.
+     */
+    static final int MIN_OUTDATED_RECORDS_FOR_COMPACTION = 1024;
+
+    private final File file;
+
+    /**
+     * Maps the bare JIDs of the entries to the position of their current record in the log.
+     */
+    private final Map<String, Long> index = new HashMap<>();
+
+    private String rosterVersion = "";
+
+    /**
+     * The length of the valid part of the log. New records are appended at this position.
+     */
+    private long logLength;
+
+    private int recordCount;
+
+    private LogFileRosterStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Creates a new, empty, roster store. An existing file is replaced.
+     *
+     * @param file the file to store the roster in.
+     * @return A {@link LogFileRosterStore} instance if successful, <code>null</code> else.
+     */
+    public static LogFileRosterStore init(File file) {
+        LogFileRosterStore store = new LogFileRosterStore(file);
+        if (store.resetEntries(Collections.<Item>emptyList(), "")) {
+            return store;
+        }
+        return null;
+    }
+
+    /**
+     * Opens a roster store.
+     *
+     * @param file the file containing the roster store.
+     * @return A {@link LogFileRosterStore} instance if successful, <code>null</code> else.
+     */
+    public static LogFileRosterStore open(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        LogFileRosterStore store = new LogFileRosterStore(file);
+        try {
+            if (!store.load()) {
+                return null;
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not open roster store " + file, e);
+            return null;
+        }
+        return store;
+    }
+
+    private boolean load() throws IOException {
+        try (RecordReader reader = new RecordReader(file)) {
+            if (!reader.readFileHeader()) {
+                return false;
+            }
+            Record record;
+            while ((record = reader.next()) != null) {
+                apply(record.type, record.jid, record.version, record.offset);
+            }
+            logLength = reader.offset;
+        }
+
+        if (logLength < file.length()) {
+            LOGGER.warning("Discarding " + (file.length() - logLength) + " bytes of incomplete records from " + file);
+            truncateLog();
+        }
+        return true;
+    }
+
+    private void apply(byte type, String jid, String version, long offset) {
+        switch (type) {
+        case RECORD_PUT:
+            index.put(jid, offset);
+            break;
+        case RECORD_REMOVE:
+            index.remove(jid);
+            break;
+        default:
+            break;
+        }
+        rosterVersion = version;
+        recordCount++;
+    }
+
+    @Override
+    public synchronized List<Item> getEntries() {
+        List<Item> entries = new ArrayList<>(index.size());
+        try (RecordReader reader = new RecordReader(file)) {
+            if (!reader.readFileHeader()) {
+                return null;
+            }
+            Record record;
+            while ((record = reader.next()) != null && reader.offset <= logLength) {
+                if (record.type != RECORD_PUT) {
+                    continue;
+                }
+                Long currentOffset = index.get(record.jid);
+                if (currentOffset == null || currentOffset.longValue() != record.offset) {
+                    // An outdated record.
+                    continue;
+                }
+                entries.add(parseItem(record));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // Roster store corrupt. Abort and signal this by returning null.
+            LOGGER.log(Level.SEVERE, "Exception while reading roster entries from " + file, e);
+            return null;
+        }
+        return entries;
+    }
+
+    @Override
+    public synchronized Item getEntry(Jid bareJid) {
+        Long offset = index.get(bareJid.toString());
+        if (offset == null) {
+            return null;
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            randomAccessFile.seek(offset);
+            int payloadLength = randomAccessFile.readInt();
+            int checksum = randomAccessFile.readInt();
+            byte[] payload = new byte[payloadLength];
+            randomAccessFile.readFully(payload);
+            Record record = Record.decode(offset, payload, checksum);
+            if (record == null) {
+                throw new IOException("Checksum mismatch of the record at " + offset);
+            }
+            return parseItem(record);
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.log(Level.SEVERE, "Exception while reading roster entry " + bareJid + " from " + file, e);
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized String getRosterVersion() {
+        return rosterVersion;
+    }
+
+    @Override
+    public synchronized boolean addEntry(Item item, String version) {
+        return appendRecord(RECORD_PUT, item.getJid().toString(), version, item);
+    }
+
+    @Override
+    public synchronized boolean removeEntry(Jid bareJid, String version) {
+        String jid = bareJid.toString();
+        if (!index.containsKey(jid)) {
+            return false;
+        }
+        return appendRecord(RECORD_REMOVE, jid, version, null);
+    }
+
+    @Override
+    public synchronized boolean resetEntries(Collection<Item> items, String version) {
+        File newFile = getNewFile();
+        Map<String, Long> newIndex = new HashMap<>(items.size() * 4 / 3 + 1);
+        long newLogLength;
+        try (FileOutputStream fileOutputStream = new FileOutputStream(newFile)) {
+            RecordWriter writer = new RecordWriter(fileOutputStream);
+            for (Item item : items) {
+                String jid = item.getJid().toString();
+                newIndex.put(jid, writer.offset);
+                writer.write(encode(RECORD_PUT, jid, version, item));
+            }
+            writer.write(encode(RECORD_VERSION, "", version, null));
+            newLogLength = writer.finish(fileOutputStream);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not write roster store " + newFile, e);
+            return false;
+        }
+
+        return replaceLog(newFile, newIndex, newLogLength, version);
+    }
+
+    @Override
+    public void resetStore() {
+        resetEntries(Collections.<Item>emptyList(), "");
+    }
+
+    private boolean appendRecord(byte type, String jid, String version, Item item) {
+        byte[] payload;
+        try {
+            payload = encode(type, jid, version, item);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not encode roster store record for " + jid, e);
+            return false;
+        }
+        try (FileOutputStream fileOutputStream = new FileOutputStream(file, true)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOutputStream));
+            writeRecord(out, payload);
+            out.flush();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not append to roster store " + file, e);
+            try {
+                // Remove a partially written record, so that following records are not discarded when loading.
+                truncateLog();
+            } catch (IOException e2) {
+                LOGGER.log(Level.WARNING, "Could not truncate roster store " + file, e2);
+            }
+            return false;
+        }
+
+        long offset = logLength;
+        logLength += RECORD_HEADER_LENGTH + payload.length;
+        apply(type, jid, version, offset);
+
+        if (recordCount - index.size() > Math.max(MIN_OUTDATED_RECORDS_FOR_COMPACTION, index.size())) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Writes the current records into a new log, which then replaces the existing one.
+     */
+    private void compact() {
+        File newFile = getNewFile();
+        Map<String, Long> newIndex = new HashMap<>(index.size() * 4 / 3 + 1);
+        long newLogLength;
+        try (RecordReader reader = new RecordReader(file);
+             FileOutputStream fileOutputStream = new FileOutputStream(newFile)) {
+            if (!reader.readFileHeader()) {
+                throw new IOException("Invalid file header");
+            }
+            RecordWriter writer = new RecordWriter(fileOutputStream);
+            Record record;
+            while ((record = reader.next()) != null && reader.offset <= logLength) {
+                if (record.type != RECORD_PUT) {
+                    continue;
+                }
+                Long currentOffset = index.get(record.jid);
+                if (currentOffset == null || currentOffset.longValue() != record.offset) {
+                    continue;
+                }
+                newIndex.put(record.jid, writer.offset);
+                writer.write(record.payload);
+            }
+            writer.write(encode(RECORD_VERSION, "", rosterVersion, null));
+            newLogLength = writer.finish(fileOutputStream);
+        } catch (IOException e) {
+            // The existing log is still valid, compaction is retried with the next record.
+            LOGGER.log(Level.WARNING, "Could not compact roster store " + file, e);
+            return;
+        }
+
+        if (newIndex.size() != index.size()) {
+            LOGGER.warning("Compaction of " + file + " lost entries, keeping the existing log");
+            newFile.delete();
+            return;
+        }
+        replaceLog(newFile, newIndex, newLogLength, rosterVersion);
+    }
+
+    private boolean replaceLog(File newFile, Map<String, Long> newIndex, long newLogLength, String version) {
+        try {
+            Files.move(newFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not replace roster store " + file, e);
+            newFile.delete();
+            return false;
+        }
+
+        index.clear();
+        index.putAll(newIndex);
+        logLength = newLogLength;
+        recordCount = newIndex.size() + 1;
+        rosterVersion = version;
+        return true;
+    }
+
+    private File getNewFile() {
+        return new File(file.getPath() + ".new");
+    }
+
+    private void truncateLog() throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(logLength);
+        }
+    }
+
+    private static Item parseItem(Record record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.payload, record.itemOffset,
+                        record.payload.length - record.itemOffset));
+        BareJid jid = JidCreate.bareFrom(record.jid);
+        int flags = in.readByte();
+        String name = null;
+        if ((flags & ITEM_FLAG_HAS_NAME) != 0) {
+            name = readString(in);
+        }
+        Item item = new Item(jid, name, (flags & ITEM_FLAG_SUBSCRIPTION_PENDING) != 0);
+        item.setApproved((flags & ITEM_FLAG_APPROVED) != 0);
+        item.setItemType(ItemType.valueOf(readString(in)));
+        int groupCount = in.readInt();
+        for (int i = 0; i < groupCount; i++) {
+            item.addGroupName(readString(in));
+        }
+        return item;
+    }
+
+    /**
+     * Encodes the payload of a record.
+     *
+     * @throws IOException if the payload would exceed the maximum payload length.
+     */
+    private static byte[] encode(byte type, String jid, String version, Item item) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(payload)) {
+            out.writeByte(type);
+            writeString(out, jid);
+            writeString(out, version);
+            if (item != null) {
+                int flags = 0;
+                if (item.getName() != null) {
+                    flags |= ITEM_FLAG_HAS_NAME;
+                }
+                if (item.isSubscriptionPending()) {
+                    flags |= ITEM_FLAG_SUBSCRIPTION_PENDING;
+                }
+                if (item.isApproved()) {
+                    flags |= ITEM_FLAG_APPROVED;
+                }
+                out.writeByte(flags);
+                if (item.getName() != null) {
+                    writeString(out, item.getName());
+                }
+                writeString(out, item.getItemType().name());
+                out.writeInt(item.getGroupNames().size());
+                for (String groupName : item.getGroupNames()) {
+                    writeString(out, groupName);
+                }
+            }
+        }
+        if (payload.size() > MAX_PAYLOAD_LENGTH) {
+            throw new IOException("Record of " + payload.size() + " bytes exceeds the maximum of " + MAX_PAYLOAD_LENGTH
+                            + " bytes");
+        }
+        return payload.toByteArray();
+    }
+
+    /**
+     * Writes the given string as UTF-8, prefixed by its length. Unlike {@link DataOutputStream#writeUTF(String)}, this
+     * is not limited to strings whose encoding fits into 64 KiB.
+     */
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        // The input is always a record payload held in memory, hence available() is exact.
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeRecord(DataOutputStream out, byte[] payload) throws IOException {
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload, 0, payload.length);
+        out.writeInt(payload.length);
+        out.writeInt((int) crc32.getValue());
+        out.write(payload);
+    }
+
+    private static final class Record {
+        private final long offset;
+        private final byte type;
+        private final String jid;
+        private final String version;
+        private final byte[] payload;
+        private final int itemOffset;
+
+        private Record(long offset, byte type, String jid, String version, byte[] payload, int itemOffset) {
+            this.offset = offset;
+            this.type = type;
+            this.jid = jid;
+            this.version = version;
+            this.payload = payload;
+            this.itemOffset = itemOffset;
+        }
+
+        /**
+         * Decodes the given payload of a record.
+         *
+         * @return the record or <code>null</code> if the checksum does not match.
+         */
+        private static Record decode(long offset, byte[] payload, int checksum) throws IOException {
+            CRC32 crc32 = new CRC32();
+            crc32.update(payload, 0, payload.length);
+            if ((int) crc32.getValue() != checksum) {
+                return null;
+            }
+            ByteArrayInputStream payloadStream = new ByteArrayInputStream(payload);
+            DataInputStream in = new DataInputStream(payloadStream);
+            byte type = in.readByte();
+            String jid = readString(in);
+            String version = readString(in);
+            int itemOffset = payload.length - payloadStream.available();
+            return new Record(offset, type, jid, version, payload, itemOffset);
+        }
+    }
+
+    /**
+     * Sequentially reads the records of a log. Reading stops at the first incomplete or corrupt record.
+     */
+    private static final class RecordReader implements Closeable {
+        private final DataInputStream in;
+
+        /**
+         * The position after the last record read.
+         */
+        private long offset;
+
+        private RecordReader(File file) throws IOException {
+            InputStream inputStream = Files.newInputStream(file.toPath());
+            in = new DataInputStream(new BufferedInputStream(inputStream, 64 * 1024));
+        }
+
+        private boolean readFileHeader() throws IOException {
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                    return false;
+                }
+            } catch (EOFException e) {
+                return false;
+            }
+            offset = FILE_HEADER_LENGTH;
+            return true;
+        }
+
+        private Record next() throws IOException {
+            byte[] payload;
+            int checksum;
+            try {
+                int payloadLength = in.readInt();
+                checksum = in.readInt();
+                if (payloadLength < 0 || payloadLength > MAX_PAYLOAD_LENGTH) {
+                    return null;
+                }
+                payload = new byte[payloadLength];
+                in.readFully(payload);
+            } catch (EOFException e) {
+                return null;
+            }
+            Record record = Record.decode(offset, payload, checksum);
+            if (record == null) {
+                return null;
+            }
+            offset += RECORD_HEADER_LENGTH + payload.length;
+            return record;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Sequentially writes a new log, starting with the file header.
+     */
+    private static final class RecordWriter {
+        private final DataOutputStream out;
+
+        /**
+         * The position after the last record written.
+         */
+        private long offset;
+
+        private RecordWriter(FileOutputStream fileOutputStream) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(fileOutputStream, 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            offset = FILE_HEADER_LENGTH;
+        }
+
+        private void write(byte[] payload) throws IOException {
+            writeRecord(out, payload);
+            offset += RECORD_HEADER_LENGTH + payload.length;
+        }
+
+        /**
+         * Flushes the log and syncs it to the storage device, so that it can safely replace the existing log.
+         *
+         * @return the length of the log.
+         */
+        private long finish(FileOutputStream fileOutputStream) throws IOException {
+            out.flush();
+            fileOutputStream.getFD().sync();
+            return offset;
+        }
+    }
+}
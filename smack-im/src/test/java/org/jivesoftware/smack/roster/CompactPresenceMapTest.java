@@ -0,0 +1,100 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.roster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.Presence;
+import org.jivesoftware.smack.packet.StandardExtensionElement;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+import org.jivesoftware.smack.packet.XmlElement;
+
+import org.junit.jupiter.api.Test;
+import org.jxmpp.jid.EntityBareJid;
+import org.jxmpp.jid.impl.JidCreate;
+import org.jxmpp.jid.parts.Resourcepart;
+
+public class CompactPresenceMapTest {
+
+    private static final EntityBareJid JULIET = JidCreate.entityBareFromOrThrowUnchecked("juliet@example.org");
+
+    private static XmlElement createCaps() {
+        return StandardExtensionElement.builder("c", "http://jabber.org/protocol/caps")
+                        .addAttribute("hash", "sha-1")
+                        .addAttribute("node", "https://igniterealtime.org/projects/smack")
+                        .addAttribute("ver", "QgayPKawpkPSDYmwT/WM94uAlu0=")
+                        .build();
+    }
+
+    private static Presence createPresence(Resourcepart resource, String status) {
+        return StanzaBuilder.buildPresence()
+                        .from(JidCreate.entityFullFrom(JULIET, resource))
+                        .setMode(Presence.Mode.away)
+                        .setPriority(5)
+                        .setStatus(status)
+                        .addExtension(createCaps())
+                        .addExtension(StandardExtensionElement.builder("x", "urn:example:dropped").build())
+                        .build();
+    }
+
+    @Test
+    public void presencesAreRebuiltFromCompactRecords() {
+        CompactPresenceMap map = new CompactPresenceMap(JULIET, new ConcurrentHashMap<>());
+        Resourcepart balcony = Resourcepart.fromOrThrowUnchecked("balcony");
+        Resourcepart garden = Resourcepart.fromOrThrowUnchecked("garden");
+        map.put(balcony, createPresence(balcony, "On the balcony"));
+        map.put(garden, createPresence(garden, "In the garden"));
+
+        Presence presence = map.get(balcony);
+        assertEquals(Presence.Type.available, presence.getType());
+        assertEquals(Presence.Mode.away, presence.getMode());
+        assertEquals(5, presence.getPriority());
+        assertEquals("On the balcony", presence.getStatus());
+        assertEquals(JidCreate.entityFullFrom(JULIET, balcony), presence.getFrom());
+        assertNull(presence.getExtension(new QName("urn:example:dropped", "x")));
+
+        // Equal entity capabilities elements are shared.
+        XmlElement balconyCaps = presence.getExtension(CompactPresence.CAPS_QNAME);
+        XmlElement gardenCaps = map.get(garden).getExtension(CompactPresence.CAPS_QNAME);
+        assertEquals(createCaps().toXML().toString(), balconyCaps.toXML().toString());
+        assertSame(balconyCaps, gardenCaps);
+
+        assertEquals(2, map.values().size());
+        assertEquals("In the garden", map.remove(garden).getStatus());
+        assertEquals(1, map.size());
+        assertNull(map.get(garden));
+    }
+
+    @Test
+    public void presenceFromBareJid() {
+        CompactPresenceMap map = new CompactPresenceMap(JULIET, new ConcurrentHashMap<>());
+        map.put(Resourcepart.EMPTY, StanzaBuilder.buildPresence()
+                        .from(JULIET)
+                        .ofType(Presence.Type.unavailable)
+                        .build());
+
+        Presence presence = map.get(Resourcepart.EMPTY);
+        assertEquals(Presence.Type.unavailable, presence.getType());
+        assertEquals(JULIET, presence.getFrom());
+    }
+}
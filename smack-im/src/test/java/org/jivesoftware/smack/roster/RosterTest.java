@@ -29,6 +29,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jivesoftware.smack.DummyConnection;
 import org.jivesoftware.smack.SmackException;
@@ -37,6 +40,7 @@ import org.jivesoftware.smack.packet.ErrorIQ;
 import org.jivesoftware.smack.packet.IQ;
 import org.jivesoftware.smack.packet.Presence;
 import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.StanzaBuilder;
 import org.jivesoftware.smack.packet.StanzaError.Condition;
 import org.jivesoftware.smack.roster.packet.RosterPacket;
 import org.jivesoftware.smack.roster.packet.RosterPacket.Item;
@@ -50,6 +54,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.jxmpp.jid.BareJid;
+import org.jxmpp.jid.EntityFullJid;
 import org.jxmpp.jid.Jid;
 import org.jxmpp.jid.impl.JidCreate;
 import org.jxmpp.stringprep.XmppStringprepException;
@@ -518,6 +523,89 @@ public class RosterTest extends InitSmackIm {
         assertSame("Wrong number of roster entries.", 4, roster.getEntries().size());
     }
 
+    @Test
+    public void testCompactPresenceStorage() throws Throwable {
+        roster.setCompactPresenceStorage(true);
+        initRoster();
+        rosterListener.reset();
+
+        final EntityFullJid romeo = JidCreate.entityFullFrom("romeo@example.net/orchard");
+        final Presence presence = StanzaBuilder.buildPresence()
+                .from(romeo)
+                .setMode(Presence.Mode.dnd)
+                .setPriority(3)
+                .setStatus("Sleeping")
+                .build();
+        connection.processStanza(presence);
+        rosterListener.waitUntilInvocationOrTimeout();
+
+        final Presence storedPresence = roster.getPresence(romeo.asBareJid());
+        assertTrue(storedPresence.isAvailable());
+        assertEquals(romeo, storedPresence.getFrom());
+        assertSame(Presence.Mode.dnd, storedPresence.getMode());
+        assertEquals(3, storedPresence.getPriority());
+        assertEquals("Sleeping", storedPresence.getStatus());
+        assertEquals(storedPresence.getStatus(), roster.getPresenceResource(romeo).getStatus());
+        assertEquals(1, roster.getAvailablePresences(romeo.asBareJid()).size());
+    }
+
+    @Test
+    public void testNotificationBatching() throws Throwable {
+        initRoster();
+        roster.setNotificationBatchingWindow(1, TimeUnit.SECONDS);
+        rosterListener.reset();
+
+        final AtomicInteger entriesUpdatedInvocations = new AtomicInteger();
+        final List<Presence> changedPresences = new CopyOnWriteArrayList<>();
+        final CountDownLatch lastPresenceReceived = new CountDownLatch(1);
+        roster.addRosterListener(new AbstractRosterListener() {
+            @Override
+            public void entriesUpdated(Collection<Jid> addresses) {
+                entriesUpdatedInvocations.incrementAndGet();
+            }
+
+            @Override
+            public void presenceChanged(Presence presence) {
+                changedPresences.add(presence);
+                if ("3".equals(presence.getStatus())) {
+                    lastPresenceReceived.countDown();
+                }
+            }
+        });
+
+        // A contact that is added and removed within the window, and two updates of the same contact.
+        final BareJid juliet = JidCreate.entityBareFrom("juliet@example.com");
+        connection.processStanza(createRosterPush(juliet, "Juliet", ItemType.none));
+        connection.processStanza(createRosterPush(juliet, null, ItemType.remove));
+        final BareJid benvolio = JidCreate.entityBareFrom("benvolio@example.net");
+        connection.processStanza(createRosterPush(benvolio, "Benvolio Montague", ItemType.both));
+        connection.processStanza(createRosterPush(benvolio, "Benvolio", ItemType.both));
+
+        final EntityFullJid romeo = JidCreate.entityFullFrom("romeo@example.net/orchard");
+        for (int i = 1; i <= 3; i++) {
+            connection.processStanza(StanzaBuilder.buildPresence().from(romeo).setStatus(Integer.toString(i)).build());
+        }
+
+        assertTrue(lastPresenceReceived.await(1, TimeUnit.MINUTES));
+        assertEquals(1, changedPresences.size());
+        assertEquals(1, entriesUpdatedInvocations.get());
+        assertEquals(1, rosterListener.getUpdatedAddresses().size());
+        assertTrue(rosterListener.getUpdatedAddresses().contains(benvolio));
+        assertTrue(rosterListener.getAddedAddresses().isEmpty());
+        assertTrue(rosterListener.getDeletedAddresses().isEmpty());
+        assertNull(roster.getEntry(juliet));
+    }
+
+    private RosterPacket createRosterPush(BareJid jid, String name, ItemType itemType) {
+        final RosterPacket rosterPush = new RosterPacket();
+        rosterPush.setType(IQ.Type.set);
+        rosterPush.setTo(connection.getUser());
+        final RosterPacket.Item item = new RosterPacket.Item(jid, name);
+        item.setItemType(itemType);
+        rosterPush.addRosterItem(item);
+        return rosterPush;
+    }
+
     /**
      * Remove all roster entries by iterating trough {@link Roster#getEntries()}
      * and simulating receiving roster pushes from the server.
@@ -0,0 +1,246 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.roster.rosterstore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jivesoftware.smack.roster.packet.RosterPacket.Item;
+import org.jivesoftware.smack.roster.packet.RosterPacket.ItemType;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jxmpp.jid.BareJid;
+import org.jxmpp.jid.JidTestUtil;
+import org.jxmpp.jid.impl.JidCreate;
+
+/**
+ * Tests the implementation of {@link LogFileRosterStore}.
+ */
+public class LogFileRosterStoreTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private File newStoreFile() throws IOException {
+        return new File(tmpFolder.newFolder(), "roster");
+    }
+
+    private static Item createItem(BareJid jid, String name) {
+        Item item = new Item(jid, name);
+        item.addGroupName("Friends");
+        item.setItemType(ItemType.both);
+        return item;
+    }
+
+    private static BareJid contact(int i) {
+        return JidCreate.entityBareFromOrThrowUnchecked("contact" + i + "@example.org");
+    }
+
+    @Test
+    public void testStoreUninitialized() throws IOException {
+        File storeFile = newStoreFile();
+        assertNull(LogFileRosterStore.open(storeFile));
+
+        assertTrue(storeFile.createNewFile());
+        assertNull(LogFileRosterStore.open(storeFile));
+    }
+
+    @Test
+    public void testStoreInitializedEmpty() throws IOException {
+        File storeFile = newStoreFile();
+        LogFileRosterStore store = LogFileRosterStore.init(storeFile);
+        assertNotNull(store);
+        assertEquals("", store.getRosterVersion());
+        assertEquals(0, store.getEntries().size());
+
+        store = LogFileRosterStore.open(storeFile);
+        assertNotNull(store);
+        assertEquals("", store.getRosterVersion());
+        assertEquals(0, store.getEntries().size());
+    }
+
+    @Test
+    public void testStoreAddRemoveAndReopen() throws IOException {
+        File storeFile = newStoreFile();
+        LogFileRosterStore store = LogFileRosterStore.init(storeFile);
+
+        Item item1 = createItem(JidTestUtil.BARE_JID_1, "Foo Bar");
+        assertTrue(store.addEntry(item1, "1"));
+        Item item2 = createItem(JidTestUtil.BARE_JID_2, "Baba Baz");
+        assertTrue(store.addEntry(item2, "2"));
+        Item updatedItem1 = createItem(JidTestUtil.BARE_JID_1, "Foo Bar Updated");
+        updatedItem1.setSubscriptionPending(true);
+        assertTrue(store.addEntry(updatedItem1, "3"));
+        assertTrue(store.removeEntry(JidTestUtil.BARE_JID_2, "4"));
+
+        assertEquals("4", store.getRosterVersion());
+        assertNull(store.getEntry(JidTestUtil.BARE_JID_2));
+        Item storedItem = store.getEntry(JidTestUtil.BARE_JID_1);
+        assertEquals("Foo Bar Updated", storedItem.getName());
+        assertTrue(storedItem.isSubscriptionPending());
+        assertEquals(1, store.getEntries().size());
+
+        store = LogFileRosterStore.open(storeFile);
+        assertEquals("4", store.getRosterVersion());
+        assertNull(store.getEntry(JidTestUtil.BARE_JID_2));
+        List<Item> entries = store.getEntries();
+        assertEquals(1, entries.size());
+        assertEquals("Foo Bar Updated", entries.get(0).getName());
+        assertEquals(item1.getGroupNames(), entries.get(0).getGroupNames());
+    }
+
+    @Test
+    public void testItemAttributesArePreserved() throws IOException {
+        File storeFile = newStoreFile();
+        LogFileRosterStore store = LogFileRosterStore.init(storeFile);
+        Item unnamed = new Item(JidTestUtil.DUMMY_AT_EXAMPLE_ORG, null, true);
+        unnamed.setApproved(true);
+        unnamed.setItemType(ItemType.from);
+        assertTrue(store.addEntry(unnamed, "1"));
+
+        store = LogFileRosterStore.open(storeFile);
+        assertEquals(unnamed, store.getEntry(JidTestUtil.DUMMY_AT_EXAMPLE_ORG));
+        assertEquals(unnamed, store.getEntries().get(0));
+    }
+
+    @Test
+    public void testResetEntries() throws IOException {
+        File storeFile = newStoreFile();
+        LogFileRosterStore store = LogFileRosterStore.init(storeFile);
+        assertTrue(store.addEntry(createItem(JidTestUtil.DUMMY_AT_EXAMPLE_ORG, "Dummy"), "1"));
+
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add(createItem(contact(i), "Contact " + i));
+        }
+        assertTrue(store.resetEntries(items, "2"));
+
+        assertEquals("2", store.getRosterVersion());
+        assertNull(store.getEntry(JidTestUtil.DUMMY_AT_EXAMPLE_ORG));
+        assertEquals("Contact 42", store.getEntry(contact(42)).getName());
+        assertEquals(100, store.getEntries().size());
+
+        store = LogFileRosterStore.open(storeFile);
+        assertEquals("2", store.getRosterVersion());
+        assertEquals(100, store.getEntries().size());
+    }
+
+    @Test
+    public void testCompaction() throws IOException {
+        File storeFile = newStoreFile();
+        LogFileRosterStore store = LogFileRosterStore.init(storeFile);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(store.addEntry(createItem(contact(i), "Contact " + i), "0-" + i));
+        }
+        long lengthBeforeUpdates = storeFile.length();
+        assertTrue(store.addEntry(createItem(contact(0), "Update"), "1"));
+        long updateRecordLength = storeFile.length() - lengthBeforeUpdates;
+
+        int updates = 2 * LogFileRosterStore.MIN_OUTDATED_RECORDS_FOR_COMPACTION;
+        for (int i = 0; i < updates; i++) {
+            assertTrue(store.addEntry(createItem(contact(i % 10), "Update " + i), "1-" + i));
+        }
+
+        // Without compaction, the log would contain all updates.
+        assertTrue(storeFile.length() < updates * updateRecordLength * 3 / 4);
+        assertEquals("1-" + (updates - 1), store.getRosterVersion());
+        assertEquals("Update " + (updates - 1), store.getEntry(contact((updates - 1) % 10)).getName());
+        assertEquals(10, store.getEntries().size());
+
+        store = LogFileRosterStore.open(storeFile);
+        assertEquals("1-" + (updates - 1), store.getRosterVersion());
+        assertEquals(10, store.getEntries().size());
+    }
+
+    @Test
+    public void testIncompleteRecordIsDiscarded() throws IOException {
+        File storeFile = newStoreFile();
+        LogFileRosterStore store = LogFileRosterStore.init(storeFile);
+        assertTrue(store.addEntry(createItem(JidTestUtil.BARE_JID_1, "Foo Bar"), "1"));
+        long validLength = storeFile.length();
+        assertTrue(store.addEntry(createItem(JidTestUtil.BARE_JID_2, "Baba Baz"), "2"));
+
+        // Simulate a crash while the last record was written.
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(storeFile, "rw")) {
+            randomAccessFile.setLength(storeFile.length() - 3);
+        }
+
+        store = LogFileRosterStore.open(storeFile);
+        assertEquals("1", store.getRosterVersion());
+        assertNull(store.getEntry(JidTestUtil.BARE_JID_2));
+        assertEquals(1, store.getEntries().size());
+        assertEquals(validLength, storeFile.length());
+
+        // New records are appended after the last complete one.
+        assertTrue(store.addEntry(createItem(JidTestUtil.BARE_JID_2, "Baba Baz"), "3"));
+        store = LogFileRosterStore.open(storeFile);
+        assertEquals("3", store.getRosterVersion());
+        assertEquals(2, store.getEntries().size());
+    }
+
+    @Test
+    public void testStringsLongerThan64KiB() throws IOException {
+        File storeFile = newStoreFile();
+        LogFileRosterStore store = LogFileRosterStore.init(storeFile);
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 70 * 1024) {
+            sb.append("Grüße ");
+        }
+        String longString = sb.toString();
+        Item item = createItem(JidTestUtil.BARE_JID_1, longString);
+        item.addGroupName(longString);
+        assertTrue(store.addEntry(item, longString));
+
+        store = LogFileRosterStore.open(storeFile);
+        assertEquals(longString, store.getRosterVersion());
+        Item storedItem = store.getEntry(JidTestUtil.BARE_JID_1);
+        assertEquals(longString, storedItem.getName());
+        assertTrue(storedItem.getGroupNames().contains(longString));
+    }
+
+    @Test
+    public void testTooLargeRecordIsRejected() throws IOException {
+        File storeFile = newStoreFile();
+        LogFileRosterStore store = LogFileRosterStore.init(storeFile);
+        assertTrue(store.addEntry(createItem(JidTestUtil.BARE_JID_1, "Foo Bar"), "1"));
+        long length = storeFile.length();
+
+        char[] hugeName = new char[17 * 1024 * 1024];
+        Arrays.fill(hugeName, 'a');
+        assertFalse(store.addEntry(createItem(JidTestUtil.BARE_JID_2, new String(hugeName)), "2"));
+        assertEquals(length, storeFile.length());
+        assertEquals("1", store.getRosterVersion());
+
+        // The store remains usable.
+        assertTrue(store.addEntry(createItem(JidTestUtil.BARE_JID_2, "Baba Baz"), "3"));
+        store = LogFileRosterStore.open(storeFile);
+        assertEquals("3", store.getRosterVersion());
+        assertEquals(2, store.getEntries().size());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.java7;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.jivesoftware.smack.ConnectionConfiguration;
+import org.jivesoftware.smack.XmppInputOutputFilter;
+import org.jivesoftware.smack.compression.CompressionModuleDescriptor;
+import org.jivesoftware.smack.compression.XMPPInputOutputStream;
+import org.jivesoftware.smack.compression.XMPPInputOutputStream.FlushMethod;
+import org.jivesoftware.smack.compression.XmppCompressionFactory;
+import org.jivesoftware.smack.compression.zlib.ZlibXmppInputOutputFilter;
+import org.jivesoftware.smack.util.ByteBufferPool;
+
+/**
+ * A zlib compression factory using the {@link ByteBuffer} based API of {@link Deflater} and {@link Inflater}, which is
+ * available since Java 11. The filters of this factory work directly on direct buffers, without copying them into
+ * byte arrays, and compress into pooled direct buffers, which can be written to the channel without further copies.
+ */
+public final class Java11ZlibXmppCompressionFactory extends XmppCompressionFactory {
+
+    public static final Java11ZlibXmppCompressionFactory INSTANCE = new Java11ZlibXmppCompressionFactory();
+
+    private Java11ZlibXmppCompressionFactory() {
+        super("zlib", 100);
+    }
+
+    @Override
+    public XmppInputOutputFilter fabricate(ConnectionConfiguration configuration) {
+        return new Java11ZlibXmppInputOutputFilter(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY,
+                        XMPPInputOutputStream.getFlushMethod());
+    }
+
+    @Override
+    public XmppInputOutputFilter fabricate(ConnectionConfiguration configuration,
+                    CompressionModuleDescriptor compressionModuleDescriptor) {
+        return new Java11ZlibXmppInputOutputFilter(compressionModuleDescriptor.getCompressionLevel(),
+                        compressionModuleDescriptor.getCompressionStrategy(), compressionModuleDescriptor.getFlushMethod());
+    }
+
+    static final class Java11ZlibXmppInputOutputFilter extends ZlibXmppInputOutputFilter {
+
+        Java11ZlibXmppInputOutputFilter(int compressionLevel, int compressionStrategy, FlushMethod flushMethod) {
+            super(compressionLevel, compressionStrategy, flushMethod, ByteBufferPool.getDirectBufferPool());
+        }
+
+        @Override
+        protected void setCompressorInput(Deflater compressor, ByteBuffer input) {
+            // The position of the input is advanced as the data is consumed by deflate().
+            compressor.setInput(input);
+        }
+
+        @Override
+        protected int deflate(Deflater compressor, ByteBuffer output, int flushMode) {
+            return compressor.deflate(output, flushMode);
+        }
+
+        @Override
+        protected void setDecompressorInput(Inflater decompressor, ByteBuffer input) {
+            // The position of the input is advanced as the data is consumed by inflate().
+            decompressor.setInput(input);
+        }
+
+        @Override
+        protected int inflate(Inflater decompressor, ByteBuffer output) throws DataFormatException {
+            return decompressor.inflate(output);
+        }
+    }
+}
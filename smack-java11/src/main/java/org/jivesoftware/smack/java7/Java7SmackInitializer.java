@@ -19,6 +19,7 @@ package org.jivesoftware.smack.java7;
 import java.util.List;
 
 import org.jivesoftware.smack.SmackConfiguration;
+import org.jivesoftware.smack.compression.XmppCompressionManager;
 import org.jivesoftware.smack.initializer.SmackInitializer;
 import org.jivesoftware.smack.util.SystemUtil;
 import org.jivesoftware.smack.util.stringencoder.Base64;
@@ -41,6 +42,7 @@ public class Java7SmackInitializer implements SmackInitializer {
         SmackConfiguration.setDefaultHostnameVerifier(new XmppHostnameVerifier());
         Base64.setEncoder(Java7Base64Encoder.getInstance());
         Base64UrlSafeEncoder.setEncoder(Java7Base64UrlSafeEncoder.getInstance());
+        XmppCompressionManager.registerXmppCompressionFactory(Java11ZlibXmppCompressionFactory.INSTANCE);
         return null;
     }
 
@@ -0,0 +1,107 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.java7;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+
+import org.jivesoftware.smack.XmppInputOutputFilter.OutputResult;
+import org.jivesoftware.smack.compression.XMPPInputOutputStream.FlushMethod;
+import org.jivesoftware.smack.compression.zlib.ZlibXmppCompressionFactory;
+import org.jivesoftware.smack.compression.zlib.ZlibXmppInputOutputFilter;
+import org.jivesoftware.smack.java7.Java11ZlibXmppCompressionFactory.Java11ZlibXmppInputOutputFilter;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class Java11ZlibXmppCompressionFactoryTest {
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    public void roundTrip(boolean directBuffers) throws IOException {
+        ZlibXmppInputOutputFilter compressingFilter = new Java11ZlibXmppInputOutputFilter(Deflater.BEST_SPEED,
+                        Deflater.FILTERED, FlushMethod.FULL_FLUSH);
+        ZlibXmppInputOutputFilter decompressingFilter = new Java11ZlibXmppInputOutputFilter(
+                        Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY, FlushMethod.SYNC_FLUSH);
+        assertRoundTrip(compressingFilter, decompressingFilter, directBuffers);
+    }
+
+    /**
+     * Ensures that the ByteBuffer based filter interoperates with the byte array based one of smack-core.
+     *
+     * @param directBuffers whether the input data is passed in direct buffers.
+     * @throws IOException if an I/O error occurs.
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    public void interoperatesWithByteArrayFilter(boolean directBuffers) throws IOException {
+        assertRoundTrip(
+                        new ZlibXmppInputOutputFilter(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY,
+                                        FlushMethod.SYNC_FLUSH),
+                        new Java11ZlibXmppInputOutputFilter(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY,
+                                        FlushMethod.SYNC_FLUSH),
+                        directBuffers);
+        assertRoundTrip(
+                        new Java11ZlibXmppInputOutputFilter(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY,
+                                        FlushMethod.SYNC_FLUSH),
+                        new ZlibXmppInputOutputFilter(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY,
+                                        FlushMethod.SYNC_FLUSH),
+                        directBuffers);
+    }
+
+    private static void assertRoundTrip(ZlibXmppInputOutputFilter compressingFilter,
+                    ZlibXmppInputOutputFilter decompressingFilter, boolean directBuffers) throws IOException {
+        StringBuilder received = new StringBuilder();
+        StringBuilder sent = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            String stanza = "<message to='juliet@example.org' id='" + i + "'><body>Wherefore art thou, Romeo?</body></message>";
+            sent.append(stanza);
+
+            byte[] bytes = stanza.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer outputData = directBuffers ? ByteBuffer.allocateDirect(bytes.length) : ByteBuffer.allocate(bytes.length);
+            outputData.put(bytes).flip();
+
+            OutputResult outputResult = compressingFilter.output(outputData, true, i % 10 == 0, false);
+            assertFalse(outputData.hasRemaining());
+
+            ByteBuffer compressed = outputResult.filteredOutputData;
+            compressed.flip();
+            ByteBuffer inputData = directBuffers ? ByteBuffer.allocateDirect(compressed.remaining())
+                            : ByteBuffer.allocate(compressed.remaining());
+            inputData.put(compressed).flip();
+
+            ByteBuffer decompressed = decompressingFilter.input(inputData);
+            decompressed.flip();
+            received.append(StandardCharsets.UTF_8.decode(decompressed));
+
+            compressingFilter.releaseBuffers();
+            decompressingFilter.releaseBuffers();
+        }
+
+        assertEquals(sent.toString(), received.toString());
+
+        ZlibXmppCompressionFactory.Stats stats = compressingFilter.getStats();
+        assertEquals(sent.length(), stats.compressorInBytes);
+        assertTrue(stats.compressionRatio < 1);
+    }
+}
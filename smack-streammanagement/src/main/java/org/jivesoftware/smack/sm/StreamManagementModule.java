@@ -1,6 +1,6 @@
 /*
  *
- * Copyright 2019-2020 Florian Schmaus
+ * Copyright 2019-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,24 @@
  */
 package org.jivesoftware.smack.sm;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jivesoftware.smack.AbstractXMPPConnection;
+import org.jivesoftware.smack.ConnectionListener;
+import org.jivesoftware.smack.ScheduledAction;
+import org.jivesoftware.smack.SmackException.NoResponseException;
+import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.SmackException.NotLoggedInException;
+import org.jivesoftware.smack.SmackException.OutgoingQueueFullException;
+import org.jivesoftware.smack.StanzaListener;
+import org.jivesoftware.smack.XMPPException.FailedNonzaException;
+import org.jivesoftware.smack.XMPPException.StreamErrorException;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.AuthenticatedAndResourceBoundStateDescriptor;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.AuthenticatedButUnboundStateDescriptor;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.ResourceBindingStateDescriptor;
@@ -26,22 +44,139 @@ import org.jivesoftware.smack.compression.CompressionModule.CompressionStateDesc
 import org.jivesoftware.smack.fsm.State;
 import org.jivesoftware.smack.fsm.StateDescriptor;
 import org.jivesoftware.smack.fsm.StateTransitionResult;
+import org.jivesoftware.smack.packet.Nonza;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.TopLevelStreamElement;
+import org.jivesoftware.smack.provider.ProviderManager;
+import org.jivesoftware.smack.sm.StreamManagementException.StreamIdDoesNotMatchException;
+import org.jivesoftware.smack.sm.StreamManagementException.StreamManagementCounterError;
+import org.jivesoftware.smack.sm.StreamManagementException.StreamManagementNotEnabledException;
+import org.jivesoftware.smack.sm.packet.StreamManagement.AckAnswer;
+import org.jivesoftware.smack.sm.packet.StreamManagement.AckRequest;
+import org.jivesoftware.smack.sm.packet.StreamManagement.Enable;
+import org.jivesoftware.smack.sm.packet.StreamManagement.Enabled;
+import org.jivesoftware.smack.sm.packet.StreamManagement.Failed;
+import org.jivesoftware.smack.sm.packet.StreamManagement.Resume;
+import org.jivesoftware.smack.sm.packet.StreamManagement.Resumed;
+import org.jivesoftware.smack.sm.packet.StreamManagement.StreamManagementFeature;
+import org.jivesoftware.smack.sm.provider.AckAnswerProvider;
+import org.jivesoftware.smack.sm.provider.AckRequestProvider;
+import org.jivesoftware.smack.sm.provider.EnabledProvider;
+import org.jivesoftware.smack.sm.provider.FailedProvider;
+import org.jivesoftware.smack.sm.provider.ResumedProvider;
 
+/**
+ * Stream Management (XEP-0198) and stream resumption for the modular XMPP client to server connection.
+ * <p>
+ * Outgoing stanzas are recorded, in the order they are put on the wire, in a ring buffer of unacknowledged stanzas.
+ * Since acknowledgements always refer to the oldest stanzas, processing an acknowledgement is just an advance of the
+ * buffer's head. Acknowledgement requests are not sent after every stanza: the first unacknowledged stanza schedules
+ * an {@code <r/>} via the connection's reactor, so that a burst of stanzas is covered by a single request. On
+ * resumption, the stanzas the server did not receive are replayed in bulk before any other queued element.
+ * </p>
+ * <p>
+ * The stream management counters are only modified by the thread processing the connection's I/O, hence access to
+ * them does not need to be synchronized. The buffer of unacknowledged stanzas is guarded by itself.
+ * </p>
+ */
 public class StreamManagementModule extends ModularXmppClientToServerConnectionModule<StreamManagementModuleDescriptor> {
 
-    protected StreamManagementModule(StreamManagementModuleDescriptor moduleDescriptor,
-                    ModularXmppClientToServerConnectionInternal connectionInternal) {
-        super(moduleDescriptor, connectionInternal);
+    private static final Logger LOGGER = Logger.getLogger(StreamManagementModule.class.getName());
+
+    /**
+     * The default delay in milliseconds between sending the first unacknowledged stanza and requesting an
+     * acknowledgement from the server.
+     */
+    public static final int DEFAULT_ACK_REQUEST_DELAY_MILLIS = 500;
+
+    /**
+     * The default number of stanzas after which an acknowledgement is requested without waiting for the delay.
+     */
+    public static final int DEFAULT_ACK_REQUEST_STANZA_THRESHOLD = 64;
+
+    private static final long MASK_32_BIT = 0xFFFFFFFFL;
+
+    static {
+        ProviderManager.addNonzaProvider(EnabledProvider.INSTANCE);
+        ProviderManager.addNonzaProvider(FailedProvider.INSTANCE);
+        ProviderManager.addNonzaProvider(ResumedProvider.INSTANCE);
+        ProviderManager.addNonzaProvider(AckAnswerProvider.INSTANCE);
+        ProviderManager.addNonzaProvider(AckRequestProvider.INSTANCE);
     }
 
+    private final UnacknowledgedStanzas unacknowledgedStanzas = new UnacknowledgedStanzas();
+
+    /**
+     * The stanzas which are queued to be replayed after a stream resumption, but which have not yet been put on the
+     * wire. Guarded by {@link #unacknowledgedStanzas}.
+     */
+    private final ArrayDeque<Stanza> pendingResends = new ArrayDeque<>();
+
+    private final List<StanzaListener> stanzaAcknowledgedListeners = new CopyOnWriteArrayList<>();
+
+    // The following fields are guarded by unacknowledgedStanzas.
+    private boolean countOutgoingStanzas;
+    private long serverHandledStanzasCount;
+    private int stanzasSentBeforeResume = -1;
+    private int stanzasSinceLastAckRequest;
+    private ScheduledAction scheduledAckRequest;
+
+    private volatile long clientHandledStanzasCount;
+
+    private volatile boolean smEnabled;
+
+    private volatile String smSessionId;
+
+    private volatile int serverMaxResumptionTime = -1;
+
+    private volatile long streamClosedOnErrorNanos;
+
     private boolean useSm = true;
 
     private boolean useSmResumption = true;
 
+    private int preferredResumptionTime = -1;
+
+    private int ackRequestDelayMillis = DEFAULT_ACK_REQUEST_DELAY_MILLIS;
+
+    private int ackRequestStanzaThreshold = DEFAULT_ACK_REQUEST_STANZA_THRESHOLD;
+
+    protected StreamManagementModule(StreamManagementModuleDescriptor moduleDescriptor,
+                    ModularXmppClientToServerConnectionInternal connectionInternal) {
+        super(moduleDescriptor, connectionInternal);
+
+        connectionInternal.buildNonzaCallback()
+            .listenFor(Enabled.class, this::onEnabled)
+            .listenFor(Resumed.class, this::onResumed)
+            .listenFor(AckAnswer.class, a -> processHandledCount(a.getHandledCount()))
+            .listenFor(AckRequest.class, r -> onAckRequest())
+            .install();
+
+        connectionInternal.connection.addConnectionListener(new ConnectionListener() {
+            @Override
+            public void connectionClosed() {
+                // A cleanly closed stream ends the stream management session.
+                dropSmState();
+            }
+
+            @Override
+            public void connectionClosedOnError(Exception e) {
+                // Note that this is invoked asynchronously, the states reset smEnabled when (re-)establishing the
+                // stream management session.
+                if (e instanceof StreamErrorException) {
+                    // The server will not allow to resume the stream after a stream error.
+                    dropSmState();
+                    return;
+                }
+                streamClosedOnErrorNanos = System.nanoTime();
+            }
+        });
+    }
+
     public static final class EnableStreamManagementStateDescriptor extends StateDescriptor {
 
         private EnableStreamManagementStateDescriptor() {
-            super(StreamManagementModule.EnableStreamManagementState.class, 198, StateDescriptor.Property.notImplemented);
+            super(StreamManagementModule.EnableStreamManagementState.class, 198);
 
             addPredeccessor(ResourceBindingStateDescriptor.class);
             addSuccessor(AuthenticatedAndResourceBoundStateDescriptor.class);
@@ -75,18 +210,48 @@ public class StreamManagementModule extends ModularXmppClientToServerConnectionM
                 return new StateTransitionResult.TransitionImpossibleReason("Stream management not enabled");
             }
 
-            return new StateTransitionResult.TransitionImpossibleBecauseNotImplemented(stateDescriptor);
+            if (!connectionInternal.connection.hasFeature(StreamManagementFeature.QNAME)) {
+                return new StateTransitionResult.TransitionImpossibleReason("Stream management not supported by server");
+            }
+
+            return null;
         }
 
         @Override
-        public StateTransitionResult.AttemptResult transitionInto(WalkStateGraphContext walkStateGraphContext) {
-            throw new IllegalStateException("SM not implemented");
+        public StateTransitionResult.AttemptResult transitionInto(WalkStateGraphContext walkStateGraphContext)
+                        throws NoResponseException, NotConnectedException, InterruptedException {
+            // The stanzas which were not acknowledged within a previous session, that could not be resumed, are sent
+            // again within the new session.
+            List<Stanza> previouslyUnacknowledgedStanzas;
+            synchronized (unacknowledgedStanzas) {
+                previouslyUnacknowledgedStanzas = takeUnacknowledgedStanzas();
+            }
+            smEnabled = false;
+
+            Enabled enabled;
+            try {
+                enabled = connectionInternal.sendAndWaitForResponse(new Enable(useSmResumption, preferredResumptionTime),
+                                Enabled.class, Failed.class);
+            } catch (FailedNonzaException e) {
+                synchronized (unacknowledgedStanzas) {
+                    countOutgoingStanzas = false;
+                    unacknowledgedStanzas.clear();
+                }
+                return new StateTransitionResult.FailureCausedByException<>(e);
+            }
+
+            if (!previouslyUnacknowledgedStanzas.isEmpty()) {
+                connectionInternal.sendBeforeQueuedElements(previouslyUnacknowledgedStanzas);
+            }
+
+            return new StateTransitionResult.Success(
+                            "Stream management enabled" + (enabled.isResumeSet() ? " (resumable)" : ""));
         }
     }
 
     public static final class ResumeStreamStateDescriptor extends StateDescriptor {
         private ResumeStreamStateDescriptor() {
-            super(StreamManagementModule.ResumeStreamState.class, 198, StateDescriptor.Property.notImplemented);
+            super(StreamManagementModule.ResumeStreamState.class, 198);
 
             addPredeccessor(AuthenticatedButUnboundStateDescriptor.class);
             addSuccessor(AuthenticatedAndResourceBoundStateDescriptor.class);
@@ -121,12 +286,245 @@ public class StreamManagementModule extends ModularXmppClientToServerConnectionM
                 return new StateTransitionResult.TransitionImpossibleReason("Stream resumption not enabled");
             }
 
-            return new StateTransitionResult.TransitionImpossibleBecauseNotImplemented(stateDescriptor);
+            if (!connectionInternal.connection.hasFeature(StreamManagementFeature.QNAME)) {
+                return new StateTransitionResult.TransitionImpossibleReason("Stream management not supported by server");
+            }
+
+            if (!isStreamResumptionPossible()) {
+                return new StateTransitionResult.TransitionImpossibleReason("No resumable stream management session");
+            }
+
+            return null;
         }
 
         @Override
-        public StateTransitionResult.AttemptResult transitionInto(WalkStateGraphContext walkStateGraphContext) {
-            throw new IllegalStateException("Stream resumption not implemented");
+        public StateTransitionResult.AttemptResult transitionInto(WalkStateGraphContext walkStateGraphContext)
+                        throws NoResponseException, NotConnectedException, InterruptedException {
+            smEnabled = false;
+
+            Resume resume = new Resume(clientHandledStanzasCount, smSessionId);
+            try {
+                connectionInternal.sendAndWaitForResponse(resume, Resumed.class, Failed.class);
+            } catch (FailedNonzaException e) {
+                // The session can not be resumed. The unacknowledged stanzas are kept, so that they are sent again once
+                // a new session got enabled.
+                synchronized (unacknowledgedStanzas) {
+                    countOutgoingStanzas = false;
+                    stanzasSentBeforeResume = -1;
+                }
+                smSessionId = null;
+                return new StateTransitionResult.FailureCausedByException<>(e);
+            }
+
+            // The replay of the unacknowledged stanzas was already triggered when the <resumed/> nonza was processed.
+            connectionInternal.setStreamResumed(true);
+            return new StateTransitionResult.Success("Stream resumed");
+        }
+    }
+
+    @Override
+    protected void onOutgoingElement(TopLevelStreamElement element) {
+        if (element instanceof Stanza) {
+            synchronized (unacknowledgedStanzas) {
+                if (!countOutgoingStanzas) {
+                    return;
+                }
+                Stanza stanza = (Stanza) element;
+                if (pendingResends.peekFirst() == stanza) {
+                    pendingResends.pollFirst();
+                }
+                unacknowledgedStanzas.add(stanza);
+                stanzasSinceLastAckRequest++;
+                if (stanzasSinceLastAckRequest >= ackRequestStanzaThreshold) {
+                    requestAckFromTransportThread();
+                } else if (scheduledAckRequest == null) {
+                    scheduledAckRequest = connectionInternal.schedule(this::onScheduledAckRequest,
+                                    ackRequestDelayMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        } else if (element instanceof Enable) {
+            synchronized (unacknowledgedStanzas) {
+                unacknowledgedStanzas.clear();
+                pendingResends.clear();
+                serverHandledStanzasCount = 0;
+                stanzasSentBeforeResume = -1;
+                countOutgoingStanzas = true;
+            }
+        } else if (element instanceof Resume) {
+            synchronized (unacknowledgedStanzas) {
+                // Only the stanzas sent within the previous stream are considered for the replay.
+                stanzasSentBeforeResume = unacknowledgedStanzas.size();
+                countOutgoingStanzas = true;
+            }
+        }
+    }
+
+    @Override
+    protected void onIncomingStanzaHandled() {
+        if (!smEnabled) {
+            return;
+        }
+        clientHandledStanzasCount = SMUtils.incrementHeight(clientHandledStanzasCount);
+    }
+
+    private void onEnabled(Enabled enabled) {
+        clientHandledStanzasCount = 0;
+        if (enabled.isResumeSet()) {
+            smSessionId = enabled.getId();
+            serverMaxResumptionTime = enabled.getMaxResumptionTime();
+        } else {
+            smSessionId = null;
+        }
+        smEnabled = true;
+    }
+
+    private void onResumed(Resumed resumed) {
+        String previd = resumed.getPrevId();
+        if (!previd.equals(smSessionId)) {
+            connectionInternal.notifyConnectionError(new StreamIdDoesNotMatchException(smSessionId, previd));
+            return;
+        }
+
+        long handledCount = resumed.getHandledCount();
+        List<Stanza> acknowledgedStanzas;
+        List<Stanza> resend;
+        synchronized (unacknowledgedStanzas) {
+            long acknowledgedStanzasCount = (handledCount - serverHandledStanzasCount) & MASK_32_BIT;
+            if (acknowledgedStanzasCount > stanzasSentBeforeResume) {
+                connectionInternal.notifyConnectionError(new StreamManagementCounterError(handledCount,
+                                serverHandledStanzasCount, acknowledgedStanzasCount,
+                                unacknowledgedStanzas.removeOldest(stanzasSentBeforeResume, true)));
+                return;
+            }
+            acknowledgedStanzas = unacknowledgedStanzas.removeOldest((int) acknowledgedStanzasCount,
+                            !stanzaAcknowledgedListeners.isEmpty());
+            serverHandledStanzasCount = handledCount;
+
+            // The stanzas sent before the resumption which the server did not handle get sent again, followed by the
+            // stanzas still waiting to be replayed from an earlier resumption.
+            int notHandledStanzasCount = stanzasSentBeforeResume - (int) acknowledgedStanzasCount;
+            resend = new ArrayList<>(notHandledStanzasCount + pendingResends.size());
+            resend.addAll(unacknowledgedStanzas.removeOldest(notHandledStanzasCount, true));
+            resend.addAll(pendingResends);
+            pendingResends.clear();
+            pendingResends.addAll(resend);
+            stanzasSentBeforeResume = -1;
+        }
+
+        smEnabled = true;
+
+        if (!resend.isEmpty()) {
+            connectionInternal.sendBeforeQueuedElements(resend);
+        }
+        notifyStanzaAcknowledgedListeners(acknowledgedStanzas);
+    }
+
+    private void processHandledCount(long handledCount) {
+        List<Stanza> acknowledgedStanzas;
+        synchronized (unacknowledgedStanzas) {
+            long acknowledgedStanzasCount = (handledCount - serverHandledStanzasCount) & MASK_32_BIT;
+            if (acknowledgedStanzasCount > unacknowledgedStanzas.size()) {
+                connectionInternal.notifyConnectionError(new StreamManagementCounterError(handledCount,
+                                serverHandledStanzasCount, acknowledgedStanzasCount,
+                                unacknowledgedStanzas.removeAll()));
+                return;
+            }
+            acknowledgedStanzas = unacknowledgedStanzas.removeOldest((int) acknowledgedStanzasCount,
+                            !stanzaAcknowledgedListeners.isEmpty());
+            serverHandledStanzasCount = handledCount;
+        }
+
+        notifyStanzaAcknowledgedListeners(acknowledgedStanzas);
+    }
+
+    private void notifyStanzaAcknowledgedListeners(List<Stanza> acknowledgedStanzas) {
+        if (acknowledgedStanzas.isEmpty()) {
+            return;
+        }
+
+        connectionInternal.asyncGo(() -> {
+            for (Stanza stanza : acknowledgedStanzas) {
+                for (StanzaListener listener : stanzaAcknowledgedListeners) {
+                    try {
+                        listener.processStanza(stanza);
+                    } catch (InterruptedException | NotConnectedException | NotLoggedInException e) {
+                        LOGGER.log(Level.FINER, "Stanza acknowledged listener threw exception", e);
+                    }
+                }
+            }
+        });
+    }
+
+    private void onAckRequest() {
+        if (!smEnabled) {
+            LOGGER.fine("Ignoring acknowledgement request, as stream management is not enabled");
+            return;
+        }
+        sendNonzaFromTransportThread(new AckAnswer(clientHandledStanzasCount));
+    }
+
+    private void onScheduledAckRequest() {
+        synchronized (unacknowledgedStanzas) {
+            scheduledAckRequest = null;
+            if (unacknowledgedStanzas.isEmpty()) {
+                return;
+            }
+            requestAckFromTransportThread();
+        }
+    }
+
+    // Must be called while holding the unacknowledgedStanzas lock.
+    private void requestAckFromTransportThread() {
+        if (scheduledAckRequest != null) {
+            scheduledAckRequest.cancel();
+            scheduledAckRequest = null;
+        }
+        stanzasSinceLastAckRequest = 0;
+        sendNonzaFromTransportThread(AckRequest.INSTANCE);
+    }
+
+    /**
+     * Send a nonza without blocking the calling thread, which is one of the threads performing the connection's I/O.
+     *
+     * @param nonza the nonza to send.
+     */
+    private void sendNonzaFromTransportThread(Nonza nonza) {
+        AbstractXMPPConnection connection = connectionInternal.connection;
+        try {
+            connection.sendNonzaNonBlocking(nonza);
+        } catch (OutgoingQueueFullException e) {
+            connectionInternal.asyncGo(() -> {
+                try {
+                    connection.sendNonza(nonza);
+                } catch (NotConnectedException | InterruptedException e2) {
+                    LOGGER.log(Level.FINE, "Could not send " + nonza, e2);
+                }
+            });
+        } catch (NotConnectedException e) {
+            LOGGER.log(Level.FINE, "Could not send " + nonza, e);
+        }
+    }
+
+    // Must be called while holding the unacknowledgedStanzas lock.
+    private List<Stanza> takeUnacknowledgedStanzas() {
+        List<Stanza> res = unacknowledgedStanzas.removeAll();
+        res.addAll(pendingResends);
+        pendingResends.clear();
+        return res;
+    }
+
+    private void dropSmState() {
+        smEnabled = false;
+        smSessionId = null;
+        synchronized (unacknowledgedStanzas) {
+            if (scheduledAckRequest != null) {
+                scheduledAckRequest.cancel();
+                scheduledAckRequest = null;
+            }
+            countOutgoingStanzas = false;
+            stanzasSentBeforeResume = -1;
+            unacknowledgedStanzas.clear();
+            pendingResends.clear();
         }
     }
 
@@ -138,4 +536,145 @@ public class StreamManagementModule extends ModularXmppClientToServerConnectionM
         this.useSmResumption = useSmResumption;
     }
 
+    /**
+     * Set the preferred resumption time in seconds, which is send to the server when enabling stream management. A
+     * non-positive value means no preference.
+     *
+     * @param preferredResumptionTime the preferred resumption time in seconds.
+     */
+    public void setPreferredResumptionTime(int preferredResumptionTime) {
+        this.preferredResumptionTime = preferredResumptionTime;
+    }
+
+    /**
+     * Set the delay between sending a stanza, while there is no other unacknowledged stanza, and requesting an
+     * acknowledgement from the server. The acknowledgement request covers all stanzas sent within the delay.
+     *
+     * @param delay the delay.
+     * @param unit the unit of the delay.
+     */
+    public void setAckRequestDelay(long delay, TimeUnit unit) {
+        long delayMillis = unit.toMillis(delay);
+        if (delayMillis < 0 || delayMillis > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid acknowledgement request delay: " + delay + ' ' + unit);
+        }
+        this.ackRequestDelayMillis = (int) delayMillis;
+    }
+
+    /**
+     * Set the number of stanzas sent since the last acknowledgement request after which an acknowledgement is
+     * requested immediately.
+     *
+     * @param ackRequestStanzaThreshold the number of stanzas.
+     */
+    public void setAckRequestStanzaThreshold(int ackRequestStanzaThreshold) {
+        if (ackRequestStanzaThreshold <= 0) {
+            throw new IllegalArgumentException("The threshold must be positive");
+        }
+        this.ackRequestStanzaThreshold = ackRequestStanzaThreshold;
+    }
+
+    /**
+     * Check if stream management is currently enabled on the stream.
+     *
+     * @return <code>true</code> if stream management is enabled.
+     */
+    public boolean isStreamManagementEnabled() {
+        return smEnabled;
+    }
+
+    /**
+     * Check if the previous stream management session can possibly be resumed.
+     *
+     * @return <code>true</code> if a stream resumption is possible.
+     */
+    public boolean isStreamResumptionPossible() {
+        if (smSessionId == null) {
+            return false;
+        }
+
+        long closedNanos = streamClosedOnErrorNanos;
+        if (closedNanos == 0) {
+            return true;
+        }
+
+        int maxResumptionTime = serverMaxResumptionTime;
+        if (preferredResumptionTime > 0 && (maxResumptionTime <= 0 || preferredResumptionTime < maxResumptionTime)) {
+            maxResumptionTime = preferredResumptionTime;
+        }
+        if (maxResumptionTime <= 0) {
+            // Let the server decide if the session is still resumable.
+            return true;
+        }
+
+        long secondsSinceClosed = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - closedNanos);
+        return secondsSinceClosed <= maxResumptionTime;
+    }
+
+    /**
+     * Get the number of stanzas which were sent within the current stream management session, but have not yet been
+     * acknowledged by the server.
+     *
+     * @return the number of unacknowledged stanzas.
+     */
+    public int getUnacknowledgedStanzasCount() {
+        synchronized (unacknowledgedStanzas) {
+            return unacknowledgedStanzas.size() + pendingResends.size();
+        }
+    }
+
+    /**
+     * Get the stanzas which were sent within the current stream management session, but have not yet been
+     * acknowledged by the server.
+     *
+     * @return the unacknowledged stanzas, oldest first.
+     */
+    public List<Stanza> getUnacknowledgedStanzas() {
+        synchronized (unacknowledgedStanzas) {
+            List<Stanza> res = new ArrayList<>(unacknowledgedStanzas.size() + pendingResends.size());
+            res.addAll(unacknowledgedStanzas.peekAll());
+            res.addAll(pendingResends);
+            return res;
+        }
+    }
+
+    /**
+     * Add a listener which is invoked for every stanza acknowledged by the server.
+     *
+     * @param listener the listener.
+     */
+    public void addStanzaAcknowledgedListener(StanzaListener listener) {
+        stanzaAcknowledgedListeners.add(listener);
+    }
+
+    /**
+     * Remove a stanza acknowledged listener.
+     *
+     * @param listener the listener.
+     * @return <code>true</code> if the listener was removed.
+     */
+    public boolean removeStanzaAcknowledgedListener(StanzaListener listener) {
+        return stanzaAcknowledgedListeners.remove(listener);
+    }
+
+    /**
+     * Request an acknowledgement from the server right away.
+     *
+     * @throws StreamManagementNotEnabledException if stream management is not enabled.
+     * @throws NotConnectedException if the connection is not connected.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    public void requestAck() throws StreamManagementNotEnabledException, NotConnectedException, InterruptedException {
+        if (!smEnabled) {
+            throw new StreamManagementNotEnabledException();
+        }
+        synchronized (unacknowledgedStanzas) {
+            if (scheduledAckRequest != null) {
+                scheduledAckRequest.cancel();
+                scheduledAckRequest = null;
+            }
+            stanzasSinceLastAckRequest = 0;
+        }
+        connectionInternal.connection.sendNonza(AckRequest.INSTANCE);
+    }
 }
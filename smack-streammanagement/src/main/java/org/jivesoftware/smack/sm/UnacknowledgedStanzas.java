@@ -0,0 +1,153 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.sm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jivesoftware.smack.packet.Stanza;
+
+/**
+ * A growable ring buffer of the stanzas sent but not yet acknowledged by the server, in the order they were sent.
+ * <p>
+ * Since the server acknowledges stanzas always in the order they were sent, acknowledging stanzas is just an advance of
+ * the buffer's head, which does not shift or poll elements one by one. This class is not thread-safe.
+ * </p>
+ */
+final class UnacknowledgedStanzas {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 64;
+
+    private Stanza[] buffer;
+
+    /**
+     * The index of the oldest unacknowledged stanza.
+     */
+    private int head;
+
+    private int size;
+
+    UnacknowledgedStanzas() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    UnacknowledgedStanzas(int initialCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Initial capacity must be positive");
+        }
+        int capacity = Integer.highestOneBit(initialCapacity);
+        if (capacity < initialCapacity) {
+            capacity <<= 1;
+        }
+        buffer = new Stanza[capacity];
+    }
+
+    void add(Stanza stanza) {
+        if (size == buffer.length) {
+            grow();
+        }
+        buffer[(head + size) & (buffer.length - 1)] = stanza;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove the given number of the oldest stanzas, e.g. because they got acknowledged by the server.
+     *
+     * @param count the number of stanzas to remove.
+     * @param collect if <code>true</code>, the removed stanzas are returned.
+     * @return the removed stanzas if requested, an empty list otherwise.
+     * @throws IllegalArgumentException if count exceeds the number of unacknowledged stanzas.
+     */
+    List<Stanza> removeOldest(int count, boolean collect) {
+        if (count < 0 || count > size) {
+            throw new IllegalArgumentException(
+                            "Can not remove " + count + " stanzas, as there are only " + size + " unacknowledged");
+        }
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+
+        List<Stanza> removed = collect ? copyOldest(count) : Collections.emptyList();
+
+        // Release the references in at most two contiguous ranges.
+        int end = head + count;
+        if (end <= buffer.length) {
+            Arrays.fill(buffer, head, end, null);
+        } else {
+            Arrays.fill(buffer, head, buffer.length, null);
+            Arrays.fill(buffer, 0, end - buffer.length, null);
+        }
+
+        head = end & (buffer.length - 1);
+        size -= count;
+        return removed;
+    }
+
+    /**
+     * Return all unacknowledged stanzas, oldest first, without removing them.
+     *
+     * @return all unacknowledged stanzas.
+     */
+    List<Stanza> peekAll() {
+        return copyOldest(size);
+    }
+
+    /**
+     * Remove and return all unacknowledged stanzas, oldest first.
+     *
+     * @return all unacknowledged stanzas.
+     */
+    List<Stanza> removeAll() {
+        List<Stanza> all = copyOldest(size);
+        clear();
+        return all;
+    }
+
+    void clear() {
+        Arrays.fill(buffer, null);
+        head = 0;
+        size = 0;
+    }
+
+    private List<Stanza> copyOldest(int count) {
+        List<Stanza> res = new ArrayList<>(count);
+        int mask = buffer.length - 1;
+        for (int i = 0; i < count; i++) {
+            res.add(buffer[(head + i) & mask]);
+        }
+        return res;
+    }
+
+    private void grow() {
+        Stanza[] newBuffer = new Stanza[buffer.length << 1];
+        int firstPartLength = Math.min(size, buffer.length - head);
+        System.arraycopy(buffer, head, newBuffer, 0, firstPartLength);
+        System.arraycopy(buffer, 0, newBuffer, firstPartLength, size - firstPartLength);
+        buffer = newBuffer;
+        head = 0;
+    }
+}
@@ -140,6 +140,7 @@ public class StreamManagement {
      */
     public static class Enabled extends AbstractEnable {
         public static final String ELEMENT = "enabled";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
 
         /*
          * The stream id ("SM-ID")
@@ -189,6 +190,7 @@ public class StreamManagement {
 
     public static class Failed implements Nonza {
         public static final String ELEMENT = "failed";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
 
         private final StanzaError.Condition condition;
 
@@ -294,6 +296,7 @@ public class StreamManagement {
 
     public static class Resumed extends AbstractResume {
         public static final String ELEMENT = "resumed";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
 
         public Resumed(long handledCount, String previd) {
             super(handledCount, previd);
@@ -307,6 +310,7 @@ public class StreamManagement {
 
     public static class AckAnswer implements Nonza {
         public static final String ELEMENT = "a";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
 
         private final long handledCount;
 
@@ -339,6 +343,7 @@ public class StreamManagement {
 
     public static final class AckRequest implements Nonza {
         public static final String ELEMENT = "r";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
         public static final AckRequest INSTANCE = new AckRequest();
 
         private AckRequest() {
@@ -0,0 +1,91 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.sm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+
+import org.junit.jupiter.api.Test;
+
+public class UnacknowledgedStanzasTest {
+
+    private static List<Stanza> messages(int count) {
+        List<Stanza> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            messages.add(StanzaBuilder.buildMessage(Integer.toString(i)).build());
+        }
+        return messages;
+    }
+
+    @Test
+    public void removesOldestStanzasAcrossWrapAround() {
+        UnacknowledgedStanzas unacknowledgedStanzas = new UnacknowledgedStanzas(4);
+        List<Stanza> messages = messages(6);
+
+        unacknowledgedStanzas.add(messages.get(0));
+        unacknowledgedStanzas.add(messages.get(1));
+        unacknowledgedStanzas.add(messages.get(2));
+        assertEquals(messages.subList(0, 2), unacknowledgedStanzas.removeOldest(2, true));
+
+        // Wraps around the end of the buffer without growing it.
+        unacknowledgedStanzas.add(messages.get(3));
+        unacknowledgedStanzas.add(messages.get(4));
+        unacknowledgedStanzas.add(messages.get(5));
+        assertEquals(4, unacknowledgedStanzas.size());
+        assertEquals(messages.subList(2, 6), unacknowledgedStanzas.peekAll());
+
+        assertTrue(unacknowledgedStanzas.removeOldest(3, false).isEmpty());
+        assertEquals(messages.subList(5, 6), unacknowledgedStanzas.removeAll());
+        assertTrue(unacknowledgedStanzas.isEmpty());
+    }
+
+    @Test
+    public void growsWhilePreservingOrder() {
+        UnacknowledgedStanzas unacknowledgedStanzas = new UnacknowledgedStanzas(4);
+        List<Stanza> messages = messages(11);
+
+        for (int i = 0; i < 3; i++) {
+            unacknowledgedStanzas.add(messages.get(i));
+        }
+        unacknowledgedStanzas.removeOldest(3, false);
+        // The head is now in the middle of the buffer, so growing has to copy two ranges.
+        for (int i = 3; i < 11; i++) {
+            unacknowledgedStanzas.add(messages.get(i));
+        }
+
+        assertEquals(8, unacknowledgedStanzas.size());
+        assertEquals(messages.subList(3, 5), unacknowledgedStanzas.removeOldest(2, true));
+        assertEquals(messages.subList(5, 11), unacknowledgedStanzas.removeAll());
+    }
+
+    @Test
+    public void cannotRemoveMoreStanzasThanUnacknowledged() {
+        UnacknowledgedStanzas unacknowledgedStanzas = new UnacknowledgedStanzas();
+        unacknowledgedStanzas.add(messages(1).get(0));
+
+        assertThrows(IllegalArgumentException.class, () -> unacknowledgedStanzas.removeOldest(2, false));
+        assertThrows(IllegalArgumentException.class, () -> unacknowledgedStanzas.removeOldest(-1, false));
+        assertEquals(1, unacknowledgedStanzas.size());
+    }
+}
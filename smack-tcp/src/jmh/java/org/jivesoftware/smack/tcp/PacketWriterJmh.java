@@ -0,0 +1,127 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.AbstractXMPPConnection;
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+import org.jivesoftware.smack.packet.StreamOpen;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.util.Async;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of bulk sending stanzas via the {@link XMPPTCPConnection.PacketWriter} to a local loopback
+ * server which discards everything it reads. As the outgoing queue fills up, the benchmark is bounded by the writer
+ * thread's throughput.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class PacketWriterJmh {
+
+    @Param({"50", "500", "5000"})
+    private int outgoingQueueSize;
+
+    private ServerSocket serverSocket;
+
+    private Socket clientSocket;
+
+    private XMPPTCPConnection connection;
+
+    private Message message;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        Async.go(() -> {
+            byte[] buffer = new byte[64 * 1024];
+            try (Socket socket = serverSocket.accept(); InputStream inputStream = socket.getInputStream()) {
+                while (inputStream.read(buffer) >= 0) {
+                    // Discard the data.
+                }
+            } catch (IOException e) {
+                // The benchmark got torn down.
+            }
+        }, "PacketWriterJmh loopback server");
+        clientSocket = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+
+        XMPPTCPConnectionConfiguration configuration = XMPPTCPConnectionConfiguration.builder()
+                        .setXmppDomain("example.org")
+                        .setUsernameAndPassword("user", "password")
+                        .setOutgoingQueueSize(outgoingQueueSize)
+                        .build();
+        connection = new XMPPTCPConnection(configuration);
+
+        // The writer thread does not require a reader, but the connection does not permit one to be null.
+        Field readerField = AbstractXMPPConnection.class.getDeclaredField("reader");
+        readerField.setAccessible(true);
+        readerField.set(connection, new StringReader(""));
+        // As no stream got opened, we have to set the outgoing XML environment, which is required to write stanzas.
+        Field outgoingStreamXmlEnvironmentField = AbstractXMPPConnection.class.getDeclaredField("outgoingStreamXmlEnvironment");
+        outgoingStreamXmlEnvironmentField.setAccessible(true);
+        outgoingStreamXmlEnvironmentField.set(connection, XmlEnvironment.builder().with(new StreamOpen("example.org")).build());
+
+        connection.setWriter(new OutputStreamWriter(clientSocket.getOutputStream(), StandardCharsets.UTF_8));
+        connection.packetWriter.init();
+
+        message = StanzaBuilder.buildMessage("bulk")
+                        .to("juliet@example.org/balcony")
+                        .ofType(Message.Type.chat)
+                        .setBody("Wherefore art thou, Romeo? Deny thy father and refuse thy name.")
+                        .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        connection.packetWriter.shutdown(true);
+        clientSocket.close();
+        serverSocket.close();
+    }
+
+    @Benchmark
+    public void bulkSend() throws Exception {
+        connection.packetWriter.sendStreamElement(message);
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of the TLS filter of {@link XmppTcpTransportModule}, that is, of wrapping outgoing stanzas
+ * with an {@link SSLEngine} and unwrapping them on the receiving side. As the filter is private to the transport
+ * module, the benchmark drives a connected pair of in-memory {@link SSLEngine}s the same way the filter does. The
+ * server certificate is a self-signed one created with {@code keytool} in the setup.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class TlsEngineJmh {
+
+    private static final char[] PASSWORD = "smack-jmh".toCharArray();
+
+    @Param({"TLSv1.2", "TLSv1.3"})
+    private String protocol;
+
+    @Param({"256", "4096"})
+    private int stanzaSize;
+
+    private SSLEngine client;
+
+    private SSLEngine server;
+
+    private ByteBuffer stanza;
+
+    private ByteBuffer clientNet;
+
+    private ByteBuffer serverNet;
+
+    private ByteBuffer clientApp;
+
+    private ByteBuffer serverApp;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        SSLContext sslContext = createSslContext();
+
+        client = sslContext.createSSLEngine("example.org", 5222);
+        client.setUseClientMode(true);
+        client.setEnabledProtocols(new String[] { protocol });
+        server = sslContext.createSSLEngine();
+        server.setUseClientMode(false);
+        server.setEnabledProtocols(new String[] { protocol });
+
+        int packetBufferSize = client.getSession().getPacketBufferSize();
+        int applicationBufferSize = client.getSession().getApplicationBufferSize();
+        clientNet = ByteBuffer.allocate(packetBufferSize);
+        serverNet = ByteBuffer.allocate(packetBufferSize);
+        clientApp = ByteBuffer.allocate(applicationBufferSize);
+        serverApp = ByteBuffer.allocate(applicationBufferSize);
+
+        handshake();
+
+        StringBuilder xml = new StringBuilder(stanzaSize);
+        xml.append("<message to='juliet@example.org/balcony' id='tls-jmh'><body>");
+        while (xml.length() < stanzaSize - "</body></message>".length()) {
+            xml.append('x');
+        }
+        xml.append("</body></message>");
+        stanza = ByteBuffer.wrap(xml.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static SSLContext createSslContext() throws Exception {
+        File keyStoreFile = File.createTempFile("smack-jmh", ".p12");
+        if (!keyStoreFile.delete()) {
+            throw new IOException("Could not delete " + keyStoreFile);
+        }
+        try {
+            String keytool = System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool";
+            Process process = new ProcessBuilder(keytool, "-genkeypair", "-keyalg", "EC", "-groupname", "secp256r1",
+                            "-alias", "smack-jmh", "-dname", "CN=example.org", "-validity", "1", "-storetype", "PKCS12",
+                            "-keystore", keyStoreFile.getAbsolutePath(), "-storepass", new String(PASSWORD))
+                            .inheritIO()
+                            .start();
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("keytool failed with exit code " + exitCode);
+            }
+
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            try (InputStream inputStream = Files.newInputStream(keyStoreFile.toPath())) {
+                keyStore.load(inputStream, PASSWORD);
+            }
+
+            KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagerFactory.init(keyStore, PASSWORD);
+            TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(
+                            TrustManagerFactory.getDefaultAlgorithm());
+            trustManagerFactory.init(keyStore);
+
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(keyManagerFactory.getKeyManagers(), trustManagerFactory.getTrustManagers(), null);
+            return sslContext;
+        } finally {
+            Files.deleteIfExists(keyStoreFile.toPath());
+        }
+    }
+
+    private void handshake() throws SSLException {
+        client.beginHandshake();
+        server.beginHandshake();
+        ByteBuffer empty = ByteBuffer.allocate(0);
+        while (!isHandshakeFinished(client) || !isHandshakeFinished(server)) {
+            client.wrap(empty, clientNet);
+            server.wrap(empty, serverNet);
+            runDelegatedTasks(client);
+            runDelegatedTasks(server);
+
+            clientNet.flip();
+            server.unwrap(clientNet, serverApp);
+            clientNet.compact();
+            serverNet.flip();
+            client.unwrap(serverNet, clientApp);
+            serverNet.compact();
+            runDelegatedTasks(client);
+            runDelegatedTasks(server);
+        }
+        clientNet.clear();
+        serverNet.clear();
+        clientApp.clear();
+        serverApp.clear();
+    }
+
+    private static boolean isHandshakeFinished(SSLEngine engine) {
+        SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+        return status == SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING
+                        || status == SSLEngineResult.HandshakeStatus.FINISHED;
+    }
+
+    private static void runDelegatedTasks(SSLEngine engine) {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+
+    @Benchmark
+    public int wrapAndUnwrap() throws SSLException {
+        stanza.rewind();
+        while (stanza.hasRemaining()) {
+            SSLEngineResult result = client.wrap(stanza, clientNet);
+            if (result.getStatus() != SSLEngineResult.Status.OK) {
+                throw new IllegalStateException("Unexpected wrap result: " + result);
+            }
+        }
+
+        clientNet.flip();
+        int unwrappedBytes = 0;
+        while (clientNet.hasRemaining()) {
+            SSLEngineResult result = server.unwrap(clientNet, serverApp);
+            if (result.getStatus() != SSLEngineResult.Status.OK) {
+                throw new IllegalStateException("Unexpected unwrap result: " + result);
+            }
+            unwrappedBytes += result.bytesProduced();
+            serverApp.clear();
+        }
+        clientNet.clear();
+        return unwrappedBytes;
+    }
+}
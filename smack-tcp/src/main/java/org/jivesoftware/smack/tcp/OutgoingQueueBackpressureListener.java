@@ -0,0 +1,49 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+/**
+ * A listener for the backpressure signals of the outgoing queue of a {@link XMPPTCPConnection}.
+ * <p>
+ * Once the number of queued outgoing stream elements reaches the configured high water mark, the connection invokes
+ * {@link #outgoingQueueAboveHighWaterMark(XMPPTCPConnection)}. Producers, for example bulk publishers, should then
+ * pause sending until {@link #outgoingQueueBelowLowWaterMark(XMPPTCPConnection)} is invoked, which happens once the
+ * writer drained the queue to the configured low water mark. The listener methods are invoked asynchronously, but in
+ * order.
+ * </p>
+ *
+ * @see XMPPTCPConnectionConfiguration.Builder#setOutgoingQueueWaterMarks(int, int)
+ * @see XMPPTCPConnection#addOutgoingQueueBackpressureListener(OutgoingQueueBackpressureListener)
+ * @since 4.5
+ */
+public interface OutgoingQueueBackpressureListener {
+
+    /**
+     * Invoked once the outgoing queue reached its high water mark.
+     *
+     * @param connection the connection.
+     */
+    void outgoingQueueAboveHighWaterMark(XMPPTCPConnection connection);
+
+    /**
+     * Invoked once the outgoing queue, after it reached its high water mark, got drained to its low water mark.
+     *
+     * @param connection the connection.
+     */
+    void outgoingQueueBelowLowWaterMark(XMPPTCPConnection connection);
+
+}
@@ -0,0 +1,68 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.jivesoftware.smack.AsyncButOrdered;
+
+/**
+ * The stanza pipeline of {@link XMPPTCPConnection}'s reader. Stanzas handed off to the pipeline are processed
+ * asynchronously, keyed by their sender, hence stanzas of the same sender are processed in the order they were handed
+ * off. At most a fixed number of stanzas can be in flight, further hand offs block until a slot becomes available.
+ */
+final class StanzaPipeline {
+
+    private final AsyncButOrdered<String> asyncButOrdered = new AsyncButOrdered<>();
+
+    private final Semaphore slots;
+
+    StanzaPipeline(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Stanza pipeline capacity must be positive");
+        }
+        slots = new Semaphore(capacity);
+    }
+
+    /**
+     * Hand off the processing of a stanza to the pipeline. Blocks while the pipeline is full.
+     *
+     * @param from the sender of the stanza, used to order the processing.
+     * @param processing the processing of the stanza.
+     * @param abort checked periodically while waiting for a free slot, the hand off is aborted once it returns true.
+     * @return <code>true</code> if the stanza was handed off, <code>false</code> if the hand off was aborted.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    boolean handOff(String from, Runnable processing, BooleanSupplier abort) throws InterruptedException {
+        while (!slots.tryAcquire(1, TimeUnit.SECONDS)) {
+            if (abort.getAsBoolean()) {
+                return false;
+            }
+        }
+        asyncButOrdered.performAsyncButOrdered(from, () -> {
+            try {
+                processing.run();
+            } finally {
+                slots.release();
+            }
+        });
+        return true;
+    }
+
+}
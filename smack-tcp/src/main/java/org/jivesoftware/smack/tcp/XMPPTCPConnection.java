@@ -38,6 +38,7 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
@@ -76,6 +77,8 @@ import org.jivesoftware.smack.compression.XMPPInputOutputStream;
 import org.jivesoftware.smack.datatypes.UInt16;
 import org.jivesoftware.smack.filter.StanzaFilter;
 import org.jivesoftware.smack.internal.SmackTlsContext;
+import org.jivesoftware.smack.metrics.CountingInputStream;
+import org.jivesoftware.smack.metrics.CountingOutputStream;
 import org.jivesoftware.smack.packet.Element;
 import org.jivesoftware.smack.packet.IQ;
 import org.jivesoftware.smack.packet.Message;
@@ -131,7 +134,6 @@ import org.minidns.dnsname.DnsName;
  */
 public class XMPPTCPConnection extends AbstractXMPPConnection {
 
-    private static final int QUEUE_SIZE = 500;
     private static final Logger LOGGER = Logger.getLogger(XMPPTCPConnection.class.getName());
 
     /**
@@ -149,7 +151,7 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
     /**
      * Protected access level because of unit test purposes
      */
-    protected final PacketWriter packetWriter = new PacketWriter();
+    protected final PacketWriter packetWriter;
 
     /**
      * Protected access level because of unit test purposes
@@ -282,6 +284,8 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
      */
     private final Set<StanzaFilter> requestAckPredicates = new LinkedHashSet<>();
 
+    private final Set<OutgoingQueueBackpressureListener> outgoingQueueBackpressureListeners = new CopyOnWriteArraySet<>();
+
     @SuppressWarnings("HidingField")
     private final XMPPTCPConnectionConfiguration config;
 
@@ -298,6 +302,7 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
     public XMPPTCPConnection(XMPPTCPConnectionConfiguration config) {
         super(config);
         this.config = config;
+        packetWriter = new PacketWriter();
         addConnectionListener(new ConnectionListener() {
             @Override
             public void connectionClosedOnError(Exception e) {
@@ -703,6 +708,10 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
     private void initReaderAndWriter() throws IOException {
         InputStream is = socket.getInputStream();
         OutputStream os = socket.getOutputStream();
+        if (metrics.isEnabled()) {
+            is = new CountingInputStream(is, metrics.getBytesRead());
+            os = new CountingOutputStream(os, metrics.getBytesWritten());
+        }
         if (compressionHandler != null) {
             is = compressionHandler.getInputStream(is);
             os = compressionHandler.getOutputStream(os);
@@ -936,6 +945,12 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
 
         private boolean running;
 
+        /**
+         * The pipeline processing the stanzas handed off by the reader thread, or <code>null</code> if the stanza
+         * pipeline is disabled.
+         */
+        private StanzaPipeline stanzaPipeline;
+
         /**
          * Initializes the reader in order to be used. The reader is initialized during the
          * first connection and when reconnecting due to an abruptly disconnection.
@@ -943,6 +958,14 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
         void init() {
             done = false;
 
+            int stanzaPipelineCapacity = config.getStanzaPipelineCapacity();
+            if (stanzaPipelineCapacity > 0) {
+                // Use a fresh instance, as stanzas of the previous connection may still release their slot.
+                stanzaPipeline = new StanzaPipeline(stanzaPipelineCapacity);
+            } else {
+                stanzaPipeline = null;
+            }
+
             running = true;
             Async.go(new Runnable() {
                 @Override
@@ -966,6 +989,70 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
             done = true;
         }
 
+        /**
+         * Hand off the stanza the parser is positioned at to the stanza pipeline. The reader thread only extracts the
+         * XML of the stanza, parsing it with the providers and notifying the listeners is performed by the pipeline.
+         * If the pipeline is full, then this method blocks until a slot becomes available, or until the reader is shut
+         * down, in which case the stanza is dropped.
+         *
+         * @param parser the parser positioned at the start of the stanza.
+         * @param stanzaPipeline the stanza pipeline.
+         * @return <code>true</code> if the stanza was handed off, <code>false</code> if it was dropped.
+         * @throws XmlPullParserException if an error in the XML parser occurred.
+         * @throws IOException if an I/O error occurred.
+         * @throws InterruptedException if the calling thread was interrupted.
+         */
+        private boolean handOffStanza(XmlPullParser parser, StanzaPipeline stanzaPipeline)
+                        throws XmlPullParserException, IOException, InterruptedException {
+            String from = parser.getAttributeValue("from");
+            if (from == null) {
+                // Stanzas without a 'from' attribute originate from the user's account.
+                from = "";
+            }
+            final CharSequence stanzaXml = PacketParserUtils.parseElement(parser);
+
+            return stanzaPipeline.handOff(from, () -> {
+                try {
+                    parseAndProcessStanza(stanzaXml);
+                } catch (InterruptedException e) {
+                    LOGGER.log(Level.FINE, "Interrupted while processing pipelined stanza", e);
+                    Thread.currentThread().interrupt();
+                }
+            }, () -> done);
+        }
+
+        /**
+         * Process the stanza the parser is positioned at, or hand it off to the stanza pipeline if enabled, and count it
+         * as handled for stream management.
+         *
+         * @param parser the parser positioned at the start of the stanza.
+         * @throws XmlPullParserException if an error in the XML parser occurred.
+         * @throws IOException if an I/O error occurred.
+         * @throws InterruptedException if the calling thread was interrupted.
+         */
+        void processOrHandOffStanza(XmlPullParser parser)
+                        throws XmlPullParserException, IOException, InterruptedException {
+            if (stanzaPipeline == null) {
+                try {
+                    parseAndProcessStanza(parser);
+                } finally {
+                    clientHandledStanzasCount = SMUtils.incrementHeight(clientHandledStanzasCount);
+                }
+                return;
+            }
+
+            // With the stanza pipeline enabled, the stanza is counted, and hence may be acknowledged to the server, once
+            // it was handed off, which may be before it was processed. This is fine, as stream management only requires
+            // that the client took responsibility for the stanza, and a handed off stanza is processed even if the
+            // connection is lost afterwards. But a stanza whose hand off was aborted, because the reader was shut down
+            // while the pipeline was full, is dropped. It must not be counted, so that the server redelivers it after
+            // the stream was resumed. Counting here, on the reader thread, also keeps clientHandledStanzasCount
+            // confined to a single writer, see its javadoc.
+            if (handOffStanza(parser, stanzaPipeline)) {
+                clientHandledStanzasCount = SMUtils.incrementHeight(clientHandledStanzasCount);
+            }
+        }
+
         /**
          * Parse top-level packets in order to process them further.
          */
@@ -983,11 +1070,7 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                         case Message.ELEMENT:
                         case IQ.IQ_ELEMENT:
                         case Presence.ELEMENT:
-                            try {
-                                parseAndProcessStanza(parser);
-                            } finally {
-                                clientHandledStanzasCount = SMUtils.incrementHeight(clientHandledStanzasCount);
-                            }
+                            processOrHandOffStanza(parser);
                             break;
                         case "stream":
                             if (StreamOpen.ETHERX_JABBER_STREAMS_NAMESPACE.equals(namespace)) {
@@ -1186,14 +1269,29 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
     }
 
     protected class PacketWriter {
-        public static final int QUEUE_SIZE = XMPPTCPConnection.QUEUE_SIZE;
+        /**
+         * The default size of the outgoing queue.
+         *
+         * @see XMPPTCPConnectionConfiguration#getOutgoingQueueSize()
+         */
+        public static final int QUEUE_SIZE = 500;
         public static final int UNACKKNOWLEDGED_STANZAS_QUEUE_SIZE = 1024;
         public static final int UNACKKNOWLEDGED_STANZAS_QUEUE_SIZE_HIGH_WATER_MARK = (int) (0.3 * UNACKKNOWLEDGED_STANZAS_QUEUE_SIZE);
 
         private final String threadName = "Smack Writer (" + getConnectionCounter() + ')';
 
         private final ArrayBlockingQueueWithShutdown<Element> queue = new ArrayBlockingQueueWithShutdown<>(
-                        QUEUE_SIZE, true);
+                        config.getOutgoingQueueSize(), true);
+
+        private final int highWaterMark = config.getOutgoingQueueHighWaterMark();
+
+        private final int lowWaterMark = config.getOutgoingQueueLowWaterMark();
+
+        /**
+         * Set to true once the queue reached its high water mark, and reset to false once the queue got drained to its
+         * low water mark.
+         */
+        private final AtomicBoolean aboveHighWaterMark = new AtomicBoolean();
 
         /**
          * If set, the stanza writer is shut down
@@ -1229,6 +1327,7 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
             }
 
             queue.start();
+            maybeSignalBelowLowWaterMark();
             running = true;
             Async.go(new Runnable() {
                 @Override
@@ -1271,6 +1370,8 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
             throwNotConnectedExceptionIfDoneAndResumptionNotPossible();
             try {
                 queue.put(element);
+                recordOutgoingQueueSize();
+                maybeSignalAboveHighWaterMark();
             }
             catch (InterruptedException e) {
                 // put() may throw an InterruptedException for two reasons:
@@ -1297,6 +1398,37 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                 throwNotConnectedExceptionIfDoneAndResumptionNotPossible();
                 throw new OutgoingQueueFullException();
             }
+            recordOutgoingQueueSize();
+            maybeSignalAboveHighWaterMark();
+        }
+
+        private void recordOutgoingQueueSize() {
+            if (!metrics.isEnabled()) {
+                return;
+            }
+            metrics.getOutgoingQueueSize().record(queue.size());
+        }
+
+        private void maybeSignalAboveHighWaterMark() {
+            if (aboveHighWaterMark.get() || queue.size() < highWaterMark) {
+                return;
+            }
+            if (aboveHighWaterMark.compareAndSet(false, true)) {
+                fireOutgoingQueueBackpressureListeners(true);
+            }
+        }
+
+        private void maybeSignalBelowLowWaterMark() {
+            if (!aboveHighWaterMark.get() || queue.size() > lowWaterMark) {
+                return;
+            }
+            if (aboveHighWaterMark.compareAndSet(true, false)) {
+                fireOutgoingQueueBackpressureListeners(false);
+            }
+        }
+
+        boolean isAboveHighWaterMark() {
+            return aboveHighWaterMark.get();
         }
 
         /**
@@ -1335,6 +1467,7 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
         }
 
         private void writePackets() {
+            final List<Element> batch = new ArrayList<>();
             try {
                 // Write out packets from the queue.
                 while (!done()) {
@@ -1369,37 +1502,28 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                         }
                     }
 
-                    Stanza packet = null;
-                    if (element instanceof Stanza) {
-                        packet = (Stanza) element;
-                    }
-                    else if (element instanceof Enable) {
-                        // The client needs to add messages to the unacknowledged stanzas queue
-                        // right after it sent 'enabled'. Stanza will be added once
-                        // unacknowledgedStanzas is not null.
-                        unacknowledgedStanzas = new ArrayBlockingQueue<>(UNACKKNOWLEDGED_STANZAS_QUEUE_SIZE);
-                    }
-                    maybeAddToUnacknowledgedStanzas(packet);
-
-                    CharSequence elementXml = element.toXML(outgoingStreamXmlEnvironment);
-                    if (elementXml instanceof XmlStringBuilder) {
-                        try {
-                            ((XmlStringBuilder) elementXml).write(writer, outgoingStreamXmlEnvironment);
-                        } catch (NullPointerException npe) {
-                            LOGGER.log(Level.FINE, "NPE in XmlStringBuilder of " + element.getClass() + ": " + element, npe);
-                            throw npe;
-                        }
-                    }
-                    else {
-                        writer.write(elementXml.toString());
+                    batch.add(element);
+                    writeBatch(batch, 0);
+
+                    // Further elements may got queued while the previous element was written. Write them as part of
+                    // the same batch, before flushing the writer once for the whole batch. Hence the busier the
+                    // connection, the larger the batches become and the fewer flushes, i.e., syscalls and TCP segments,
+                    // are required. Note that the first element is written before the queue is drained, so that we do
+                    // not take elements from a full queue while the writer is unable to write them.
+                    if (queue.drainTo(batch) > 0) {
+                        writeBatch(batch, 1);
                     }
+                    maybeSignalBelowLowWaterMark();
 
                     if (queue.isEmpty()) {
                         writer.flush();
                     }
-                    if (packet != null) {
-                        firePacketSendingListeners(packet);
+                    for (Element writtenElement : batch) {
+                        if (writtenElement instanceof Stanza) {
+                            firePacketSendingListeners((Stanza) writtenElement);
+                        }
                     }
+                    batch.clear();
                 }
                 if (!instantShutdown) {
                     // Flush out the rest of the queue.
@@ -1454,6 +1578,48 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
             }
         }
 
+        /**
+         * Write the elements of the given batch, starting at the given index.
+         * <p>
+         * Every stanza is put into the unacknowledged stanza queue right before it is written. Stanzas must not be
+         * put into the queue ahead of writing them, as a batch may be larger than the remaining capacity of the
+         * unacknowledged stanza queue, which could then only be drained by acknowledgements of stanzas that were
+         * never written.
+         * </p>
+         *
+         * @param batch the batch.
+         * @param fromIndex the index of the first element to write.
+         * @throws IOException if an I/O error occurs.
+         */
+        private void writeBatch(List<Element> batch, int fromIndex) throws IOException {
+            final int batchSize = batch.size();
+            for (int i = fromIndex; i < batchSize; i++) {
+                Element element = batch.get(i);
+                if (element instanceof Stanza) {
+                    maybeAddToUnacknowledgedStanzas((Stanza) element);
+                }
+                else if (element instanceof Enable) {
+                    // The client needs to add messages to the unacknowledged stanzas queue
+                    // right after it sent 'enabled'. Stanza will be added once
+                    // unacknowledgedStanzas is not null.
+                    unacknowledgedStanzas = new ArrayBlockingQueue<>(UNACKKNOWLEDGED_STANZAS_QUEUE_SIZE);
+                }
+
+                CharSequence elementXml = element.toXML(outgoingStreamXmlEnvironment);
+                if (elementXml instanceof XmlStringBuilder) {
+                    try {
+                        ((XmlStringBuilder) elementXml).write(writer, outgoingStreamXmlEnvironment);
+                    } catch (NullPointerException npe) {
+                        LOGGER.log(Level.FINE, "NPE in XmlStringBuilder of " + element.getClass() + ": " + element, npe);
+                        throw npe;
+                    }
+                }
+                else {
+                    writer.write(elementXml.toString());
+                }
+            }
+        }
+
         private void drainWriterQueueToUnacknowledgedStanzas() {
             List<Element> elements = new ArrayList<>(queue.size());
             queue.drainTo(elements);
@@ -1485,6 +1651,13 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                     writer.write(AckRequest.INSTANCE.toXML().toString());
                 }
 
+                if (unacknowledgedStanzas.remainingCapacity() == 0) {
+                    // The following put() blocks until the server acknowledged stanzas. Make sure that the already
+                    // written stanzas and the ack request are on the wire, as the server would otherwise never
+                    // acknowledge them.
+                    writer.flush();
+                }
+
                 try {
                     // It is important the we put the stanza in the unacknowledged stanza
                     // queue before we put it on the wire
@@ -1940,6 +2113,56 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
         this.bundleAndDeferCallback = bundleAndDeferCallback;
     }
 
+    /**
+     * Add a listener for the backpressure signals of the outgoing queue.
+     *
+     * @param listener the listener.
+     * @return <code>true</code> if the listener was not already added.
+     * @see XMPPTCPConnectionConfiguration.Builder#setOutgoingQueueWaterMarks(int, int)
+     * @since 4.5
+     */
+    public boolean addOutgoingQueueBackpressureListener(OutgoingQueueBackpressureListener listener) {
+        return outgoingQueueBackpressureListeners.add(listener);
+    }
+
+    /**
+     * Remove a listener for the backpressure signals of the outgoing queue.
+     *
+     * @param listener the listener.
+     * @return <code>true</code> if the listener was removed.
+     * @since 4.5
+     */
+    public boolean removeOutgoingQueueBackpressureListener(OutgoingQueueBackpressureListener listener) {
+        return outgoingQueueBackpressureListeners.remove(listener);
+    }
+
+    /**
+     * Check if the outgoing queue currently signals backpressure, i.e., if it reached its high water mark and was not
+     * yet drained to its low water mark.
+     *
+     * @return <code>true</code> if the outgoing queue signals backpressure.
+     * @since 4.5
+     */
+    public boolean isOutgoingQueueAboveHighWaterMark() {
+        return packetWriter.isAboveHighWaterMark();
+    }
+
+    private void fireOutgoingQueueBackpressureListeners(boolean aboveHighWaterMark) {
+        if (outgoingQueueBackpressureListeners.isEmpty()) {
+            return;
+        }
+        // Invoke the listeners asynchronously, as we do not want to delay the writer thread, but keep their order.
+        ASYNC_BUT_ORDERED.performAsyncButOrdered(this, () -> {
+            for (OutgoingQueueBackpressureListener listener : outgoingQueueBackpressureListeners) {
+                if (aboveHighWaterMark) {
+                    listener.outgoingQueueAboveHighWaterMark(this);
+                } else {
+                    listener.outgoingQueueBelowLowWaterMark(this);
+                }
+            }
+        });
+    }
+
 
     /**
      * Returns the local address currently in use for this connection.
@@ -43,14 +43,42 @@ public final class XMPPTCPConnectionConfiguration extends ConnectionConfiguratio
      */
     public static int DEFAULT_CONNECT_TIMEOUT = 30000;
 
+    /**
+     * The default capacity of the outgoing stream element queue. Preinitialized with 500. If this value is changed, new
+     * Builder instances will use the new value as default.
+     */
+    public static int DEFAULT_OUTGOING_QUEUE_SIZE = 500;
+
     /**
      * How long the socket will wait until a TCP connection is established (in milliseconds).
      */
     private final int connectTimeout;
 
+    private final int outgoingQueueSize;
+
+    private final int outgoingQueueHighWaterMark;
+
+    private final int outgoingQueueLowWaterMark;
+
+    private final int stanzaPipelineCapacity;
+
     private XMPPTCPConnectionConfiguration(Builder builder) {
         super(builder);
         connectTimeout = builder.connectTimeout;
+        outgoingQueueSize = builder.outgoingQueueSize;
+        stanzaPipelineCapacity = builder.stanzaPipelineCapacity;
+
+        if (builder.outgoingQueueHighWaterMark > 0) {
+            outgoingQueueHighWaterMark = builder.outgoingQueueHighWaterMark;
+            outgoingQueueLowWaterMark = builder.outgoingQueueLowWaterMark;
+        } else {
+            outgoingQueueHighWaterMark = Math.max(1, outgoingQueueSize * 3 / 4);
+            outgoingQueueLowWaterMark = outgoingQueueSize / 4;
+        }
+        if (outgoingQueueHighWaterMark > outgoingQueueSize) {
+            throw new IllegalArgumentException("The outgoing queue high water mark (" + outgoingQueueHighWaterMark
+                            + ") must not exceed the outgoing queue size (" + outgoingQueueSize + ')');
+        }
     }
 
     /**
@@ -62,6 +90,53 @@ public final class XMPPTCPConnectionConfiguration extends ConnectionConfiguratio
         return connectTimeout;
     }
 
+    /**
+     * Get the capacity of the queue holding the outgoing stream elements. Defaults to
+     * {@link #DEFAULT_OUTGOING_QUEUE_SIZE}.
+     *
+     * @return the capacity of the outgoing queue.
+     * @since 4.5
+     */
+    public int getOutgoingQueueSize() {
+        return outgoingQueueSize;
+    }
+
+    /**
+     * Get the number of queued outgoing stream elements at which the connection signals backpressure. Defaults to
+     * three quarters of the outgoing queue size.
+     *
+     * @return the high water mark of the outgoing queue.
+     * @see OutgoingQueueBackpressureListener
+     * @since 4.5
+     */
+    public int getOutgoingQueueHighWaterMark() {
+        return outgoingQueueHighWaterMark;
+    }
+
+    /**
+     * Get the number of queued outgoing stream elements at which the connection signals that the backpressure has
+     * ended. Defaults to a quarter of the outgoing queue size.
+     *
+     * @return the low water mark of the outgoing queue.
+     * @see OutgoingQueueBackpressureListener
+     * @since 4.5
+     */
+    public int getOutgoingQueueLowWaterMark() {
+        return outgoingQueueLowWaterMark;
+    }
+
+    /**
+     * Get the number of incoming stanzas which may wait for being parsed and processed by the stanza pipeline. A
+     * capacity of zero, the default, means that the stanza pipeline is disabled.
+     *
+     * @return the capacity of the stanza pipeline.
+     * @see Builder#setStanzaPipelineCapacity(int)
+     * @since 4.5
+     */
+    public int getStanzaPipelineCapacity() {
+        return stanzaPipelineCapacity;
+    }
+
     public static Builder builder() {
         return builder(getDefaultJxmppContext());
     }
@@ -76,6 +151,10 @@ public final class XMPPTCPConnectionConfiguration extends ConnectionConfiguratio
      */
     public static final class Builder extends ConnectionConfiguration.Builder<Builder, XMPPTCPConnectionConfiguration> {
         private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+        private int outgoingQueueSize = DEFAULT_OUTGOING_QUEUE_SIZE;
+        private int outgoingQueueHighWaterMark = -1;
+        private int outgoingQueueLowWaterMark = -1;
+        private int stanzaPipelineCapacity;
 
         private Builder(JxmppContext jxmppContext) {
             super(jxmppContext);
@@ -92,6 +171,66 @@ public final class XMPPTCPConnectionConfiguration extends ConnectionConfiguratio
             return this;
         }
 
+        /**
+         * Set the capacity of the queue holding the outgoing stream elements. Once the queue is full, the blocking
+         * send methods will block and the non-blocking ones will throw an
+         * {@link org.jivesoftware.smack.SmackException.OutgoingQueueFullException}.
+         *
+         * @param outgoingQueueSize the capacity of the outgoing queue.
+         * @return a reference to this object.
+         * @since 4.5
+         */
+        public Builder setOutgoingQueueSize(int outgoingQueueSize) {
+            if (outgoingQueueSize < 1) {
+                throw new IllegalArgumentException("The outgoing queue size must be positive");
+            }
+            this.outgoingQueueSize = outgoingQueueSize;
+            return this;
+        }
+
+        /**
+         * Set the water marks of the outgoing queue. If the number of queued outgoing stream elements reaches the
+         * high water mark, then the connection signals backpressure. Once the queue got drained to the low water
+         * mark, the connection signals that the backpressure has ended.
+         *
+         * @param lowWaterMark the low water mark.
+         * @param highWaterMark the high water mark, must not exceed the outgoing queue size.
+         * @return a reference to this object.
+         * @see OutgoingQueueBackpressureListener
+         * @since 4.5
+         */
+        public Builder setOutgoingQueueWaterMarks(int lowWaterMark, int highWaterMark) {
+            if (lowWaterMark < 0 || lowWaterMark >= highWaterMark) {
+                throw new IllegalArgumentException("The low water mark must be non-negative and lower than the high water mark");
+            }
+            this.outgoingQueueLowWaterMark = lowWaterMark;
+            this.outgoingQueueHighWaterMark = highWaterMark;
+            return this;
+        }
+
+        /**
+         * Set the capacity of the stanza pipeline. By default, the connection's reader thread parses every incoming
+         * stanza and waits until all synchronous stanza listeners processed it before it reads the next one. Hence a
+         * slow listener stalls reading from the socket. With a positive capacity, the reader thread only extracts the
+         * XML of incoming stanzas and hands them off to the stanza pipeline, which parses them and notifies the
+         * listeners. The reader thread blocks only once the given number of stanzas is waiting in the pipeline.
+         * <p>
+         * Note that with the stanza pipeline the synchronous stanza listeners are only invoked in the order of the
+         * incoming stanzas with respect to their sender. Stanzas of different senders may be processed concurrently.
+         * </p>
+         *
+         * @param stanzaPipelineCapacity the capacity of the stanza pipeline, or zero to disable the stanza pipeline.
+         * @return a reference to this object.
+         * @since 4.5
+         */
+        public Builder setStanzaPipelineCapacity(int stanzaPipelineCapacity) {
+            if (stanzaPipelineCapacity < 0) {
+                throw new IllegalArgumentException("The stanza pipeline capacity must not be negative");
+            }
+            this.stanzaPipelineCapacity = stanzaPipelineCapacity;
+            return this;
+        }
+
         @Override
         protected Builder getThis() {
             return this;
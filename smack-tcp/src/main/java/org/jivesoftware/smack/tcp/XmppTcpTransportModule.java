@@ -68,6 +68,7 @@ import org.jivesoftware.smack.fsm.State;
 import org.jivesoftware.smack.fsm.StateDescriptor;
 import org.jivesoftware.smack.fsm.StateTransitionResult;
 import org.jivesoftware.smack.internal.SmackTlsContext;
+import org.jivesoftware.smack.metrics.ConnectionMetrics;
 import org.jivesoftware.smack.packet.Stanza;
 import org.jivesoftware.smack.packet.StartTls;
 import org.jivesoftware.smack.packet.StreamClose;
@@ -80,9 +81,10 @@ import org.jivesoftware.smack.tcp.XmppTcpTransportModule.XmppTcpNioTransport.Dis
 import org.jivesoftware.smack.tcp.rce.RemoteXmppTcpConnectionEndpoints;
 import org.jivesoftware.smack.tcp.rce.RemoteXmppTcpConnectionEndpoints.Result;
 import org.jivesoftware.smack.tcp.rce.Rfc6120TcpRemoteConnectionEndpoint;
+import org.jivesoftware.smack.util.ByteBufferPool;
 import org.jivesoftware.smack.util.CollectionUtil;
+import org.jivesoftware.smack.util.IncrementalUtf8Encoder;
 import org.jivesoftware.smack.util.StringUtils;
-import org.jivesoftware.smack.util.UTF8;
 import org.jivesoftware.smack.util.XmlStringBuilder;
 import org.jivesoftware.smack.util.rce.RemoteConnectionEndpointLookupFailure;
 
@@ -113,7 +115,29 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
 
     private TlsState tlsState;
 
-    private Iterator<CharSequence> outgoingCharSequenceIterator;
+    /**
+     * The pool the buffers used for I/O are borrowed from. Buffers are only borrowed while there is I/O in progress,
+     * so that idle connections do not hold any buffer memory.
+     */
+    private static final ByteBufferPool BUFFER_POOL = ByteBufferPool.getDirectBufferPool();
+
+    // TODO: Make the size of the incoming buffer configurable.
+    private static final int INCOMING_BUFFER_SIZE = 2 * 4096;
+
+    /**
+     * The size of the buffer outgoing elements are encoded into. Note that the size is chosen so that the TLS filter
+     * is able to wrap the whole buffer, together with the data it may have pending, into a single TLS record, and hence
+     * does not retain the buffer.
+     */
+    private static final int OUTGOING_ENCODE_BUFFER_SIZE = 8 * 1024;
+
+    private final IncrementalUtf8Encoder outgoingElementEncoder = new IncrementalUtf8Encoder();
+
+    /**
+     * The buffers outgoing elements have been encoded into. They are returned to the pool once they were completely
+     * consumed, either by the filters or by writing them to the socket.
+     */
+    private final List<ByteBuffer> outgoingEncodeBuffers = new ArrayList<>();
 
     private final List<TopLevelStreamElement> currentlyOutgoingElements = new ArrayList<>();
     private final IdentityHashMap<ByteBuffer, List<TopLevelStreamElement>> bufferToElementMap = new IdentityHashMap<>();
@@ -123,9 +147,6 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
     private final List<ByteBuffer> networkOutgoingBuffers = new ArrayList<>();
     private long networkOutgoingBuffersBytes;
 
-    // TODO: Make the size of the incomingBuffer configurable.
-    private final ByteBuffer incomingBuffer = ByteBuffer.allocateDirect(2 * 4096);
-
     private final ReentrantLock channelSelectedCallbackLock = new ReentrantLock();
 
     private long totalBytesRead;
@@ -150,6 +171,8 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
 
     private boolean pendingWriteInterestAfterRead;
 
+    private volatile boolean incomingStreamClosed;
+
     /**
      * Note that this field is effective final, but due to https://stackoverflow.com/q/30360824/194894 we have to declare it non-final.
      */
@@ -162,9 +185,13 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
 
     private static final Level STREAM_OPEN_CLOSE_DEBUG_LOG_LEVEL = Level.FINER;
 
+    private final ConnectionMetrics metrics;
+
     XmppTcpTransportModule(XmppTcpTransportModuleDescriptor moduleDescriptor, ModularXmppClientToServerConnectionInternal connectionInternal) {
         super(moduleDescriptor, connectionInternal);
 
+        metrics = connectionInternal.connection.getConnectionMetrics();
+
         tcpNioTransport = new XmppTcpNioTransport(connectionInternal);
 
         XmlPrinter incomingDebugPrettyPrinter = null;
@@ -252,6 +279,7 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
 
             this.streamOpen = streamOpen.toString();
             this.streamClose = streamClose.toString();
+            incomingStreamClosed = false;
 
             connectionInternal.onStreamOpen(this.streamOpen);
         }
@@ -262,6 +290,7 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
                 LOGGER.log(STREAM_OPEN_CLOSE_DEBUG_LOG_LEVEL, "Stream of " + this + " closed");
             }
 
+            incomingStreamClosed = true;
            connectionInternal.onStreamClosed();
         }
     };
@@ -282,15 +311,15 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
 
         long callbackBytesRead = 0;
         long callbackBytesWritten = 0;
+        ByteBuffer incomingBuffer = null;
 
         try {
             boolean destinationAddressChanged = false;
             boolean isLastPartOfElement = false;
             TopLevelStreamElement currentlyOutgonigTopLevelStreamElement = null;
-            StringBuilder outgoingStreamForDebugger = null;
 
             writeLoop: while (true) {
-                final boolean moreDataAvailable = !isLastPartOfElement || !connectionInternal.outgoingElementsQueue.isEmpty();
+                final boolean moreDataAvailable = !isLastPartOfElement || connectionInternal.hasOutgoingElements();
 
                 if (filteredOutgoingBuffer != null || !networkOutgoingBuffers.isEmpty()) {
                     if (filteredOutgoingBuffer != null) {
@@ -360,9 +389,11 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
                     for (ListIterator<XmppInputOutputFilter> it = connectionInternal.getXmppInputOutputFilterBeginIterator(); it.hasNext();) {
                         XmppInputOutputFilter inputOutputFilter = it.next();
                         XmppInputOutputFilter.OutputResult outputResult;
+                        final long filterStartNanos = metrics.startTimer();
                         try {
                             outputResult = inputOutputFilter.output(outputFilterInputData, isLastPartOfElement,
                                     destinationAddressChanged, moreDataAvailable);
+                            recordFilterNanosSince(inputOutputFilter, filterStartNanos);
                         } catch (IOException e) {
                             connectionInternal.notifyConnectionError(e);
                             break writeLoop;
@@ -396,35 +427,20 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
                     if (destinationAddressChanged) {
                         destinationAddressChanged = false;
                     }
-                } else if (outgoingCharSequenceIterator != null) {
-                    CharSequence nextCharSequence = outgoingCharSequenceIterator.next();
-                    outgoingBuffer = UTF8.encode(nextCharSequence);
-                    if (!outgoingCharSequenceIterator.hasNext()) {
-                        outgoingCharSequenceIterator = null;
-                        isLastPartOfElement = true;
-                    } else {
-                        isLastPartOfElement = false;
+                } else if (outgoingElementEncoder.hasRemaining()) {
+                    // The filters, e.g. the TLS filter, may retain the buffers until their data got consumed. Hence we
+                    // only return buffers to the pool if they were completely consumed and if no filter signaled
+                    // pending data. Note that once we reach this point, all network buffers have been written.
+                    if (!newPendingOutputFilterData && !pendingOutputFilterData) {
+                        releaseConsumedOutgoingEncodeBuffers();
                     }
-
-                    final SmackDebugger debugger = connectionInternal.smackDebugger;
-                    if (debugger != null) {
-                        if (outgoingStreamForDebugger == null) {
-                            outgoingStreamForDebugger = new StringBuilder();
-                        }
-                        outgoingStreamForDebugger.append(nextCharSequence);
-
-                        if (isLastPartOfElement) {
-                            try {
-                                outputDebugSplitter.append(outgoingStreamForDebugger);
-                            } catch (IOException e) {
-                                throw new AssertionError(e);
-                            }
-                            debugger.onOutgoingElementCompleted();
-                            outgoingStreamForDebugger = null;
-                        }
-                    }
-                } else if (!connectionInternal.outgoingElementsQueue.isEmpty()) {
-                    currentlyOutgonigTopLevelStreamElement = connectionInternal.outgoingElementsQueue.poll();
+                    ByteBuffer encodeBuffer = BUFFER_POOL.acquire(OUTGOING_ENCODE_BUFFER_SIZE);
+                    outgoingEncodeBuffers.add(encodeBuffer);
+                    isLastPartOfElement = outgoingElementEncoder.encodeInto(encodeBuffer);
+                    ((java.nio.Buffer) encodeBuffer).flip();
+                    outgoingBuffer = encodeBuffer;
+                } else if (connectionInternal.hasOutgoingElements()) {
+                    currentlyOutgonigTopLevelStreamElement = connectionInternal.pollOutgoingElement();
                     if (currentlyOutgonigTopLevelStreamElement instanceof Stanza) {
                         Stanza currentlyOutgoingStanza = (Stanza) currentlyOutgonigTopLevelStreamElement;
                         Jid currentDestinationAddress = currentlyOutgoingStanza.getTo();
@@ -432,14 +448,28 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
                         lastDestinationAddress = currentDestinationAddress;
                     }
                     CharSequence nextCharSequence = currentlyOutgonigTopLevelStreamElement.toXML(StreamOpen.CLIENT_NAMESPACE);
+                    List<CharSequence> outgoingElementParts;
                     if (nextCharSequence instanceof XmlStringBuilder) {
                         XmlStringBuilder xmlStringBuilder = (XmlStringBuilder) nextCharSequence;
                         XmlEnvironment outgoingStreamXmlEnvironment = connectionInternal.getOutgoingStreamXmlEnvironment();
-                        outgoingCharSequenceIterator = xmlStringBuilder.toList(outgoingStreamXmlEnvironment).iterator();
+                        outgoingElementParts = xmlStringBuilder.toList(outgoingStreamXmlEnvironment);
                     } else {
-                        outgoingCharSequenceIterator = Collections.singletonList(nextCharSequence).iterator();
+                        outgoingElementParts = Collections.singletonList(nextCharSequence);
+                    }
+                    // The parts of the element are encoded straight into the outgoing buffer by the branch above.
+                    outgoingElementEncoder.start(outgoingElementParts.iterator());
+
+                    final SmackDebugger debugger = connectionInternal.smackDebugger;
+                    if (debugger != null) {
+                        try {
+                            for (CharSequence part : outgoingElementParts) {
+                                outputDebugSplitter.append(part);
+                            }
+                        } catch (IOException e) {
+                            throw new AssertionError(e);
+                        }
+                        debugger.onOutgoingElementCompleted();
                     }
-                    assert outgoingCharSequenceIterator != null;
                 } else {
                     // There is nothing more to write.
                     break;
@@ -451,6 +481,7 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
                 newInterestedOps |= SelectionKey.OP_WRITE;
             }
 
+            incomingBuffer = BUFFER_POOL.acquire(INCOMING_BUFFER_SIZE);
             readLoop: while (true) {
                 // Prevent one callback from dominating the reactor thread. Break out of the read-loop if we have
                 // read a certain amount.
@@ -472,15 +503,13 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
                     LOGGER.finer("NIO read() returned " + bytesRead
                             + " for " + this + ". This probably means that the TCP connection was terminated.");
                     // According to the socket channel javadoc section about "asynchronous reads" a socket channel's
-                    // read() may return -1 if the input side of a socket is shut down.
-                     // Note that we do not call notifyConnectionError() here because the connection may be
-                    // cleanly shutdown which would also cause read() to return '-1. I assume that this socket
-                    // will be selected again, on which read() would throw an IOException, which will be caught
-                    // and invoke notifyConnectionError() (see a few lines above).
-                    /*
-                    IOException exception = new IOException("NIO read() returned " + bytesRead);
-                    notifyConnectionError(exception);
-                    */
+                    // read() may return -1 if the input side of a socket is shut down. This is expected if the server
+                    // closed the stream before, e.g. as part of a clean shutdown. Otherwise the connection was lost,
+                    // which we have to report, so that, for example, the stream can be resumed.
+                    if (!incomingStreamClosed) {
+                        IOException exception = new IOException("NIO read() returned " + bytesRead);
+                        handleReadWriteIoException(exception);
+                    }
                     return;
                 }
 
@@ -506,9 +535,12 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
                 for (ListIterator<XmppInputOutputFilter> it = connectionInternal.getXmppInputOutputFilterEndIterator(); it.hasPrevious();) {
                     ((java.nio.Buffer) filteredIncomingBuffer).flip();
 
+                    XmppInputOutputFilter inputOutputFilter = it.previous();
                     ByteBuffer newFilteredIncomingBuffer;
+                    final long filterStartNanos = metrics.startTimer();
                     try {
-                        newFilteredIncomingBuffer = it.previous().input(filteredIncomingBuffer);
+                        newFilteredIncomingBuffer = inputOutputFilter.input(filteredIncomingBuffer);
+                        recordFilterNanosSince(inputOutputFilter, filterStartNanos);
                     } catch (IOException e) {
                         connectionInternal.notifyConnectionError(e);
                         return;
@@ -534,6 +566,15 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
         } finally {
             totalBytesWritten += callbackBytesWritten;
             totalBytesRead += callbackBytesRead;
+            if (callbackBytesWritten > 0) {
+                metrics.getBytesWritten().increment(callbackBytesWritten);
+            }
+            if (callbackBytesRead > 0) {
+                metrics.getBytesRead().increment(callbackBytesRead);
+            }
+
+            BUFFER_POOL.release(incomingBuffer);
+            releaseBuffers();
 
             channelSelectedCallbackLock.unlock();
         }
@@ -546,7 +587,7 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
 
         // Check the queue again to prevent lost wakeups caused by elements inserted before we
         // called resetReactorThreadRacing() a few lines above.
-        if (!connectionInternal.outgoingElementsQueue.isEmpty()) {
+        if (connectionInternal.hasOutgoingElements()) {
             setWriteInterestAfterChannelSelectedCallback.increment();
             newInterestedOps |= SelectionKey.OP_WRITE;
         }
@@ -554,6 +595,57 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
         connectionInternal.setInterestOps(selectionKey, newInterestedOps);
     }
 
+    private void releaseConsumedOutgoingEncodeBuffers() {
+        for (Iterator<ByteBuffer> it = outgoingEncodeBuffers.iterator(); it.hasNext();) {
+            ByteBuffer encodeBuffer = it.next();
+            if (encodeBuffer.hasRemaining()) {
+                continue;
+            }
+            it.remove();
+            BUFFER_POOL.release(encodeBuffer);
+        }
+    }
+
+    /**
+     * Return the buffers which are no longer required to the pool. If the connection got closed, then all buffers are
+     * returned.
+     */
+    private void releaseBuffers() {
+        assert channelSelectedCallbackLock.isHeldByCurrentThread();
+
+        final boolean closed = socketChannel == null;
+        if (closed) {
+            // The pending data is never going to be written, and some of the buffers holding it are released below.
+            outgoingBuffer = null;
+            filteredOutgoingBuffer = null;
+            networkOutgoingBuffers.clear();
+            networkOutgoingBuffersBytes = 0;
+
+            for (ByteBuffer encodeBuffer : outgoingEncodeBuffers) {
+                BUFFER_POOL.release(encodeBuffer);
+            }
+            outgoingEncodeBuffers.clear();
+
+            TlsState tlsState = this.tlsState;
+            if (tlsState != null) {
+                tlsState.releasePendingInputData();
+            }
+        } else {
+            // The filters may reference their buffers from the network buffers.
+            if (filteredOutgoingBuffer != null || !networkOutgoingBuffers.isEmpty()) {
+                return;
+            }
+
+            if (!pendingOutputFilterData) {
+                releaseConsumedOutgoingEncodeBuffers();
+            }
+        }
+
+        for (ListIterator<XmppInputOutputFilter> it = connectionInternal.getXmppInputOutputFilterBeginIterator(); it.hasNext();) {
+            it.next().releaseBuffers();
+        }
+    }
+
     private void handleReadWriteIoException(IOException e) {
         if (e instanceof ClosedChannelException && !tcpNioTransport.isConnected()) {
             // The connection is already closed.
@@ -722,6 +814,13 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
         connectionInternal.setInterestOps(selectionKey, SelectionKey.OP_WRITE | SelectionKey.OP_READ);
     }
 
+    private void recordFilterNanosSince(XmppInputOutputFilter filter, long startNanos) {
+        if (!metrics.isEnabled()) {
+            return;
+        }
+        metrics.recordNanosSince(metrics.getFilterNanos(filter.getFilterName()), startNanos);
+    }
+
     @Override
     protected XmppTcpNioTransport getTransport() {
         return tcpNioTransport;
@@ -928,6 +1027,10 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
         private TlsHandshakeStatus handshakeStatus = TlsHandshakeStatus.initial;
         private SSLException handshakeException;
 
+        /**
+         * The buffers the SSLEngine wraps into and unwraps into. They are borrowed from the pool when required and
+         * returned by {@link #releaseBuffers()}.
+         */
         private ByteBuffer myNetData;
         private ByteBuffer peerAppData;
 
@@ -960,13 +1063,6 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
             String peerHost = connectionInternal.connection.getConfiguration().getXMPPServiceDomain().toString();
             engine = smackTlsContext.sslContext.createSSLEngine(peerHost, remoteAddress.getPort());
             engine.setUseClientMode(true);
-
-            SSLSession session = engine.getSession();
-            int applicationBufferSize = session.getApplicationBufferSize();
-            int packetBufferSize = session.getPacketBufferSize();
-
-            myNetData = ByteBuffer.allocateDirect(packetBufferSize);
-            peerAppData = ByteBuffer.allocate(applicationBufferSize);
         }
 
         @Override
@@ -982,7 +1078,11 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
 
             ByteBuffer[] outputDataArray = pendingOutputData.toArray(new ByteBuffer[pendingOutputData.size()]);
 
-            ((java.nio.Buffer) myNetData).clear();
+            if (myNetData == null) {
+                myNetData = BUFFER_POOL.acquire(engine.getSession().getPacketBufferSize());
+            } else {
+                ((java.nio.Buffer) myNetData).clear();
+            }
 
             while (true) {
                 SSLEngineResult result;
@@ -1038,9 +1138,10 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
                     if (newCapacity <= myNetData.capacity()) {
                         newCapacity = 2 * myNetData.capacity();
                     }
-                    ByteBuffer newMyNetData = ByteBuffer.allocateDirect(newCapacity);
+                    ByteBuffer newMyNetData = BUFFER_POOL.acquire(newCapacity);
                     ((java.nio.Buffer) myNetData).flip();
                     newMyNetData.put(myNetData);
+                    BUFFER_POOL.release(myNetData);
                     myNetData = newMyNetData;
                     continue;
                 case BUFFER_UNDERFLOW:
@@ -1060,15 +1161,29 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
                 assert pendingInputData != inputData;
 
                 int accumulatedDataBytes = pendingInputData.remaining() + inputData.remaining();
-                accumulatedData = ByteBuffer.allocate(accumulatedDataBytes);
+                accumulatedData = BUFFER_POOL.acquire(accumulatedDataBytes);
                 accumulatedData.put(pendingInputData)
                                .put(inputData);
                 ((java.nio.Buffer) accumulatedData).flip();
-                pendingInputData = null;
+                releasePendingInputData();
             }
 
-            ((java.nio.Buffer) peerAppData).clear();
+            if (peerAppData == null) {
+                peerAppData = BUFFER_POOL.acquire(engine.getSession().getApplicationBufferSize());
+            } else {
+                ((java.nio.Buffer) peerAppData).clear();
+            }
+
+            try {
+                return unwrap(accumulatedData);
+            } finally {
+                if (accumulatedData != inputData) {
+                    BUFFER_POOL.release(accumulatedData);
+                }
+            }
+        }
 
+        private ByteBuffer unwrap(ByteBuffer accumulatedData) throws SSLException {
             while (true) {
                 SSLEngineResult result;
                 try {
@@ -1132,7 +1247,12 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
                 case BUFFER_OVERFLOW:
                     int applicationBufferSize = engine.getSession().getApplicationBufferSize();
                     assert peerAppData.remaining() < applicationBufferSize;
-                    peerAppData = ByteBuffer.allocate(applicationBufferSize);
+                    // Keep the data which was already unwrapped into peerAppData.
+                    ByteBuffer newPeerAppData = BUFFER_POOL.acquire(peerAppData.position() + applicationBufferSize);
+                    ((java.nio.Buffer) peerAppData).flip();
+                    newPeerAppData.put(peerAppData);
+                    BUFFER_POOL.release(peerAppData);
+                    peerAppData = newPeerAppData;
                     continue;
                 }
             }
@@ -1142,15 +1262,28 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
             // Note that we can not simply write
             // pendingInputData = byteBuffer;
             // we have to copy the provided byte buffer, because it is possible that this byteBuffer is re-used by some
-            // higher layer. That is, here 'byteBuffer' is typically 'incomingBuffer', which is a direct buffer only
-            // allocated once per connection for performance reasons and hence re-used for read() calls.
-            pendingInputData = ByteBuffer.allocate(byteBuffer.remaining());
+            // higher layer. That is, here 'byteBuffer' is typically 'incomingBuffer', which is a direct buffer borrowed
+            // from the pool only for the duration of the channel selected callback.
+            pendingInputData = BUFFER_POOL.acquire(byteBuffer.remaining());
             pendingInputData.put(byteBuffer);
             ((java.nio.Buffer) pendingInputData).flip();
 
             pendingInputFilterData = pendingInputData.hasRemaining();
         }
 
+        private void releasePendingInputData() {
+            BUFFER_POOL.release(pendingInputData);
+            pendingInputData = null;
+        }
+
+        @Override
+        public void releaseBuffers() {
+            BUFFER_POOL.release(myNetData);
+            myNetData = null;
+            BUFFER_POOL.release(peerAppData);
+            peerAppData = null;
+        }
+
         private SSLEngineResult.HandshakeStatus handleHandshakeStatus(SSLEngineResult sslEngineResult) {
             SSLEngineResult.HandshakeStatus handshakeStatus = sslEngineResult.getHandshakeStatus();
             switch (handshakeStatus) {
@@ -1328,6 +1461,19 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
 
         selectionKeyAttachment = null;
         remoteAddress = null;
+
+        // Return all buffers to the pool. Note that we must not block here, as the thread currently invoking the channel
+        // selected callback may wait for us, e.g. when it calls notifyConnectionError(). In this case, or if this
+        // method was invoked from within the callback, the callback will release the buffers once it is finished.
+        if (channelSelectedCallbackLock.tryLock()) {
+            try {
+                if (channelSelectedCallbackLock.getHoldCount() == 1) {
+                    releaseBuffers();
+                }
+            } finally {
+                channelSelectedCallbackLock.unlock();
+            }
+        }
     }
 
     private static List<? extends Buffer> pruneBufferList(Collection<? extends Buffer> buffers) {
@@ -0,0 +1,97 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.AbstractXMPPConnection;
+import org.jivesoftware.smack.filter.StanzaTypeFilter;
+import org.jivesoftware.smack.tcp.XMPPTCPConnection.PacketReader;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+
+import org.junit.jupiter.api.Test;
+
+public class PacketReaderTest {
+
+    private static XmlPullParser parserForMessage(String id) throws Exception {
+        return PacketParserUtils.getParserFor("<message from='juliet@example.org/balcony' id='"
+                        + id + "'><body>Hi</body></message>");
+    }
+
+    private static long getClientHandledStanzasCount(XMPPTCPConnection connection) throws Exception {
+        Field field = XMPPTCPConnection.class.getDeclaredField("clientHandledStanzasCount");
+        field.setAccessible(true);
+        return field.getLong(connection);
+    }
+
+    /**
+     * Make sure that a stanza whose hand off to the stanza pipeline was aborted, because the reader was shut down while
+     * the pipeline was full, is not counted as handled. Otherwise it would be acknowledged to the server, and hence not
+     * redelivered after the stream was resumed, although it was never processed.
+     *
+     * @throws Exception in case of an exception.
+     */
+    @Test
+    public void droppedStanzaIsNotAcknowledged() throws Exception {
+        XMPPTCPConnectionConfiguration config = XMPPTCPConnectionConfiguration.builder()
+                        .setXmppDomain("example.org")
+                        .setUsernameAndPassword("user", "pass")
+                        .setStanzaPipelineCapacity(1)
+                        .build();
+        XMPPTCPConnection connection = new XMPPTCPConnection(config);
+        PacketReader packetReader = connection.packetReader;
+
+        Method onStreamOpen = AbstractXMPPConnection.class.getDeclaredMethod("onStreamOpen", XmlPullParser.class);
+        onStreamOpen.setAccessible(true);
+        onStreamOpen.invoke(connection, PacketParserUtils.getParserFor("<stream:stream xmlns='jabber:client'"
+                        + " xmlns:stream='http://etherx.jabber.org/streams' from='example.org' id='stream-1'>"));
+
+        // Enable the pipeline without starting the reader thread, which would try to read from the, not yet existing,
+        // socket.
+        Field stanzaPipelineField = PacketReader.class.getDeclaredField("stanzaPipeline");
+        stanzaPipelineField.setAccessible(true);
+        stanzaPipelineField.set(packetReader, new StanzaPipeline(config.getStanzaPipelineCapacity()));
+
+        CountDownLatch processingStarted = new CountDownLatch(1);
+        CountDownLatch unblockProcessing = new CountDownLatch(1);
+        connection.addStanzaListener(stanza -> {
+            processingStarted.countDown();
+            unblockProcessing.await();
+        }, StanzaTypeFilter.MESSAGE);
+
+        try {
+            // The first stanza occupies the only slot of the pipeline.
+            packetReader.processOrHandOffStanza(parserForMessage("m1"));
+            assertTrue(processingStarted.await(10, TimeUnit.SECONDS));
+            assertEquals(1, getClientHandledStanzasCount(connection));
+
+            // The connection is closed while the pipeline is full, hence the hand off of the second stanza is aborted.
+            packetReader.shutdown();
+            packetReader.processOrHandOffStanza(parserForMessage("m2"));
+            assertEquals(1, getClientHandledStanzasCount(connection));
+        } finally {
+            unblockProcessing.countDown();
+        }
+    }
+}
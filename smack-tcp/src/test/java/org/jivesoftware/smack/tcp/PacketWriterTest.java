@@ -16,7 +16,9 @@
  */
 package org.jivesoftware.smack.tcp;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.IOException;
@@ -25,13 +27,17 @@ import java.io.StringReader;
 import java.io.Writer;
 import java.lang.reflect.Field;
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.jivesoftware.smack.AbstractXMPPConnection;
 import org.jivesoftware.smack.SmackException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
 import org.jivesoftware.smack.packet.StanzaBuilder;
+import org.jivesoftware.smack.packet.StreamOpen;
+import org.jivesoftware.smack.packet.XmlEnvironment;
 import org.jivesoftware.smack.tcp.XMPPTCPConnection.PacketWriter;
 import org.jivesoftware.smack.util.ExceptionUtil;
 
@@ -154,6 +160,63 @@ public class PacketWriterTest {
         }
     }
 
+    @Test
+    public void shouldSignalBackpressure() throws Exception {
+        XMPPTCPConnectionConfiguration configuration = XMPPTCPConnectionConfiguration.builder()
+                        .setXmppDomain("example.org")
+                        .setUsernameAndPassword("user", "pass")
+                        .setOutgoingQueueSize(10)
+                        .setOutgoingQueueWaterMarks(2, 8)
+                        .build();
+        XMPPTCPConnection connection = new XMPPTCPConnection(configuration);
+
+        Field readerField = AbstractXMPPConnection.class.getDeclaredField("reader");
+        readerField.setAccessible(true);
+        readerField.set(connection, DUMMY_READER);
+
+        // As no stream got opened, we have to set the outgoing XML environment, which is required to write stanzas.
+        Field outgoingStreamXmlEnvironmentField = AbstractXMPPConnection.class.getDeclaredField("outgoingStreamXmlEnvironment");
+        outgoingStreamXmlEnvironmentField.setAccessible(true);
+        outgoingStreamXmlEnvironmentField.set(connection, XmlEnvironment.builder().with(new StreamOpen("example.org")).build());
+
+        final CountDownLatch aboveHighWaterMark = new CountDownLatch(1);
+        final CountDownLatch belowLowWaterMark = new CountDownLatch(1);
+        connection.addOutgoingQueueBackpressureListener(new OutgoingQueueBackpressureListener() {
+            @Override
+            public void outgoingQueueAboveHighWaterMark(XMPPTCPConnection connection) {
+                aboveHighWaterMark.countDown();
+            }
+
+            @Override
+            public void outgoingQueueBelowLowWaterMark(XMPPTCPConnection connection) {
+                belowLowWaterMark.countDown();
+            }
+        });
+
+        final PacketWriter pw = connection.packetWriter;
+        BlockingStringWriter blockingStringWriter = new BlockingStringWriter();
+        connection.setWriter(blockingStringWriter);
+        pw.init();
+
+        try {
+            // The writer thread will dequeue one stanza and block while writing it, the remaining ones will reach the
+            // high water mark.
+            for (int i = 0; i < 9; i++) {
+                pw.sendStreamElement(StanzaBuilder.buildMessage().build());
+            }
+            assertTrue(aboveHighWaterMark.await(10, TimeUnit.SECONDS));
+            assertTrue(connection.isOutgoingQueueAboveHighWaterMark());
+
+            blockingStringWriter.unblock();
+            assertTrue(belowLowWaterMark.await(10, TimeUnit.SECONDS));
+            assertFalse(connection.isOutgoingQueueAboveHighWaterMark());
+        }
+        finally {
+            blockingStringWriter.unblock();
+            pw.shutdown(true);
+        }
+    }
+
     public static class BlockingStringWriter extends Writer {
         private boolean blocked = true;
 
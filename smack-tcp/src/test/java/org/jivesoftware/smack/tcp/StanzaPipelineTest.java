@@ -0,0 +1,131 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+public class StanzaPipelineTest {
+
+    @Test
+    public void shouldProcessStanzasOfTheSameSenderInOrder() throws InterruptedException {
+        final String[] senders = { "", "juliet@example.org/balcony", "romeo@example.net/orchard", "room@muc.example.org" };
+        final int stanzasPerSender = 250;
+
+        Map<String, List<Integer>> processed = new HashMap<>();
+        for (String sender : senders) {
+            processed.put(sender, Collections.synchronizedList(new ArrayList<>()));
+        }
+        CountDownLatch allProcessed = new CountDownLatch(senders.length * stanzasPerSender);
+
+        StanzaPipeline stanzaPipeline = new StanzaPipeline(8);
+        for (int i = 0; i < stanzasPerSender; i++) {
+            for (String sender : senders) {
+                final int sequenceNumber = i;
+                boolean handedOff = stanzaPipeline.handOff(sender, () -> {
+                    processed.get(sender).add(sequenceNumber);
+                    allProcessed.countDown();
+                }, () -> false);
+                assertTrue(handedOff);
+            }
+        }
+
+        assertTrue(allProcessed.await(30, TimeUnit.SECONDS));
+        for (String sender : senders) {
+            List<Integer> sequenceNumbers = processed.get(sender);
+            assertEquals(stanzasPerSender, sequenceNumbers.size());
+            for (int i = 0; i < stanzasPerSender; i++) {
+                assertEquals(i, sequenceNumbers.get(i).intValue(), "Stanza of " + sender + " processed out of order");
+            }
+        }
+    }
+
+    @Test
+    public void shouldBlockOnceCapacityIsReached() throws InterruptedException {
+        final int capacity = 3;
+        StanzaPipeline stanzaPipeline = new StanzaPipeline(capacity);
+
+        CountDownLatch unblockProcessing = new CountDownLatch(1);
+        AtomicInteger processedCount = new AtomicInteger();
+        Runnable blockingProcessing = () -> {
+            try {
+                unblockProcessing.await();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            processedCount.incrementAndGet();
+        };
+
+        // Use different senders, so that the stanzas are processed concurrently and each occupies a slot.
+        for (int i = 0; i < capacity; i++) {
+            assertTrue(stanzaPipeline.handOff("sender" + i, blockingProcessing, () -> false));
+        }
+
+        CountDownLatch handedOff = new CountDownLatch(1);
+        AtomicReference<Throwable> handOffThrowable = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                stanzaPipeline.handOff("another-sender", blockingProcessing, () -> false);
+                handedOff.countDown();
+            } catch (Throwable t) {
+                handOffThrowable.set(t);
+            }
+        });
+        reader.start();
+
+        assertFalse(handedOff.await(500, TimeUnit.MILLISECONDS), "Hand off did not block although pipeline is full");
+
+        unblockProcessing.countDown();
+        assertTrue(handedOff.await(10, TimeUnit.SECONDS), "Hand off did not unblock once a slot became free");
+        reader.join();
+        assertEquals(null, handOffThrowable.get());
+    }
+
+    @Test
+    public void shouldAbortBlockedHandOff() throws InterruptedException {
+        StanzaPipeline stanzaPipeline = new StanzaPipeline(1);
+
+        CountDownLatch unblockProcessing = new CountDownLatch(1);
+        assertTrue(stanzaPipeline.handOff("", () -> {
+            try {
+                unblockProcessing.await();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }, () -> false));
+
+        AtomicInteger processedCount = new AtomicInteger();
+        boolean handedOff = stanzaPipeline.handOff("", processedCount::incrementAndGet, () -> true);
+        assertFalse(handedOff);
+
+        unblockProcessing.countDown();
+        assertEquals(0, processedCount.get());
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jivesoftware.smack.ConnectionConfiguration.SecurityMode;
+import org.jivesoftware.smack.ConnectionListener;
+import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionConfiguration;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+import org.jivesoftware.smack.sm.StreamManagementModule;
+import org.jivesoftware.smack.sm.StreamManagementModuleDescriptor;
+
+import org.junit.jupiter.api.Test;
+import org.jxmpp.xml.splitter.XmppElementCallback;
+import org.jxmpp.xml.splitter.XmppXmlSplitter;
+
+/**
+ * Tests Stream Management of the modular connection against an in-process stand-in server, which performs just enough
+ * of XMPP to let the client log in.
+ */
+public class XmppTcpStreamManagementTest {
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private static final String SM_NAMESPACE = "urn:xmpp:sm:3";
+
+    private static final String STREAM_OPENED = "stream-opened";
+
+    @Test
+    public void acknowledgesAndResumesStream() throws Exception {
+        try (StandInServer server = new StandInServer()) {
+            ModularXmppClientToServerConnection connection = createConnection(server);
+            StreamManagementModule sm = connection.getConnectionModuleFor(StreamManagementModuleDescriptor.class);
+            // Ensure that only the acknowledgement requests of the server are involved.
+            sm.setAckRequestDelay(1, TimeUnit.HOURS);
+
+            boolean[] resumed = new boolean[1];
+            connection.addConnectionListener(new ConnectionListener() {
+                @Override
+                public void authenticated(XMPPConnection connection, boolean resumedStream) {
+                    resumed[0] = resumedStream;
+                }
+            });
+
+            FutureTask<Void> login = loginAsync(connection);
+            ServerSession session = server.accept();
+            session.negotiateUntilBindingFeatures();
+            session.bindAndEnableStreamManagement();
+            login.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            assertTrue(sm.isStreamManagementEnabled());
+            assertFalse(resumed[0]);
+
+            // The client has to count the stanzas it handled.
+            session.send("<message from='juliet@example.org/balcony' id='in-1'><body>Hi</body></message>");
+            session.send("<r xmlns='" + SM_NAMESPACE + "'/>");
+            assertEquals("1", attribute(session.expect("<a "), "h"));
+
+            for (int i = 0; i < 5; i++) {
+                connection.sendStanza(StanzaBuilder.buildMessage("out-" + i).to("juliet@example.org").build());
+            }
+            for (int i = 0; i < 5; i++) {
+                assertEquals("out-" + i, attribute(session.expect("<message"), "id"));
+            }
+            assertEquals(5, sm.getUnacknowledgedStanzasCount());
+
+            session.send("<a xmlns='" + SM_NAMESPACE + "' h='2'/>");
+            waitUntil(() -> sm.getUnacknowledgedStanzasCount() == 3);
+
+            // The connection breaks, but the stream can be resumed.
+            session.close();
+            waitUntil(() -> !connection.isConnected());
+            assertTrue(sm.isStreamResumptionPossible());
+
+            login = loginAsync(connection);
+            session = server.accept();
+            session.negotiateUntilBindingFeatures();
+            String resume = session.expect("<resume ");
+            assertEquals("1", attribute(resume, "h"));
+            assertEquals("sm-1", attribute(resume, "previd"));
+            // The server did only receive out-2 but not out-3 and out-4.
+            session.send("<resumed xmlns='" + SM_NAMESPACE + "' h='3' previd='sm-1'/>");
+            login.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+            assertEquals("out-3", attribute(session.expect("<message"), "id"));
+            assertEquals("out-4", attribute(session.expect("<message"), "id"));
+            assertTrue(resumed[0]);
+            assertTrue(sm.isStreamManagementEnabled());
+            assertEquals(2, sm.getUnacknowledgedStanzasCount());
+
+            session.send("<a xmlns='" + SM_NAMESPACE + "' h='5'/>");
+            waitUntil(() -> sm.getUnacknowledgedStanzasCount() == 0);
+
+            connection.instantShutdown();
+        }
+    }
+
+    @Test
+    public void requestsAcknowledgementForBurstOfStanzas() throws Exception {
+        try (StandInServer server = new StandInServer()) {
+            ModularXmppClientToServerConnection connection = createConnection(server);
+            StreamManagementModule sm = connection.getConnectionModuleFor(StreamManagementModuleDescriptor.class);
+            sm.setAckRequestDelay(50, TimeUnit.MILLISECONDS);
+
+            FutureTask<Void> login = loginAsync(connection);
+            ServerSession session = server.accept();
+            session.negotiateUntilBindingFeatures();
+            session.bindAndEnableStreamManagement();
+            login.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+            for (int i = 0; i < 3; i++) {
+                connection.sendStanza(StanzaBuilder.buildMessage("out-" + i).to("juliet@example.org").build());
+            }
+            for (int i = 0; i < 3; i++) {
+                session.expect("<message");
+            }
+            // A single acknowledgement request covers all stanzas.
+            session.expect("<r ");
+
+            session.send("<a xmlns='" + SM_NAMESPACE + "' h='3'/>");
+            waitUntil(() -> sm.getUnacknowledgedStanzasCount() == 0);
+
+            connection.instantShutdown();
+        }
+    }
+
+    private static ModularXmppClientToServerConnection createConnection(StandInServer server) throws Exception {
+        ModularXmppClientToServerConnectionConfiguration configuration = ModularXmppClientToServerConnectionConfiguration.builder()
+                        .setXmppDomain("example.org")
+                        .setHostAddress(InetAddress.getLoopbackAddress())
+                        .setPort(server.getPort())
+                        .setSecurityMode(SecurityMode.disabled)
+                        .performSaslAnonymousAuthentication()
+                        .setSendPresence(false)
+                        .removeAllModules()
+                        .with(XmppTcpTransportModuleDescriptor.Builder.class).disableStartTls().buildModule()
+                        .addModule(StreamManagementModuleDescriptor.class)
+                        .build();
+        ModularXmppClientToServerConnection connection = new ModularXmppClientToServerConnection(configuration);
+        connection.setReplyTimeout(TIMEOUT_MILLIS);
+        return connection;
+    }
+
+    private static FutureTask<Void> loginAsync(ModularXmppClientToServerConnection connection) {
+        FutureTask<Void> login = new FutureTask<>(() -> {
+            connection.connect().login();
+            return null;
+        });
+        Thread thread = new Thread(login, "Login of " + connection);
+        thread.setDaemon(true);
+        thread.start();
+        return login;
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition not met within timeout");
+            Thread.sleep(10);
+        }
+    }
+
+    private static String attribute(String element, String name) {
+        Matcher matcher = Pattern.compile(" " + name + "=(['\"])(.*?)\\1").matcher(element);
+        assertTrue(matcher.find(), "No attribute '" + name + "' in " + element);
+        return matcher.group(2);
+    }
+
+    private static final class StandInServer implements Closeable {
+        private final ServerSocket serverSocket;
+
+        private StandInServer() throws IOException {
+            serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+            serverSocket.setSoTimeout((int) TIMEOUT_MILLIS);
+        }
+
+        private int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        private ServerSession accept() throws IOException {
+            return new ServerSession(serverSocket.accept());
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+
+    private static final class ServerSession implements Closeable {
+        private final Socket socket;
+        private final Writer writer;
+        private final BlockingQueue<String> receivedElements = new LinkedBlockingQueue<>();
+
+        private int streamCount;
+
+        private ServerSession(Socket socket) throws IOException {
+            this.socket = socket;
+            writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+
+            XmppXmlSplitter splitter = new XmppXmlSplitter(100000, new XmppElementCallback() {
+                @Override
+                public void onCompleteElement(String completeElement) {
+                    receivedElements.add(completeElement);
+                }
+
+                @Override
+                public void streamOpened(String prefix, Map<String, String> attributes) {
+                    receivedElements.add(STREAM_OPENED);
+                }
+
+                @Override
+                public void streamClosed() {
+                }
+            });
+            Reader reader = new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8);
+            Thread readerThread = new Thread(() -> {
+                char[] buffer = new char[4096];
+                try {
+                    int read;
+                    while ((read = reader.read(buffer)) >= 0) {
+                        splitter.write(buffer, 0, read);
+                    }
+                } catch (IOException e) {
+                    // The session was closed.
+                }
+            }, "Stand-in server session reader");
+            readerThread.setDaemon(true);
+            readerThread.start();
+        }
+
+        private void send(String xml) throws IOException {
+            writer.write(xml);
+            writer.flush();
+        }
+
+        private String expect(String prefix) throws InterruptedException {
+            String element = receivedElements.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            assertNotNull(element, "Did not receive " + prefix);
+            assertTrue(element.startsWith(prefix), "Expected " + prefix + " but got " + element);
+            return element;
+        }
+
+        private void openStream(String features) throws InterruptedException, IOException {
+            expect(STREAM_OPENED);
+            streamCount++;
+            send("<stream:stream xmlns='jabber:client' xmlns:stream='http://etherx.jabber.org/streams'"
+                            + " from='example.org' id='stream-" + streamCount + "' version='1.0' xml:lang='en'>"
+                            + "<stream:features>" + features + "</stream:features>");
+        }
+
+        private void negotiateUntilBindingFeatures() throws InterruptedException, IOException {
+            openStream("<mechanisms xmlns='urn:ietf:params:xml:ns:xmpp-sasl'>"
+                            + "<mechanism>ANONYMOUS</mechanism></mechanisms>");
+            expect("<auth ");
+            send("<success xmlns='urn:ietf:params:xml:ns:xmpp-sasl'/>");
+            openStream("<bind xmlns='urn:ietf:params:xml:ns:xmpp-bind'/><sm xmlns='" + SM_NAMESPACE + "'/>");
+        }
+
+        private void bindAndEnableStreamManagement() throws InterruptedException, IOException {
+            String bind = expect("<iq ");
+            send("<iq type='result' id='" + attribute(bind, "id") + "'>"
+                            + "<bind xmlns='urn:ietf:params:xml:ns:xmpp-bind'><jid>anon@example.org/res</jid></bind>"
+                            + "</iq>");
+            expect("<enable ");
+            send("<enabled xmlns='" + SM_NAMESPACE + "' id='sm-1' resume='true'/>");
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -269,7 +269,7 @@ public final class XmppWebSocketTransportModule
         protected void notifyAboutNewOutgoingElements() {
             final Queue<TopLevelStreamElement> outgoingElementsQueue = connectionInternal.outgoingElementsQueue;
             asyncButOrderedOutgoingElementsQueue.performAsyncButOrdered(outgoingElementsQueue, () -> {
-                for (TopLevelStreamElement topLevelStreamElement; (topLevelStreamElement = outgoingElementsQueue.poll()) != null;) {
+                for (TopLevelStreamElement topLevelStreamElement; (topLevelStreamElement = connectionInternal.pollOutgoingElement()) != null;) {
                     websocket.send(topLevelStreamElement);
                     connectionInternal.fireFirstLevelElementSendListeners(topLevelStreamElement);
                 }
@@ -35,18 +35,30 @@ public class SmackXmlParser {
 
     private static XmlPullParserFactory xmlPullParserFactory;
 
+    private static volatile XmlPullParserFactory serviceLoaderXmlPullParserFactory;
+
     public static XmlPullParserFactory getXmlPullParserFactory() {
         final XmlPullParserFactory xmlPullParserFactory = SmackXmlParser.xmlPullParserFactory;
         if (xmlPullParserFactory != null) {
             return xmlPullParserFactory;
         }
 
-        Iterator<XmlPullParserFactory> iterator = xmlPullParserFactoryServiceLoader.iterator();
-        if (!iterator.hasNext()) {
-            throw new IllegalStateException(
-                    "No XmlPullParserFactory registered with Service Provider Interface (SPI). Is smack-xmlparser-xpp3 or smack-xmlparser-stax in classpath?");
+        XmlPullParserFactory serviceLoaderXmlPullParserFactory = SmackXmlParser.serviceLoaderXmlPullParserFactory;
+        if (serviceLoaderXmlPullParserFactory != null) {
+            return serviceLoaderXmlPullParserFactory;
+        }
+
+        // ServiceLoader is not thread-safe, but parsers may be created concurrently, e.g. by multiple reactor threads.
+        synchronized (xmlPullParserFactoryServiceLoader) {
+            Iterator<XmlPullParserFactory> iterator = xmlPullParserFactoryServiceLoader.iterator();
+            if (!iterator.hasNext()) {
+                throw new IllegalStateException(
+                        "No XmlPullParserFactory registered with Service Provider Interface (SPI). Is smack-xmlparser-xpp3 or smack-xmlparser-stax in classpath?");
+            }
+            serviceLoaderXmlPullParserFactory = iterator.next();
+            SmackXmlParser.serviceLoaderXmlPullParserFactory = serviceLoaderXmlPullParserFactory;
+            return serviceLoaderXmlPullParserFactory;
         }
-        return iterator.next();
     }
 
     public static void setXmlPullParserFactory(XmlPullParserFactory xmlPullParserFactory) {